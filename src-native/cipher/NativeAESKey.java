@@ -0,0 +1,421 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * AES engine backed by the system libcrypto (OpenSSL EVP), called through the Foreign Function & Memory API
+ */
+package cipher;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.ref.Cleaner;
+import java.util.function.Consumer;
+
+/**
+ * An expanded AES key which ciphers through the OpenSSL EVP interface of the system libcrypto (AES-NI or ARMv8 crypto
+ * extensions where the host supports them) without JNI glue. Produces the same bytes as {@link AESKey}: CTR runs
+ * are split wherever the counter used by {@link AESCTR} (bytes 3, 7, 11 and 15 as a 32 bit word) would differ from
+ * the 128 bit counter of OpenSSL. Bulk data should be passed as native {@link MemorySegment}s (allocated by an
+ * {@link Arena} or mapped from a file), the byte array methods copy through native memory and are dominated by call
+ * overhead for single blocks. Instances are immutable and can be shared between threads, each thread keys its own
+ * EVP contexts once and reuses them (and a native buffer for the array methods) for every later call.
+ * The library is looked up as libcrypto.so.3, libcrypto.so.1.1, libcrypto.so or libcrypto.dylib unless the aes.libcrypto
+ * system property names it; the JVM should be started with --enable-native-access=ALL-UNNAMED (or the module name).
+ * Compiled separately from the rest of the package (src-native, Java 22+); {@link AESEngine#create(byte[])} loads it
+ * reflectively and falls back to {@link AESKey} when the class or the library is not available.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class NativeAESKey implements AESEngine {
+
+    private static final String[] LIBRARY_NAMES = {"libcrypto.so.3", "libcrypto.so.1.1", "libcrypto.so", "libcrypto.dylib"};
+    private static final int MAX_UPDATE_LENGTH = 1 << 30; // EVP_CipherUpdate takes an int length
+    private static final int SCRATCH_LENGTH = 64 * 1024; // native buffer the array methods copy through, per thread
+    private static final int ECB_ENCRYPT = 0, ECB_DECRYPT = 1, CBC_ENCRYPT = 2, CBC_DECRYPT = 3, CTR = 4;
+    private static final Library LIBRARY = Library.load();
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /** 4, 6, 8 depending on number of 32 bit words in the initial key */
+    public final int keySize;
+    private final ThreadLocal<Contexts> contexts;
+
+    /**
+     * Validates the key, the key schedule is computed by libcrypto once per thread and mode (on first use)
+     * @param key initial key (16, 24, or 32 bytes)
+     * @throws IllegalStateException if libcrypto could not be loaded
+     */
+    public NativeAESKey(byte[] key) {
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("Invalid key length. Acceptable lengths are: 128, 192, or 256 bits.");
+        }
+        if (LIBRARY == null) {
+            throw new IllegalStateException("libcrypto could not be loaded.");
+        }
+        this.keySize = key.length / 4;
+        byte[] keyBytes = key.clone();
+        int cipherIndex = keySize / 2 - 2; // index of the EVP_CIPHER for the key length (128, 192, 256)
+        this.contexts = ThreadLocal.withInitial(() -> new Contexts(keyBytes, cipherIndex)); // must not capture this
+    }
+
+    /**
+     * @return true if libcrypto was loaded and native keys can be constructed
+     */
+    public static boolean isAvailable() {
+        return LIBRARY != null;
+    }
+
+    /*
+    ------------------------------------------
+                  Segment Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Enciphers consecutive 16 byte blocks independently (ECB)
+     * @param input native segment containing the blocks (length must conform to 16 byte block length)
+     * @param output native segment of at least the same length (may be the same as input)
+     */
+    public void encryptBlocks(MemorySegment input, MemorySegment output) {
+        long length = checkLengths(input, output, true);
+        Contexts contexts = this.contexts.get();
+        contexts.update(contexts.context(ECB_ENCRYPT), input, output, length);
+    }
+
+    /**
+     * Deciphers consecutive 16 byte blocks independently (ECB)
+     * @see #encryptBlocks(MemorySegment, MemorySegment)
+     */
+    public void decryptBlocks(MemorySegment input, MemorySegment output) {
+        long length = checkLengths(input, output, true);
+        Contexts contexts = this.contexts.get();
+        contexts.update(contexts.context(ECB_DECRYPT), input, output, length);
+    }
+
+    /**
+     * Ciphers input in CTR mode, a trailing partial block consumes a whole counter block
+     * @param counterBlock current counter block (16 bytes), advanced past the blocks used
+     * @param input native segment containing the data to be ciphered
+     * @param output native segment of at least the same length (may be the same as input)
+     */
+    public void counterMode(byte[] counterBlock, MemorySegment input, MemorySegment output) {
+        long length = checkLengths(input, output, false);
+        Contexts contexts = this.contexts.get();
+        MemorySegment context = contexts.context(CTR);
+        for (long position = 0; position < length; ) {
+            // OpenSSL carries out of byte 15 into byte 14, AESCTR into byte 11, so a run ends where byte 15 wraps
+            long run = Math.min(length - position, (256 - (counterBlock[15] & 0xff)) * 16L);
+            contexts.setInitVector(context, counterBlock); // also discards the key stream left by a partial block
+            contexts.update(context, input.asSlice(position), output.asSlice(position), run);
+            AESKey.addToCounter(counterBlock, (run + 15) / 16); // a trailing partial block consumes a whole block
+            position += run;
+        }
+    }
+
+    /**
+     * Encrypts input in CBC mode
+     * @param chainingBlock IV or last ciphertext block of the previous call (16 bytes), replaced by the last ciphertext block
+     * @param input native segment containing the plaintext (length must conform to 16 byte block length)
+     * @param output native segment of at least the same length (may be the same as input)
+     */
+    public void encryptCBC(byte[] chainingBlock, MemorySegment input, MemorySegment output) {
+        long length = checkLengths(input, output, true);
+        if (length == 0) {
+            return;
+        }
+        Contexts contexts = this.contexts.get();
+        MemorySegment context = contexts.context(CBC_ENCRYPT);
+        contexts.setInitVector(context, chainingBlock);
+        contexts.update(context, input, output, length);
+        MemorySegment.copy(output, ValueLayout.JAVA_BYTE, length - 16, chainingBlock, 0, 16);
+    }
+
+    /**
+     * Decrypts input in CBC mode
+     * @see #encryptCBC(byte[], MemorySegment, MemorySegment)
+     */
+    public void decryptCBC(byte[] chainingBlock, MemorySegment input, MemorySegment output) {
+        long length = checkLengths(input, output, true);
+        if (length == 0) {
+            return;
+        }
+        byte[] lastBlock = new byte[16];
+        MemorySegment.copy(input, ValueLayout.JAVA_BYTE, length - 16, lastBlock, 0, 16);
+        Contexts contexts = this.contexts.get();
+        MemorySegment context = contexts.context(CBC_DECRYPT);
+        contexts.setInitVector(context, chainingBlock);
+        contexts.update(context, input, output, length);
+        System.arraycopy(lastBlock, 0, chainingBlock, 0, 16);
+    }
+
+    /*
+    ------------------------------------------
+                  Array Methods
+    ------------------------------------------
+     */
+
+    @Override
+    public void encryptBlock(byte[] input, int inOffset, byte[] output, int outOffset) {
+        throughScratch(input, inOffset, output, outOffset, 16, buffer -> encryptBlocks(buffer, buffer));
+    }
+
+    @Override
+    public void decryptBlock(byte[] input, int inOffset, byte[] output, int outOffset) {
+        throughScratch(input, inOffset, output, outOffset, 16, buffer -> decryptBlocks(buffer, buffer));
+    }
+
+    @Override
+    public void counterMode(byte[] counterBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        throughScratch(input, inOffset, output, outOffset, length, buffer -> counterMode(counterBlock, buffer, buffer));
+    }
+
+    @Override
+    public void encryptCBC(byte[] chainingBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        checkBlockLength(length);
+        throughScratch(input, inOffset, output, outOffset, length, buffer -> encryptCBC(chainingBlock, buffer, buffer));
+    }
+
+    @Override
+    public void decryptCBC(byte[] chainingBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        checkBlockLength(length);
+        throughScratch(input, inOffset, output, outOffset, length, buffer -> decryptCBC(chainingBlock, buffer, buffer));
+    }
+
+    /*
+    ------------------------------------------
+                  Helper Methods
+    ------------------------------------------
+     */
+
+    /*
+     * Ciphers an array in place in the native buffer of the calling thread, a chunk (a whole number of blocks) at a
+     * time; the mode state is carried between chunks by the counter or chaining block. The input of a chunk is copied
+     * before its output is written, so input and output may be the same array.
+     */
+    private void throughScratch(byte[] input, int inOffset, byte[] output, int outOffset, int length,
+                                Consumer<MemorySegment> operation) {
+        MemorySegment scratch = contexts.get().scratch();
+        for (int position = 0; position < length; position += SCRATCH_LENGTH) {
+            int chunk = Math.min(SCRATCH_LENGTH, length - position);
+            MemorySegment buffer = scratch.asSlice(0, chunk);
+            MemorySegment.copy(input, inOffset + position, buffer, ValueLayout.JAVA_BYTE, 0, chunk);
+            operation.accept(buffer);
+            MemorySegment.copy(buffer, ValueLayout.JAVA_BYTE, 0, output, outOffset + position, chunk);
+        }
+    }
+
+    private static long checkLengths(MemorySegment input, MemorySegment output, boolean blockAligned) {
+        long length = input.byteSize();
+        if (output.byteSize() < length) {
+            throw new IllegalArgumentException("Output segment is shorter than the input.");
+        }
+        if (blockAligned && length % 16 != 0) {
+            throw new IllegalArgumentException("Input must conform to 16 byte block length.");
+        }
+        return length;
+    }
+
+    private static void checkBlockLength(int length) {
+        if (length % 16 != 0) {
+            throw new IllegalArgumentException("Input must conform to 16 byte block length.");
+        }
+    }
+
+    /*
+     * The EVP_CIPHER_CTXs of one key for one thread, keyed once when a mode is first used and then only given a new
+     * IV per call (EVP contexts must not be shared between threads). Holds no reference to the NativeAESKey, so the
+     * contexts are freed by the cleaner once the key or the thread is gone.
+     */
+    private static final class Contexts {
+
+        private final Arena arena = Arena.ofAuto();
+        private final MemorySegment initVector = arena.allocate(16);
+        private final MemorySegment outputLength = arena.allocate(ValueLayout.JAVA_INT);
+        private final MemorySegment[] contexts = new MemorySegment[5]; // indexed by ECB_ENCRYPT ... CTR
+        private final byte[] key;
+        private final int cipherIndex;
+        private MemorySegment scratch;
+
+        Contexts(byte[] key, int cipherIndex) {
+            this.key = key;
+            this.cipherIndex = cipherIndex;
+            MemorySegment[] owned = contexts;
+            CLEANER.register(this, () -> {
+                for (MemorySegment context : owned) {
+                    if (context != null) {
+                        LIBRARY.freeContext(context);
+                    }
+                }
+            });
+        }
+
+        MemorySegment context(int mode) {
+            if (contexts[mode] == null) {
+                MemorySegment evpCipher = mode == CTR ? LIBRARY.ctr[cipherIndex]
+                                          : mode >= CBC_ENCRYPT ? LIBRARY.cbc[cipherIndex] : LIBRARY.ecb[cipherIndex];
+                boolean encrypt = mode == ECB_ENCRYPT || mode == CBC_ENCRYPT || mode == CTR;
+                MemorySegment context = LIBRARY.newContext();
+                try (Arena keyArena = Arena.ofConfined()) {
+                    MemorySegment keySegment = keyArena.allocate(key.length);
+                    MemorySegment.copy(key, 0, keySegment, ValueLayout.JAVA_BYTE, 0, key.length);
+                    try {
+                        LIBRARY.cipherInit(context, evpCipher, keySegment, MemorySegment.NULL, encrypt ? 1 : 0);
+                        LIBRARY.disablePadding(context);
+                    } catch (RuntimeException e) {
+                        LIBRARY.freeContext(context);
+                        throw e;
+                    } finally {
+                        keySegment.fill((byte) 0);
+                    }
+                }
+                contexts[mode] = context;
+            }
+            return contexts[mode];
+        }
+
+        /*
+         * Sets the IV (or counter block) while keeping the key schedule
+         */
+        void setInitVector(MemorySegment context, byte[] value) {
+            MemorySegment.copy(value, 0, initVector, ValueLayout.JAVA_BYTE, 0, 16);
+            LIBRARY.cipherInit(context, MemorySegment.NULL, MemorySegment.NULL, initVector, -1);
+        }
+
+        void update(MemorySegment context, MemorySegment input, MemorySegment output, long length) {
+            for (long position = 0; position < length; position += MAX_UPDATE_LENGTH) {
+                int chunk = (int) Math.min(MAX_UPDATE_LENGTH, length - position);
+                LIBRARY.cipherUpdate(context, output.asSlice(position), outputLength, input.asSlice(position), chunk);
+            }
+        }
+
+        MemorySegment scratch() {
+            if (scratch == null) {
+                scratch = arena.allocate(SCRATCH_LENGTH);
+            }
+            return scratch;
+        }
+    }
+
+    /*
+     * Downcall handles into libcrypto, null when the library or one of the symbols is missing
+     */
+    private static final class Library {
+
+        private final MethodHandle newContext;
+        private final MethodHandle freeContext;
+        private final MethodHandle cipherInit;
+        private final MethodHandle setPadding;
+        private final MethodHandle cipherUpdate;
+        private final MemorySegment[] ecb = new MemorySegment[3];
+        private final MemorySegment[] cbc = new MemorySegment[3];
+        private final MemorySegment[] ctr = new MemorySegment[3];
+
+        private Library(SymbolLookup lookup) throws Throwable {
+            Linker linker = Linker.nativeLinker();
+            newContext = downcall(linker, lookup, "EVP_CIPHER_CTX_new", FunctionDescriptor.of(ValueLayout.ADDRESS));
+            freeContext = downcall(linker, lookup, "EVP_CIPHER_CTX_free", FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+            cipherInit = downcall(linker, lookup, "EVP_CipherInit_ex", FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                    ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS,
+                    ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+            setPadding = downcall(linker, lookup, "EVP_CIPHER_CTX_set_padding",
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+            cipherUpdate = downcall(linker, lookup, "EVP_CipherUpdate", FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                    ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+            int[] bits = {128, 192, 256};
+            for (int i = 0; i < bits.length; i++) {
+                ecb[i] = evpCipher(linker, lookup, "EVP_aes_" + bits[i] + "_ecb");
+                cbc[i] = evpCipher(linker, lookup, "EVP_aes_" + bits[i] + "_cbc");
+                ctr[i] = evpCipher(linker, lookup, "EVP_aes_" + bits[i] + "_ctr");
+            }
+        }
+
+        static Library load() {
+            String configured = System.getProperty("aes.libcrypto");
+            String[] names = configured != null ? new String[] {configured} : LIBRARY_NAMES;
+            for (String name : names) {
+                try {
+                    return new Library(SymbolLookup.libraryLookup(name, Arena.global()));
+                } catch (Throwable e) {
+                    // library missing, symbols missing or native access denied, try the next name
+                }
+            }
+            return null;
+        }
+
+        MemorySegment newContext() {
+            MemorySegment context;
+            try {
+                context = (MemorySegment) newContext.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException("EVP_CIPHER_CTX_new failed.", e);
+            }
+            if (context.equals(MemorySegment.NULL)) {
+                throw new IllegalStateException("EVP_CIPHER_CTX_new failed.");
+            }
+            return context;
+        }
+
+        void freeContext(MemorySegment context) {
+            try {
+                freeContext.invokeExact(context);
+            } catch (Throwable e) {
+                throw new IllegalStateException("EVP_CIPHER_CTX_free failed.", e);
+            }
+        }
+
+        void cipherInit(MemorySegment context, MemorySegment evpCipher, MemorySegment key, MemorySegment iv, int encrypt) {
+            int result;
+            try {
+                result = (int) cipherInit.invokeExact(context, evpCipher, MemorySegment.NULL, key, iv, encrypt);
+            } catch (Throwable e) {
+                throw new IllegalStateException("EVP_CipherInit_ex failed.", e);
+            }
+            check(result, "EVP_CipherInit_ex");
+        }
+
+        void disablePadding(MemorySegment context) {
+            int result;
+            try {
+                result = (int) setPadding.invokeExact(context, 0);
+            } catch (Throwable e) {
+                throw new IllegalStateException("EVP_CIPHER_CTX_set_padding failed.", e);
+            }
+            check(result, "EVP_CIPHER_CTX_set_padding");
+        }
+
+        void cipherUpdate(MemorySegment context, MemorySegment output, MemorySegment outputLength, MemorySegment input,
+                          int length) {
+            int result;
+            try {
+                result = (int) cipherUpdate.invokeExact(context, output, outputLength, input, length);
+            } catch (Throwable e) {
+                throw new IllegalStateException("EVP_CipherUpdate failed.", e);
+            }
+            check(result, "EVP_CipherUpdate");
+        }
+
+        private static void check(int result, String function) {
+            if (result != 1) {
+                throw new IllegalStateException(function + " failed.");
+            }
+        }
+
+        private static MethodHandle downcall(Linker linker, SymbolLookup lookup, String name, FunctionDescriptor descriptor) {
+            MemorySegment symbol = lookup.find(name).orElseThrow(() -> new UnsatisfiedLinkError(name));
+            return linker.downcallHandle(symbol, descriptor);
+        }
+
+        private static MemorySegment evpCipher(Linker linker, SymbolLookup lookup, String name) throws Throwable {
+            MemorySegment cipher = (MemorySegment) downcall(linker, lookup, name, FunctionDescriptor.of(ValueLayout.ADDRESS))
+                    .invokeExact();
+            if (cipher.equals(MemorySegment.NULL)) {
+                throw new UnsatisfiedLinkError(name);
+            }
+            return cipher;
+        }
+    }
+
+}
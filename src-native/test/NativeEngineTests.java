@@ -0,0 +1,220 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for the libcrypto backed AES engine
+ */
+package test;
+
+import cipher.AESEngine;
+import cipher.AESKey;
+import cipher.NativeAESKey;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static test.Fixtures.hexToBytes;
+import static test.Fixtures.randomBytes;
+
+/**
+ * Unit tests for NativeAESKey, every vector is checked against both engines so the native engine is proven byte
+ * identical to the pure Java engine. Tests of the native engine are skipped when libcrypto is not installed.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class NativeEngineTests {
+
+    /*
+     * Test vectors lifted from the NIST AES specification appendix C (https://csrc.nist.gov/csrc/media/publications/fips/197/final/documents/fips-197.pdf)
+     */
+    @Test
+    public void testBlockCompliance() {
+        Assume.assumeTrue("libcrypto is not available", NativeAESKey.isAvailable());
+        byte[] plainText = hexToBytes("00112233445566778899aabbccddeeff");
+        String[] keys = {"000102030405060708090a0b0c0d0e0f",
+                         "000102030405060708090a0b0c0d0e0f1011121314151617",
+                         "000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f"};
+        String[] cipherTexts = {"69c4e0d86a7b0430d8cdb78070b4c55a",
+                                "dda97ca4864cdfe06eaf70a0ec0d7191",
+                                "8ea2b7ca516745bfeafc49904b496089"};
+
+        for (int i = 0; i < keys.length; i++) {
+            for (AESEngine engine : engines(hexToBytes(keys[i]))) {
+                byte[] output = new byte[16];
+                engine.encryptBlock(plainText, 0, output, 0);
+                Assert.assertArrayEquals(hexToBytes(cipherTexts[i]), output);
+                engine.decryptBlock(output, 0, output, 0);
+                Assert.assertArrayEquals(plainText, output);
+            }
+        }
+    }
+
+    /*
+     * Test vectors lifted from NIST SP 800-38A F.2.1 and F.2.2 (https://nvlpubs.nist.gov/nistpubs/Legacy/SP/nistspecialpublication800-38a.pdf)
+     */
+    @Test
+    public void testCBCModeCompliance() {
+        Assume.assumeTrue("libcrypto is not available", NativeAESKey.isAvailable());
+        byte[] plainText = hexToBytes("6bc1bee22e409f96e93d7e117393172aae2d8a571e03ac9c9eb76fac45af8e51" +
+                                      "30c81c46a35ce411e5fbc1191a0a52eff69f2445df4f9b17ad2b417be66c3710");
+        byte[] cipherText = hexToBytes("7649abac8119b246cee98e9b12e9197d5086cb9b507219ee95db113a917678b2" +
+                                       "73bed6b8e3c1743b7116e69e222295163ff1caa1681fac09120eca307586e1a7");
+
+        for (AESEngine engine : engines(hexToBytes("2b7e151628aed2a6abf7158809cf4f3c"))) {
+            byte[] chainingBlock = hexToBytes("000102030405060708090a0b0c0d0e0f");
+            byte[] output = new byte[plainText.length];
+            engine.encryptCBC(chainingBlock, plainText, 0, output, 0, 32);
+            engine.encryptCBC(chainingBlock, plainText, 32, output, 32, 32); // chaining block carried between calls
+            Assert.assertArrayEquals(cipherText, output);
+
+            chainingBlock = hexToBytes("000102030405060708090a0b0c0d0e0f");
+            engine.decryptCBC(chainingBlock, output, 0, output, 0, output.length);
+            Assert.assertArrayEquals(plainText, output);
+        }
+    }
+
+    /*
+     * Test vector lifted from NIST SP 800-38A F.5.1, one call per block since the counter blocks of the vector
+     * are incremented as a 128 bit integer
+     */
+    @Test
+    public void testCounterModeCompliance() {
+        Assume.assumeTrue("libcrypto is not available", NativeAESKey.isAvailable());
+        byte[] plainText = hexToBytes("6bc1bee22e409f96e93d7e117393172aae2d8a571e03ac9c9eb76fac45af8e51" +
+                                      "30c81c46a35ce411e5fbc1191a0a52eff69f2445df4f9b17ad2b417be66c3710");
+        byte[] cipherText = hexToBytes("874d6191b620e3261bef6864990db6ce9806f66b7970fdff8617187bb9fffdff" +
+                                       "5ae4df3edbd5d35e5b4f09020db03eab1e031dda2fbe03d1792170a0f3009cee");
+        String[] counters = {"f0f1f2f3f4f5f6f7f8f9fafbfcfdfeff", "f0f1f2f3f4f5f6f7f8f9fafbfcfdff00",
+                             "f0f1f2f3f4f5f6f7f8f9fafbfcfdff01", "f0f1f2f3f4f5f6f7f8f9fafbfcfdff02"};
+
+        for (AESEngine engine : engines(hexToBytes("2b7e151628aed2a6abf7158809cf4f3c"))) {
+            byte[] output = new byte[plainText.length];
+            for (int i = 0; i < counters.length; i++) {
+                engine.counterMode(hexToBytes(counters[i]), plainText, i * 16, output, i * 16, 16);
+            }
+            Assert.assertArrayEquals(cipherText, output);
+        }
+    }
+
+    @Test
+    public void testSegmentsMatchAESKey() {
+        Assume.assumeTrue("libcrypto is not available", NativeAESKey.isAvailable());
+        Random random = new Random(33);
+        for (int keyLength = 16; keyLength <= 32; keyLength += 8) {
+            byte[] key = randomBytes(random, keyLength);
+            AESKey javaKey = new AESKey(key);
+            NativeAESKey nativeKey = new NativeAESKey(key);
+            for (int i = 0; i < 20; i++) {
+                int length = random.nextInt(10000);
+                byte[] data = randomBytes(random, length);
+                byte[] counter = randomBytes(random, 16);
+                counter[15] = (byte) (0xf0 + random.nextInt(16)); // the run is split where byte 15 wraps
+                if (i % 4 == 0) {
+                    counter[3] = counter[7] = counter[11] = (byte) 0xff; // the 32 bit counter wraps
+                }
+                byte[] javaCounter = counter.clone();
+                byte[] expected = new byte[length];
+                javaKey.counterMode(javaCounter, data, 0, expected, 0, length);
+
+                try (Arena arena = Arena.ofConfined()) {
+                    MemorySegment segment = arena.allocate(Math.max(length, 1)).asSlice(0, length);
+                    MemorySegment.copy(data, 0, segment, ValueLayout.JAVA_BYTE, 0, length);
+                    nativeKey.counterMode(counter, segment, segment);
+                    Assert.assertArrayEquals(expected, segment.toArray(ValueLayout.JAVA_BYTE));
+                    Assert.assertArrayEquals(javaCounter, counter);
+                }
+
+                int blockLength = length - length % 16;
+                byte[] iv = randomBytes(random, 16);
+                byte[] javaChaining = iv.clone();
+                byte[] nativeChaining = iv.clone();
+                byte[] javaOutput = new byte[blockLength];
+                byte[] nativeOutput = new byte[blockLength];
+                javaKey.encryptCBC(javaChaining, data, 0, javaOutput, 0, blockLength);
+                nativeKey.encryptCBC(nativeChaining, data, 0, nativeOutput, 0, blockLength);
+                Assert.assertArrayEquals(javaOutput, nativeOutput);
+                Assert.assertArrayEquals(javaChaining, nativeChaining);
+            }
+        }
+    }
+
+    /*
+     * The EVP contexts of a thread are reused across calls, so modes are interleaved, CTR calls end inside a block
+     * (the next call must not continue its key stream) and several threads share one key
+     */
+    @Test
+    public void testContextsReused() throws Exception {
+        Assume.assumeTrue("libcrypto is not available", NativeAESKey.isAvailable());
+        byte[] key = randomBytes(new Random(34), 32);
+        AESKey javaKey = new AESKey(key);
+        NativeAESKey nativeKey = new NativeAESKey(key);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int seed = thread;
+                results.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 200; i++) {
+                        int length = random.nextInt(200000);
+                        byte[] data = randomBytes(random, length);
+                        byte[] counter = randomBytes(random, 16);
+                        byte[] expected = new byte[length];
+                        byte[] result = new byte[length];
+                        byte[] javaCounter = counter.clone();
+                        javaKey.counterMode(javaCounter, data, 0, expected, 0, length);
+                        nativeKey.counterMode(counter, data, 0, result, 0, length);
+                        Assert.assertArrayEquals(expected, result);
+                        Assert.assertArrayEquals(javaCounter, counter);
+
+                        int blockLength = length - length % 16;
+                        byte[] iv = randomBytes(random, 16);
+                        byte[] javaChaining = iv.clone();
+                        byte[] nativeChaining = iv.clone();
+                        javaKey.decryptCBC(javaChaining, data, 0, expected, 0, blockLength);
+                        nativeKey.decryptCBC(nativeChaining, data, 0, result, 0, blockLength);
+                        Assert.assertArrayEquals(expected, result);
+                        Assert.assertArrayEquals(javaChaining, nativeChaining);
+
+                        if (length >= 16) {
+                            javaKey.encryptBlock(data, 0, expected, 0);
+                            nativeKey.encryptBlock(data, 0, result, 0);
+                            Assert.assertArrayEquals(expected, result);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testEngineFallback() {
+        AESEngine engine = AESEngine.create(hexToBytes("000102030405060708090a0b0c0d0e0f"));
+        byte[] output = new byte[16];
+        engine.encryptBlock(hexToBytes("00112233445566778899aabbccddeeff"), 0, output, 0);
+
+        Assert.assertEquals(NativeAESKey.isAvailable(), engine instanceof NativeAESKey);
+        Assert.assertArrayEquals(hexToBytes("69c4e0d86a7b0430d8cdb78070b4c55a"), output);
+    }
+
+    private AESEngine[] engines(byte[] key) {
+        return new AESEngine[] {new AESKey(key), new NativeAESKey(key)};
+    }
+
+}
@@ -6,6 +6,9 @@
  */
 package cipher;
 
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+
 /**
  * Implements the AES cipher methods and provides an API for encryption/decryption (conforms to NIST spec)
  * @author  Spencer Little
@@ -20,7 +23,7 @@ public class AES {
     private int[] roundCon = {0x01, 0, 0, 0}; // Initial value of the round constant used for key expansion
     protected int[][] initializationVector = new int[4][4];
 
-    private final int[][] sbox = {
+    private static final int[][] sbox = {
             {0x63, 0x7c, 0x77, 0x7b, 0xf2, 0x6b, 0x6f, 0xc5, 0x30, 0x01, 0x67, 0x2b, 0xfe, 0xd7, 0xab, 0x76},
             {0xca, 0x82, 0xc9, 0x7d, 0xfa, 0x59, 0x47, 0xf0, 0xad, 0xd4, 0xa2, 0xaf, 0x9c, 0xa4, 0x72, 0xc0},
             {0xb7, 0xfd, 0x93, 0x26, 0x36, 0x3f, 0xf7, 0xcc, 0x34, 0xa5, 0xe5, 0xf1, 0x71, 0xd8, 0x31, 0x15},
@@ -38,7 +41,7 @@ public class AES {
             {0xe1, 0xf8, 0x98, 0x11, 0x69, 0xd9, 0x8e, 0x94, 0x9b, 0x1e, 0x87, 0xe9, 0xce, 0x55, 0x28, 0xdf},
             {0x8c, 0xa1, 0x89, 0x0d, 0xbf, 0xe6, 0x42, 0x68, 0x41, 0x99, 0x2d, 0x0f, 0xb0, 0x54, 0xbb, 0x16}};
 
-    private final int[][] invSbox = {
+    private static final int[][] invSbox = {
             {0x52, 0x09, 0x6a, 0xd5, 0x30, 0x36, 0xa5, 0x38, 0xbf, 0x40, 0xa3, 0x9e, 0x81, 0xf3, 0xd7, 0xfb},
             {0x7c, 0xe3, 0x39, 0x82, 0x9b, 0x2f, 0xff, 0x87, 0x34, 0x8e, 0x43, 0x44, 0xc4, 0xde, 0xe9, 0xcb},
             {0x54, 0x7b, 0x94, 0x32, 0xa6, 0xc2, 0x23, 0x3d, 0xee, 0x4c, 0x95, 0x0b, 0x42, 0xfa, 0xc3, 0x4e},
@@ -139,6 +142,20 @@ public class AES {
         return initKeyBytes;
     }
 
+    /**
+     * Takes the round keys from an expanded key instead of expanding the initial key again
+     * @param key expanded key (its schedule is copied)
+     */
+    protected void setRoundKeys(AESKey key) {
+        this.keySize = key.keySize;
+        this.roundKeys = new int[4][key.encryptionKeys.length];
+        for (int i = 0; i < key.encryptionKeys.length; i++) {
+            for (int j = 0; j < 4; j++) {
+                this.roundKeys[j][i] = (key.encryptionKeys[i] >>> (24 - 8 * j)) & 0xff;
+            }
+        }
+    }
+
     /*
     ------------------------------------------
                     Main Methods
@@ -286,6 +303,114 @@ public class AES {
         }
     }
 
+    /**
+     * Enciphers a single 16 byte block, bytes are mapped to the state column by column (NIST spec pg. 9 sec 3.4)
+     * @param input array containing the block to be enciphered
+     * @param inOffset offset of the block within input
+     * @param output array the enciphered block is written to (may be the same as input)
+     * @param outOffset offset within output
+     */
+    public void encryptBlock(byte[] input, int inOffset, byte[] output, int outOffset) {
+        loadState(input, inOffset);
+        cipher();
+        storeState(output, outOffset);
+    }
+
+    /**
+     * Deciphers a single 16 byte block
+     * @see #encryptBlock(byte[], int, byte[], int)
+     */
+    public void decryptBlock(byte[] input, int inOffset, byte[] output, int outOffset) {
+        loadState(input, inOffset);
+        invCipher();
+        storeState(output, outOffset);
+    }
+
+    /**
+     * Enciphers the 16 bytes at the position of input into output, advancing the position of both buffers
+     * Works directly on the buffer contents (no intermediate arrays) so direct buffers are never copied to the heap,
+     * input and output may be views of the same memory
+     * @param input buffer with at least 16 bytes remaining
+     * @param output buffer with at least 16 bytes remaining
+     * @throws ShortBufferException if output has less than 16 bytes remaining (neither buffer is modified)
+     */
+    public void encryptBlock(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        checkBlockBuffers(input, output);
+        loadState(input, input.position());
+        cipher();
+        storeState(output, output.position());
+        input.position(input.position() + 16);
+        output.position(output.position() + 16);
+    }
+
+    /**
+     * Deciphers the 16 bytes at the position of input into output, advancing the position of both buffers
+     * @see #encryptBlock(ByteBuffer, ByteBuffer)
+     */
+    public void decryptBlock(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        checkBlockBuffers(input, output);
+        loadState(input, input.position());
+        invCipher();
+        storeState(output, output.position());
+        input.position(input.position() + 16);
+        output.position(output.position() + 16);
+    }
+
+    private void checkBlockBuffers(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        if (input.remaining() < 16) {
+            throw new IllegalArgumentException("Input buffer must contain a full 16 byte block.");
+        }
+        if (output.remaining() < 16) {
+            throw new ShortBufferException("Output buffer must have room for a full 16 byte block.");
+        }
+    }
+
+    /*
+     * Creates an engine which shares the expanded key of this one but has its own state
+     * Note: cipher() and invCipher() only read the round keys so the engines can be used on separate threads
+     */
+    protected AES newBlockEngine() {
+        AES engine = new AES();
+        engine.keySize = keySize;
+        engine.roundKeys = roundKeys;
+        return engine;
+    }
+
+    /*
+     * Loads 16 bytes into the state array column by column (absolute, does not move the buffer position)
+     */
+    protected void loadState(ByteBuffer input, int index) {
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                stateArray[j][i] = input.get(index + j + (i*4)) & 0xff;
+            }
+        }
+    }
+
+    protected void storeState(ByteBuffer output, int index) {
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                output.put(index + j + (i*4), (byte) stateArray[j][i]);
+            }
+        }
+    }
+
+    protected void loadState(byte[] input, int offset) {
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                stateArray[j][i] = input[offset + j + (i*4)] & 0xff;
+            }
+        }
+    }
+
+    protected void storeState(byte[] output, int offset) {
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                output[offset + j + (i*4)] = (byte) stateArray[j][i];
+            }
+        }
+    }
+
     protected int[][] deepCopy(int[][] original) {
         int[][] result = new int[original.length][original[0].length]; // assumes square dimensions
         for (int i = 0; i < original.length; i++) {
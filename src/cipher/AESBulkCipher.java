@@ -0,0 +1,315 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Bulk single block encryption where every block has its own key
+ */
+package cipher;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ciphers arrays of (key, block) pairs, block i of the input under keys[i], into one output buffer
+ * Meant for workloads which cipher one or two blocks per key (eg. tokenization with a key per tenant), where the cost
+ * is dominated by key setup rather than the cipher. Expanded keys are kept in a least recently used cache; keys which
+ * miss are expanded four at a time with the steps of their key schedules interleaved, and blocks are enciphered four
+ * at a time with their rounds interleaved (as in the CTR kernel of {@link AESKey}), so the table lookups of
+ * independent lanes overlap. Decryption derives the inverse key schedule once per cached key.
+ * Safe to use from any number of threads, the cache is the only shared state.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class AESBulkCipher {
+
+    private static final int LANES = 4;
+
+    private final LinkedHashMap<ByteBuffer, Schedule> schedules;
+    private final int capacity;
+    private long hits;
+    private long misses;
+
+    /*
+     * Expanded key, the inverse schedule is derived on first decryption
+     */
+    private static final class Schedule {
+        final int rounds;
+        final int[] encryptionKeys;
+        volatile int[] decryptionKeys;
+
+        Schedule(int[] encryptionKeys) {
+            this.rounds = encryptionKeys.length / 4 - 1;
+            this.encryptionKeys = encryptionKeys;
+        }
+
+        int[] decryptionKeys() {
+            int[] keys = decryptionKeys;
+            if (keys == null) { // racing threads derive identical schedules
+                keys = AESKey.inverseKeySchedule(encryptionKeys, rounds);
+                decryptionKeys = keys;
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * @param cachedKeys maximum number of expanded keys held (0 disables the cache, keys repeated within one call are
+     *                   still expanded once)
+     */
+    public AESBulkCipher(int cachedKeys) {
+        if (cachedKeys < 0) {
+            throw new IllegalArgumentException("Cache capacity must not be negative.");
+        }
+        this.capacity = cachedKeys;
+        this.schedules = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Schedule> eldest) {
+                return size() > cachedKeys;
+            }
+        };
+    }
+
+    /**
+     * Enciphers keys.length blocks, block i under keys[i]
+     * @param keys initial keys (16, 24, or 32 bytes each, keys may repeat)
+     * @param input array containing the blocks to be enciphered
+     * @param inOffset offset of the first block within input
+     * @param output array the enciphered blocks are written to (may be the same as input)
+     * @param outOffset offset within output
+     * @throws IllegalArgumentException if a key is invalid or the arrays are too short
+     */
+    public void encryptBlocks(byte[][] keys, byte[] input, int inOffset, byte[] output, int outOffset) {
+        checkLengths(keys, input, inOffset, output, outOffset);
+        Schedule[] resolved = resolve(keys);
+        int i = 0;
+        for (; keys.length - i >= LANES; i += LANES) {
+            int rounds = resolved[i].rounds;
+            if (resolved[i + 1].rounds == rounds && resolved[i + 2].rounds == rounds && resolved[i + 3].rounds == rounds) {
+                encryptLanes(resolved[i].encryptionKeys, resolved[i + 1].encryptionKeys, resolved[i + 2].encryptionKeys,
+                             resolved[i + 3].encryptionKeys, rounds, input, inOffset + 16 * i, output, outOffset + 16 * i);
+            } else {
+                for (int j = i; j < i + LANES; j++) {
+                    AESKey.encryptBlock(resolved[j].encryptionKeys, resolved[j].rounds, input, inOffset + 16 * j,
+                                        output, outOffset + 16 * j);
+                }
+            }
+        }
+        for (; i < keys.length; i++) {
+            AESKey.encryptBlock(resolved[i].encryptionKeys, resolved[i].rounds, input, inOffset + 16 * i, output,
+                                outOffset + 16 * i);
+        }
+    }
+
+    /**
+     * Deciphers keys.length blocks, block i under keys[i]
+     * @see #encryptBlocks(byte[][], byte[], int, byte[], int)
+     */
+    public void decryptBlocks(byte[][] keys, byte[] input, int inOffset, byte[] output, int outOffset) {
+        checkLengths(keys, input, inOffset, output, outOffset);
+        Schedule[] resolved = resolve(keys);
+        for (int i = 0; i < keys.length; i++) {
+            AESKey.decryptBlock(resolved[i].decryptionKeys(), resolved[i].rounds, input, inOffset + 16 * i, output,
+                                outOffset + 16 * i);
+        }
+    }
+
+    /**
+     * @return number of keys whose expansion was found in the cache
+     */
+    public synchronized long getCacheHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of keys which had to be expanded
+     */
+    public synchronized long getCacheMisses() {
+        return misses;
+    }
+
+    /*
+    ------------------------------------------
+                  Key Schedules
+    ------------------------------------------
+     */
+
+    /*
+     * Looks up the schedule of each key, keys which miss are expanded outside the lock (once per call, a key repeated
+     * within the call takes the schedule of its first occurrence) and inserted
+     */
+    private Schedule[] resolve(byte[][] keys) {
+        Schedule[] resolved = new Schedule[keys.length];
+        int[] firstOccurrence = new int[keys.length]; // of keys which missed
+        int[][] missing = new int[3][keys.length]; // first occurrences, by key length (16, 24 and 32 bytes)
+        int[] missingCount = new int[3];
+        Map<ByteBuffer, Integer> missed = null;
+        synchronized (this) {
+            for (int i = 0; i < keys.length; i++) {
+                if (i > 0 && keys[i] == keys[i - 1]) {
+                    resolved[i] = resolved[i - 1];
+                    firstOccurrence[i] = firstOccurrence[i - 1];
+                    continue;
+                }
+                ByteBuffer key = ByteBuffer.wrap(keys[i]);
+                resolved[i] = schedules.get(key);
+                if (resolved[i] != null) {
+                    hits++;
+                    continue;
+                }
+                missed = missed == null ? new HashMap<>() : missed;
+                Integer first = missed.putIfAbsent(key, i);
+                firstOccurrence[i] = first == null ? i : first;
+                if (first == null) {
+                    int lengthIndex = keys[i].length / 8 - 2;
+                    missing[lengthIndex][missingCount[lengthIndex]++] = i;
+                    misses++;
+                }
+            }
+        }
+        if (missed == null) {
+            return resolved;
+        }
+
+        for (int lengthIndex = 0; lengthIndex < 3; lengthIndex++) { // only keys of the same length share lanes
+            int[] group = missing[lengthIndex];
+            int i = 0;
+            for (; missingCount[lengthIndex] - i >= LANES; i += LANES) {
+                int[][] lanes = expandLanes(keys[group[i]], keys[group[i + 1]], keys[group[i + 2]], keys[group[i + 3]]);
+                for (int j = 0; j < LANES; j++) {
+                    resolved[group[i + j]] = new Schedule(lanes[j]);
+                }
+            }
+            for (; i < missingCount[lengthIndex]; i++) {
+                resolved[group[i]] = new Schedule(AESKey.expandKey(keys[group[i]]));
+            }
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (resolved[i] == null) {
+                resolved[i] = resolved[firstOccurrence[i]];
+            }
+        }
+        if (capacity > 0) {
+            synchronized (this) {
+                for (int i : missed.values()) {
+                    schedules.put(ByteBuffer.wrap(keys[i].clone()), resolved[i]);
+                }
+            }
+        }
+        return resolved;
+    }
+
+    /*
+     * Expands four keys of the same length, one step of each schedule at a time (the schedules are independent
+     * chains, so their S-box lookups overlap)
+     */
+    static int[][] expandLanes(byte[] key0, byte[] key1, byte[] key2, byte[] key3) {
+        int keyWords = key0.length / 4;
+        int length = 4 * (keyWords + 7);
+        int[] w0 = new int[length], w1 = new int[length], w2 = new int[length], w3 = new int[length];
+        for (int i = 0; i < keyWords; i++) {
+            w0[i] = AESKey.getWord(key0, 4 * i);
+            w1[i] = AESKey.getWord(key1, 4 * i);
+            w2[i] = AESKey.getWord(key2, 4 * i);
+            w3[i] = AESKey.getWord(key3, 4 * i);
+        }
+        for (int i = keyWords; i < length; i++) {
+            int t0 = w0[i - 1], t1 = w1[i - 1], t2 = w2[i - 1], t3 = w3[i - 1];
+            if (i % keyWords == 0) {
+                int rcon = AESKey.RCON[i / keyWords - 1];
+                t0 = AESKey.subWord(Integer.rotateLeft(t0, 8)) ^ rcon;
+                t1 = AESKey.subWord(Integer.rotateLeft(t1, 8)) ^ rcon;
+                t2 = AESKey.subWord(Integer.rotateLeft(t2, 8)) ^ rcon;
+                t3 = AESKey.subWord(Integer.rotateLeft(t3, 8)) ^ rcon;
+            } else if (keyWords > 6 && i % keyWords == 4) {
+                t0 = AESKey.subWord(t0);
+                t1 = AESKey.subWord(t1);
+                t2 = AESKey.subWord(t2);
+                t3 = AESKey.subWord(t3);
+            }
+            w0[i] = w0[i - keyWords] ^ t0;
+            w1[i] = w1[i - keyWords] ^ t1;
+            w2[i] = w2[i - keyWords] ^ t2;
+            w3[i] = w3[i - keyWords] ^ t3;
+        }
+        return new int[][]{w0, w1, w2, w3};
+    }
+
+    /*
+    ------------------------------------------
+                  Cipher Kernel
+    ------------------------------------------
+     */
+
+    /*
+     * Enciphers four consecutive blocks, block j under the round key words kj (all with the same number of rounds)
+     */
+    private static void encryptLanes(int[] k0, int[] k1, int[] k2, int[] k3, int rounds, byte[] input, int inOffset,
+                                     byte[] output, int outOffset) {
+        int a00 = AESKey.getWord(input, inOffset) ^ k0[0], a01 = AESKey.getWord(input, inOffset + 4) ^ k0[1];
+        int a02 = AESKey.getWord(input, inOffset + 8) ^ k0[2], a03 = AESKey.getWord(input, inOffset + 12) ^ k0[3];
+        int a10 = AESKey.getWord(input, inOffset + 16) ^ k1[0], a11 = AESKey.getWord(input, inOffset + 20) ^ k1[1];
+        int a12 = AESKey.getWord(input, inOffset + 24) ^ k1[2], a13 = AESKey.getWord(input, inOffset + 28) ^ k1[3];
+        int a20 = AESKey.getWord(input, inOffset + 32) ^ k2[0], a21 = AESKey.getWord(input, inOffset + 36) ^ k2[1];
+        int a22 = AESKey.getWord(input, inOffset + 40) ^ k2[2], a23 = AESKey.getWord(input, inOffset + 44) ^ k2[3];
+        int a30 = AESKey.getWord(input, inOffset + 48) ^ k3[0], a31 = AESKey.getWord(input, inOffset + 52) ^ k3[1];
+        int a32 = AESKey.getWord(input, inOffset + 56) ^ k3[2], a33 = AESKey.getWord(input, inOffset + 60) ^ k3[3];
+        int[] te0 = AESKey.TE0, te1 = AESKey.TE1, te2 = AESKey.TE2, te3 = AESKey.TE3;
+        int r = 4;
+        for (int round = 1; round < rounds; round++, r += 4) {
+            int t00 = te0[a00 >>> 24] ^ te1[(a01 >>> 16) & 0xff] ^ te2[(a02 >>> 8) & 0xff] ^ te3[a03 & 0xff] ^ k0[r];
+            int t01 = te0[a01 >>> 24] ^ te1[(a02 >>> 16) & 0xff] ^ te2[(a03 >>> 8) & 0xff] ^ te3[a00 & 0xff] ^ k0[r + 1];
+            int t02 = te0[a02 >>> 24] ^ te1[(a03 >>> 16) & 0xff] ^ te2[(a00 >>> 8) & 0xff] ^ te3[a01 & 0xff] ^ k0[r + 2];
+            int t03 = te0[a03 >>> 24] ^ te1[(a00 >>> 16) & 0xff] ^ te2[(a01 >>> 8) & 0xff] ^ te3[a02 & 0xff] ^ k0[r + 3];
+            int t10 = te0[a10 >>> 24] ^ te1[(a11 >>> 16) & 0xff] ^ te2[(a12 >>> 8) & 0xff] ^ te3[a13 & 0xff] ^ k1[r];
+            int t11 = te0[a11 >>> 24] ^ te1[(a12 >>> 16) & 0xff] ^ te2[(a13 >>> 8) & 0xff] ^ te3[a10 & 0xff] ^ k1[r + 1];
+            int t12 = te0[a12 >>> 24] ^ te1[(a13 >>> 16) & 0xff] ^ te2[(a10 >>> 8) & 0xff] ^ te3[a11 & 0xff] ^ k1[r + 2];
+            int t13 = te0[a13 >>> 24] ^ te1[(a10 >>> 16) & 0xff] ^ te2[(a11 >>> 8) & 0xff] ^ te3[a12 & 0xff] ^ k1[r + 3];
+            int t20 = te0[a20 >>> 24] ^ te1[(a21 >>> 16) & 0xff] ^ te2[(a22 >>> 8) & 0xff] ^ te3[a23 & 0xff] ^ k2[r];
+            int t21 = te0[a21 >>> 24] ^ te1[(a22 >>> 16) & 0xff] ^ te2[(a23 >>> 8) & 0xff] ^ te3[a20 & 0xff] ^ k2[r + 1];
+            int t22 = te0[a22 >>> 24] ^ te1[(a23 >>> 16) & 0xff] ^ te2[(a20 >>> 8) & 0xff] ^ te3[a21 & 0xff] ^ k2[r + 2];
+            int t23 = te0[a23 >>> 24] ^ te1[(a20 >>> 16) & 0xff] ^ te2[(a21 >>> 8) & 0xff] ^ te3[a22 & 0xff] ^ k2[r + 3];
+            int t30 = te0[a30 >>> 24] ^ te1[(a31 >>> 16) & 0xff] ^ te2[(a32 >>> 8) & 0xff] ^ te3[a33 & 0xff] ^ k3[r];
+            int t31 = te0[a31 >>> 24] ^ te1[(a32 >>> 16) & 0xff] ^ te2[(a33 >>> 8) & 0xff] ^ te3[a30 & 0xff] ^ k3[r + 1];
+            int t32 = te0[a32 >>> 24] ^ te1[(a33 >>> 16) & 0xff] ^ te2[(a30 >>> 8) & 0xff] ^ te3[a31 & 0xff] ^ k3[r + 2];
+            int t33 = te0[a33 >>> 24] ^ te1[(a30 >>> 16) & 0xff] ^ te2[(a31 >>> 8) & 0xff] ^ te3[a32 & 0xff] ^ k3[r + 3];
+            a00 = t00; a01 = t01; a02 = t02; a03 = t03;
+            a10 = t10; a11 = t11; a12 = t12; a13 = t13;
+            a20 = t20; a21 = t21; a22 = t22; a23 = t23;
+            a30 = t30; a31 = t31; a32 = t32; a33 = t33;
+        }
+        AESKey.putWord(output, outOffset, AESKey.finalRound(a00, a01, a02, a03) ^ k0[r]);
+        AESKey.putWord(output, outOffset + 4, AESKey.finalRound(a01, a02, a03, a00) ^ k0[r + 1]);
+        AESKey.putWord(output, outOffset + 8, AESKey.finalRound(a02, a03, a00, a01) ^ k0[r + 2]);
+        AESKey.putWord(output, outOffset + 12, AESKey.finalRound(a03, a00, a01, a02) ^ k0[r + 3]);
+        AESKey.putWord(output, outOffset + 16, AESKey.finalRound(a10, a11, a12, a13) ^ k1[r]);
+        AESKey.putWord(output, outOffset + 20, AESKey.finalRound(a11, a12, a13, a10) ^ k1[r + 1]);
+        AESKey.putWord(output, outOffset + 24, AESKey.finalRound(a12, a13, a10, a11) ^ k1[r + 2]);
+        AESKey.putWord(output, outOffset + 28, AESKey.finalRound(a13, a10, a11, a12) ^ k1[r + 3]);
+        AESKey.putWord(output, outOffset + 32, AESKey.finalRound(a20, a21, a22, a23) ^ k2[r]);
+        AESKey.putWord(output, outOffset + 36, AESKey.finalRound(a21, a22, a23, a20) ^ k2[r + 1]);
+        AESKey.putWord(output, outOffset + 40, AESKey.finalRound(a22, a23, a20, a21) ^ k2[r + 2]);
+        AESKey.putWord(output, outOffset + 44, AESKey.finalRound(a23, a20, a21, a22) ^ k2[r + 3]);
+        AESKey.putWord(output, outOffset + 48, AESKey.finalRound(a30, a31, a32, a33) ^ k3[r]);
+        AESKey.putWord(output, outOffset + 52, AESKey.finalRound(a31, a32, a33, a30) ^ k3[r + 1]);
+        AESKey.putWord(output, outOffset + 56, AESKey.finalRound(a32, a33, a30, a31) ^ k3[r + 2]);
+        AESKey.putWord(output, outOffset + 60, AESKey.finalRound(a33, a30, a31, a32) ^ k3[r + 3]);
+    }
+
+    /*
+    ------------------------------------------
+                  Helper Methods
+    ------------------------------------------
+     */
+
+    private static void checkLengths(byte[][] keys, byte[] input, int inOffset, byte[] output, int outOffset) {
+        for (byte[] key : keys) {
+            AESKey.checkKeyLength(key);
+        }
+        long length = 16L * keys.length;
+        if (inOffset < 0 || outOffset < 0 || inOffset + length > input.length || outOffset + length > output.length) {
+            throw new IllegalArgumentException("Input and output must hold a 16 byte block for each key.");
+        }
+    }
+
+}
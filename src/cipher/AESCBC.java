@@ -0,0 +1,106 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Cipher block chaining mode for the AES cipher (ref. https://nvlpubs.nist.gov/nistpubs/Legacy/SP/nistspecialpublication800-38a.pdf)
+ */
+package cipher;
+
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+
+/**
+ * Implementation of CBC mode via the AES class, operates on (direct or heap) ByteBuffers
+ * The chaining block is carried between calls so a message can be processed in any number of block aligned pieces.
+ * Padding is left to the caller.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class AESCBC extends AES {
+
+    private int[][] previousBlock = new int[4][4];
+
+    /**
+     * Performs key expansion and sets the IV (the IV is copied)
+     * @param keyBytes initial key bytes (integer array of dimensions 4 x 4, 6 x 4, or 8 x 4)
+     * @param initVector IV block (integer array of dimension 4 x 4)
+     */
+    public AESCBC(int[][] keyBytes, int[][] initVector) {
+        super();
+        initializeRoundKeys(keyBytes);
+        keyExpansion();
+        setInitializationVector(deepCopy(initVector));
+    }
+
+    /*
+    ------------------------------------------
+                    Cipher Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Encrypts all bytes remaining in input into output
+     * Matches the buffer semantics of {@code javax.crypto.Cipher.update(ByteBuffer, ByteBuffer)}: the position of
+     * input is advanced to its limit and the position of output by the number of bytes written.
+     * Output may be a view of the same memory as input (in place encryption).
+     * @param input plaintext, remaining bytes must conform to 16 byte block length
+     * @param output buffer the ciphertext is written to
+     * @return number of bytes written to output
+     * @throws ShortBufferException if output has fewer bytes remaining than input (neither buffer is modified)
+     */
+    public int encrypt(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        int length = checkBuffers(input, output);
+        int inputPosition = input.position();
+        int outputPosition = output.position();
+        for (int i = 0; i < length; i += 16) {
+            loadState(input, inputPosition + i);
+            xorVectorWithState(); // xor the IV, or the previous ciphertext block with the state
+            cipher();
+            storeState(output, outputPosition + i);
+            copyBlock(stateArray, initializationVector);
+        }
+        input.position(inputPosition + length);
+        output.position(outputPosition + length);
+        return length;
+    }
+
+    /**
+     * Decrypts all bytes remaining in input into output
+     * @see #encrypt(ByteBuffer, ByteBuffer)
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        int length = checkBuffers(input, output);
+        int inputPosition = input.position();
+        int outputPosition = output.position();
+        for (int i = 0; i < length; i += 16) {
+            loadState(input, inputPosition + i);
+            copyBlock(stateArray, previousBlock);
+            invCipher();
+            xorVectorWithState();
+            storeState(output, outputPosition + i);
+            int[][] temp = initializationVector;
+            initializationVector = previousBlock;
+            previousBlock = temp;
+        }
+        input.position(inputPosition + length);
+        output.position(outputPosition + length);
+        return length;
+    }
+
+    private int checkBuffers(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        int length = input.remaining();
+        if (length % 16 != 0) {
+            throw new IllegalArgumentException("Input must conform to 16 byte block length.");
+        }
+        if (output.remaining() < length) {
+            throw new ShortBufferException("Output buffer requires " + length + " bytes.");
+        }
+        return length;
+    }
+
+    private void copyBlock(int[][] source, int[][] destination) {
+        for (int i = 0; i < 4; i++) {
+            System.arraycopy(source[i], 0, destination[i], 0, 4);
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Cipher feedback mode (CFB-128) for the AES cipher (ref. https://nvlpubs.nist.gov/nistpubs/Legacy/SP/nistspecialpublication800-38a.pdf)
+ */
+package cipher;
+
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Implementation of CFB mode with 128 bit segments via the AES class, operates on (direct or heap) ByteBuffers
+ * The feedback register is carried between calls so a message can be processed in pieces of any length, a trailing
+ * partial block is ciphered with the truncated output block (the ciphertext has the same length as the plaintext).
+ * Encryption is sequential, but each plaintext block depends only on two ciphertext blocks
+ * (P_j = C_j xor CIPH(C_j-1), ref. SP 800-38A sec. 6.3) so decryption can be split across threads.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class AESCFB extends AES {
+
+    private final byte[] feedback = new byte[16]; // IV, then the last ciphertext block
+    private final byte[] keyStream = new byte[16]; // CIPH(feedback), bytes before keyStreamPosition are used
+    private int keyStreamPosition = 16;
+
+    /**
+     * Performs key expansion and sets the IV (the IV is copied)
+     * @param keyBytes initial key bytes (integer array of dimensions 4 x 4, 6 x 4, or 8 x 4)
+     * @param initVector IV block (integer array of dimension 4 x 4)
+     */
+    public AESCFB(int[][] keyBytes, int[][] initVector) {
+        super();
+        initializeRoundKeys(keyBytes);
+        keyExpansion();
+        for (int i = 0; i < 16; i++) {
+            feedback[i] = (byte) initVector[i % 4][i / 4];
+        }
+    }
+
+    /**
+     * Takes the round keys from a key which is already expanded and sets the IV (the IV is copied)
+     * @param key expanded key (only read, so it may be shared with other cipher objects)
+     * @param initVector IV block (integer array of dimension 4 x 4)
+     */
+    public AESCFB(AESKey key, int[][] initVector) {
+        super();
+        setRoundKeys(key);
+        for (int i = 0; i < 16; i++) {
+            feedback[i] = (byte) initVector[i % 4][i / 4];
+        }
+    }
+
+    /*
+    ------------------------------------------
+                    Cipher Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Encrypts all bytes remaining in input into output
+     * Matches the buffer semantics of {@code javax.crypto.Cipher.update(ByteBuffer, ByteBuffer)}: the position of
+     * input is advanced to its limit and the position of output by the number of bytes written.
+     * Output may be a view of the same memory as input (in place encryption).
+     * @param input plaintext of any length
+     * @param output buffer the ciphertext is written to
+     * @return number of bytes written to output
+     * @throws ShortBufferException if output has fewer bytes remaining than input (neither buffer is modified)
+     */
+    public int encrypt(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        int length = checkBuffers(input, output);
+        int inputPosition = input.position();
+        int outputPosition = output.position();
+        for (int i = 0; i < length; i++) {
+            if (keyStreamPosition == 16) {
+                encryptBlock(feedback, 0, keyStream, 0);
+                keyStreamPosition = 0;
+            }
+            byte cipherByte = (byte) (input.get(inputPosition + i) ^ keyStream[keyStreamPosition]);
+            feedback[keyStreamPosition++] = cipherByte;
+            output.put(outputPosition + i, cipherByte);
+        }
+        input.position(inputPosition + length);
+        output.position(outputPosition + length);
+        return length;
+    }
+
+    /**
+     * Decrypts all bytes remaining in input into output on the calling thread
+     * @see #encrypt(ByteBuffer, ByteBuffer)
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        return decrypt(input, output, null);
+    }
+
+    /**
+     * Decrypts all bytes remaining in input into output, splitting the full blocks across the executor
+     * (one segment per processor, segments are at least 1024 blocks)
+     * @param executor executor used to decrypt segments of the input, or null to run on the calling thread
+     * @see #encrypt(ByteBuffer, ByteBuffer)
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output, ExecutorService executor) throws ShortBufferException {
+        int blocks = (input.remaining() - (16 - keyStreamPosition) % 16) / 16;
+        int segments = Segments.defaultCount(blocks, executor);
+        return decrypt(input, output, executor, segments);
+    }
+
+    /**
+     * Decrypts all bytes remaining in input into output, splitting the full blocks into the given number of segments
+     * @param executor executor used to decrypt segments of the input
+     * @param segments number of segments the full blocks are split into (capped at the number of full blocks)
+     * @see #encrypt(ByteBuffer, ByteBuffer)
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output, ExecutorService executor, int segments)
+            throws ShortBufferException {
+        if (segments < 1) {
+            throw new IllegalArgumentException("Input must be split into at least one segment.");
+        }
+        int length = checkBuffers(input, output);
+        int inputPosition = input.position();
+        int outputPosition = output.position();
+        int head = Math.min(length, (16 - keyStreamPosition) % 16); // finishes the block left by the previous call
+        decryptBytes(input, inputPosition, output, outputPosition, head);
+
+        int blocks = (length - head) / 16;
+        if (blocks > 0) {
+            decryptBlocks(input, inputPosition + head, output, outputPosition + head, blocks, executor,
+                          Math.min(segments, blocks));
+        }
+        int tail = head + blocks * 16;
+        decryptBytes(input, inputPosition + tail, output, outputPosition + tail, length - tail);
+        input.position(inputPosition + length);
+        output.position(outputPosition + length);
+        return length;
+    }
+
+    /*
+     * Decrypts bytes one at a time through the feedback register (used for partial blocks)
+     */
+    private void decryptBytes(ByteBuffer input, int inputPosition, ByteBuffer output, int outputPosition, int length) {
+        for (int i = 0; i < length; i++) {
+            if (keyStreamPosition == 16) {
+                encryptBlock(feedback, 0, keyStream, 0);
+                keyStreamPosition = 0;
+            }
+            byte cipherByte = input.get(inputPosition + i);
+            output.put(outputPosition + i, (byte) (cipherByte ^ keyStream[keyStreamPosition]));
+            feedback[keyStreamPosition++] = cipherByte;
+        }
+    }
+
+    /*
+     * Decrypts whole blocks, the feedback register must be at a block boundary
+     * The ciphertext block preceding each segment is read before any output is written, so input and output
+     * may share memory.
+     */
+    private void decryptBlocks(ByteBuffer input, int inputPosition, ByteBuffer output, int outputPosition, int blocks,
+                               ExecutorService executor, int segments) {
+        byte[] lastBlock = new byte[16];
+        input.get(inputPosition + (blocks - 1) * 16, lastBlock);
+        if (segments == 1 || executor == null) {
+            decryptSegment(this, input, inputPosition, output, outputPosition, blocks, feedback.clone());
+        } else {
+            List<Future<?>> results = new ArrayList<>();
+            int perSegment = blocks / segments;
+            List<byte[]> previousBlocks = new ArrayList<>();
+            previousBlocks.add(feedback.clone());
+            for (int s = 1; s < segments; s++) {
+                byte[] previous = new byte[16];
+                input.get(inputPosition + (s * perSegment - 1) * 16, previous);
+                previousBlocks.add(previous);
+            }
+            for (int s = 0; s < segments; s++) {
+                int offset = s * perSegment * 16;
+                int segmentBlocks = (s == segments - 1) ? blocks - s * perSegment : perSegment;
+                byte[] previous = previousBlocks.get(s);
+                results.add(executor.submit(() -> decryptSegment(newBlockEngine(), input, inputPosition + offset,
+                                                                 output, outputPosition + offset, segmentBlocks, previous)));
+            }
+            try {
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            } catch (InterruptedException | ExecutionException ex) {
+                throw new IllegalStateException("CFB segment processing failed.", ex);
+            }
+        }
+        System.arraycopy(lastBlock, 0, feedback, 0, 16);
+        keyStreamPosition = 16;
+    }
+
+    /*
+     * Decrypts consecutive blocks with the given engine, previous holds the ciphertext block preceding the first
+     */
+    private static void decryptSegment(AES engine, ByteBuffer input, int inputPosition, ByteBuffer output,
+                                       int outputPosition, int blocks, byte[] previous) {
+        byte[] current = new byte[16];
+        byte[] block = new byte[16];
+        for (int i = 0; i < blocks; i++) {
+            input.get(inputPosition + i * 16, current);
+            engine.encryptBlock(previous, 0, block, 0);
+            for (int j = 0; j < 16; j++) {
+                block[j] ^= current[j];
+            }
+            output.put(outputPosition + i * 16, block);
+            byte[] temp = previous;
+            previous = current;
+            current = temp;
+        }
+    }
+
+    private int checkBuffers(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        int length = input.remaining();
+        if (output.remaining() < length) {
+            throw new ShortBufferException("Output buffer requires " + length + " bytes.");
+        }
+        return length;
+    }
+
+}
@@ -5,6 +5,10 @@
  */
 package cipher;
 
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * Implementation CTR mode via the AES class
  * @author Spencer Little
@@ -14,6 +18,10 @@ public class AESCTR extends AES {
 
     private byte[] inputBlocks;
     private int[][] currentCounter;
+    private final byte[] keyStream = new byte[16]; // unused key stream bytes carried between calls to update()
+    private int keyStreamPosition = 16;
+    private AESKey expandedKey; // same key schedule, used for runs of whole blocks (interleaved CTR kernel)
+    private final byte[] counterBytes = new byte[16];
 
     /**
      * Initializes the cipher object with user data, calls {@code setInternalState()}
@@ -25,7 +33,29 @@ public class AESCTR extends AES {
     }
 
     /**
-     * Sets the round keys, counter block, and input data (performs key expansion)
+     * Initializes the cipher object for use with {@code update()}
+     * @see #update(ByteBuffer, ByteBuffer)
+     */
+    public AESCTR(int[][] keyBytes, int[][] counterBlock) {
+        this(new byte[0], keyBytes, counterBlock);
+    }
+
+    /**
+     * Initializes the cipher object for use with {@code update()} with a key which is already expanded
+     * @param key expanded key (only read, so it may be shared with other cipher objects)
+     * @param counterBlock initial counter block (integer array of dimension 4 x 4)
+     */
+    public AESCTR(AESKey key, int[][] counterBlock) {
+        super();
+        setRoundKeys(key);
+        this.inputBlocks = new byte[0];
+        this.setInitialCounter(counterBlock);
+        this.expandedKey = key;
+    }
+
+    /**
+     * Sets the round keys, counter block, and input data (performs key expansion once, the round keys of the reference
+     * cipher are copied from the expanded key)
      * @param inputBlocks array of bytes to be ciphered (must conform to 16 byte block size)
      * @param keyBytes initial key bytes (integer array of dimensions 4 x 4, 6 x 4, or 8 x 4)
      * @param counterBlock initial counter block (integer array of dimension 4 x 4)
@@ -39,11 +69,13 @@ public class AESCTR extends AES {
         }
         this.inputBlocks = inputBlocks;
         this.setInitialCounter(counterBlock);
-        this.keyExpansion();
+        this.expandedKey = new AESKey(keyBytes);
+        this.setRoundKeys(expandedKey);
+        this.keyStreamPosition = 16;
     }
 
     /**
-     * Sets the initial counter block
+     * Sets the initial counter block (copied, the caller's array is not modified)
      * @param counterBlock (must be integer array of dimension 4 x 4)
      */
     public void setInitialCounter(int[][] counterBlock) {
@@ -55,7 +87,34 @@ public class AESCTR extends AES {
         if (!(isRowCountValid && isColumnCountValid)) {
             throw new IllegalArgumentException("Initial counter block must be integer array of dimension 4 x 4.");
         }
-        this.currentCounter = counterBlock;
+        this.currentCounter = deepCopy(counterBlock);
+    }
+
+    /**
+     * @return copy of the next unused counter block (4 x 4, state layout)
+     */
+    public int[][] getCounterBlock() {
+        return deepCopy(currentCounter);
+    }
+
+    /**
+     * Advances the key stream by length bytes without ciphering anything, eg. to continue ciphertext of that length
+     * The counter is advanced arithmetically, only the block holding the new position is enciphered when the position
+     * is not on a block boundary (its remaining key stream is kept for the next call to update()).
+     * @param length number of key stream bytes to skip (at most 2^36, the period of the 32 bit counter)
+     */
+    public void skip(long length) {
+        if (length < 0 || length > 0x1000000000L) {
+            throw new IllegalArgumentException("Key stream can only be skipped by 0 to 2^36 bytes.");
+        }
+        int buffered = (int) Math.min(16 - keyStreamPosition, length);
+        keyStreamPosition += buffered;
+        length -= buffered;
+        advanceCounter(length / 16);
+        if (length % 16 != 0) {
+            nextKeyStreamBlock();
+            keyStreamPosition = (int) (length % 16);
+        }
     }
 
     /*
@@ -66,36 +125,82 @@ public class AESCTR extends AES {
 
     /**
      * Performs the cipher operation based on the object state
+     * The blocks are ciphered by {@link AESKey#counterMode(byte[], byte[], int, byte[], int, int)}, which enciphers
+     * four counter blocks at a time with their rounds interleaved.
      * @return array of bytes corresponding to encrypted inputBlocks
      */
     public byte[] counterModeCipher() {
         byte[] cipherBlocks = new byte[inputBlocks.length];
-        for (int i = 0; i < (inputBlocks.length/16); i++) {
-            processBlock(cipherBlocks, inputBlocks, i);
-        }
+        byte[] counterBlock = counterBytes();
+        expandedKey.counterMode(counterBlock, inputBlocks, 0, cipherBlocks, 0, inputBlocks.length);
+        setCounterBytes(counterBlock);
         return cipherBlocks;
     }
 
+    /**
+     * Ciphers all bytes remaining in input into output, continuing the key stream from the previous call
+     * Matches the buffer semantics of {@code javax.crypto.Cipher.update(ByteBuffer, ByteBuffer)}: the position of
+     * input is advanced to its limit and the position of output by the number of bytes written.
+     * The buffers are accessed directly so direct buffers are never copied to the heap. Input need not conform to
+     * the block size, and output may be a view of the same memory as input (in place ciphering).
+     * @param input bytes to be ciphered
+     * @param output buffer the result is written to
+     * @return number of bytes written to output
+     * @throws ShortBufferException if output has fewer bytes remaining than input (neither buffer is modified)
+     */
+    public int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        int length = input.remaining();
+        if (output.remaining() < length) {
+            throw new ShortBufferException("Output buffer requires " + length + " bytes.");
+        }
+        int inputPosition = input.position();
+        int outputPosition = output.position();
+        int i = 0;
+        while (i < length) {
+            if (keyStreamPosition == 16 && length - i >= 16) {
+                i += updateBlocks(input, inputPosition + i, output, outputPosition + i, (length - i) & ~15);
+                continue;
+            }
+            if (keyStreamPosition == 16) {
+                nextKeyStreamBlock();
+            }
+            output.put(outputPosition + i, (byte) (input.get(inputPosition + i) ^ keyStream[keyStreamPosition++]));
+            i++;
+        }
+        input.position(inputPosition + length);
+        output.position(outputPosition + length);
+        return length;
+    }
+
     /*
-     * Processes a block of plaintext based on offset
-     */
-    private void processBlock(byte[] output, byte[] input, int offset) {
-        byte[] block = new byte[16];
-        System.arraycopy(input, offset*16, block, 0, 16);
-        this.stateArray = deepCopy(currentCounter);
-        this.cipher();
-        System.arraycopy(xorBlockWithState(block), 0, output, offset*16, 16);
-        this.incrementCounter();
+     * Ciphers whole blocks at a block boundary of the key stream with the interleaved kernel, directly on the buffers
+     * (bytes are read before they are written, so in place ciphering is safe)
+     * @return number of bytes ciphered (length, a multiple of the block size)
+     */
+    private int updateBlocks(ByteBuffer input, int inputPosition, ByteBuffer output, int outputPosition, int length) {
+        byte[] counterBlock = counterBytes();
+        expandedKey.counterMode(counterBlock, input, inputPosition, output, outputPosition, length);
+        setCounterBytes(counterBlock);
+        return length;
     }
 
-    private byte[] xorBlockWithState(byte[] block) {
-        byte[] out = new byte[16];
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                out[j + (i*4)] = (byte) (stateArray[j][i] ^ block[j + (i*4)]);
-            }
+    private byte[] counterBytes() {
+        for (int i = 0; i < 16; i++) {
+            counterBytes[i] = (byte) currentCounter[i % 4][i / 4];
         }
-        return out;
+        return counterBytes;
+    }
+
+    private void setCounterBytes(byte[] counterBlock) {
+        for (int i = 0; i < 16; i++) {
+            currentCounter[i % 4][i / 4] = counterBlock[i] & 0xff;
+        }
+    }
+
+    private void nextKeyStreamBlock() {
+        expandedKey.encryptBlock(counterBytes(), 0, keyStream, 0);
+        this.incrementCounter();
+        keyStreamPosition = 0;
     }
 
     /*
@@ -104,14 +209,16 @@ public class AESCTR extends AES {
      * Note: Due to the fact that longs are always signed in Java this is not standard incrementation
      */
     private void incrementCounter() {
-        long asLong = 0;
-        for (int i = 3; i >= 0; i--) { // convert final column word into long
-            asLong += (long) (currentCounter[3][i] << (8 * (3-i)));
-        }
-        asLong = (asLong + 1) % 0x100000000L; // increment and reduce by 2^32
-        for (int i = 3; i >= 0; i--) { // decompose long into bytes
-            currentCounter[3][i] =  (int) (asLong & (0xff << (8 * (3-i)))) >> (8* (3-i));
-        }
+        advanceCounter(1);
+    }
+
+    /*
+     * Adds blocks to the counter word (bytes 3, 7, 11 and 15 of the counter block), reduced by 2^32
+     */
+    private void advanceCounter(long blocks) {
+        byte[] counterBlock = counterBytes();
+        AESKey.addToCounter(counterBlock, blocks);
+        setCounterBytes(counterBlock);
     }
 
     /*
@@ -121,25 +228,55 @@ public class AESCTR extends AES {
      */
 
     /*
-     * Apply PKCS#7 padding scheme
+     * Apply PKCS#7 padding scheme, copies the array (see pad(byte[], int, int) to pad in place)
      */
     public static byte[] padByteArray(byte[] byteArray) {
-        int toPad = byteArray.length % 16 == 0 ? 16 : byteArray.length % 16;
-        int temp = 0;
-        byte[] padded = new byte[byteArray.length + toPad];
+        byte[] padded = new byte[byteArray.length + 16 - byteArray.length % 16];
         System.arraycopy(byteArray, 0, padded, 0, byteArray.length);
-        while (temp < toPad) {
-            padded[padded.length - temp - 1] = (byte) toPad;
-            temp++;
-        }
+        pad(padded, 0, byteArray.length);
         return padded;
     }
 
     public static byte[] removePadding(byte[] byteArray) {
-        int toRemove = byteArray[byteArray.length -1];
-        byte[] newBytes = new byte[byteArray.length - toRemove];
-        System.arraycopy(byteArray, 0, newBytes, 0, byteArray.length - toRemove);
-        return newBytes;
+        return Arrays.copyOf(byteArray, unpaddedLength(byteArray, 0, byteArray.length));
+    }
+
+    /**
+     * Applies PKCS#7 padding in place, after the data (1 to 16 bytes, a whole block if the data is block aligned)
+     * @param buffer array holding the data, with room for up to 16 bytes of padding after it
+     * @param offset offset of the data within buffer
+     * @param length length of the data
+     * @return padded length (a multiple of 16)
+     * @throws IllegalArgumentException if buffer has no room for the padding
+     */
+    public static int pad(byte[] buffer, int offset, int length) {
+        int toPad = 16 - length % 16;
+        if (offset + length + toPad > buffer.length) {
+            throw new IllegalArgumentException("Buffer has no room for " + toPad + " bytes of padding.");
+        }
+        Arrays.fill(buffer, offset + length, offset + length + toPad, (byte) toPad);
+        return length + toPad;
+    }
+
+    /**
+     * Checks the PKCS#7 padding of data without copying it
+     * @param buffer array holding the padded data
+     * @param offset offset of the data within buffer
+     * @param length padded length (a positive multiple of 16)
+     * @return length of the data without its padding
+     * @throws IllegalArgumentException if the padding is invalid
+     */
+    public static int unpaddedLength(byte[] buffer, int offset, int length) {
+        int toRemove = length >= 16 && length % 16 == 0 ? buffer[offset + length - 1] : 0;
+        if (toRemove < 1 || toRemove > 16) {
+            throw new IllegalArgumentException("Invalid padding in final block. Are the key and IV correct?");
+        }
+        for (int i = length - toRemove; i < length - 1; i++) {
+            if (buffer[offset + i] != toRemove) {
+                throw new IllegalArgumentException("Invalid padding in final block. Are the key and IV correct?");
+            }
+        }
+        return length - toRemove;
     }
 
 }
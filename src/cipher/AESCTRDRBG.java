@@ -0,0 +1,219 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * CTR_DRBG deterministic random bit generator for the AES cipher (ref. https://csrc.nist.gov/publications/detail/sp/800-90a/rev-1/final)
+ */
+package cipher;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Implementation of CTR_DRBG (without derivation function) via {@link AESKey}, seeded with full entropy from SecureRandom
+ * Generates IVs, initial counter blocks and keys in bulk. Instances are not thread safe, {@link #current()} provides
+ * an instance per thread. The key changes after every request (CTR_DRBG_Update, which gives backtracking resistance),
+ * so each request expands one key schedule, which costs more than enciphering a few blocks. {@link #nextBytes(byte[])}
+ * therefore serves short outputs (IVs, counter blocks) from one buffered request of BUFFER_LENGTH bytes, the schedule is
+ * expanded once per refill; bytes are erased from the buffer once handed out.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class AESCTRDRBG {
+
+    private static final int MAX_BYTES_PER_REQUEST = 1 << 16; // ref. SP 800-90A table 3, max_number_of_bits_per_request = 2^19
+    private static final long RESEED_INTERVAL = 1L << 32; // number of requests between reseeds (SP 800-90A permits 2^48)
+    private static final int BUFFER_LENGTH = 4096; // nextBytes outputs shorter than this share generate requests
+    private static final SecureRandom ENTROPY_SOURCE = new SecureRandom();
+    private static final ThreadLocal<AESCTRDRBG> THREAD_INSTANCES = ThreadLocal.withInitial(AESCTRDRBG::new);
+
+    private final int keyLength; // in bytes
+    private final int seedLength; // keyLength + block length, ref. SP 800-90A sec. 10.2.1
+    private final byte[] value = new byte[16]; // V
+    private AESKey key;
+    private long reseedCounter;
+    private final byte[] buffer = new byte[BUFFER_LENGTH]; // output of the last generate request not yet handed out
+    private int bufferPosition = BUFFER_LENGTH;
+
+    /**
+     * Instantiates an AES-256 generator seeded from SecureRandom
+     */
+    public AESCTRDRBG() {
+        this(8, entropy(8), new byte[0]);
+    }
+
+    /**
+     * Instantiates the generator with the given entropy, ref. SP 800-90A sec. 10.2.1.3.1
+     * @param keySize number of 32 bit words in the key (4, 6, or 8)
+     * @param entropyInput full entropy seed material of length (keySize * 4) + 16 bytes
+     * @param personalization optional personalization string, at most (keySize * 4) + 16 bytes
+     */
+    public AESCTRDRBG(int keySize, byte[] entropyInput, byte[] personalization) {
+        if (keySize != 4 && keySize != 6 && keySize != 8) {
+            throw new IllegalArgumentException("Key size must be 4, 6, or 8 words.");
+        }
+        this.keyLength = keySize * 4;
+        this.seedLength = keyLength + 16;
+        setKey(new byte[keyLength]);
+        update(seedMaterial(entropyInput, personalization));
+        reseedCounter = 1;
+    }
+
+    /**
+     * Provides the generator for the calling thread, instantiated from SecureRandom on first use
+     * @return generator owned by the calling thread
+     */
+    public static AESCTRDRBG current() {
+        return THREAD_INSTANCES.get();
+    }
+
+    /*
+    ------------------------------------------
+                  Generator Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Reseeds the generator from SecureRandom
+     */
+    public void reseed() {
+        reseed(entropy(keyLength / 4), new byte[0]);
+    }
+
+    /**
+     * Reseeds the generator, ref. SP 800-90A sec. 10.2.1.4.1
+     * @param entropyInput full entropy seed material of length seed length bytes
+     * @param additionalInput optional additional input, at most seed length bytes
+     */
+    public void reseed(byte[] entropyInput, byte[] additionalInput) {
+        update(seedMaterial(entropyInput, additionalInput));
+        reseedCounter = 1;
+        Arrays.fill(buffer, (byte) 0); // output generated before the reseed is not handed out after it
+        bufferPosition = BUFFER_LENGTH;
+    }
+
+    /**
+     * Fills output with random bytes, large outputs are split into multiple generate requests and short outputs are
+     * taken from a buffered request
+     * @param output array to be filled
+     */
+    public void nextBytes(byte[] output) {
+        nextBytes(output, 0, output.length);
+    }
+
+    /**
+     * Fills a range of output with random bytes
+     * @param output array written to
+     * @param offset index of the first byte to be written
+     * @param length number of bytes to be written
+     */
+    public void nextBytes(byte[] output, int offset, int length) {
+        if (length >= BUFFER_LENGTH) {
+            for (int position = 0; position < length; position += MAX_BYTES_PER_REQUEST) {
+                generate(output, offset + position, Math.min(MAX_BYTES_PER_REQUEST, length - position), null);
+            }
+            return;
+        }
+        while (length > 0) {
+            if (bufferPosition == BUFFER_LENGTH) {
+                generate(buffer, 0, BUFFER_LENGTH, null);
+                bufferPosition = 0;
+            }
+            int count = Math.min(length, BUFFER_LENGTH - bufferPosition);
+            System.arraycopy(buffer, bufferPosition, output, offset, count);
+            Arrays.fill(buffer, bufferPosition, bufferPosition + count, (byte) 0);
+            bufferPosition += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Generates random bytes, ref. SP 800-90A sec. 10.2.1.5.1
+     * @param output array written to
+     * @param offset index of the first byte to be written
+     * @param length number of bytes to be written (at most 65536)
+     * @param additionalInput optional additional input (may be null), at most seed length bytes
+     */
+    public void generate(byte[] output, int offset, int length, byte[] additionalInput) {
+        if (length > MAX_BYTES_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_BYTES_PER_REQUEST + " bytes may be generated per request.");
+        }
+        if (reseedCounter > RESEED_INTERVAL) {
+            reseed();
+        }
+        byte[] providedData = new byte[seedLength];
+        if (additionalInput != null && additionalInput.length > 0) {
+            providedData = seedMaterial(new byte[seedLength], additionalInput);
+            update(providedData);
+        }
+        int fullLength = length - length % 16;
+        for (int i = 0; i < fullLength; i += 16) {
+            incrementValue();
+            key.encryptBlock(value, 0, output, offset + i);
+        }
+        if (fullLength != length) {
+            byte[] block = new byte[16];
+            incrementValue();
+            key.encryptBlock(value, 0, block, 0);
+            System.arraycopy(block, 0, output, offset + fullLength, length - fullLength);
+        }
+        update(providedData);
+        reseedCounter++;
+    }
+
+    /*
+     * CTR_DRBG_Update, ref. SP 800-90A sec. 10.2.1.2
+     */
+    private void update(byte[] providedData) {
+        byte[] temp = new byte[((seedLength + 15) / 16) * 16];
+        for (int i = 0; i < temp.length; i += 16) {
+            incrementValue();
+            key.encryptBlock(value, 0, temp, i);
+        }
+        for (int i = 0; i < seedLength; i++) {
+            temp[i] ^= providedData[i];
+        }
+        setKey(Arrays.copyOfRange(temp, 0, keyLength));
+        System.arraycopy(temp, keyLength, value, 0, 16);
+        Arrays.fill(temp, (byte) 0);
+    }
+
+    /*
+     * V = (V + 1) mod 2^128
+     */
+    private void incrementValue() {
+        for (int i = 15; i >= 0; i--) {
+            value[i]++;
+            if (value[i] != 0) {
+                break;
+            }
+        }
+    }
+
+    private void setKey(byte[] keyBytes) {
+        key = new AESKey(keyBytes);
+        Arrays.fill(keyBytes, (byte) 0);
+    }
+
+    /*
+     * Xors the entropy input with the (zero padded) personalization string or additional input
+     */
+    private byte[] seedMaterial(byte[] entropyInput, byte[] input) {
+        if (entropyInput.length != seedLength || input.length > seedLength) {
+            throw new IllegalArgumentException("Entropy input must be " + seedLength + " bytes and additional input at most "
+                                               + seedLength + " bytes.");
+        }
+        byte[] material = entropyInput.clone();
+        for (int i = 0; i < input.length; i++) {
+            material[i] ^= input[i];
+        }
+        return material;
+    }
+
+    private static byte[] entropy(int keySize) {
+        byte[] entropyInput = new byte[(keySize * 4) + 16];
+        ENTROPY_SOURCE.nextBytes(entropyInput);
+        return entropyInput;
+    }
+
+}
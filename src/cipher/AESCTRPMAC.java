@@ -0,0 +1,201 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Encrypt-then-MAC authenticated encryption combining CTR mode and PMAC1
+ */
+package cipher;
+
+import javax.crypto.AEADBadTagException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Encrypts in CTR mode and authenticates the ciphertext with PMAC1 (encrypt-then-MAC), or verifies and decrypts
+ * Both CTR and PMAC process each block independently, so every segment of a chunk is ciphered and summed by the same
+ * thread while the segment is in cache, and authentication scales across threads with encryption. The MAC covers the
+ * initial counter block followed by the ciphertext: tag = PMAC(macKey, counterBlock || C). The counter incrementation
+ * is that of {@link AESCTR}. Separate keys must be used for encryption and authentication.
+ * Note: decrypted chunks are released by {@link #update} before the tag is checked by {@link #doFinal}, a caller which
+ * must not act on unauthenticated plaintext has to hold the output until doFinal() succeeds.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class AESCTRPMAC {
+
+    private final AESEngine encryptionKey;
+    private final AESPMAC mac;
+    private final boolean decrypt;
+    private final byte[] counterBlock; // counter block of the next block
+    private final byte[] lastBlock = new byte[16]; // last ciphertext block (initially the counter block), not yet summed
+    private boolean isFinished;
+
+    /**
+     * @param encryptionKey CTR key (16, 24, or 32 bytes)
+     * @param macKey PMAC key (16, 24, or 32 bytes), must differ from the CTR key
+     * @param counterBlock initial counter block (16 bytes, copied), must never be reused with the same key
+     * @param decrypt true to verify and decrypt, false to encrypt and authenticate
+     */
+    public AESCTRPMAC(byte[] encryptionKey, byte[] macKey, byte[] counterBlock, boolean decrypt) {
+        if (counterBlock.length != 16) {
+            throw new IllegalArgumentException("Counter block must contain exactly 16 bytes.");
+        }
+        if (Arrays.equals(encryptionKey, macKey)) {
+            throw new IllegalArgumentException("Encryption and MAC keys must differ.");
+        }
+        this.encryptionKey = AESEngine.create(encryptionKey);
+        this.mac = new AESPMAC(macKey);
+        this.decrypt = decrypt;
+        this.counterBlock = counterBlock.clone();
+        System.arraycopy(counterBlock, 0, lastBlock, 0, 16);
+    }
+
+    /*
+    ------------------------------------------
+                    Cipher Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Ciphers and authenticates whole blocks on the calling thread
+     * @see #update(byte[], int, byte[], int, int, ExecutorService)
+     */
+    public void update(byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        update(input, inOffset, output, outOffset, length, null);
+    }
+
+    /**
+     * Ciphers and authenticates whole blocks, splitting them across the threads of executor
+     * (one segment per processor, segments are at least 1024 blocks). Each segment is ciphered and summed in one pass.
+     * @param input array containing plaintext (encryption) or ciphertext (decryption)
+     * @param inOffset offset of the data within input
+     * @param output array the result is written to (may be the same as input at the same offset)
+     * @param outOffset offset within output
+     * @param length number of bytes (must conform to 16 byte block length, see doFinal() for the trailing bytes)
+     * @param executor executor used to process segments, or null to run on the calling thread
+     */
+    public void update(byte[] input, int inOffset, byte[] output, int outOffset, int length, ExecutorService executor) {
+        checkNotFinished();
+        if (length % 16 != 0) {
+            throw new IllegalArgumentException("Input must conform to 16 byte block length.");
+        }
+        int blocks = length / 16;
+        if (blocks == 0) {
+            return;
+        }
+        // the block held back by the previous call is not the last block, so it is summed now
+        mac.absorb(mac.sumBlocks(lastBlock, 0, mac.blockCount() + 1, 1), 1);
+        long first = mac.blockCount() + 1;
+        byte[] cipherText = decrypt ? input : output;
+        int cipherOffset = decrypt ? inOffset : outOffset;
+        if (decrypt) { // input may be overwritten by output
+            System.arraycopy(input, inOffset + length - 16, lastBlock, 0, 16);
+        }
+
+        int segments = Segments.defaultCount(blocks, executor);
+        int perSegment = blocks / segments;
+        byte[] partialSum = new byte[16];
+        if (segments == 1) {
+            partialSum = processSegment(input, inOffset, output, outOffset, 0, blocks, blocks, first,
+                                        counterBlock.clone(), cipherText, cipherOffset);
+        } else {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int s = 0; s < segments; s++) {
+                int start = s * perSegment;
+                int count = (s == segments - 1) ? blocks - start : perSegment;
+                byte[] segmentCounter = AESKey.addToCounter(counterBlock.clone(), start);
+                results.add(executor.submit(() -> processSegment(input, inOffset, output, outOffset, start, count,
+                                                                 blocks, first, segmentCounter, cipherText,
+                                                                 cipherOffset)));
+            }
+            try {
+                for (Future<byte[]> result : results) {
+                    byte[] segmentSum = result.get();
+                    for (int j = 0; j < 16; j++) {
+                        partialSum[j] ^= segmentSum[j];
+                    }
+                }
+            } catch (InterruptedException | ExecutionException ex) {
+                throw new IllegalStateException("CTR-PMAC segment processing failed.", ex);
+            }
+        }
+        mac.absorb(partialSum, blocks - 1); // the last block is held back, it may be the final block
+        if (!decrypt) {
+            System.arraycopy(output, outOffset + length - 16, lastBlock, 0, 16);
+        }
+        AESKey.addToCounter(counterBlock, blocks);
+    }
+
+    /*
+     * Ciphers blocks start to start + count - 1 of the call and sums their ciphertext, except for the last block of
+     * the call. Ciphertext is summed before decryption and after encryption.
+     */
+    private byte[] processSegment(byte[] input, int inOffset, byte[] output, int outOffset, int start, int count,
+                                  int blocks, long first, byte[] segmentCounter, byte[] cipherText, int cipherOffset) {
+        int summed = Math.min(count, blocks - 1 - start); // blocks of the segment which are summed
+        byte[] segmentSum = new byte[16];
+        if (decrypt && summed > 0) {
+            segmentSum = mac.sumBlocks(cipherText, cipherOffset + start * 16, first + start, summed);
+        }
+        encryptionKey.counterMode(segmentCounter, input, inOffset + start * 16, output, outOffset + start * 16,
+                                  count * 16);
+        if (!decrypt && summed > 0) {
+            segmentSum = mac.sumBlocks(cipherText, cipherOffset + start * 16, first + start, summed);
+        }
+        return segmentSum;
+    }
+
+    /**
+     * Ciphers the trailing bytes of the message and completes the tag
+     * @param input array containing the trailing plaintext (encryption) or ciphertext (decryption)
+     * @param inOffset offset of the data within input
+     * @param output array the result is written to
+     * @param outOffset offset within output
+     * @param length number of trailing bytes (any length)
+     * @return 16 byte tag of the counter block and ciphertext
+     */
+    public byte[] doFinal(byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        checkNotFinished();
+        isFinished = true;
+        mac.update(lastBlock, 0, 16);
+        if (decrypt) {
+            mac.update(input, inOffset, length);
+        }
+        encryptionKey.counterMode(counterBlock, input, inOffset, output, outOffset, length);
+        if (!decrypt) {
+            mac.update(output, outOffset, length);
+        }
+        return mac.doFinal();
+    }
+
+    /**
+     * Decrypts the trailing bytes of the message and verifies the tag
+     * @param tag tag received with the message
+     * @throws AEADBadTagException if the tag does not match the counter block and ciphertext
+     * @see #doFinal(byte[], int, byte[], int, int)
+     */
+    public void doFinal(byte[] input, int inOffset, byte[] output, int outOffset, int length, byte[] tag)
+            throws AEADBadTagException {
+        if (!decrypt) {
+            throw new IllegalStateException("Tags are only verified on decryption.");
+        }
+        byte[] expected = doFinal(input, inOffset, output, outOffset, length);
+        int diff = tag.length ^ 16;
+        for (int i = 0; i < Math.min(tag.length, 16); i++) { // constant time comparison
+            diff |= tag[i] ^ expected[i];
+        }
+        if (diff != 0) {
+            throw new AEADBadTagException("PMAC authentication tag mismatch.");
+        }
+    }
+
+    private void checkNotFinished() {
+        if (isFinished) {
+            throw new IllegalStateException("The message has been completed, create a new instance for the next one.");
+        }
+    }
+
+}
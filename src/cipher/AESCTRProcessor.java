@@ -0,0 +1,276 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Reactive streams (java.util.concurrent.Flow) processor for CTR mode AES
+ */
+package cipher;
+
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link Flow.Processor} which ciphers a stream of ByteBuffers in CTR mode via {@link AESCTR#update(ByteBuffer, ByteBuffer)}
+ * The counter is carried across chunks of any size, so the output is the same as ciphering the concatenated input
+ * in one call. Each input chunk produces one output chunk of the same length (input buffers are not modified), so
+ * demand from the subscriber is forwarded upstream one to one and at most the requested number of chunks are held.
+ * All cipher work and all signals to the subscriber run on the executor, never on the thread calling onNext() or
+ * request(), so event loop threads on either side do not block on the cipher. A single subscriber is supported.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class AESCTRProcessor implements Flow.Processor<ByteBuffer, ByteBuffer> {
+
+    private static final Flow.Subscription CANCELLED = new Flow.Subscription() {
+        public void request(long n) { }
+        public void cancel() { }
+    };
+
+    private final AESCTR counterCrypt;
+    private final Executor executor;
+    private final Queue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger workInProgress = new AtomicInteger(); // serializes the drain loop
+    private final AtomicLong requested = new AtomicLong(); // outstanding demand of the subscriber
+    private final AtomicLong pendingUpstreamRequests = new AtomicLong(); // demand received before onSubscribe()
+    private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+    private final AtomicBoolean hasSubscriber = new AtomicBoolean();
+    private volatile Flow.Subscriber<? super ByteBuffer> downstream;
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private volatile Throwable error;
+
+    /**
+     * Creates a processor which ciphers on the common ForkJoinPool
+     * @param keyBytes initial key bytes (integer array of dimensions 4 x 4, 6 x 4, or 8 x 4)
+     * @param counterBlock initial counter block (integer array of dimension 4 x 4, copied)
+     */
+    public AESCTRProcessor(int[][] keyBytes, int[][] counterBlock) {
+        this(keyBytes, counterBlock, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a processor which ciphers on the given executor
+     * @param keyBytes initial key bytes (integer array of dimensions 4 x 4, 6 x 4, or 8 x 4)
+     * @param counterBlock initial counter block (integer array of dimension 4 x 4, copied)
+     * @param executor executor the cipher work and subscriber signals run on
+     */
+    public AESCTRProcessor(int[][] keyBytes, int[][] counterBlock, Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null.");
+        }
+        this.counterCrypt = new AESCTR(keyBytes, counterBlock);
+        this.executor = executor;
+    }
+
+    /*
+    ------------------------------------------
+                 Subscriber Methods
+    ------------------------------------------
+     */
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (!upstream.compareAndSet(null, subscription)) {
+            subscription.cancel(); // already subscribed (ref. reactive streams rule 2.5)
+            return;
+        }
+        if (cancelled) {
+            subscription.cancel();
+            return;
+        }
+        long pending = pendingUpstreamRequests.getAndSet(0);
+        if (pending > 0) {
+            subscription.request(pending);
+        }
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+        if (item == null) {
+            throw new NullPointerException("Items must not be null.");
+        }
+        queue.offer(item);
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    /*
+    ------------------------------------------
+                 Publisher Methods
+    ------------------------------------------
+     */
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (!hasSubscriber.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                public void request(long n) { }
+                public void cancel() { }
+            });
+            subscriber.onError(new IllegalStateException("AESCTRProcessor supports a single subscriber."));
+            return;
+        }
+        downstream = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            public void request(long n) {
+                requestFromDownstream(n);
+            }
+
+            public void cancel() {
+                cancelFromDownstream();
+            }
+        });
+        drain();
+    }
+
+    private void requestFromDownstream(long n) {
+        if (n <= 0) { // ref. reactive streams rule 3.9
+            cancelUpstream();
+            error = new IllegalArgumentException("Number of requested items must be positive.");
+            done = true;
+            drain();
+            return;
+        }
+        addCapped(requested, n);
+        addCapped(pendingUpstreamRequests, n);
+        Flow.Subscription subscription = upstream.get();
+        if (subscription != null) {
+            long pending = pendingUpstreamRequests.getAndSet(0);
+            if (pending > 0) {
+                subscription.request(pending);
+            }
+        }
+        drain();
+    }
+
+    private void cancelFromDownstream() {
+        cancelled = true;
+        cancelUpstream();
+        drain();
+    }
+
+    private void cancelUpstream() {
+        Flow.Subscription subscription = upstream.getAndSet(CANCELLED);
+        if (subscription != null && subscription != CANCELLED) {
+            subscription.cancel();
+        }
+    }
+
+    /*
+    ------------------------------------------
+                    Drain Loop
+    ------------------------------------------
+     */
+
+    private void drain() {
+        if (workInProgress.getAndIncrement() == 0) {
+            executor.execute(this::drainLoop);
+        }
+    }
+
+    /*
+     * Ciphers queued chunks while the subscriber has demand, only one thread runs the loop at a time so the
+     * counter state is never shared
+     */
+    private void drainLoop() {
+        int missed = 1;
+        while (true) {
+            Flow.Subscriber<? super ByteBuffer> subscriber = downstream;
+            if (subscriber != null) {
+                long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand) {
+                    if (cancelled) {
+                        queue.clear();
+                        return;
+                    }
+                    boolean isDone = done;
+                    if (isDone && error != null) { // errors are not delayed behind queued chunks
+                        queue.clear();
+                        terminate(subscriber);
+                        return;
+                    }
+                    ByteBuffer item = queue.poll();
+                    if (item == null) {
+                        if (isDone) {
+                            terminate(subscriber);
+                            return;
+                        }
+                        break;
+                    }
+                    ByteBuffer output;
+                    try {
+                        output = cipher(item);
+                    } catch (RuntimeException | ShortBufferException ex) {
+                        cancelled = true;
+                        cancelUpstream();
+                        queue.clear();
+                        subscriber.onError(ex);
+                        return;
+                    }
+                    subscriber.onNext(output);
+                    emitted++;
+                }
+                if (cancelled) {
+                    queue.clear();
+                    return;
+                }
+                if (done && (error != null || queue.isEmpty())) {
+                    queue.clear();
+                    terminate(subscriber);
+                    return;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+            }
+            missed = workInProgress.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private ByteBuffer cipher(ByteBuffer item) throws ShortBufferException {
+        ByteBuffer input = item.duplicate();
+        ByteBuffer output = item.isDirect() ? ByteBuffer.allocateDirect(input.remaining())
+                                            : ByteBuffer.allocate(input.remaining());
+        counterCrypt.update(input, output);
+        return output.flip();
+    }
+
+    private void terminate(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        cancelled = true; // no further signals
+        Throwable throwable = error;
+        if (throwable != null) {
+            subscriber.onError(throwable);
+        } else {
+            subscriber.onComplete();
+        }
+    }
+
+    private static void addCapped(AtomicLong value, long n) {
+        value.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+    }
+
+}
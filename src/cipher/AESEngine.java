@@ -0,0 +1,129 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Common interface of the thread safe AES engines
+ */
+package cipher;
+
+/**
+ * An expanded AES key which ciphers blocks and CTR/CBC runs without holding per operation state
+ * Implemented by the pure Java {@link AESKey} and the libcrypto backed NativeAESKey (src-native, optional); both
+ * produce identical bytes, including the counter incrementation of {@link AESCTR}.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public interface AESEngine {
+
+    /**
+     * Provides the fastest engine available for the key, NativeAESKey when it was compiled in and libcrypto can be
+     * loaded, otherwise {@link AESKey}
+     * @param key initial key (16, 24, or 32 bytes)
+     * @return expanded key
+     */
+    static AESEngine create(byte[] key) {
+        AESEngine engine = NativeEngineLoader.create(key);
+        return engine != null ? engine : new AESKey(key);
+    }
+
+    /**
+     * Enciphers a single 16 byte block
+     * @param input array containing the block to be enciphered
+     * @param inOffset offset of the block within input
+     * @param output array the enciphered block is written to (may be the same as input)
+     * @param outOffset offset within output
+     */
+    void encryptBlock(byte[] input, int inOffset, byte[] output, int outOffset);
+
+    /**
+     * Deciphers a single 16 byte block
+     * @see #encryptBlock(byte[], int, byte[], int)
+     */
+    void decryptBlock(byte[] input, int inOffset, byte[] output, int outOffset);
+
+    /**
+     * Ciphers input in CTR mode, the counter (bytes 3, 7, 11 and 15 as a 32 bit word) is advanced past the blocks used
+     * @see AESKey#counterMode(byte[], byte[], int, byte[], int, int)
+     */
+    void counterMode(byte[] counterBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length);
+
+    /**
+     * Encrypts input in CBC mode, the chaining block is replaced by the last ciphertext block
+     * @see AESKey#encryptCBC(byte[], byte[], int, byte[], int, int)
+     */
+    void encryptCBC(byte[] chainingBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length);
+
+    /**
+     * Decrypts input in CBC mode, the chaining block is replaced by the last ciphertext block
+     * @see AESKey#decryptCBC(byte[], byte[], int, byte[], int, int)
+     */
+    void decryptCBC(byte[] chainingBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length);
+
+    /**
+     * Encrypts a whole message in CBC mode with ciphertext stealing (CBC-CS3, ref. NIST SP 800-38A Addendum), the
+     * ciphertext has the same length as the plaintext. The final (partial or whole) block is zero padded and its
+     * ciphertext is written ahead of the truncated ciphertext of the block before it; the last two blocks are always
+     * swapped, so a message of one block is plain CBC. Compatible with the CTS mode of RFC 3962.
+     * @param chainingBlock IV (16 bytes), replaced by the last whole ciphertext block written
+     * @param input array containing the plaintext
+     * @param inOffset offset of the plaintext within input
+     * @param output array the ciphertext is written to (may be the same as input)
+     * @param outOffset offset within output
+     * @param length length of the plaintext, at least 16 bytes
+     * @throws IllegalArgumentException if length is shorter than a block
+     */
+    default void encryptCS3(byte[] chainingBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        int head = stealingHead(length);
+        int tail = length - head - 16; // bytes of the final block
+        byte[] previous = new byte[16];
+        byte[] last = new byte[16]; // zero padded
+        System.arraycopy(input, inOffset + head, previous, 0, 16); // copied first, output may overlap input
+        System.arraycopy(input, inOffset + head + 16, last, 0, tail);
+        encryptCBC(chainingBlock, input, inOffset, output, outOffset, head);
+        encryptCBC(chainingBlock, previous, 0, previous, 0, 16);
+        if (tail == 0) { // a single block
+            System.arraycopy(previous, 0, output, outOffset + head, 16);
+            return;
+        }
+        encryptCBC(chainingBlock, last, 0, last, 0, 16);
+        System.arraycopy(last, 0, output, outOffset + head, 16);
+        System.arraycopy(previous, 0, output, outOffset + head + 16, tail);
+    }
+
+    /**
+     * Decrypts a whole message encrypted with {@link #encryptCS3(byte[], byte[], int, byte[], int, int)}
+     * @param chainingBlock IV (16 bytes), replaced by the last whole ciphertext block read
+     * @throws IllegalArgumentException if length is shorter than a block
+     */
+    default void decryptCS3(byte[] chainingBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        int head = stealingHead(length);
+        int tail = length - head - 16;
+        byte[] last = new byte[16]; // ciphertext of the final block, written first
+        byte[] previous = new byte[16]; // truncated ciphertext of the block before it, completed below
+        System.arraycopy(input, inOffset + head, last, 0, 16);
+        System.arraycopy(input, inOffset + head + 16, previous, 0, tail);
+        decryptCBC(chainingBlock, input, inOffset, output, outOffset, head);
+        if (tail == 0) {
+            decryptCBC(chainingBlock, last, 0, output, outOffset + head, 16);
+            return;
+        }
+        byte[] decrypted = new byte[16];
+        decryptBlock(last, 0, decrypted, 0); // ciphertext of the previous block xor the zero padded final block
+        System.arraycopy(decrypted, tail, previous, tail, 16 - tail);
+        for (int i = 0; i < tail; i++) {
+            output[outOffset + head + 16 + i] = (byte) (decrypted[i] ^ previous[i]);
+        }
+        decryptCBC(chainingBlock, previous, 0, output, outOffset + head, 16);
+        System.arraycopy(last, 0, chainingBlock, 0, 16);
+    }
+
+    /*
+     * @return number of bytes of a ciphertext stealing message ciphered as plain CBC (all but the last two blocks)
+     */
+    private static int stealingHead(int length) {
+        if (length < 16) {
+            throw new IllegalArgumentException("Ciphertext stealing requires at least one 16 byte block.");
+        }
+        return length == 16 ? 0 : 16 * ((length - 1) / 16 - 1);
+    }
+
+}
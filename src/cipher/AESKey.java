@@ -0,0 +1,499 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Immutable expanded AES key, safe to share between threads
+ */
+package cipher;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An expanded AES key which can be used by any number of threads concurrently
+ * The key schedule is computed once and never modified. All per operation state is held in local variables or in
+ * buffers supplied by the caller, so servers can share one instance per key instead of locking around an
+ * {@link AES} object or repeating key expansion per request. The rounds are computed with the table driven method
+ * (round transformations combined into four lookup tables), ref. NIST AES specification pg. 25 sec. 5.3.5 and
+ * <a href='https://csrc.nist.gov/csrc/media/projects/cryptographic-standards-and-guidelines/documents/aes-development/rijndael-ammended.pdf'>
+ * The Rijndael Block Cipher</a> sec. 5.2.1
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class AESKey implements AESEngine {
+
+    private static final int LANES = 4; // counter blocks enciphered together by the CTR kernel
+    private static final VarHandle WORD_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    static final int[] SBOX = new int[256];
+    static final int[] INV_SBOX = new int[256];
+    static final int[] TE0 = new int[256], TE1 = new int[256], TE2 = new int[256], TE3 = new int[256];
+    static final int[] TD0 = new int[256], TD1 = new int[256], TD2 = new int[256], TD3 = new int[256];
+    /** Round constants of key expansion in the most significant byte, ref. NIST AES specification sec. 5.2 */
+    static final int[] RCON = {0x01000000, 0x02000000, 0x04000000, 0x08000000, 0x10000000, 0x20000000, 0x40000000,
+                               0x80000000, 0x1b000000, 0x36000000};
+
+    static {
+        int p = 1, q = 1;
+        do { // p iterates over GF(2^8)* by multiplying by 3, q tracks its inverse (ref. NIST AES specification sec. 5.1.1)
+            p = (p ^ (p << 1) ^ ((p & 0x80) != 0 ? 0x1b : 0)) & 0xff;
+            q ^= q << 1;
+            q ^= q << 2;
+            q ^= q << 4;
+            q &= 0xff;
+            if ((q & 0x80) != 0) {
+                q ^= 0x09;
+            }
+            int affine = q ^ rotateByte(q, 1) ^ rotateByte(q, 2) ^ rotateByte(q, 3) ^ rotateByte(q, 4);
+            SBOX[p] = affine ^ 0x63;
+        } while (p != 1);
+        SBOX[0] = 0x63;
+        for (int i = 0; i < 256; i++) {
+            INV_SBOX[SBOX[i]] = i;
+        }
+        for (int i = 0; i < 256; i++) {
+            int s = SBOX[i];
+            TE0[i] = (mult(s, 2) << 24) | (s << 16) | (s << 8) | mult(s, 3);
+            int is = INV_SBOX[i];
+            TD0[i] = (mult(is, 14) << 24) | (mult(is, 9) << 16) | (mult(is, 13) << 8) | mult(is, 11);
+            TE1[i] = Integer.rotateRight(TE0[i], 8);
+            TE2[i] = Integer.rotateRight(TE0[i], 16);
+            TE3[i] = Integer.rotateRight(TE0[i], 24);
+            TD1[i] = Integer.rotateRight(TD0[i], 8);
+            TD2[i] = Integer.rotateRight(TD0[i], 16);
+            TD3[i] = Integer.rotateRight(TD0[i], 24);
+        }
+    }
+
+    /** 4, 6, 8 depending on number of 32 bit words in the initial key */
+    public final int keySize;
+    final int rounds;
+    final int[] encryptionKeys; // round key words, big endian (the first byte of each word is the most significant)
+    final int[] decryptionKeys; // round keys of the equivalent inverse cipher (ref. NIST AES specification sec. 5.3.5)
+
+    /**
+     * Performs key expansion
+     * @param keyBytes initial key bytes (integer array of dimensions 4 x 4, 6 x 4, or 8 x 4)
+     */
+    public AESKey(int[][] keyBytes) {
+        this(toKeyBytes(keyBytes));
+    }
+
+    /**
+     * Performs key expansion
+     * @param key initial key (16, 24, or 32 bytes)
+     */
+    public AESKey(byte[] key) {
+        this.keySize = key.length / 4;
+        this.rounds = keySize + 6;
+        this.encryptionKeys = expandKey(key);
+        this.decryptionKeys = inverseKeySchedule(encryptionKeys, rounds);
+    }
+
+    /*
+    ------------------------------------------
+                  Block Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Enciphers a single 16 byte block
+     * @param input array containing the block to be enciphered
+     * @param inOffset offset of the block within input
+     * @param output array the enciphered block is written to (may be the same as input)
+     * @param outOffset offset within output
+     */
+    public void encryptBlock(byte[] input, int inOffset, byte[] output, int outOffset) {
+        encryptBlock(encryptionKeys, rounds, input, inOffset, output, outOffset);
+    }
+
+    /**
+     * Deciphers a single 16 byte block
+     * @see #encryptBlock(byte[], int, byte[], int)
+     */
+    public void decryptBlock(byte[] input, int inOffset, byte[] output, int outOffset) {
+        decryptBlock(decryptionKeys, rounds, input, inOffset, output, outOffset);
+    }
+
+    /*
+     * Enciphers a block with an expanded key (round key words k), shared with AESBulkCipher
+     */
+    static void encryptBlock(int[] k, int rounds, byte[] input, int inOffset, byte[] output, int outOffset) {
+        int s0 = getWord(input, inOffset) ^ k[0];
+        int s1 = getWord(input, inOffset + 4) ^ k[1];
+        int s2 = getWord(input, inOffset + 8) ^ k[2];
+        int s3 = getWord(input, inOffset + 12) ^ k[3];
+        int r = 4;
+        for (int round = 1; round < rounds; round++, r += 4) {
+            int t0 = TE0[s0 >>> 24] ^ TE1[(s1 >>> 16) & 0xff] ^ TE2[(s2 >>> 8) & 0xff] ^ TE3[s3 & 0xff] ^ k[r];
+            int t1 = TE0[s1 >>> 24] ^ TE1[(s2 >>> 16) & 0xff] ^ TE2[(s3 >>> 8) & 0xff] ^ TE3[s0 & 0xff] ^ k[r + 1];
+            int t2 = TE0[s2 >>> 24] ^ TE1[(s3 >>> 16) & 0xff] ^ TE2[(s0 >>> 8) & 0xff] ^ TE3[s1 & 0xff] ^ k[r + 2];
+            int t3 = TE0[s3 >>> 24] ^ TE1[(s0 >>> 16) & 0xff] ^ TE2[(s1 >>> 8) & 0xff] ^ TE3[s2 & 0xff] ^ k[r + 3];
+            s0 = t0; s1 = t1; s2 = t2; s3 = t3;
+        }
+        putWord(output, outOffset, finalRound(s0, s1, s2, s3) ^ k[r]);
+        putWord(output, outOffset + 4, finalRound(s1, s2, s3, s0) ^ k[r + 1]);
+        putWord(output, outOffset + 8, finalRound(s2, s3, s0, s1) ^ k[r + 2]);
+        putWord(output, outOffset + 12, finalRound(s3, s0, s1, s2) ^ k[r + 3]);
+    }
+
+    /*
+     * Deciphers a block with the round key words k of the equivalent inverse cipher
+     */
+    static void decryptBlock(int[] k, int rounds, byte[] input, int inOffset, byte[] output, int outOffset) {
+        int s0 = getWord(input, inOffset) ^ k[0];
+        int s1 = getWord(input, inOffset + 4) ^ k[1];
+        int s2 = getWord(input, inOffset + 8) ^ k[2];
+        int s3 = getWord(input, inOffset + 12) ^ k[3];
+        int r = 4;
+        for (int round = 1; round < rounds; round++, r += 4) {
+            int t0 = TD0[s0 >>> 24] ^ TD1[(s3 >>> 16) & 0xff] ^ TD2[(s2 >>> 8) & 0xff] ^ TD3[s1 & 0xff] ^ k[r];
+            int t1 = TD0[s1 >>> 24] ^ TD1[(s0 >>> 16) & 0xff] ^ TD2[(s3 >>> 8) & 0xff] ^ TD3[s2 & 0xff] ^ k[r + 1];
+            int t2 = TD0[s2 >>> 24] ^ TD1[(s1 >>> 16) & 0xff] ^ TD2[(s0 >>> 8) & 0xff] ^ TD3[s3 & 0xff] ^ k[r + 2];
+            int t3 = TD0[s3 >>> 24] ^ TD1[(s2 >>> 16) & 0xff] ^ TD2[(s1 >>> 8) & 0xff] ^ TD3[s0 & 0xff] ^ k[r + 3];
+            s0 = t0; s1 = t1; s2 = t2; s3 = t3;
+        }
+        putWord(output, outOffset, invFinalRound(s0, s3, s2, s1) ^ k[r]);
+        putWord(output, outOffset + 4, invFinalRound(s1, s0, s3, s2) ^ k[r + 1]);
+        putWord(output, outOffset + 8, invFinalRound(s2, s1, s0, s3) ^ k[r + 2]);
+        putWord(output, outOffset + 12, invFinalRound(s3, s2, s1, s0) ^ k[r + 3]);
+    }
+
+    /*
+    ------------------------------------------
+                   Mode Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Ciphers input in CTR mode, the caller owns the counter so any number of threads may cipher with this key
+     * Uses the same counter incrementation as {@link AESCTR} (the last row of the state, bytes 3, 7, 11 and 15,
+     * is incremented as a 32 bit word). A trailing partial block consumes a whole counter block.
+     * Runs of four blocks are enciphered with their rounds interleaved so the table lookups of independent blocks
+     * overlap, and the key stream is applied to the input a word at a time.
+     * @param counterBlock current counter block (16 bytes), advanced past the blocks used
+     * @param input array containing the data to be ciphered
+     * @param inOffset offset of the data within input
+     * @param output array the result is written to (may be the same as input)
+     * @param outOffset offset within output
+     * @param length number of bytes to cipher
+     */
+    public void counterMode(byte[] counterBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        int counter = counterWord(counterBlock);
+        int w0 = getWord(counterBlock, 0) & 0xffffff00, w1 = getWord(counterBlock, 4) & 0xffffff00;
+        int w2 = getWord(counterBlock, 8) & 0xffffff00, w3 = getWord(counterBlock, 12) & 0xffffff00;
+        int[] keyStreamWords = new int[4 * LANES];
+        int position = 0;
+        for (; length - position >= 16 * LANES; position += 16 * LANES, counter += LANES) {
+            counterKeyStream(w0, w1, w2, w3, counter, keyStreamWords);
+            for (int j = 0; j < keyStreamWords.length; j++) {
+                int inWord = (int) WORD_VIEW.get(input, inOffset + position + 4 * j);
+                WORD_VIEW.set(output, outOffset + position + 4 * j, inWord ^ keyStreamWords[j]);
+            }
+        }
+        setCounterWord(counterBlock, counter);
+
+        byte[] keyStream = new byte[16];
+        for (int i = position; i < length; i += 16) {
+            encryptBlock(counterBlock, 0, keyStream, 0);
+            int blockLength = Math.min(16, length - i);
+            for (int j = 0; j < blockLength; j++) {
+                output[outOffset + i + j] = (byte) (input[inOffset + i + j] ^ keyStream[j]);
+            }
+            incrementCounter(counterBlock);
+        }
+    }
+
+    /**
+     * Ciphers bytes of input into output in counter mode like {@link #counterMode(byte[], byte[], int, byte[], int, int)}
+     * Heap buffers are ciphered through their backing arrays, other buffers (direct or read only) a word at a time
+     * with absolute gets and puts, so their contents are never copied to the heap. Positions, limits and byte orders
+     * of the buffers are neither used nor changed.
+     * @param counterBlock current counter block (16 bytes), advanced past the blocks used
+     * @param input buffer containing the data to be ciphered
+     * @param inOffset index of the data within input
+     * @param output buffer the result is written to (may share memory with input, at the same index)
+     * @param outOffset index within output
+     * @param length number of bytes to cipher
+     */
+    public void counterMode(byte[] counterBlock, ByteBuffer input, int inOffset, ByteBuffer output, int outOffset,
+                            int length) {
+        if (input.hasArray() && output.hasArray()) {
+            counterMode(counterBlock, input.array(), input.arrayOffset() + inOffset, output.array(),
+                        output.arrayOffset() + outOffset, length);
+            return;
+        }
+        ByteBuffer in = input.duplicate(); // big endian, matching the word order of the key stream
+        ByteBuffer out = output.duplicate();
+        int counter = counterWord(counterBlock);
+        int w0 = getWord(counterBlock, 0) & 0xffffff00, w1 = getWord(counterBlock, 4) & 0xffffff00;
+        int w2 = getWord(counterBlock, 8) & 0xffffff00, w3 = getWord(counterBlock, 12) & 0xffffff00;
+        int[] keyStreamWords = new int[4 * LANES];
+        int position = 0;
+        for (; length - position >= 16 * LANES; position += 16 * LANES, counter += LANES) {
+            counterKeyStream(w0, w1, w2, w3, counter, keyStreamWords);
+            for (int j = 0; j < keyStreamWords.length; j++) {
+                out.putInt(outOffset + position + 4 * j, in.getInt(inOffset + position + 4 * j) ^ keyStreamWords[j]);
+            }
+        }
+        setCounterWord(counterBlock, counter);
+
+        byte[] keyStream = new byte[16];
+        for (int i = position; i < length; i += 16) {
+            encryptBlock(counterBlock, 0, keyStream, 0);
+            int blockLength = Math.min(16, length - i);
+            for (int j = 0; j < blockLength; j++) {
+                out.put(outOffset + i + j, (byte) (in.get(inOffset + i + j) ^ keyStream[j]));
+            }
+            incrementCounter(counterBlock);
+        }
+    }
+
+    /*
+     * Enciphers counter blocks counter to counter + 3 (words w0 - w3 with the counter bytes cleared) into keyStream
+     */
+    private void counterKeyStream(int w0, int w1, int w2, int w3, int counter, int[] keyStream) {
+        int[] k = encryptionKeys;
+        int c0 = counter;
+        int c1 = counter + 1;
+        int c2 = counter + 2;
+        int c3 = counter + 3;
+        int a00 = (w0 | (c0 >>> 24)) ^ k[0], a01 = (w1 | ((c0 >>> 16) & 0xff)) ^ k[1];
+        int a02 = (w2 | ((c0 >>> 8) & 0xff)) ^ k[2], a03 = (w3 | (c0 & 0xff)) ^ k[3];
+        int a10 = (w0 | (c1 >>> 24)) ^ k[0], a11 = (w1 | ((c1 >>> 16) & 0xff)) ^ k[1];
+        int a12 = (w2 | ((c1 >>> 8) & 0xff)) ^ k[2], a13 = (w3 | (c1 & 0xff)) ^ k[3];
+        int a20 = (w0 | (c2 >>> 24)) ^ k[0], a21 = (w1 | ((c2 >>> 16) & 0xff)) ^ k[1];
+        int a22 = (w2 | ((c2 >>> 8) & 0xff)) ^ k[2], a23 = (w3 | (c2 & 0xff)) ^ k[3];
+        int a30 = (w0 | (c3 >>> 24)) ^ k[0], a31 = (w1 | ((c3 >>> 16) & 0xff)) ^ k[1];
+        int a32 = (w2 | ((c3 >>> 8) & 0xff)) ^ k[2], a33 = (w3 | (c3 & 0xff)) ^ k[3];
+        int r = 4;
+        for (int round = 1; round < rounds; round++, r += 4) { // the lanes are independent, so their lookups overlap
+            int t00 = TE0[a00 >>> 24] ^ TE1[(a01 >>> 16) & 0xff] ^ TE2[(a02 >>> 8) & 0xff] ^ TE3[a03 & 0xff] ^ k[r];
+            int t01 = TE0[a01 >>> 24] ^ TE1[(a02 >>> 16) & 0xff] ^ TE2[(a03 >>> 8) & 0xff] ^ TE3[a00 & 0xff] ^ k[r + 1];
+            int t02 = TE0[a02 >>> 24] ^ TE1[(a03 >>> 16) & 0xff] ^ TE2[(a00 >>> 8) & 0xff] ^ TE3[a01 & 0xff] ^ k[r + 2];
+            int t03 = TE0[a03 >>> 24] ^ TE1[(a00 >>> 16) & 0xff] ^ TE2[(a01 >>> 8) & 0xff] ^ TE3[a02 & 0xff] ^ k[r + 3];
+            int t10 = TE0[a10 >>> 24] ^ TE1[(a11 >>> 16) & 0xff] ^ TE2[(a12 >>> 8) & 0xff] ^ TE3[a13 & 0xff] ^ k[r];
+            int t11 = TE0[a11 >>> 24] ^ TE1[(a12 >>> 16) & 0xff] ^ TE2[(a13 >>> 8) & 0xff] ^ TE3[a10 & 0xff] ^ k[r + 1];
+            int t12 = TE0[a12 >>> 24] ^ TE1[(a13 >>> 16) & 0xff] ^ TE2[(a10 >>> 8) & 0xff] ^ TE3[a11 & 0xff] ^ k[r + 2];
+            int t13 = TE0[a13 >>> 24] ^ TE1[(a10 >>> 16) & 0xff] ^ TE2[(a11 >>> 8) & 0xff] ^ TE3[a12 & 0xff] ^ k[r + 3];
+            int t20 = TE0[a20 >>> 24] ^ TE1[(a21 >>> 16) & 0xff] ^ TE2[(a22 >>> 8) & 0xff] ^ TE3[a23 & 0xff] ^ k[r];
+            int t21 = TE0[a21 >>> 24] ^ TE1[(a22 >>> 16) & 0xff] ^ TE2[(a23 >>> 8) & 0xff] ^ TE3[a20 & 0xff] ^ k[r + 1];
+            int t22 = TE0[a22 >>> 24] ^ TE1[(a23 >>> 16) & 0xff] ^ TE2[(a20 >>> 8) & 0xff] ^ TE3[a21 & 0xff] ^ k[r + 2];
+            int t23 = TE0[a23 >>> 24] ^ TE1[(a20 >>> 16) & 0xff] ^ TE2[(a21 >>> 8) & 0xff] ^ TE3[a22 & 0xff] ^ k[r + 3];
+            int t30 = TE0[a30 >>> 24] ^ TE1[(a31 >>> 16) & 0xff] ^ TE2[(a32 >>> 8) & 0xff] ^ TE3[a33 & 0xff] ^ k[r];
+            int t31 = TE0[a31 >>> 24] ^ TE1[(a32 >>> 16) & 0xff] ^ TE2[(a33 >>> 8) & 0xff] ^ TE3[a30 & 0xff] ^ k[r + 1];
+            int t32 = TE0[a32 >>> 24] ^ TE1[(a33 >>> 16) & 0xff] ^ TE2[(a30 >>> 8) & 0xff] ^ TE3[a31 & 0xff] ^ k[r + 2];
+            int t33 = TE0[a33 >>> 24] ^ TE1[(a30 >>> 16) & 0xff] ^ TE2[(a31 >>> 8) & 0xff] ^ TE3[a32 & 0xff] ^ k[r + 3];
+            a00 = t00; a01 = t01; a02 = t02; a03 = t03;
+            a10 = t10; a11 = t11; a12 = t12; a13 = t13;
+            a20 = t20; a21 = t21; a22 = t22; a23 = t23;
+            a30 = t30; a31 = t31; a32 = t32; a33 = t33;
+        }
+        keyStream[0] = finalRound(a00, a01, a02, a03) ^ k[r];
+        keyStream[1] = finalRound(a01, a02, a03, a00) ^ k[r + 1];
+        keyStream[2] = finalRound(a02, a03, a00, a01) ^ k[r + 2];
+        keyStream[3] = finalRound(a03, a00, a01, a02) ^ k[r + 3];
+        keyStream[4] = finalRound(a10, a11, a12, a13) ^ k[r];
+        keyStream[5] = finalRound(a11, a12, a13, a10) ^ k[r + 1];
+        keyStream[6] = finalRound(a12, a13, a10, a11) ^ k[r + 2];
+        keyStream[7] = finalRound(a13, a10, a11, a12) ^ k[r + 3];
+        keyStream[8] = finalRound(a20, a21, a22, a23) ^ k[r];
+        keyStream[9] = finalRound(a21, a22, a23, a20) ^ k[r + 1];
+        keyStream[10] = finalRound(a22, a23, a20, a21) ^ k[r + 2];
+        keyStream[11] = finalRound(a23, a20, a21, a22) ^ k[r + 3];
+        keyStream[12] = finalRound(a30, a31, a32, a33) ^ k[r];
+        keyStream[13] = finalRound(a31, a32, a33, a30) ^ k[r + 1];
+        keyStream[14] = finalRound(a32, a33, a30, a31) ^ k[r + 2];
+        keyStream[15] = finalRound(a33, a30, a31, a32) ^ k[r + 3];
+    }
+
+    /**
+     * Encrypts input in CBC mode, the caller owns the chaining block so any number of threads may encrypt with this key
+     * @param chainingBlock IV or last ciphertext block of the previous call (16 bytes), replaced by the last ciphertext block
+     * @param input array containing the plaintext
+     * @param inOffset offset of the plaintext within input
+     * @param output array the ciphertext is written to (may be the same as input)
+     * @param outOffset offset within output
+     * @param length number of bytes to encrypt (must conform to 16 byte block length)
+     */
+    public void encryptCBC(byte[] chainingBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        checkBlockLength(length);
+        for (int i = 0; i < length; i += 16) {
+            for (int j = 0; j < 16; j++) {
+                chainingBlock[j] ^= input[inOffset + i + j];
+            }
+            encryptBlock(chainingBlock, 0, chainingBlock, 0);
+            System.arraycopy(chainingBlock, 0, output, outOffset + i, 16);
+        }
+    }
+
+    /**
+     * Decrypts input in CBC mode
+     * @see #encryptCBC(byte[], byte[], int, byte[], int, int)
+     */
+    public void decryptCBC(byte[] chainingBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        checkBlockLength(length);
+        byte[] cipherBlock = new byte[16];
+        for (int i = 0; i < length; i += 16) {
+            System.arraycopy(input, inOffset + i, cipherBlock, 0, 16);
+            decryptBlock(cipherBlock, 0, output, outOffset + i);
+            for (int j = 0; j < 16; j++) {
+                output[outOffset + i + j] ^= chainingBlock[j];
+            }
+            System.arraycopy(cipherBlock, 0, chainingBlock, 0, 16);
+        }
+    }
+
+    /**
+     * Increments the counter block the same way as {@link AESCTR} (bytes 3, 7, 11 and 15 as a 32 bit word, mod 2^32)
+     * @param counterBlock 16 byte counter block
+     */
+    public static void incrementCounter(byte[] counterBlock) {
+        addToCounter(counterBlock, 1);
+    }
+
+    /**
+     * Advances the counter block by a number of blocks, the incrementation of {@link AESCTR} repeated blocks times
+     * (bytes 3, 7, 11 and 15 as a 32 bit word, mod 2^32). The only definition of the counter layout, every mode
+     * which seeks within a key stream uses it.
+     * @param counterBlock 16 byte counter block, advanced in place
+     * @param blocks number of blocks to advance by
+     * @return counterBlock
+     */
+    public static byte[] addToCounter(byte[] counterBlock, long blocks) {
+        setCounterWord(counterBlock, counterWord(counterBlock) + (int) blocks); // reduced by 2^32
+        return counterBlock;
+    }
+
+    private static int counterWord(byte[] counterBlock) {
+        return ((counterBlock[3] & 0xff) << 24) | ((counterBlock[7] & 0xff) << 16)
+               | ((counterBlock[11] & 0xff) << 8) | (counterBlock[15] & 0xff);
+    }
+
+    private static void setCounterWord(byte[] counterBlock, int counter) {
+        counterBlock[3] = (byte) (counter >>> 24);
+        counterBlock[7] = (byte) (counter >>> 16);
+        counterBlock[11] = (byte) (counter >>> 8);
+        counterBlock[15] = (byte) counter;
+    }
+
+    /*
+    ------------------------------------------
+                  Helper Methods
+    ------------------------------------------
+     */
+
+    static int finalRound(int a, int b, int c, int d) {
+        return (SBOX[a >>> 24] << 24) | (SBOX[(b >>> 16) & 0xff] << 16) | (SBOX[(c >>> 8) & 0xff] << 8) | SBOX[d & 0xff];
+    }
+
+    static int invFinalRound(int a, int b, int c, int d) {
+        return (INV_SBOX[a >>> 24] << 24) | (INV_SBOX[(b >>> 16) & 0xff] << 16)
+               | (INV_SBOX[(c >>> 8) & 0xff] << 8) | INV_SBOX[d & 0xff];
+    }
+
+    /*
+     * Key expansion on big endian words (ref. NIST AES specification pg. 20 fig. 11), without the int[][] state
+     * of {@link AES#keyExpansion()}
+     */
+    static int[] expandKey(byte[] key) {
+        checkKeyLength(key);
+        int keyWords = key.length / 4;
+        int[] w = new int[4 * (keyWords + 7)];
+        for (int i = 0; i < keyWords; i++) {
+            w[i] = getWord(key, 4 * i);
+        }
+        for (int i = keyWords; i < w.length; i++) {
+            int t = w[i - 1];
+            if (i % keyWords == 0) {
+                t = subWord(Integer.rotateLeft(t, 8)) ^ RCON[i / keyWords - 1];
+            } else if (keyWords > 6 && i % keyWords == 4) {
+                t = subWord(t);
+            }
+            w[i] = w[i - keyWords] ^ t;
+        }
+        return w;
+    }
+
+    static int subWord(int w) {
+        return (SBOX[w >>> 24] << 24) | (SBOX[(w >>> 16) & 0xff] << 16) | (SBOX[(w >>> 8) & 0xff] << 8) | SBOX[w & 0xff];
+    }
+
+    static void checkKeyLength(byte[] key) {
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("Invalid key length. Acceptable lengths are: 128, 192, or 256 bits.");
+        }
+    }
+
+    /*
+     * Reverses the order of the round keys and applies InvMixColumns to all but the first and last
+     * Note: TD0[SBOX[x]] is InvMixColumns applied to a column containing only x
+     */
+    static int[] inverseKeySchedule(int[] encryptionKeys, int rounds) {
+        int[] decryptionKeys = new int[encryptionKeys.length];
+        for (int round = 0; round <= rounds; round++) {
+            for (int j = 0; j < 4; j++) {
+                int w = encryptionKeys[(rounds - round) * 4 + j];
+                if (round != 0 && round != rounds) {
+                    w = TD0[SBOX[w >>> 24]] ^ TD1[SBOX[(w >>> 16) & 0xff]] ^ TD2[SBOX[(w >>> 8) & 0xff]] ^ TD3[SBOX[w & 0xff]];
+                }
+                decryptionKeys[round * 4 + j] = w;
+            }
+        }
+        return decryptionKeys;
+    }
+
+    private static void checkBlockLength(int length) {
+        if (length % 16 != 0) {
+            throw new IllegalArgumentException("Input must conform to 16 byte block length.");
+        }
+    }
+
+    static int getWord(byte[] bytes, int offset) {
+        return (bytes[offset] << 24) | ((bytes[offset + 1] & 0xff) << 16) | ((bytes[offset + 2] & 0xff) << 8)
+               | (bytes[offset + 3] & 0xff);
+    }
+
+    static void putWord(byte[] bytes, int offset, int word) {
+        bytes[offset] = (byte) (word >>> 24);
+        bytes[offset + 1] = (byte) (word >>> 16);
+        bytes[offset + 2] = (byte) (word >>> 8);
+        bytes[offset + 3] = (byte) word;
+    }
+
+    private static byte[] toKeyBytes(int[][] keyWords) {
+        byte[] key = new byte[4 * keyWords.length];
+        for (int i = 0; i < keyWords.length; i++) {
+            if (keyWords[i].length != 4) {
+                throw new IllegalArgumentException("Invalid key length. Key must be provided as a n * 4 array when n corresponds to the number of 32 bit words in key.");
+            }
+            for (int j = 0; j < 4; j++) {
+                key[(i*4) + j] = (byte) keyWords[i][j];
+            }
+        }
+        return key;
+    }
+
+    private static int rotateByte(int x, int shift) {
+        return ((x << shift) | (x >>> (8 - shift))) & 0xff;
+    }
+
+    /*
+     * Multiplication in GF(2^8) (Russian Peasant algorithm as in AES)
+     */
+    private static int mult(int a, int b) {
+        int res = 0;
+        while (a != 0 && b != 0) {
+            if ((b & 1) == 1)
+                res ^= a;
+            if ((a & 0x80) != 0)
+                a = (a << 1) ^ 0x11b;
+            else
+                a <<= 1;
+            b >>>= 1;
+        }
+        return res;
+    }
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * OCB3 authenticated encryption mode for the AES cipher (ref. https://tools.ietf.org/html/rfc7253)
+ */
+package cipher;
+
+import javax.crypto.AEADBadTagException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Implementation of OCB3 mode via the AES class
+ * Every block is processed with a single block cipher call and the offset of any block can be computed
+ * directly from the L table, so both encryption and decryption can be split across threads.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class AESOCB extends AES {
+
+    private static final int L_TABLE_SIZE = 64; // enough for any block index representable by a long
+
+    private final int tagLength;
+    private final byte[] lStar = new byte[16];
+    private final byte[] lDollar = new byte[16];
+    private final byte[][] lTable = new byte[L_TABLE_SIZE][];
+
+    /**
+     * Initializes the cipher object with a 16 byte tag length
+     * @see #AESOCB(int[][], int)
+     */
+    public AESOCB(int[][] keyBytes) {
+        this(keyBytes, 16);
+    }
+
+    /**
+     * Performs key expansion and precomputes the L table offsets
+     * @param keyBytes initial key bytes (integer array of dimensions 4 x 4, 6 x 4, or 8 x 4)
+     * @param tagLength length of the authentication tag in bytes (1 - 16)
+     */
+    public AESOCB(int[][] keyBytes, int tagLength) {
+        super();
+        if (tagLength < 1 || tagLength > 16) {
+            throw new IllegalArgumentException("Tag length must be between 1 and 16 bytes.");
+        }
+        this.tagLength = tagLength;
+        initializeRoundKeys(keyBytes);
+        keyExpansion();
+        encryptBlock(new byte[16], 0, lStar, 0);
+        Blocks.doubleBlock(lStar, lDollar);
+        lTable[0] = new byte[16];
+        Blocks.doubleBlock(lDollar, lTable[0]);
+        for (int i = 1; i < L_TABLE_SIZE; i++) {
+            lTable[i] = new byte[16];
+            Blocks.doubleBlock(lTable[i-1], lTable[i]);
+        }
+    }
+
+    /*
+    ------------------------------------------
+                    Cipher Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Encrypts and authenticates the plaintext on the calling thread
+     * @param nonce unique nonce for this message (1 - 15 bytes)
+     * @param associatedData data which is authenticated but not encrypted (may be empty)
+     * @param plainText data to be encrypted (any length)
+     * @return ciphertext with the authentication tag appended
+     */
+    public byte[] encrypt(byte[] nonce, byte[] associatedData, byte[] plainText) {
+        return encrypt(nonce, associatedData, plainText, null, 1);
+    }
+
+    /**
+     * Encrypts and authenticates the plaintext, splitting the full blocks across the threads of executor
+     * (one segment per processor, segments are at least 1024 blocks)
+     * @param executor executor used to process segments of the message, or null to run on the calling thread
+     * @see #encrypt(byte[], byte[], byte[])
+     */
+    public byte[] encrypt(byte[] nonce, byte[] associatedData, byte[] plainText, ExecutorService executor) {
+        return encrypt(nonce, associatedData, plainText, executor, Segments.defaultCount(plainText.length / 16, executor));
+    }
+
+    /**
+     * Encrypts and authenticates the plaintext, splitting the full blocks into the given number of segments
+     * @param executor executor used to process segments of the message
+     * @param segments number of segments the full blocks are split into (capped at the number of full blocks)
+     * @see #encrypt(byte[], byte[], byte[])
+     */
+    public byte[] encrypt(byte[] nonce, byte[] associatedData, byte[] plainText, ExecutorService executor, int segments) {
+        byte[] output = new byte[plainText.length + tagLength];
+        byte[] offset = initialOffset(nonce);
+        byte[] checksum = processBlocks(plainText, output, offset, plainText.length / 16, false, executor, segments);
+        int fullLength = plainText.length - plainText.length % 16;
+        if (fullLength != plainText.length) {
+            Blocks.xorInto(offset, lStar);
+            byte[] pad = new byte[16];
+            encryptBlock(offset, 0, pad, 0);
+            for (int i = fullLength; i < plainText.length; i++) {
+                output[i] = (byte) (plainText[i] ^ pad[i - fullLength]);
+            }
+            Blocks.xorInto(checksum, finalBlock(plainText, fullLength));
+        }
+        byte[] tag = computeTag(checksum, offset, associatedData);
+        System.arraycopy(tag, 0, output, plainText.length, tagLength);
+        return output;
+    }
+
+    /**
+     * Verifies and decrypts the ciphertext on the calling thread
+     * @param nonce nonce the message was encrypted with
+     * @param associatedData associated data the message was encrypted with
+     * @param cipherText ciphertext with the authentication tag appended
+     * @return the plaintext
+     * @throws AEADBadTagException if the tag does not match the ciphertext and associated data
+     */
+    public byte[] decrypt(byte[] nonce, byte[] associatedData, byte[] cipherText) throws AEADBadTagException {
+        return decrypt(nonce, associatedData, cipherText, null, 1);
+    }
+
+    /**
+     * Verifies and decrypts the ciphertext, splitting the full blocks across the threads of executor
+     * (one segment per processor, segments are at least 1024 blocks)
+     * @param executor executor used to process segments of the message, or null to run on the calling thread
+     * @see #decrypt(byte[], byte[], byte[])
+     */
+    public byte[] decrypt(byte[] nonce, byte[] associatedData, byte[] cipherText, ExecutorService executor)
+            throws AEADBadTagException {
+        int blocks = Math.max(0, cipherText.length - tagLength) / 16;
+        return decrypt(nonce, associatedData, cipherText, executor, Segments.defaultCount(blocks, executor));
+    }
+
+    /**
+     * Verifies and decrypts the ciphertext, splitting the full blocks into the given number of segments
+     * @param executor executor used to process segments of the message
+     * @param segments number of segments the full blocks are split into (capped at the number of full blocks)
+     * @see #decrypt(byte[], byte[], byte[])
+     */
+    public byte[] decrypt(byte[] nonce, byte[] associatedData, byte[] cipherText, ExecutorService executor, int segments)
+            throws AEADBadTagException {
+        if (cipherText.length < tagLength) {
+            throw new IllegalArgumentException("Ciphertext must contain at least the authentication tag.");
+        }
+        int dataLength = cipherText.length - tagLength;
+        byte[] output = new byte[dataLength];
+        byte[] offset = initialOffset(nonce);
+        byte[] checksum = processBlocks(cipherText, output, offset, dataLength / 16, true, executor, segments);
+        int fullLength = dataLength - dataLength % 16;
+        if (fullLength != dataLength) {
+            Blocks.xorInto(offset, lStar);
+            byte[] pad = new byte[16];
+            encryptBlock(offset, 0, pad, 0);
+            for (int i = fullLength; i < dataLength; i++) {
+                output[i] = (byte) (cipherText[i] ^ pad[i - fullLength]);
+            }
+            Blocks.xorInto(checksum, finalBlock(output, fullLength));
+        }
+        byte[] tag = computeTag(checksum, offset, associatedData);
+        int diff = 0;
+        for (int i = 0; i < tagLength; i++) { // constant time comparison
+            diff |= tag[i] ^ cipherText[dataLength + i];
+        }
+        if (diff != 0) {
+            throw new AEADBadTagException("OCB authentication tag mismatch.");
+        }
+        return output;
+    }
+
+    /*
+     * Processes the full blocks of input, leaves offset at Offset_m and returns Checksum_m
+     * ref. RFC 7253 sec. 4.2/4.3
+     */
+    private byte[] processBlocks(byte[] input, byte[] output, byte[] offset, long blocks, boolean decrypt,
+                                 ExecutorService executor, int segments) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("Message must be split into at least one segment.");
+        }
+        segments = (int) Math.min(segments, Math.max(1, blocks));
+        byte[] checksum = new byte[16];
+        if (segments == 1 || executor == null) {
+            processSegment(this, input, output, offset, 1, blocks, decrypt, checksum);
+        } else {
+            byte[] initialOffset = offset.clone();
+            List<Future<byte[]>> results = new ArrayList<>();
+            long perSegment = blocks / segments;
+            for (int s = 0; s < segments; s++) {
+                long first = s * perSegment + 1;
+                long last = (s == segments - 1) ? blocks : first + perSegment - 1;
+                results.add(executor.submit(() -> {
+                    byte[] segmentOffset = initialOffset.clone();
+                    Blocks.xorInto(segmentOffset, offsetDelta(first - 1));
+                    byte[] segmentChecksum = new byte[16];
+                    processSegment(newBlockEngine(), input, output, segmentOffset, first, last, decrypt, segmentChecksum);
+                    return segmentChecksum;
+                }));
+            }
+            try {
+                for (Future<byte[]> result : results) {
+                    Blocks.xorInto(checksum, result.get());
+                }
+            } catch (InterruptedException | ExecutionException ex) {
+                throw new IllegalStateException("OCB segment processing failed.", ex);
+            }
+            Blocks.xorInto(offset, offsetDelta(blocks));
+        }
+        return checksum;
+    }
+
+    /*
+     * Processes blocks first through last (1 indexed) with the given engine, offset must equal Offset_(first-1)
+     */
+    private void processSegment(AES engine, byte[] input, byte[] output, byte[] offset, long first, long last,
+                                boolean decrypt, byte[] checksum) {
+        byte[] block = new byte[16];
+        for (long i = first; i <= last; i++) {
+            int position = (int) ((i - 1) * 16);
+            Blocks.xorInto(offset, lTable[Long.numberOfTrailingZeros(i)]);
+            for (int j = 0; j < 16; j++) {
+                block[j] = (byte) (input[position + j] ^ offset[j]);
+            }
+            if (decrypt) {
+                engine.decryptBlock(block, 0, block, 0);
+            } else {
+                engine.encryptBlock(block, 0, block, 0);
+            }
+            for (int j = 0; j < 16; j++) {
+                output[position + j] = (byte) (block[j] ^ offset[j]);
+                checksum[j] ^= decrypt ? output[position + j] : input[position + j];
+            }
+        }
+    }
+
+    /*
+     * Tag = ENCIPHER(K, Checksum_* xor Offset_* xor L_$) xor HASH(K, A)
+     */
+    private byte[] computeTag(byte[] checksum, byte[] offset, byte[] associatedData) {
+        byte[] tag = checksum.clone();
+        Blocks.xorInto(tag, offset);
+        Blocks.xorInto(tag, lDollar);
+        encryptBlock(tag, 0, tag, 0);
+        Blocks.xorInto(tag, hash(associatedData));
+        return tag;
+    }
+
+    /*
+     * Processes the associated data, ref. RFC 7253 sec. 4.1
+     */
+    private byte[] hash(byte[] associatedData) {
+        byte[] sum = new byte[16];
+        byte[] offset = new byte[16];
+        byte[] block = new byte[16];
+        long blocks = associatedData.length / 16;
+        for (long i = 1; i <= blocks; i++) {
+            Blocks.xorInto(offset, lTable[Long.numberOfTrailingZeros(i)]);
+            for (int j = 0; j < 16; j++) {
+                block[j] = (byte) (associatedData[(int) ((i - 1) * 16) + j] ^ offset[j]);
+            }
+            encryptBlock(block, 0, block, 0);
+            Blocks.xorInto(sum, block);
+        }
+        int fullLength = (int) (blocks * 16);
+        if (fullLength != associatedData.length) {
+            Blocks.xorInto(offset, lStar);
+            block = finalBlock(associatedData, fullLength);
+            Blocks.xorInto(block, offset);
+            encryptBlock(block, 0, block, 0);
+            Blocks.xorInto(sum, block);
+        }
+        return sum;
+    }
+
+    /*
+    ------------------------------------------
+                   Offset Methods
+    ------------------------------------------
+     */
+
+    /*
+     * Computes Offset_0 from the nonce, ref. RFC 7253 sec. 4.2
+     */
+    private byte[] initialOffset(byte[] nonce) {
+        if (nonce.length < 1 || nonce.length > 15) {
+            throw new IllegalArgumentException("Nonce must be between 1 and 15 bytes.");
+        }
+        byte[] nonceBlock = new byte[16];
+        System.arraycopy(nonce, 0, nonceBlock, 16 - nonce.length, nonce.length);
+        nonceBlock[15 - nonce.length] |= 1;
+        nonceBlock[0] |= (byte) (((tagLength * 8) % 128) << 1);
+        int bottom = nonceBlock[15] & 0x3f;
+        nonceBlock[15] &= (byte) 0xc0;
+        byte[] stretch = new byte[24];
+        encryptBlock(nonceBlock, 0, stretch, 0);
+        for (int i = 0; i < 8; i++) {
+            stretch[16 + i] = (byte) (stretch[i] ^ stretch[i + 1]);
+        }
+        byte[] offset = new byte[16];
+        int byteShift = bottom / 8;
+        int bitShift = bottom % 8;
+        for (int i = 0; i < 16; i++) {
+            int high = (stretch[i + byteShift] & 0xff) << bitShift;
+            int low = (stretch[i + byteShift + 1] & 0xff) >>> (8 - bitShift);
+            offset[i] = (byte) (high | low);
+        }
+        return offset;
+    }
+
+    /*
+     * Computes L_ntz(1) xor ... xor L_ntz(i), which equals the xor of L_j for every bit j set in the gray code of i
+     * Allows the offset of any block to be found without processing the blocks before it
+     */
+    private byte[] offsetDelta(long i) {
+        byte[] delta = new byte[16];
+        long grayCode = i ^ (i >>> 1);
+        for (int j = 0; grayCode != 0; j++, grayCode >>>= 1) {
+            if ((grayCode & 1) == 1) {
+                Blocks.xorInto(delta, lTable[j]);
+            }
+        }
+        return delta;
+    }
+
+    /*
+     * Returns the trailing partial block of data padded with 10* (ref. RFC 7253 sec. 4.2 Checksum_*)
+     */
+    private static byte[] finalBlock(byte[] data, int from) {
+        byte[] block = new byte[16];
+        System.arraycopy(data, from, block, 0, data.length - from);
+        block[data.length - from] = (byte) 0x80;
+        return block;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Output feedback mode for the AES cipher (ref. https://nvlpubs.nist.gov/nistpubs/Legacy/SP/nistspecialpublication800-38a.pdf)
+ */
+package cipher;
+
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Implementation of OFB mode via the AES class, operates on (direct or heap) ByteBuffers
+ * The output blocks (O_j = CIPH(O_j-1), O_0 = CIPH(IV), ref. SP 800-38A sec. 6.4) depend only on the key and IV, so
+ * key stream can be generated ahead of the data with {@link #precompute(int)}, eg. while waiting on I/O, and is then
+ * consumed by {@link #update(ByteBuffer, ByteBuffer)}. Encryption and decryption are the same operation, input need
+ * not conform to the block size.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class AESOFB extends AES {
+
+    private final byte[] outputBlock = new byte[16]; // O_j, the last output block generated
+    private byte[] keyStream = new byte[16]; // generated key stream, bytes from keyStreamPosition to keyStreamLimit are unused
+    private int keyStreamPosition = 0;
+    private int keyStreamLimit = 0;
+
+    /**
+     * Performs key expansion and sets the IV (the IV is copied)
+     * @param keyBytes initial key bytes (integer array of dimensions 4 x 4, 6 x 4, or 8 x 4)
+     * @param initVector IV block (integer array of dimension 4 x 4)
+     */
+    public AESOFB(int[][] keyBytes, int[][] initVector) {
+        super();
+        initializeRoundKeys(keyBytes);
+        keyExpansion();
+        for (int i = 0; i < 16; i++) {
+            outputBlock[i] = (byte) initVector[i % 4][i / 4];
+        }
+    }
+
+    /**
+     * Takes the round keys from a key which is already expanded and sets the IV (the IV is copied)
+     * @param key expanded key (only read, so it may be shared with other cipher objects)
+     * @param initVector IV block (integer array of dimension 4 x 4)
+     */
+    public AESOFB(AESKey key, int[][] initVector) {
+        super();
+        setRoundKeys(key);
+        for (int i = 0; i < 16; i++) {
+            outputBlock[i] = (byte) initVector[i % 4][i / 4];
+        }
+    }
+
+    /*
+    ------------------------------------------
+                    Cipher Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Generates key stream ahead of the data, later calls to update() consume it before generating more
+     * @param length minimum number of unused key stream bytes to be held (rounded up to the block size)
+     */
+    public void precompute(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length must not be negative.");
+        }
+        int blocks = (length - available() + 15) / 16;
+        if (blocks <= 0) {
+            return;
+        }
+        int required = available() + blocks * 16;
+        if (required > keyStream.length) {
+            int capacity = Math.max(required, 2 * keyStream.length);
+            keyStream = Arrays.copyOfRange(keyStream, keyStreamPosition, keyStreamPosition + capacity);
+        } else {
+            System.arraycopy(keyStream, keyStreamPosition, keyStream, 0, available());
+        }
+        keyStreamLimit = available();
+        keyStreamPosition = 0;
+        for (int i = 0; i < blocks; i++) {
+            encryptBlock(outputBlock, 0, outputBlock, 0);
+            System.arraycopy(outputBlock, 0, keyStream, keyStreamLimit, 16);
+            keyStreamLimit += 16;
+        }
+    }
+
+    /**
+     * @return number of generated key stream bytes not yet consumed
+     */
+    public int available() {
+        return keyStreamLimit - keyStreamPosition;
+    }
+
+    /**
+     * Ciphers all bytes remaining in input into output, continuing the key stream from the previous call
+     * Matches the buffer semantics of {@code javax.crypto.Cipher.update(ByteBuffer, ByteBuffer)}: the position of
+     * input is advanced to its limit and the position of output by the number of bytes written.
+     * Output may be a view of the same memory as input (in place ciphering).
+     * @param input bytes to be ciphered
+     * @param output buffer the result is written to
+     * @return number of bytes written to output
+     * @throws ShortBufferException if output has fewer bytes remaining than input (neither buffer is modified)
+     */
+    public int update(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        int length = input.remaining();
+        if (output.remaining() < length) {
+            throw new ShortBufferException("Output buffer requires " + length + " bytes.");
+        }
+        int inputPosition = input.position();
+        int outputPosition = output.position();
+        for (int i = 0; i < length; i++) {
+            if (keyStreamPosition == keyStreamLimit) {
+                precompute(16);
+            }
+            output.put(outputPosition + i, (byte) (input.get(inputPosition + i) ^ keyStream[keyStreamPosition++]));
+        }
+        input.position(inputPosition + length);
+        output.position(outputPosition + length);
+        return length;
+    }
+
+}
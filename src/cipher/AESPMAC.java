@@ -0,0 +1,218 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * PMAC1 parallelizable message authentication code for the AES cipher (ref. https://web.cs.ucdavis.edu/~rogaway/ocb/pmac.htm)
+ */
+package cipher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Implementation of PMAC1 via the AESKey engine
+ * Every block except the last is enciphered independently (Sum = E(M_1 xor Offset_1) xor ... xor E(M_m-1 xor Offset_m-1))
+ * and the offset of any block can be computed directly from the L table, so the blocks can be split across threads
+ * and the partial sums merged by XOR. Messages can be processed in pieces of any length with
+ * {@link #update(byte[], int, int)}, the last 1 - 16 bytes are held back since the final block is treated differently.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class AESPMAC {
+
+    private static final int L_TABLE_SIZE = 64; // enough for any block index representable by a long
+
+    private final AESKey key;
+    private final byte[][] lTable = new byte[L_TABLE_SIZE][]; // L(i) = L * x^i, L = E(0^n)
+    private final byte[] lInverse = new byte[16]; // L * x^-1
+    private final byte[] sum = new byte[16];
+    private final byte[] pending = new byte[16]; // the last bytes received, processed once more data follows
+    private int pendingLength;
+    private long blocks; // number of blocks absorbed into sum
+
+    /**
+     * Performs key expansion and precomputes the L table
+     * @param key initial key (16, 24, or 32 bytes)
+     */
+    public AESPMAC(byte[] key) {
+        this(new AESKey(key));
+    }
+
+    /**
+     * Performs key expansion and precomputes the L table
+     * @param keyBytes initial key bytes (integer array of dimensions 4 x 4, 6 x 4, or 8 x 4)
+     */
+    public AESPMAC(int[][] keyBytes) {
+        this(new AESKey(keyBytes));
+    }
+
+    private AESPMAC(AESKey key) {
+        this.key = key;
+        lTable[0] = new byte[16];
+        key.encryptBlock(lTable[0], 0, lTable[0], 0);
+        for (int i = 1; i < L_TABLE_SIZE; i++) {
+            lTable[i] = new byte[16];
+            Blocks.doubleBlock(lTable[i-1], lTable[i]);
+        }
+        Blocks.halveBlock(lTable[0], lInverse);
+    }
+
+    /*
+    ------------------------------------------
+                     MAC Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Adds bytes to the message on the calling thread
+     * @see #update(byte[], int, int, ExecutorService)
+     */
+    public void update(byte[] data, int offset, int length) {
+        update(data, offset, length, null);
+    }
+
+    /**
+     * Adds bytes to the message, splitting the blocks across the threads of executor
+     * (one segment per processor, segments are at least 1024 blocks)
+     * @param data array containing the message bytes
+     * @param offset offset of the bytes within data
+     * @param length number of bytes to add (any length)
+     * @param executor executor used to process segments of the blocks, or null to run on the calling thread
+     */
+    public void update(byte[] data, int offset, int length, ExecutorService executor) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length must not be negative.");
+        }
+        int end = offset + length;
+        int take = Math.min(16 - pendingLength, length);
+        System.arraycopy(data, offset, pending, pendingLength, take);
+        pendingLength += take;
+        offset += take;
+        if (offset == end) {
+            return; // the pending block may be the final block
+        }
+        absorb(sumBlocks(pending, 0, blocks + 1, 1), 1);
+        int count = (end - offset - 1) / 16; // the last 1 - 16 bytes are held back
+        if (count > 0) {
+            absorb(sumBlocks(data, offset, blocks + 1, count, executor), count);
+            offset += count * 16;
+        }
+        pendingLength = end - offset;
+        System.arraycopy(data, offset, pending, 0, pendingLength);
+    }
+
+    /**
+     * Completes the message and resets the MAC for the next message
+     * @return 16 byte tag
+     */
+    public byte[] doFinal() {
+        byte[] tag = new byte[16];
+        System.arraycopy(pending, 0, tag, 0, pendingLength);
+        if (pendingLength == 16) {
+            Blocks.xorInto(tag, lInverse);
+        } else {
+            tag[pendingLength] = (byte) 0x80; // 10* padding
+        }
+        Blocks.xorInto(tag, sum);
+        key.encryptBlock(tag, 0, tag, 0);
+        reset();
+        return tag;
+    }
+
+    /**
+     * Discards the message processed so far
+     */
+    public void reset() {
+        Arrays.fill(sum, (byte) 0);
+        Arrays.fill(pending, (byte) 0);
+        pendingLength = 0;
+        blocks = 0;
+    }
+
+    /*
+    ------------------------------------------
+                   Block Methods
+    ------------------------------------------
+     */
+
+    /*
+     * @return number of blocks absorbed, blocks added next are numbered from blockCount() + 1
+     */
+    long blockCount() {
+        return blocks;
+    }
+
+    /*
+     * Merges the partial sum of the count blocks which follow the blocks absorbed so far
+     * Used directly (bypassing update()) only while no bytes are pending
+     */
+    void absorb(byte[] partialSum, int count) {
+        Blocks.xorInto(sum, partialSum);
+        blocks += count;
+    }
+
+    /*
+     * Sums blocks first to first + count - 1 (1 indexed) of a message, the blocks start at offset within data
+     * Only reads the key and L table so it may run on any number of threads at once
+     */
+    byte[] sumBlocks(byte[] data, int offset, long first, int count) {
+        byte[] delta = offsetDelta(first - 1);
+        byte[] partialSum = new byte[16];
+        byte[] block = new byte[16];
+        for (int i = 0; i < count; i++) {
+            Blocks.xorInto(delta, lTable[Long.numberOfTrailingZeros(first + i)]);
+            int position = offset + i * 16;
+            for (int j = 0; j < 16; j++) {
+                block[j] = (byte) (data[position + j] ^ delta[j]);
+            }
+            key.encryptBlock(block, 0, block, 0);
+            Blocks.xorInto(partialSum, block);
+        }
+        return partialSum;
+    }
+
+    /*
+     * Sums blocks in segments across the executor, the partial sums are merged by XOR
+     */
+    private byte[] sumBlocks(byte[] data, int offset, long first, int count, ExecutorService executor) {
+        int segments = Segments.defaultCount(count, executor);
+        if (segments == 1) {
+            return sumBlocks(data, offset, first, count);
+        }
+        List<Future<byte[]>> results = new ArrayList<>();
+        int perSegment = count / segments;
+        for (int s = 0; s < segments; s++) {
+            int segmentOffset = offset + s * perSegment * 16;
+            long segmentFirst = first + (long) s * perSegment;
+            int segmentCount = (s == segments - 1) ? count - s * perSegment : perSegment;
+            results.add(executor.submit(() -> sumBlocks(data, segmentOffset, segmentFirst, segmentCount)));
+        }
+        byte[] partialSum = new byte[16];
+        try {
+            for (Future<byte[]> result : results) {
+                Blocks.xorInto(partialSum, result.get());
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new IllegalStateException("PMAC segment processing failed.", ex);
+        }
+        return partialSum;
+    }
+
+    /*
+     * Computes Offset_i = L(ntz(1)) xor ... xor L(ntz(i)), the xor of L(j) for every bit j set in the gray code of i
+     */
+    private byte[] offsetDelta(long i) {
+        byte[] delta = new byte[16];
+        long grayCode = i ^ (i >>> 1);
+        for (int j = 0; grayCode != 0; j++, grayCode >>>= 1) {
+            if ((grayCode & 1) == 1) {
+                Blocks.xorInto(delta, lTable[j]);
+            }
+        }
+        return delta;
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Single pass re-encryption of CBC or CTR ciphertext under a new key and IV (key rotation)
+ */
+package cipher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Re-encrypts ciphertext under an old key and IV to ciphertext under a new key and IV in one pass, the plaintext only
+ * exists transiently in the buffer passed to {@link #update(byte[], int, int, ExecutorService)}. The input may be
+ * processed in pieces of any number of whole blocks, the chaining blocks and counters are carried between calls.
+ * CTR to CTR never forms the plaintext: the two key streams are generated into a scratch block and XORed with each
+ * other before they are applied to the data. Everything but CBC encryption is independent per block, so the buffer
+ * is split into segments which run on the executor; CBC encryption (to CBC) runs on the calling thread afterwards.
+ * Since CBC and CTR ciphertext written by CliCipher are padded the same way (PKCS#7), any combination of the two
+ * modes can be converted without changing the length.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class AESReencryptor {
+
+    /** Modes which can be re-encrypted */
+    public enum Mode { CBC, CTR }
+
+    private static final int SCRATCH_LENGTH = 4096; // key stream generated per step of CTR to CTR, stays in cache
+
+    private final Mode fromMode;
+    private final Mode toMode;
+    private final AESEngine fromKey;
+    private final AESEngine toKey;
+    private final byte[] fromBlock; // last old ciphertext block (CBC) or next old counter block (CTR)
+    private final byte[] toBlock; // last new ciphertext block (CBC) or next new counter block (CTR)
+
+    /**
+     * @param fromMode mode of the ciphertext
+     * @param fromKey key of the ciphertext (16, 24, or 32 bytes)
+     * @param fromInitVector IV or initial counter block of the ciphertext (16 bytes, copied)
+     * @param toMode mode of the re-encrypted ciphertext
+     * @param toKey key of the re-encrypted ciphertext
+     * @param toInitVector IV or initial counter block of the re-encrypted ciphertext (copied)
+     */
+    public AESReencryptor(Mode fromMode, byte[] fromKey, byte[] fromInitVector, Mode toMode, byte[] toKey,
+                          byte[] toInitVector) {
+        this(fromMode, AESEngine.create(fromKey), fromInitVector, toMode, AESEngine.create(toKey), toInitVector);
+    }
+
+    /**
+     * Re-encrypts with keys which are already expanded (engines are only read, so they may be shared)
+     * @see #AESReencryptor(Mode, byte[], byte[], Mode, byte[], byte[])
+     */
+    public AESReencryptor(Mode fromMode, AESEngine fromKey, byte[] fromInitVector, Mode toMode, AESEngine toKey,
+                          byte[] toInitVector) {
+        if (fromMode == null || toMode == null) {
+            throw new IllegalArgumentException("Modes must not be null.");
+        }
+        if (fromInitVector.length != 16 || toInitVector.length != 16) {
+            throw new IllegalArgumentException("Initialization vectors must contain exactly 16 bytes.");
+        }
+        this.fromMode = fromMode;
+        this.toMode = toMode;
+        this.fromKey = fromKey;
+        this.toKey = toKey;
+        this.fromBlock = fromInitVector.clone();
+        this.toBlock = toInitVector.clone();
+    }
+
+    /**
+     * Re-encrypts whole blocks in place on the calling thread
+     * @see #update(byte[], int, int, ExecutorService)
+     */
+    public void update(byte[] data, int offset, int length) {
+        update(data, offset, length, null);
+    }
+
+    /**
+     * Re-encrypts whole blocks in place, continuing from the previous call
+     * @param data array containing the ciphertext
+     * @param offset offset of the ciphertext within data
+     * @param length number of bytes to re-encrypt (must conform to 16 byte block length)
+     * @param executor executor the segments run on (one per processor, at least 1024 blocks each), or null to run
+     *                 on the calling thread
+     */
+    public void update(byte[] data, int offset, int length, ExecutorService executor) {
+        if (length % 16 != 0) {
+            throw new IllegalArgumentException("Input must conform to 16 byte block length.");
+        }
+        int blocks = length / 16;
+        if (blocks == 0) {
+            return;
+        }
+        int segments = Segments.defaultCount(blocks, executor);
+        int perSegment = blocks / segments;
+
+        // state at the start of each segment, captured before any data is overwritten
+        List<byte[]> fromBlocks = new ArrayList<>();
+        List<byte[]> toCounters = new ArrayList<>();
+        for (int s = 0; s < segments; s++) {
+            int start = s * perSegment;
+            if (fromMode == Mode.CBC) {
+                fromBlocks.add(s == 0 ? fromBlock.clone()
+                                      : copyBlock(data, offset + (start - 1) * 16)); // preceding ciphertext block
+            } else {
+                fromBlocks.add(AESKey.addToCounter(fromBlock.clone(), start));
+            }
+            toCounters.add(toMode == Mode.CTR ? AESKey.addToCounter(toBlock.clone(), start) : null);
+        }
+        byte[] lastCipherBlock = copyBlock(data, offset + length - 16);
+
+        if (segments == 1) {
+            reencryptSegment(data, offset, blocks, fromBlocks.get(0), toCounters.get(0));
+        } else {
+            List<Future<?>> results = new ArrayList<>();
+            for (int s = 0; s < segments; s++) {
+                int segmentOffset = offset + s * perSegment * 16;
+                int segmentBlocks = (s == segments - 1) ? blocks - s * perSegment : perSegment;
+                byte[] from = fromBlocks.get(s);
+                byte[] to = toCounters.get(s);
+                results.add(executor.submit(() -> reencryptSegment(data, segmentOffset, segmentBlocks, from, to)));
+            }
+            try {
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            } catch (InterruptedException | ExecutionException ex) {
+                throw new IllegalStateException("Re-encryption of a segment failed.", ex);
+            }
+        }
+        if (toMode == Mode.CBC) {
+            toKey.encryptCBC(toBlock, data, offset, data, offset, length); // sequential, each block depends on the last
+        } else {
+            AESKey.addToCounter(toBlock, blocks);
+        }
+        if (fromMode == Mode.CBC) {
+            System.arraycopy(lastCipherBlock, 0, fromBlock, 0, 16);
+        } else {
+            AESKey.addToCounter(fromBlock, blocks);
+        }
+    }
+
+    /*
+     * Removes the old encryption of a segment, and applies the new one unless it is CBC
+     * @param from chaining block (CBC) or counter block (CTR) of the old encryption at the start of the segment
+     * @param to counter block of the new encryption at the start of the segment (CTR only)
+     */
+    private void reencryptSegment(byte[] data, int offset, int blocks, byte[] from, byte[] to) {
+        int length = blocks * 16;
+        if (fromMode == Mode.CTR && toMode == Mode.CTR) {
+            byte[] scratch = new byte[SCRATCH_LENGTH];
+            for (int i = 0; i < length; i += SCRATCH_LENGTH) {
+                int stepLength = Math.min(SCRATCH_LENGTH, length - i);
+                Arrays.fill(scratch, 0, stepLength, (byte) 0);
+                fromKey.counterMode(from, scratch, 0, scratch, 0, stepLength); // old key stream
+                toKey.counterMode(to, scratch, 0, scratch, 0, stepLength); // old xor new key stream
+                for (int j = 0; j < stepLength; j++) {
+                    data[offset + i + j] ^= scratch[j];
+                }
+            }
+            return;
+        }
+        if (fromMode == Mode.CBC) {
+            fromKey.decryptCBC(from, data, offset, data, offset, length);
+        } else {
+            fromKey.counterMode(from, data, offset, data, offset, length);
+        }
+        if (toMode == Mode.CTR) {
+            toKey.counterMode(to, data, offset, data, offset, length);
+        }
+    }
+
+    /*
+    ------------------------------------------
+                   Helper Methods
+    ------------------------------------------
+     */
+
+    private static byte[] copyBlock(byte[] data, int offset) {
+        byte[] block = new byte[16];
+        System.arraycopy(data, offset, block, 0, 16);
+        return block;
+    }
+
+}
@@ -0,0 +1,338 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * SIV mode (deterministic authenticated encryption) for the AES cipher (ref. https://tools.ietf.org/html/rfc5297)
+ */
+package cipher;
+
+import javax.crypto.AEADBadTagException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Implementation of AES-SIV (RFC 5297) via the AESKey engine
+ * The synthetic IV is the S2V (CMAC based) tag of the associated data and plaintext, and the plaintext is encrypted
+ * in CTR mode with that IV, so identical plaintext and associated data under the same key always produce identical
+ * ciphertext (V || C). A nonce may be passed as the last associated data string when this is not wanted.
+ * The CMAC subkeys and the S2V value of the empty string are computed once per key; instances hold no other state
+ * and may be shared between threads. Streams are processed in two passes without buffering the whole message:
+ * {@link #syntheticIV(InputStream, byte[]...)} followed by {@link #encrypt(byte[], InputStream, OutputStream)} on
+ * encryption, and optionally {@link #verify(InputStream, byte[]...)} ahead of
+ * {@link #decrypt(InputStream, OutputStream, byte[]...)} when unauthenticated plaintext must never be released.
+ * Note: the CTR step uses the counter of RFC 5297 (the last 64 bits incremented as a big endian integer), which
+ * differs from the counter incrementation of {@link AESCTR}.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class AESSIV {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ASSOCIATED_DATA = 126; // S2V accepts at most 127 strings including the plaintext
+
+    private final AESKey macKey; // K1 (first half of the key), S2V
+    private final AESKey cipherKey; // K2 (second half of the key), CTR
+    private final byte[] subkey1 = new byte[16]; // CMAC subkeys (ref. NIST SP 800-38B sec. 6.1)
+    private final byte[] subkey2 = new byte[16];
+    private final byte[] zeroMac; // CMAC(K1, <zero>), the first value of D in S2V
+
+    /**
+     * Performs key expansion and precomputes the CMAC subkeys
+     * @param key SIV key (32, 48, or 64 bytes), the first half authenticates and the second half encrypts
+     */
+    public AESSIV(byte[] key) {
+        if (key.length != 32 && key.length != 48 && key.length != 64) {
+            throw new IllegalArgumentException("SIV key must be 32, 48, or 64 bytes.");
+        }
+        byte[] macKeyBytes = new byte[key.length / 2];
+        byte[] cipherKeyBytes = new byte[key.length / 2];
+        System.arraycopy(key, 0, macKeyBytes, 0, macKeyBytes.length);
+        System.arraycopy(key, macKeyBytes.length, cipherKeyBytes, 0, cipherKeyBytes.length);
+        this.macKey = new AESKey(macKeyBytes);
+        this.cipherKey = new AESKey(cipherKeyBytes);
+
+        byte[] l = new byte[16];
+        macKey.encryptBlock(l, 0, l, 0);
+        Blocks.doubleBlock(l, subkey1);
+        Blocks.doubleBlock(subkey1, subkey2);
+        this.zeroMac = cmac(new byte[16], 0, 16);
+    }
+
+    /*
+    ------------------------------------------
+                    Cipher Methods
+    ------------------------------------------
+     */
+
+    /**
+     * Encrypts and authenticates the plaintext
+     * @param plainText plaintext (any length)
+     * @param associatedData strings authenticated but not encrypted (at most 126), in order
+     * @return synthetic IV (16 bytes) followed by the ciphertext
+     */
+    public byte[] encrypt(byte[] plainText, byte[]... associatedData) {
+        S2V s2v = new S2V(associatedData);
+        s2v.update(plainText, 0, plainText.length);
+        byte[] output = new byte[16 + plainText.length];
+        byte[] syntheticIV = s2v.doFinal();
+        System.arraycopy(syntheticIV, 0, output, 0, 16);
+        counterMode(counterBlock(syntheticIV), plainText, 0, output, 16, plainText.length);
+        return output;
+    }
+
+    /**
+     * Decrypts and verifies the output of {@link #encrypt(byte[], byte[]...)}
+     * @param cipherText synthetic IV followed by the ciphertext
+     * @param associatedData strings passed on encryption
+     * @return plaintext
+     * @throws AEADBadTagException if the ciphertext or associated data was modified, or the key is incorrect
+     */
+    public byte[] decrypt(byte[] cipherText, byte[]... associatedData) throws AEADBadTagException {
+        if (cipherText.length < 16) {
+            throw new AEADBadTagException("Ciphertext is shorter than the synthetic IV.");
+        }
+        byte[] plainText = new byte[cipherText.length - 16];
+        counterMode(counterBlock(cipherText), cipherText, 16, plainText, 0, plainText.length);
+        S2V s2v = new S2V(associatedData);
+        s2v.update(plainText, 0, plainText.length);
+        checkTag(s2v.doFinal(), cipherText);
+        return plainText;
+    }
+
+    /**
+     * Computes the synthetic IV of a stream, the first of two passes over the plaintext on encryption
+     * @param plainText plaintext (read to the end, not closed)
+     * @param associatedData strings authenticated but not encrypted (at most 126), in order
+     * @return synthetic IV (16 bytes)
+     * @throws IOException if the stream cannot be read
+     */
+    public byte[] syntheticIV(InputStream plainText, byte[]... associatedData) throws IOException {
+        S2V s2v = new S2V(associatedData);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = plainText.read(buffer)) != -1) {
+            s2v.update(buffer, 0, length);
+        }
+        return s2v.doFinal();
+    }
+
+    /**
+     * Encrypts a stream with its synthetic IV, the second pass over the plaintext on encryption
+     * @param syntheticIV result of {@link #syntheticIV(InputStream, byte[]...)} for the same plaintext
+     * @param plainText plaintext (read to the end, not closed)
+     * @param cipherText stream the synthetic IV and ciphertext are written to (not closed)
+     * @throws IOException if a stream cannot be read or written
+     */
+    public void encrypt(byte[] syntheticIV, InputStream plainText, OutputStream cipherText) throws IOException {
+        if (syntheticIV.length != 16) {
+            throw new IllegalArgumentException("Synthetic IV must contain exactly 16 bytes.");
+        }
+        cipherText.write(syntheticIV);
+        byte[] counterBlock = counterBlock(syntheticIV);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = plainText.readNBytes(buffer, 0, BUFFER_SIZE)) > 0) { // whole blocks until the end
+            counterMode(counterBlock, buffer, 0, buffer, 0, length);
+            cipherText.write(buffer, 0, length);
+        }
+    }
+
+    /**
+     * Verifies a stream without releasing any plaintext, an optional first pass over the ciphertext on decryption
+     * @param cipherText synthetic IV followed by the ciphertext (read to the end, not closed)
+     * @param associatedData strings passed on encryption
+     * @throws AEADBadTagException if the ciphertext or associated data was modified, or the key is incorrect
+     * @throws IOException if the stream cannot be read
+     */
+    public void verify(InputStream cipherText, byte[]... associatedData) throws IOException, AEADBadTagException {
+        decrypt(cipherText, OutputStream.nullOutputStream(), associatedData);
+    }
+
+    /**
+     * Decrypts and verifies a stream
+     * Note: plaintext is written before the end of the stream is verified, callers which must not act on it before
+     * it is authenticated should call {@link #verify(InputStream, byte[]...)} on a first pass over the ciphertext.
+     * @param cipherText synthetic IV followed by the ciphertext (read to the end, not closed)
+     * @param plainText stream the plaintext is written to (not closed)
+     * @param associatedData strings passed on encryption
+     * @throws AEADBadTagException if the ciphertext or associated data was modified, or the key is incorrect
+     * @throws IOException if a stream cannot be read or written
+     */
+    public void decrypt(InputStream cipherText, OutputStream plainText, byte[]... associatedData)
+            throws IOException, AEADBadTagException {
+        byte[] syntheticIV = cipherText.readNBytes(16);
+        if (syntheticIV.length != 16) {
+            throw new AEADBadTagException("Ciphertext is shorter than the synthetic IV.");
+        }
+        S2V s2v = new S2V(associatedData);
+        byte[] counterBlock = counterBlock(syntheticIV);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = cipherText.readNBytes(buffer, 0, BUFFER_SIZE)) > 0) {
+            counterMode(counterBlock, buffer, 0, buffer, 0, length);
+            s2v.update(buffer, 0, length);
+            plainText.write(buffer, 0, length);
+        }
+        checkTag(s2v.doFinal(), syntheticIV);
+    }
+
+    /*
+    ------------------------------------------
+                     S2V / CMAC
+    ------------------------------------------
+     */
+
+    /*
+     * S2V over the associated data strings and a final string (the plaintext) which is supplied incrementally
+     * CMAC of the final string is computed as it arrives, the last 17 - 32 bytes are held back since D is XORed
+     * into the last 16 bytes (xorend) and the last block of CMAC is treated differently.
+     */
+    private final class S2V {
+
+        private final byte[] d;
+        private final byte[] chain = new byte[16]; // CBC-MAC state of the final string
+        private final byte[] pending = new byte[32];
+        private int pendingLength;
+        private long length; // bytes of the final string received
+
+        S2V(byte[][] associatedData) {
+            if (associatedData.length > MAX_ASSOCIATED_DATA) {
+                throw new IllegalArgumentException("At most " + MAX_ASSOCIATED_DATA + " associated data strings are supported.");
+            }
+            d = zeroMac.clone();
+            for (byte[] data : associatedData) {
+                Blocks.doubleBlock(d, d);
+                Blocks.xorInto(d, 0, cmac(data, 0, data.length));
+            }
+        }
+
+        void update(byte[] data, int offset, int count) {
+            int end = offset + count;
+            length += count;
+            while (offset < end) {
+                if (pendingLength == 32) { // more data follows, so the first pending block is not among the last 16
+                    absorb(pending, 0);
+                    System.arraycopy(pending, 16, pending, 0, 16);
+                    pendingLength = 16;
+                }
+                if (pendingLength == 16 && end - offset > 16) {
+                    absorb(pending, 0);
+                    pendingLength = 0;
+                }
+                if (pendingLength == 0) {
+                    for (; end - offset > 32; offset += 16) {
+                        absorb(data, offset);
+                    }
+                }
+                int take = Math.min(32 - pendingLength, end - offset);
+                System.arraycopy(data, offset, pending, pendingLength, take);
+                pendingLength += take;
+                offset += take;
+            }
+        }
+
+        byte[] doFinal() {
+            if (length >= 16) {
+                Blocks.xorInto(pending, pendingLength - 16, d); // T = Sn xorend D
+            } else {
+                Blocks.doubleBlock(d, d); // T = dbl(D) xor pad(Sn)
+                pending[pendingLength] = (byte) 0x80;
+                Blocks.xorInto(pending, 0, d);
+                pendingLength = 16;
+            }
+            if (pendingLength > 16) {
+                absorb(pending, 0);
+                System.arraycopy(pending, 16, pending, 0, pendingLength - 16);
+                pendingLength -= 16;
+            }
+            return finishCmac(chain, pending, pendingLength);
+        }
+
+        private void absorb(byte[] data, int offset) {
+            Blocks.xorInto(chain, 0, data, offset);
+            macKey.encryptBlock(chain, 0, chain, 0);
+        }
+    }
+
+    /*
+     * CMAC (ref. NIST SP 800-38B sec. 6.2) of a string held in memory
+     */
+    private byte[] cmac(byte[] data, int offset, int length) {
+        byte[] chain = new byte[16];
+        int position = offset;
+        for (; offset + length - position > 16; position += 16) {
+            Blocks.xorInto(chain, 0, data, position);
+            macKey.encryptBlock(chain, 0, chain, 0);
+        }
+        byte[] last = new byte[16];
+        System.arraycopy(data, position, last, 0, offset + length - position);
+        return finishCmac(chain, last, offset + length - position);
+    }
+
+    /*
+     * Completes CMAC with the last block (0 - 16 bytes at the start of last, modified)
+     */
+    private byte[] finishCmac(byte[] chain, byte[] last, int lastLength) {
+        if (lastLength == 16) {
+            Blocks.xorInto(last, 0, subkey1);
+        } else {
+            last[lastLength] = (byte) 0x80;
+            for (int i = lastLength + 1; i < 16; i++) {
+                last[i] = 0;
+            }
+            Blocks.xorInto(last, 0, subkey2);
+        }
+        byte[] tag = chain.clone();
+        Blocks.xorInto(tag, 0, last);
+        macKey.encryptBlock(tag, 0, tag, 0);
+        return tag;
+    }
+
+    /*
+    ------------------------------------------
+                   Helper Methods
+    ------------------------------------------
+     */
+
+    /*
+     * Ciphers input in CTR mode, the counter block is advanced past the blocks used (a trailing partial block
+     * consumes a whole counter block, so streams must be ciphered in whole blocks until their final call)
+     */
+    private void counterMode(byte[] counterBlock, byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        byte[] keyStream = new byte[16];
+        for (int i = 0; i < length; i += 16) {
+            cipherKey.encryptBlock(counterBlock, 0, keyStream, 0);
+            int blockLength = Math.min(16, length - i);
+            for (int j = 0; j < blockLength; j++) {
+                output[outOffset + i + j] = (byte) (input[inOffset + i + j] ^ keyStream[j]);
+            }
+            for (int j = 15; j >= 8; j--) { // 64 bit big endian increment, bit 63 is clear so it cannot overflow
+                if (++counterBlock[j] != 0) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /*
+     * Q = V with bits 63 and 31 cleared (ref. RFC 5297 sec. 2.6)
+     */
+    private static byte[] counterBlock(byte[] syntheticIV) {
+        byte[] counterBlock = new byte[16];
+        System.arraycopy(syntheticIV, 0, counterBlock, 0, 16);
+        counterBlock[8] &= 0x7f;
+        counterBlock[12] &= 0x7f;
+        return counterBlock;
+    }
+
+    private static void checkTag(byte[] expected, byte[] syntheticIV) throws AEADBadTagException {
+        int diff = 0;
+        for (int i = 0; i < 16; i++) { // constant time comparison
+            diff |= expected[i] ^ syntheticIV[i];
+        }
+        if (diff != 0) {
+            throw new AEADBadTagException("SIV authentication tag mismatch.");
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Block arithmetic shared by the modes built on doubling in GF(2^128)
+ */
+package cipher;
+
+/**
+ * Doubling, halving and exclusive or of 16 byte blocks for AESOCB, AESPMAC and AESSIV (blocks are big endian
+ * polynomials over GF(2) reduced by x^128 + x^7 + x^2 + x + 1)
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+final class Blocks {
+
+    private Blocks() { }
+
+    /**
+     * Doubling in GF(2^128), ref. RFC 7253 sec. 2 (output may be input)
+     */
+    static void doubleBlock(byte[] input, byte[] output) {
+        int carry = (input[0] & 0x80) != 0 ? 0x87 : 0;
+        for (int i = 0; i < 15; i++) {
+            output[i] = (byte) ((input[i] << 1) | ((input[i + 1] & 0xff) >>> 7));
+        }
+        output[15] = (byte) ((input[15] << 1) ^ carry);
+    }
+
+    /**
+     * Multiplication by x^-1 in GF(2^128) (output may be input)
+     */
+    static void halveBlock(byte[] input, byte[] output) {
+        boolean isOdd = (input[15] & 1) != 0;
+        for (int i = 15; i > 0; i--) {
+            output[i] = (byte) (((input[i] & 0xff) >>> 1) | (input[i - 1] << 7));
+        }
+        output[0] = (byte) ((input[0] & 0xff) >>> 1);
+        if (isOdd) { // x^-1 = x^127 + x^6 + x + 1 (the reduction polynomial shifted right)
+            output[0] ^= (byte) 0x80;
+            output[15] ^= 0x43;
+        }
+    }
+
+    static void xorInto(byte[] target, byte[] source) {
+        xorInto(target, 0, source, 0);
+    }
+
+    static void xorInto(byte[] target, int targetOffset, byte[] source) {
+        xorInto(target, targetOffset, source, 0);
+    }
+
+    static void xorInto(byte[] target, int targetOffset, byte[] source, int sourceOffset) {
+        for (int i = 0; i < 16; i++) {
+            target[targetOffset + i] ^= source[sourceOffset + i];
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Reflective access to the optional libcrypto backed engine
+ */
+package cipher;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Finds NativeAESKey, which uses the Foreign Function & Memory API and is compiled separately (src-native, Java 22+),
+ * so the rest of the package builds and runs on earlier Java versions where the class is simply absent
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+final class NativeEngineLoader {
+
+    private static final String CLASS_NAME = "cipher.NativeAESKey";
+    private static final Constructor<? extends AESEngine> CONSTRUCTOR = find();
+
+    private NativeEngineLoader() { }
+
+    /**
+     * @param key initial key (16, 24, or 32 bytes)
+     * @return native engine for the key, or null if the class or libcrypto is not available
+     */
+    static AESEngine create(byte[] key) {
+        if (CONSTRUCTOR == null) {
+            return null;
+        }
+        try {
+            return CONSTRUCTOR.newInstance((Object) key);
+        } catch (InvocationTargetException itx) {
+            if (itx.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) itx.getCause(); // eg. an invalid key length
+            }
+            throw new IllegalStateException("The native engine could not be created.", itx.getCause());
+        } catch (ReflectiveOperationException rox) {
+            throw new IllegalStateException("The native engine could not be created.", rox);
+        }
+    }
+
+    /*
+     * @return constructor of NativeAESKey if the class can be loaded on this JVM and libcrypto was found
+     */
+    private static Constructor<? extends AESEngine> find() {
+        try {
+            Class<? extends AESEngine> type = Class.forName(CLASS_NAME).asSubclass(AESEngine.class);
+            if (!(Boolean) type.getMethod("isAvailable").invoke(null)) {
+                return null;
+            }
+            return type.getConstructor(byte[].class);
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException ex) {
+            return null; // not compiled in, compiled for a later class file version, or java.lang.foreign missing
+        }
+    }
+
+}
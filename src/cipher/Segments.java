@@ -0,0 +1,34 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Work splitting shared by the modes which process segments of their input in parallel
+ */
+package cipher;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Decides how many segments the parallel methods of AESOCB, AESCFB, AESPMAC, AESCTRPMAC and AESReencryptor split
+ * their input into when the caller does not choose
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+final class Segments {
+
+    static final int MIN_SEGMENT_BLOCKS = 1024; // smallest amount of work handed to another thread
+
+    private Segments() { }
+
+    /**
+     * @param blocks number of blocks to be processed
+     * @param executor executor the segments are submitted to (null to process the input on the calling thread)
+     * @return 1 without an executor, otherwise one segment per processor of at least MIN_SEGMENT_BLOCKS blocks each
+     */
+    static int defaultCount(long blocks, ExecutorService executor) {
+        if (executor == null) {
+            return 1;
+        }
+        return (int) Math.min(Runtime.getRuntime().availableProcessors(), Math.max(1, blocks / MIN_SEGMENT_BLOCKS));
+    }
+
+}
@@ -0,0 +1,462 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * File channel which encrypts and decrypts a file of an encrypted file system in CTR mode
+ */
+package fs;
+
+import cipher.AESCTRDRBG;
+import cipher.AESEngine;
+import cipher.AESKey;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A channel to the plaintext of an encrypted file
+ * The file starts with its initial counter block (16 random bytes, written when the file is created or truncated on
+ * open) followed by the ciphertext, which has the length of the plaintext. Block i of the plaintext is ciphered with
+ * counter block + i (the counter incrementation of AESCTR), so any range can be read or written without touching the
+ * rest of the file. Reads are served from the page cache of the file system; runs of missing pages are read and
+ * decrypted together and inserted. Writes are encrypted and written through, then patch the cached pages.
+ * Note: CTR has no room for a new counter per write, overwriting a region reuses its key stream. A party which sees
+ * the file before and after an overwrite learns the XOR of the old and new plaintext of the region.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+final class AESFileChannel extends FileChannel {
+
+    static final int HEADER_LENGTH = 16;
+    static final long MAX_SIZE = 16L << 32; // 2^32 counter blocks
+    private static final int MAX_RUN_PAGES = 16; // pages read from the file at once on a miss
+    private static final int WRITE_CHUNK_LENGTH = 64 * 1024;
+
+    private final FileChannel raw;
+    private final AESEngine key;
+    private final PageCache cache;
+    private final boolean readable;
+    private final boolean writable;
+    private final boolean append;
+    private final Object positionLock = new Object();
+    private volatile byte[] counterBlock; // initial counter block, null until the file has a header
+    private volatile ByteBuffer fileId; // the counter block, identifies the pages of the file in the cache
+    private long position;
+
+    private AESFileChannel(FileChannel raw, AESEngine key, PageCache cache, boolean readable, boolean writable,
+                           boolean append) {
+        this.raw = raw;
+        this.key = key;
+        this.cache = cache;
+        this.readable = readable;
+        this.writable = writable;
+        this.append = append;
+    }
+
+    /**
+     * Opens the encrypted file at rawPath, a header with a new initial counter block is written to new and truncated files
+     * @param options options of {@link FileChannel#open(Path, Set, FileAttribute[])}
+     */
+    static AESFileChannel open(Path rawPath, Set<? extends OpenOption> options, FileAttribute<?>[] attributes,
+                               AESEngine key, PageCache cache) throws IOException {
+        boolean append = options.contains(StandardOpenOption.APPEND);
+        boolean writable = options.contains(StandardOpenOption.WRITE) || append;
+        boolean readable = options.contains(StandardOpenOption.READ) || !writable;
+        if (append && (options.contains(StandardOpenOption.READ)
+                       || options.contains(StandardOpenOption.TRUNCATE_EXISTING))) {
+            throw new IllegalArgumentException("APPEND cannot be combined with READ or TRUNCATE_EXISTING.");
+        }
+        Set<OpenOption> rawOptions = new HashSet<>(options);
+        rawOptions.remove(StandardOpenOption.APPEND); // positions are mapped past the header here
+        rawOptions.add(StandardOpenOption.READ); // the header is read by writers too
+        if (writable) {
+            rawOptions.add(StandardOpenOption.WRITE);
+        }
+        FileChannel raw = FileChannel.open(rawPath, rawOptions, attributes);
+        try {
+            AESFileChannel channel = new AESFileChannel(raw, key, cache, readable, writable, append);
+            if (writable && raw.size() == 0) {
+                byte[] counterBlock = new byte[HEADER_LENGTH];
+                AESCTRDRBG.current().nextBytes(counterBlock);
+                writeFully(raw, ByteBuffer.wrap(counterBlock), 0);
+            }
+            channel.loadHeader();
+            return channel;
+        } catch (IOException | RuntimeException ex) {
+            raw.close();
+            throw ex;
+        }
+    }
+
+    /*
+    ------------------------------------------
+                  Positional Access
+    ------------------------------------------
+     */
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("Position must not be negative.");
+        }
+        ensureOpen();
+        if (!readable) {
+            throw new NonReadableChannelException();
+        }
+        long size = size();
+        if (position >= size) {
+            return -1;
+        }
+        long end = Math.min(size, position + dst.remaining());
+        if (position == end) {
+            return 0;
+        }
+        loadHeader();
+        byte[] pageBuffer = new byte[PageCache.PAGE_SIZE];
+        long current = position;
+        while (current < end) {
+            long index = current / PageCache.PAGE_SIZE;
+            int pageOffset = (int) (current % PageCache.PAGE_SIZE);
+            int length = (int) Math.min(PageCache.PAGE_SIZE - pageOffset, end - current);
+            if (cache.read(fileId, index, pageOffset, pageBuffer, 0, length)) {
+                dst.put(pageBuffer, 0, length);
+                current += length;
+                continue;
+            }
+            int copied = readPages(index, current, end, dst);
+            if (copied == 0) {
+                break; // the file was truncated concurrently
+            }
+            current += copied;
+        }
+        return (int) (current - position);
+    }
+
+    /*
+     * Reads and decrypts a run of pages starting at page index, inserts the whole pages into the cache and copies the
+     * plaintext from current up to end into dst
+     * @return number of bytes copied
+     */
+    private int readPages(long index, long current, long end, ByteBuffer dst) throws IOException {
+        long runStart = index * PageCache.PAGE_SIZE;
+        long lastPage = (end - 1) / PageCache.PAGE_SIZE;
+        int runLength = (int) ((Math.min(lastPage - index + 1, MAX_RUN_PAGES)) * PageCache.PAGE_SIZE);
+        long generation = cache.generation();
+        byte[] run = new byte[runLength];
+        int length = readFully(raw, ByteBuffer.wrap(run), HEADER_LENGTH + runStart);
+        key.counterMode(counterBlockAt(runStart), run, 0, run, 0, length);
+        for (int offset = 0; offset + PageCache.PAGE_SIZE <= length; offset += PageCache.PAGE_SIZE) {
+            cache.put(fileId, index + offset / PageCache.PAGE_SIZE, run, offset, generation);
+        }
+        int copied = (int) Math.max(0, Math.min(runStart + length, end) - current);
+        dst.put(run, (int) (current - runStart), copied);
+        return copied;
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("Position must not be negative.");
+        }
+        ensureOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        int length = src.remaining();
+        if (position + length > MAX_SIZE) {
+            throw new IOException("Encrypted files are limited to " + MAX_SIZE + " bytes (2^32 counter blocks).");
+        }
+        loadHeader();
+        long size = size();
+        if (position > size) { // the gap reads as zeros, as it would in a sparse file
+            writeRange(ByteBuffer.allocate((int) Math.min(position - size, WRITE_CHUNK_LENGTH)), size, position);
+        }
+        writeRange(src, position, position + length);
+        return length;
+    }
+
+    /*
+     * Encrypts and writes the range [start, end) from src (rewound and reused when it is shorter, for zero filling)
+     */
+    private void writeRange(ByteBuffer src, long start, long end) throws IOException {
+        for (long current = start; current < end; ) {
+            if (!src.hasRemaining()) {
+                src.rewind();
+            }
+            int lead = (int) (current % 16); // bytes of the first counter block before current
+            int length = (int) Math.min(Math.min(WRITE_CHUNK_LENGTH, end - current), src.remaining());
+            byte[] plainText = new byte[length];
+            src.get(plainText);
+            byte[] cipherText = new byte[lead + length];
+            System.arraycopy(plainText, 0, cipherText, lead, length);
+            key.counterMode(counterBlockAt(current - lead), cipherText, 0, cipherText, 0, cipherText.length);
+            writeFully(raw, ByteBuffer.wrap(cipherText, lead, length), HEADER_LENGTH + current);
+            cache.write(fileId, current, plainText, 0, length); // after the file, see PageCache
+            current += length;
+        }
+    }
+
+    /*
+    ------------------------------------------
+                  Channel Methods
+    ------------------------------------------
+     */
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        synchronized (positionLock) {
+            int count = read(dst, position);
+            if (count > 0) {
+                position += count;
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        synchronized (positionLock) {
+            long total = 0;
+            for (int i = offset; i < offset + length; i++) {
+                int count = read(dsts[i]);
+                if (count < 0) {
+                    return total == 0 ? -1 : total;
+                }
+                total += count;
+                if (dsts[i].hasRemaining()) {
+                    break;
+                }
+            }
+            return total;
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        synchronized (positionLock) {
+            if (append) {
+                position = size();
+            }
+            int count = write(src, position);
+            position += count;
+            return count;
+        }
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        synchronized (positionLock) {
+            long total = 0;
+            for (int i = offset; i < offset + length; i++) {
+                total += write(srcs[i]);
+            }
+            return total;
+        }
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        synchronized (positionLock) {
+            return position;
+        }
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Position must not be negative.");
+        }
+        ensureOpen();
+        synchronized (positionLock) {
+            position = newPosition;
+        }
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return Math.max(0, raw.size() - HEADER_LENGTH);
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative.");
+        }
+        ensureOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        if (size < size()) {
+            raw.truncate(HEADER_LENGTH + size);
+            cache.truncate(fileId, size);
+        }
+        synchronized (positionLock) {
+            position = Math.min(position, size);
+        }
+        return this;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+        ensureOpen();
+        raw.force(metaData);
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, WRITE_CHUNK_LENGTH));
+        long transferred = 0;
+        while (transferred < count) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), count - transferred));
+            if (read(buffer, position + transferred) <= 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                transferred += target.write(buffer);
+            }
+        }
+        return transferred;
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, WRITE_CHUNK_LENGTH));
+        long transferred = 0;
+        while (transferred < count) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), count - transferred));
+            if (src.read(buffer) <= 0) {
+                break;
+            }
+            buffer.flip();
+            transferred += write(buffer, position + transferred);
+        }
+        return transferred;
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) {
+        throw new UnsupportedOperationException("Encrypted files cannot be memory mapped.");
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+        ensureOpen();
+        return new ChannelLock(raw.lock(HEADER_LENGTH + position, rawLockSize(position, size), shared), position, size);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+        ensureOpen();
+        FileLock rawLock = raw.tryLock(HEADER_LENGTH + position, rawLockSize(position, size), shared);
+        return rawLock == null ? null : new ChannelLock(rawLock, position, size);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        raw.close();
+    }
+
+    /*
+     * Lock on the plaintext region, held as a lock on the ciphertext region of the file
+     */
+    private final class ChannelLock extends FileLock {
+
+        private final FileLock rawLock;
+
+        ChannelLock(FileLock rawLock, long position, long size) {
+            super(AESFileChannel.this, position, size, rawLock.isShared());
+            this.rawLock = rawLock;
+        }
+
+        @Override
+        public boolean isValid() {
+            return rawLock.isValid();
+        }
+
+        @Override
+        public void release() throws IOException {
+            rawLock.release();
+        }
+    }
+
+    /*
+    ------------------------------------------
+                   Helper Methods
+    ------------------------------------------
+     */
+
+    /*
+     * Reads the initial counter block once the file has one (it is written by the first writer of an empty file)
+     */
+    private void loadHeader() throws IOException {
+        if (counterBlock != null) {
+            return;
+        }
+        long rawSize = raw.size();
+        if (rawSize == 0) {
+            return; // empty, nothing to decrypt
+        }
+        byte[] header = new byte[HEADER_LENGTH];
+        if (rawSize < HEADER_LENGTH || readFully(raw, ByteBuffer.wrap(header), 0) != HEADER_LENGTH) {
+            throw new IOException("Not an encrypted file, it is shorter than its header.");
+        }
+        fileId = ByteBuffer.wrap(header.clone());
+        counterBlock = header;
+    }
+
+    /*
+     * @return counter block of the block at the (block aligned) plaintext position
+     */
+    private byte[] counterBlockAt(long position) {
+        return AESKey.addToCounter(counterBlock.clone(), position / 16);
+    }
+
+    private long rawLockSize(long position, long size) {
+        return Math.min(size, Long.MAX_VALUE - HEADER_LENGTH - position);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /*
+     * @return number of bytes read, less than the space in buffer only at the end of the file
+     */
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + total);
+            if (count < 0) {
+                break;
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+}
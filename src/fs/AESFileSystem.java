@@ -0,0 +1,179 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Encrypted file system backed by a directory of the default file system
+ */
+package fs;
+
+import cipher.AESEngine;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A directory whose files are encrypted with one key, seen through plaintext paths and channels
+ * Created by {@link AESFileSystemProvider}. File and directory names are not encrypted. Decrypted pages are held in
+ * a cache shared by every channel of the file system.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class AESFileSystem extends FileSystem {
+
+    private final AESFileSystemProvider provider;
+    private final Path root; // real path of the directory holding the encrypted files
+    private final AESEngine key;
+    private final PageCache cache;
+    private final AESPath rootPath;
+    private volatile boolean isOpen = true;
+
+    AESFileSystem(AESFileSystemProvider provider, Path root, byte[] key, int cachePages) {
+        this.provider = provider;
+        this.root = root;
+        this.key = AESEngine.create(key);
+        this.cache = new PageCache(cachePages);
+        this.rootPath = new AESPath(this, FileSystems.getDefault().getPath("/").getRoot());
+    }
+
+    @Override
+    public AESFileSystemProvider provider() {
+        return provider;
+    }
+
+    @Override
+    public void close() {
+        if (isOpen) {
+            isOpen = false;
+            provider.removeFileSystem(root);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return isOpen;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public String getSeparator() {
+        return FileSystems.getDefault().getSeparator();
+    }
+
+    @Override
+    public Iterable<Path> getRootDirectories() {
+        return List.of(rootPath);
+    }
+
+    @Override
+    public Iterable<FileStore> getFileStores() {
+        try {
+            return List.of(Files.getFileStore(root));
+        } catch (IOException iox) {
+            return List.of();
+        }
+    }
+
+    @Override
+    public Set<String> supportedFileAttributeViews() {
+        return Set.of("basic");
+    }
+
+    @Override
+    public Path getPath(String first, String... more) {
+        return new AESPath(this, FileSystems.getDefault().getPath(first, more));
+    }
+
+    @Override
+    public PathMatcher getPathMatcher(String syntaxAndPattern) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher(syntaxAndPattern);
+        return path -> path instanceof AESPath aesPath && matcher.matches(aesPath.delegate());
+    }
+
+    @Override
+    public UserPrincipalLookupService getUserPrincipalLookupService() {
+        throw new UnsupportedOperationException("Encrypted file systems do not support user principals.");
+    }
+
+    @Override
+    public WatchService newWatchService() {
+        throw new UnsupportedOperationException("Encrypted file systems do not support watch services.");
+    }
+
+    /**
+     * @return number of page reads served from the cache of decrypted pages
+     */
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    /**
+     * @return number of page reads which had to decrypt the page
+     */
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    /*
+    ------------------------------------------
+                   Helper Methods
+    ------------------------------------------
+     */
+
+    AESPath rootPath() {
+        return rootPath;
+    }
+
+    AESEngine key() {
+        return key;
+    }
+
+    PageCache cache() {
+        return cache;
+    }
+
+    /*
+     * Locates the encrypted file of a path of this file system, ".." never leaves the root
+     */
+    Path rawPath(Path path) {
+        if (!isOpen) {
+            throw new ClosedFileSystemException();
+        }
+        AESPath aesPath = (AESPath) path;
+        Path absolute = aesPath.toAbsolutePath().normalize();
+        Path raw = root;
+        for (Path name : ((AESPath) absolute).delegate()) {
+            if (!name.toString().equals("..")) { // only left at the start of a normalized absolute path
+                raw = raw.resolve(name.toString());
+            }
+        }
+        return raw;
+    }
+
+    /*
+     * @return URI of the form aesfs:file:///directory/!/path
+     */
+    URI toUri(AESPath path) {
+        String absolute = path.toAbsolutePath().normalize().toString().replace(getSeparator(), "/");
+        try {
+            return new URI(AESFileSystemProvider.SCHEME, root.toUri() + "!" + absolute, null);
+        } catch (URISyntaxException usx) {
+            throw new IllegalStateException("URI of path " + path + " is invalid.", usx);
+        }
+    }
+
+}
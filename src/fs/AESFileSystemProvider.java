@@ -0,0 +1,493 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * java.nio.file provider exposing a directory of encrypted files as a plaintext file system
+ */
+package fs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Provides encrypted file systems: a directory of the default file system whose files are encrypted in CTR mode with
+ * a per file initial counter block (see {@link AESFileChannel}), accessed through {@link Files} and
+ * {@link FileChannel} as plaintext. Decrypted pages are cached per file system, so repeated reads of hot regions
+ * skip decryption. The key is passed in the environment:
+ * <pre>
+ * FileSystem fileSystem = new AESFileSystemProvider().newFileSystem(directory, Map.of("key", key));
+ * Files.write(fileSystem.getPath("/notes.txt"), data);
+ * </pre>
+ * Environment: "key" (byte[] of 16, 24, or 32 bytes, required) and "cachePages" (Integer, number of 4 KiB pages
+ * cached, 4096 by default). File names, directory structure, sizes and times are not hidden.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class AESFileSystemProvider extends FileSystemProvider {
+
+    /** URI scheme, paths are identified by aesfs:file:///directory/!/path */
+    public static final String SCHEME = "aesfs";
+    /** Environment key of the AES key */
+    public static final String KEY = "key";
+    /** Environment key of the number of cached pages */
+    public static final String CACHE_PAGES = "cachePages";
+    private static final int DEFAULT_CACHE_PAGES = 4096; // 16 MiB
+
+    private final Map<Path, AESFileSystem> fileSystems = new HashMap<>(); // open file systems by directory
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    /*
+    ------------------------------------------
+                   File Systems
+    ------------------------------------------
+     */
+
+    /**
+     * Opens the directory of an aesfs URI as an encrypted file system
+     * @see #newFileSystem(Path, Map)
+     */
+    @Override
+    public AESFileSystem newFileSystem(URI uri, Map<String, ?> env) throws IOException {
+        return newFileSystem(directoryOf(uri), env);
+    }
+
+    /**
+     * Opens a directory as an encrypted file system
+     * @param directory existing directory holding the encrypted files
+     * @param env "key" (byte[], required) and "cachePages" (Integer, optional)
+     * @return file system, closed by the caller
+     * @throws FileSystemAlreadyExistsException if the directory is already open
+     */
+    @Override
+    public AESFileSystem newFileSystem(Path directory, Map<String, ?> env) throws IOException {
+        if (!(env.get(KEY) instanceof byte[] key)) {
+            throw new IllegalArgumentException("The environment must contain the key (byte[]) under \"" + KEY + "\".");
+        }
+        int cachePages = DEFAULT_CACHE_PAGES;
+        if (env.containsKey(CACHE_PAGES)) {
+            if (!(env.get(CACHE_PAGES) instanceof Integer pages)) {
+                throw new IllegalArgumentException("\"" + CACHE_PAGES + "\" must be an Integer.");
+            }
+            cachePages = pages;
+        }
+        Path root = directory.toRealPath();
+        if (!Files.isDirectory(root)) {
+            throw new NotDirectoryException(directory.toString());
+        }
+        synchronized (fileSystems) {
+            if (fileSystems.containsKey(root)) {
+                throw new FileSystemAlreadyExistsException(root.toString());
+            }
+            AESFileSystem fileSystem = new AESFileSystem(this, root, key.clone(), cachePages);
+            fileSystems.put(root, fileSystem);
+            return fileSystem;
+        }
+    }
+
+    @Override
+    public FileSystem getFileSystem(URI uri) {
+        Path root;
+        try {
+            root = directoryOf(uri).toRealPath();
+        } catch (IOException iox) {
+            throw new FileSystemNotFoundException(uri.toString());
+        }
+        synchronized (fileSystems) {
+            AESFileSystem fileSystem = fileSystems.get(root);
+            if (fileSystem == null) {
+                throw new FileSystemNotFoundException(uri.toString());
+            }
+            return fileSystem;
+        }
+    }
+
+    @Override
+    public Path getPath(URI uri) {
+        String part = uri.getSchemeSpecificPart();
+        int separator = part.indexOf("!/");
+        if (separator < 0) {
+            throw new IllegalArgumentException("URI does not contain a path (aesfs:file:///directory/!/path): " + uri);
+        }
+        return getFileSystem(uri).getPath(part.substring(separator + 1));
+    }
+
+    void removeFileSystem(Path root) {
+        synchronized (fileSystems) {
+            fileSystems.remove(root);
+        }
+    }
+
+    /*
+    ------------------------------------------
+                 File Operations
+    ------------------------------------------
+     */
+
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options,
+                                              FileAttribute<?>... attributes) throws IOException {
+        return newFileChannel(path, options, attributes);
+    }
+
+    @Override
+    public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options,
+                                      FileAttribute<?>... attributes) throws IOException {
+        AESFileSystem fileSystem = fileSystemOf(path);
+        return AESFileChannel.open(fileSystem.rawPath(path), options, attributes, fileSystem.key(), fileSystem.cache());
+    }
+
+    @Override
+    public DirectoryStream<Path> newDirectoryStream(Path directory, DirectoryStream.Filter<? super Path> filter)
+            throws IOException {
+        DirectoryStream<Path> rawStream = Files.newDirectoryStream(rawPath(directory));
+        return new DirectoryStream<>() {
+            @Override
+            public Iterator<Path> iterator() {
+                Iterator<Path> rawEntries = rawStream.iterator();
+                return new Iterator<>() {
+                    private Path next;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && rawEntries.hasNext()) {
+                            Path entry = directory.resolve(rawEntries.next().getFileName().toString());
+                            try {
+                                if (filter == null || filter.accept(entry)) {
+                                    next = entry;
+                                }
+                            } catch (IOException iox) {
+                                throw new DirectoryIteratorException(iox);
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Path next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Path entry = next;
+                        next = null;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public void close() throws IOException {
+                rawStream.close();
+            }
+        };
+    }
+
+    @Override
+    public void createDirectory(Path directory, FileAttribute<?>... attributes) throws IOException {
+        Files.createDirectory(rawPath(directory), attributes);
+    }
+
+    @Override
+    public void delete(Path path) throws IOException {
+        Files.delete(rawPath(path));
+    }
+
+    /**
+     * Copies a file by decrypting and re-encrypting it, the copy has its own initial counter block
+     */
+    @Override
+    public void copy(Path source, Path target, CopyOption... options) throws IOException {
+        Path rawSource = rawPath(source);
+        Path rawTarget = rawPath(target);
+        boolean replace = Arrays.asList(options).contains(StandardCopyOption.REPLACE_EXISTING);
+        boolean isDirectory = Files.readAttributes(rawSource, BasicFileAttributes.class).isDirectory(); // must exist
+        if (rawSource.equals(rawTarget)) {
+            return;
+        }
+        if (Files.exists(rawTarget, LinkOption.NOFOLLOW_LINKS)) {
+            if (!replace) {
+                throw new FileAlreadyExistsException(target.toString());
+            }
+            Files.delete(rawTarget);
+        }
+        if (isDirectory) {
+            Files.createDirectory(rawTarget);
+        } else {
+            try (FileChannel input = newFileChannel(source, EnumSet.of(StandardOpenOption.READ));
+                 FileChannel output = newFileChannel(target, EnumSet.of(StandardOpenOption.WRITE,
+                                                                        StandardOpenOption.CREATE_NEW))) {
+                long size = input.size();
+                for (long position = 0; position < size; ) {
+                    long count = input.transferTo(position, size - position, output);
+                    if (count <= 0) {
+                        break; // truncated concurrently
+                    }
+                    position += count;
+                }
+            }
+        }
+        if (Arrays.asList(options).contains(StandardCopyOption.COPY_ATTRIBUTES)) {
+            Files.setLastModifiedTime(rawTarget, Files.getLastModifiedTime(rawSource));
+        }
+    }
+
+    /**
+     * Moves a file, its initial counter block (and so its cached pages) moves with it
+     * A file moved to another encrypted file system is copied (re-encrypted under the key of the target) and deleted,
+     * so the move cannot be atomic.
+     */
+    @Override
+    public void move(Path source, Path target, CopyOption... options) throws IOException {
+        if (source.getFileSystem() == target.getFileSystem()) {
+            Files.move(rawPath(source), rawPath(target), options);
+            return;
+        }
+        rawPath(target); // the target must belong to an encrypted file system
+        List<CopyOption> optionList = Arrays.asList(options);
+        if (optionList.contains(StandardCopyOption.ATOMIC_MOVE)) {
+            throw new AtomicMoveNotSupportedException(source.toString(), target.toString(),
+                                                      "Files cannot be moved atomically between encrypted file systems.");
+        }
+        copy(source, target, optionList.contains(StandardCopyOption.REPLACE_EXISTING)
+                             ? new CopyOption[] {StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES}
+                             : new CopyOption[] {StandardCopyOption.COPY_ATTRIBUTES});
+        try {
+            delete(source);
+        } catch (IOException iox) {
+            delete(target); // eg. a directory which is not empty, the source is left as it was
+            throw iox;
+        }
+    }
+
+    @Override
+    public boolean isSameFile(Path path, Path other) throws IOException {
+        if (path.equals(other)) {
+            return true;
+        }
+        if (!(other instanceof AESPath) || other.getFileSystem() != path.getFileSystem()) {
+            return false;
+        }
+        return Files.isSameFile(rawPath(path), rawPath(other));
+    }
+
+    @Override
+    public boolean isHidden(Path path) throws IOException {
+        return Files.isHidden(rawPath(path));
+    }
+
+    @Override
+    public FileStore getFileStore(Path path) throws IOException {
+        return Files.getFileStore(rawPath(path));
+    }
+
+    @Override
+    public void checkAccess(Path path, AccessMode... modes) throws IOException {
+        Path raw = rawPath(path);
+        raw.getFileSystem().provider().checkAccess(raw, modes);
+    }
+
+    /*
+    ------------------------------------------
+                    Attributes
+    ------------------------------------------
+     */
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+        if (type != BasicFileAttributeView.class) {
+            return null;
+        }
+        Path raw = rawPath(path);
+        return (V) new BasicFileAttributeView() {
+            @Override
+            public String name() {
+                return "basic";
+            }
+
+            @Override
+            public BasicFileAttributes readAttributes() throws IOException {
+                return new PlainTextAttributes(Files.readAttributes(raw, BasicFileAttributes.class, options));
+            }
+
+            @Override
+            public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime)
+                    throws IOException {
+                Files.getFileAttributeView(raw, BasicFileAttributeView.class, options)
+                     .setTimes(lastModifiedTime, lastAccessTime, createTime);
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options)
+            throws IOException {
+        if (type != BasicFileAttributes.class) {
+            throw new UnsupportedOperationException("Encrypted file systems only support basic file attributes.");
+        }
+        return (A) new PlainTextAttributes(Files.readAttributes(rawPath(path), BasicFileAttributes.class, options));
+    }
+
+    @Override
+    public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
+        String names = attributes;
+        int viewSeparator = attributes.indexOf(':');
+        if (viewSeparator >= 0) {
+            if (!attributes.substring(0, viewSeparator).equals("basic")) {
+                throw new UnsupportedOperationException("Encrypted file systems only support basic file attributes.");
+            }
+            names = attributes.substring(viewSeparator + 1);
+        }
+        BasicFileAttributes plainText = readAttributes(path, BasicFileAttributes.class, options);
+        Map<String, Object> all = new LinkedHashMap<>();
+        all.put("lastModifiedTime", plainText.lastModifiedTime());
+        all.put("lastAccessTime", plainText.lastAccessTime());
+        all.put("creationTime", plainText.creationTime());
+        all.put("size", plainText.size());
+        all.put("isRegularFile", plainText.isRegularFile());
+        all.put("isDirectory", plainText.isDirectory());
+        all.put("isSymbolicLink", plainText.isSymbolicLink());
+        all.put("isOther", plainText.isOther());
+        all.put("fileKey", plainText.fileKey());
+        if (names.equals("*")) {
+            return all;
+        }
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (String name : names.split(",")) {
+            if (!all.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown basic attribute: " + name);
+            }
+            selected.put(name, all.get(name));
+        }
+        return selected;
+    }
+
+    @Override
+    public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException {
+        String name = attribute.startsWith("basic:") ? attribute.substring("basic:".length()) : attribute;
+        if (!Set.of("lastModifiedTime", "lastAccessTime", "creationTime").contains(name)) {
+            throw new UnsupportedOperationException("Only the times of encrypted files can be set.");
+        }
+        Files.setAttribute(rawPath(path), "basic:" + name, value, options);
+    }
+
+    /*
+     * Attributes of an encrypted file with the size of its plaintext
+     */
+    private record PlainTextAttributes(BasicFileAttributes raw) implements BasicFileAttributes {
+
+        @Override
+        public FileTime lastModifiedTime() {
+            return raw.lastModifiedTime();
+        }
+
+        @Override
+        public FileTime lastAccessTime() {
+            return raw.lastAccessTime();
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return raw.creationTime();
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return raw.isRegularFile();
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return raw.isDirectory();
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return raw.isSymbolicLink();
+        }
+
+        @Override
+        public boolean isOther() {
+            return raw.isOther();
+        }
+
+        @Override
+        public long size() {
+            return raw.isRegularFile() ? Math.max(0, raw.size() - AESFileChannel.HEADER_LENGTH) : raw.size();
+        }
+
+        @Override
+        public Object fileKey() {
+            return raw.fileKey();
+        }
+    }
+
+    /*
+    ------------------------------------------
+                   Helper Methods
+    ------------------------------------------
+     */
+
+    private AESFileSystem fileSystemOf(Path path) {
+        if (!(path instanceof AESPath aesPath)) {
+            throw new ProviderMismatchException("Path does not belong to an encrypted file system.");
+        }
+        return aesPath.getFileSystem();
+    }
+
+    private Path rawPath(Path path) {
+        return fileSystemOf(path).rawPath(path);
+    }
+
+    /*
+     * @return directory of aesfs:file:///directory or aesfs:file:///directory/!/path
+     */
+    private static Path directoryOf(URI uri) {
+        if (!SCHEME.equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("URI scheme must be " + SCHEME + ": " + uri);
+        }
+        String part = uri.getSchemeSpecificPart();
+        int separator = part.indexOf("!/");
+        return Paths.get(URI.create(separator < 0 ? part : part.substring(0, separator)));
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Path of an encrypted file system
+ */
+package fs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * A path within an encrypted file system
+ * Path operations are delegated to a path of the default file system holding the same names (absolute paths are
+ * rooted at the root of the encrypted file system, which is also its working directory). The file a path refers to
+ * is located by {@link AESFileSystem#rawPath(Path)}.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+final class AESPath implements Path {
+
+    private final AESFileSystem fileSystem;
+    private final Path path;
+
+    AESPath(AESFileSystem fileSystem, Path path) {
+        this.fileSystem = fileSystem;
+        this.path = path;
+    }
+
+    /*
+     * @return the path of the default file system holding the names of this path
+     */
+    Path delegate() {
+        return path;
+    }
+
+    @Override
+    public AESFileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    @Override
+    public boolean isAbsolute() {
+        return path.isAbsolute();
+    }
+
+    @Override
+    public Path getRoot() {
+        return wrap(path.getRoot());
+    }
+
+    @Override
+    public Path getFileName() {
+        return wrap(path.getFileName());
+    }
+
+    @Override
+    public Path getParent() {
+        return wrap(path.getParent());
+    }
+
+    @Override
+    public int getNameCount() {
+        return path.getNameCount();
+    }
+
+    @Override
+    public Path getName(int index) {
+        return wrap(path.getName(index));
+    }
+
+    @Override
+    public Path subpath(int beginIndex, int endIndex) {
+        return wrap(path.subpath(beginIndex, endIndex));
+    }
+
+    @Override
+    public boolean startsWith(Path other) {
+        return other instanceof AESPath aesPath && aesPath.fileSystem == fileSystem && path.startsWith(aesPath.path);
+    }
+
+    @Override
+    public boolean endsWith(Path other) {
+        return other instanceof AESPath aesPath && aesPath.fileSystem == fileSystem && path.endsWith(aesPath.path);
+    }
+
+    @Override
+    public Path normalize() {
+        return wrap(path.normalize());
+    }
+
+    @Override
+    public Path resolve(Path other) {
+        return wrap(path.resolve(unwrap(other)));
+    }
+
+    @Override
+    public Path relativize(Path other) {
+        return wrap(path.relativize(unwrap(other)));
+    }
+
+    @Override
+    public URI toUri() {
+        return fileSystem.toUri(this);
+    }
+
+    @Override
+    public Path toAbsolutePath() {
+        return isAbsolute() ? this : wrap(fileSystem.rootPath().delegate().resolve(path));
+    }
+
+    @Override
+    public Path toRealPath(LinkOption... options) throws IOException {
+        Path absolute = toAbsolutePath().normalize();
+        fileSystem.rawPath(absolute).toRealPath(options); // fails if the file does not exist
+        return absolute;
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+        throw new UnsupportedOperationException("Encrypted file systems do not support watch services.");
+    }
+
+    @Override
+    public int compareTo(Path other) {
+        return path.compareTo(unwrap(other));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof AESPath aesPath && aesPath.fileSystem == fileSystem && path.equals(aesPath.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+
+    private AESPath wrap(Path other) {
+        return other == null ? null : new AESPath(fileSystem, other);
+    }
+
+    private Path unwrap(Path other) {
+        if (!(other instanceof AESPath aesPath) || aesPath.fileSystem != fileSystem) {
+            throw new ProviderMismatchException("Path does not belong to this encrypted file system.");
+        }
+        return aesPath.path;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Bounded cache of decrypted file pages shared by the channels of an encrypted file system
+ */
+package fs;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of decrypted pages (4 KiB, aligned to the plaintext of the file)
+ * Pages are identified by the header of their file (its random initial counter block), so a file which is replaced
+ * never matches the pages of its predecessor and a moved file keeps its pages. Only whole pages are cached.
+ * Writes patch the pages they overlap after the ciphertext reaches the file, and every write or truncation advances
+ * the generation: a page read from the file is only inserted when no write happened while it was being read, so a
+ * page decrypted before a concurrent write can never replace the patched page.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+final class PageCache {
+
+    static final int PAGE_SIZE = 4096;
+
+    private final LinkedHashMap<PageKey, byte[]> pages;
+    private long generation;
+    private long hits;
+    private long misses;
+
+    private record PageKey(ByteBuffer file, long index) { }
+
+    /**
+     * @param capacity maximum number of pages held (0 disables the cache)
+     */
+    PageCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Cache capacity must not be negative.");
+        }
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PageKey, byte[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /*
+     * @return generation to pass to put() for a page read from the file after this call
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /*
+     * Copies length bytes from pageOffset of a cached page into output
+     * @return false if the page is not cached (nothing is copied)
+     */
+    synchronized boolean read(ByteBuffer file, long index, int pageOffset, byte[] output, int outOffset, int length) {
+        byte[] page = pages.get(new PageKey(file, index));
+        if (page == null) {
+            misses++;
+            return false;
+        }
+        hits++;
+        System.arraycopy(page, pageOffset, output, outOffset, length);
+        return true;
+    }
+
+    /*
+     * Inserts a decrypted page (PAGE_SIZE bytes from offset of data, copied) unless a write happened since generation
+     */
+    synchronized void put(ByteBuffer file, long index, byte[] data, int offset, long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        byte[] page = new byte[PAGE_SIZE];
+        System.arraycopy(data, offset, page, 0, PAGE_SIZE);
+        pages.put(new PageKey(file, index), page);
+    }
+
+    /*
+     * Patches the cached pages overlapping plaintext written at position
+     */
+    synchronized void write(ByteBuffer file, long position, byte[] data, int offset, int length) {
+        generation++;
+        long end = position + length;
+        for (long index = position / PAGE_SIZE; index * PAGE_SIZE < end; index++) {
+            byte[] page = pages.get(new PageKey(file, index));
+            if (page == null) {
+                continue;
+            }
+            long start = Math.max(position, index * PAGE_SIZE);
+            long stop = Math.min(end, (index + 1) * PAGE_SIZE);
+            System.arraycopy(data, offset + (int) (start - position), page, (int) (start - index * PAGE_SIZE),
+                             (int) (stop - start));
+        }
+    }
+
+    /*
+     * Discards the pages of a file which are no longer whole once it is truncated to size
+     */
+    synchronized void truncate(ByteBuffer file, long size) {
+        generation++;
+        for (Iterator<PageKey> keys = pages.keySet().iterator(); keys.hasNext(); ) {
+            PageKey key = keys.next();
+            if (key.file.equals(file) && (key.index + 1) * PAGE_SIZE > size) {
+                keys.remove();
+            }
+        }
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+}
@@ -8,10 +8,10 @@ package main;
 import com.beust.jcommander.Parameter;
 
 public class Args {
-    @Parameter(names = { "-f", "-filepath" }, description = "Path to the file to be encrypted.", required = true)
+    @Parameter(names = { "-f", "-filepath" }, description = "Path to the file to be encrypted, - for standard input.", required = true)
     public String filePath;
 
-    @Parameter(names = { "-o", "-output" }, description = "File name for the output.", required = true)
+    @Parameter(names = { "-o", "-output" }, description = "File name for the output, - for standard output.", required = true)
     public String output;
 
     @Parameter(names = { "-k", "-key" }, description = "Path to key file, or key in plaintext.", required = true)
@@ -20,12 +20,48 @@ public class Args {
     @Parameter(names = { "-d", "-decrypt" }, description = "Decryption mode.")
     public boolean decrypt = false;
 
-    @Parameter(names = { "-v", "-init-vector" }, description = "Path to initialization vector file.", required = true)
+    @Parameter(names = { "-v", "-init-vector" }, description = "Path to initialization vector file.")
     public String initVectorFilePath;
 
+    @Parameter(names = { "-g", "--generate-iv" }, description = "Generate the IV and store it ahead of the ciphertext (read from the ciphertext on decryption)")
+    public boolean generateInitVector = false;
+
     @Parameter(names = { "-CTR", "--counter-mode" }, description = "Counter (CTR) mode")
     public boolean counterMode = false;
 
+    @Parameter(names = { "-CFB", "--cipher-feedback-mode" }, description = "Cipher feedback (CFB-128) mode")
+    public boolean cipherFeedbackMode = false;
+
+    @Parameter(names = { "-OFB", "--output-feedback-mode" }, description = "Output feedback (OFB) mode")
+    public boolean outputFeedbackMode = false;
+
+    @Parameter(names = { "-z", "--compress" }, description = "Compress the plaintext before encryption (detected automatically on decryption)")
+    public boolean compress = false;
+
+    @Parameter(names = { "--no-padding" }, description = "Length preserving ciphertext: CBC with ciphertext stealing (CS3, at least 16 bytes of input), CTR without padding")
+    public boolean noPadding = false;
+
+    @Parameter(names = { "--resume" }, description = "Resume an interrupted run from the checkpoint next to the output file")
+    public boolean resume = false;
+
+    @Parameter(names = { "--checkpoint-interval" }, description = "Number of output bytes between checkpoints (0 disables checkpoints)")
+    public long checkpointInterval = 64L * 1024 * 1024;
+
+    @Parameter(names = { "-R", "--rekey" }, description = "Path to a new key file, re-encrypts the ciphertext under the new key without writing the plaintext")
+    public String rekeyFilePath;
+
+    @Parameter(names = { "--rekey-mode" }, description = "Mode of the re-encrypted ciphertext, CBC or CTR (default: the mode of the ciphertext)")
+    public String rekeyMode;
+
+    @Parameter(names = { "--rekey-init-vector" }, description = "Path to the IV file of the re-encrypted ciphertext")
+    public String rekeyInitVectorFilePath;
+
+    @Parameter(names = { "--incremental" }, description = "CTR encrypt in 1 MiB chunks with a manifest next to the output, re-runs only re-encrypt the chunks which changed")
+    public boolean incremental = false;
+
+    @Parameter(names = { "--append" }, description = "Append to unpadded CTR ciphertext (-CTR --no-padding), the existing ciphertext is not read")
+    public boolean append = false;
+
     @Parameter(names = { "-h", "--help" }, description = "Display help message")
     public boolean help = false;
 
@@ -33,14 +69,26 @@ public class Args {
      * Displays a help message specifying accepted and required cli arguments
      */
     public static void showHelp() {
-        String help = "Options: \njava AES \n-f|-filepath <path to file to be encrypted> " +
-                "\n-o|-output <filename for output> " +
+        String help = "Options: \njava AES \n-f|-filepath <path to file to be encrypted, - for standard input> " +
+                "\n-o|-output <filename for output, - for standard output> " +
                 "\n-k|-key <path to keyfile or plaintext key> " +
                 "\n-v|-init-vector <path to initialization vector file>" +
+                "\n-g|--generate-iv generates the initialization vector and stores it with the ciphertext" +
                 "\n-CTR|--counter-mode counter mode" +
+                "\n-CFB|--cipher-feedback-mode cipher feedback mode (CFB-128)" +
+                "\n-OFB|--output-feedback-mode output feedback mode" +
                 "\n-d|-decrypt specifes decryption mode" +
+                "\n-z|--compress compresses the plaintext before encryption" +
+                "\n--no-padding ciphertext as long as the plaintext, CBC steals ciphertext (CS3, input of at least 16 bytes), CTR is not padded" +
+                "\n--resume resumes an interrupted run from <output>.checkpoint" +
+                "\n--checkpoint-interval <bytes of output between checkpoints, default 64 MiB, 0 disables>" +
+                "\n-R|--rekey <path to new key file> re-encrypts the ciphertext (-f, -k, -v|-g, -CTR) under the new key" +
+                "\n--rekey-mode <CBC|CTR, default: the mode of the ciphertext>" +
+                "\n--rekey-init-vector <path to IV file of the re-encrypted ciphertext, default: a new IV with -g, otherwise the same IV>" +
+                "\n--incremental encrypts in chunks recorded in <output>.manifest, re-runs only re-encrypt changed chunks (no -v|-g)" +
+                "\n--append encrypts the input onto the end of existing -CTR --no-padding ciphertext (same key and -v|-g)" +
                 "\n-h|--help displays this help message" +
-                "\nNote: Default mode is CBC. Initialization vector files must provide exactly 16 bytes.";
+                "\nNote: Default mode is CBC. Initialization vector files must provide exactly 16 bytes. One of -v or -g is required (except with --incremental). At most one of -CTR, -CFB or -OFB may be specified.";
         System.out.println(help);
     }
 }
@@ -0,0 +1,581 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Non-blocking TCP relay which encrypts or decrypts the connections passing through it with AES in CTR mode.
+ */
+package main;
+
+import cipher.AESCTR;
+import cipher.AESCTRDRBG;
+import cipher.AESKey;
+
+import javax.crypto.ShortBufferException;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Relays TCP connections to a target address, ciphering each direction in CTR mode
+ * An ENCRYPT relay accepts plaintext connections and forwards ciphertext, a DECRYPT relay accepts ciphertext and
+ * forwards plaintext, so a pair of relays carries a plaintext protocol across an untrusted network
+ * (client -> ENCRYPT relay -> DECRYPT relay -> server). Each direction of each connection has its own counter block,
+ * generated by the side which encrypts and sent in the clear ahead of the ciphertext. Note that CTR mode provides no
+ * integrity, the relay protects confidentiality only.
+ * Connections are spread over a few selector threads. Data is read into a direct buffer from a per-thread pool,
+ * ciphered in place and written out, a buffer is only held while its data waits to be written so idle connections
+ * hold none. A direction stops reading while its sink is full, so a slow reader slows down the writer on the other
+ * side instead of buffering without bound.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class CTRRelay implements Closeable {
+
+    /** Operation the relay applies to data received on accepted connections */
+    public enum Mode { ENCRYPT, DECRYPT }
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 1024; // per selector thread
+    private static final long MAX_DIRECTION_BYTES = 16L << 32; // the 32 bit counter wraps after 2^32 blocks
+
+    private final Mode mode;
+    private final InetSocketAddress listenAddress;
+    private final InetSocketAddress targetAddress;
+    private final AESKey key; // expanded once, shared by the ciphers of every connection
+    private final EventLoop[] loops;
+    private ServerSocketChannel server;
+    private int nextLoop; // accessed by the accepting thread only
+    private volatile boolean running;
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong acceptedConnections = new AtomicLong();
+    private final AtomicLong failedConnections = new AtomicLong();
+    private final AtomicLong allocatedBuffers = new AtomicLong();
+    private final LongAdder bytesEncrypted = new LongAdder();
+    private final LongAdder bytesDecrypted = new LongAdder();
+
+    /**
+     * @param mode ENCRYPT to accept plaintext and forward ciphertext, DECRYPT for the reverse
+     * @param listenAddress address connections are accepted on (port 0 selects a free port)
+     * @param targetAddress address each accepted connection is relayed to
+     * @param keyBytes initial key bytes (integer array of dimensions 4 x 4, 6 x 4, or 8 x 4)
+     * @param threads number of selector threads
+     */
+    public CTRRelay(Mode mode, InetSocketAddress listenAddress, InetSocketAddress targetAddress, int[][] keyBytes,
+                    int threads) {
+        if (mode == null || listenAddress == null || targetAddress == null) {
+            throw new IllegalArgumentException("Mode and addresses must not be null.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one selector thread is required.");
+        }
+        this.key = new AESKey(keyBytes);
+        this.mode = mode;
+        this.listenAddress = listenAddress;
+        this.targetAddress = targetAddress;
+        this.loops = new EventLoop[threads];
+    }
+
+    /**
+     * Starts the relay
+     * @params encrypt|decrypt, listen port, target host, target port, key file and optionally the number of threads
+     */
+    public static void main(String[] argv) {
+        if (argv.length != 5 && argv.length != 6) {
+            System.out.println("Usage: java CTRRelay <encrypt|decrypt> <listen port> <target host> <target port> <key file> [threads]");
+            System.exit(1);
+        }
+        try (CTRRelay relay = new CTRRelay(Mode.valueOf(argv[0].toUpperCase()),
+                                           new InetSocketAddress(Integer.parseInt(argv[1])),
+                                           new InetSocketAddress(argv[2], Integer.parseInt(argv[3])),
+                                           readKeyFile(argv[4]),
+                                           argv.length == 6 ? Integer.parseInt(argv[5])
+                                                            : Runtime.getRuntime().availableProcessors())) {
+            relay.start();
+            System.out.println("Relaying " + relay.getLocalAddress() + " to " + argv[2] + ":" + argv[3]);
+            long lastBytes = 0;
+            while (true) { // report metrics every 10 seconds
+                Thread.sleep(10000);
+                long bytes = relay.getBytesEncrypted() + relay.getBytesDecrypted();
+                System.out.println("connections: " + relay.getActiveConnections() + " active, "
+                                   + relay.getAcceptedConnections() + " accepted, " + relay.getFailedConnections()
+                                   + " failed; throughput: " + (bytes - lastBytes) / 10 / 1024 + " KiB/s");
+                lastBytes = bytes;
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            System.out.println(ex.getMessage());
+            ex.printStackTrace();
+            System.exit(1);
+        } catch (InterruptedException inx) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Binds the listening socket and starts the selector threads
+     * @throws IOException if the socket cannot be bound
+     */
+    public void start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("The relay has already been started.");
+        }
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(listenAddress);
+            server.configureBlocking(false);
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new EventLoop();
+            }
+            server.register(loops[0].selector, SelectionKey.OP_ACCEPT); // connections are accepted by the first thread
+        } catch (IOException iox) {
+            server.close();
+            throw iox;
+        }
+        running = true;
+        for (int i = 0; i < loops.length; i++) {
+            Thread thread = new Thread(loops[i], "ctr-relay-" + i);
+            thread.setDaemon(true);
+            loops[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * @return address the relay accepts connections on
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Stops accepting connections and closes every relayed connection
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        for (EventLoop loop : loops) {
+            if (loop != null && loop.thread != null) {
+                loop.selector.wakeup();
+                try {
+                    loop.thread.join();
+                } catch (InterruptedException inx) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /*
+    ------------------------------------------
+                      Metrics
+    ------------------------------------------
+     */
+
+    /** @return number of connections currently relayed */
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /** @return number of connections accepted since the relay started */
+    public long getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    /** @return number of connections closed because of an error (eg. the target refused the connection) */
+    public long getFailedConnections() {
+        return failedConnections.get();
+    }
+
+    /** @return number of bytes encrypted, excluding counter blocks */
+    public long getBytesEncrypted() {
+        return bytesEncrypted.sum();
+    }
+
+    /** @return number of bytes decrypted, excluding counter blocks */
+    public long getBytesDecrypted() {
+        return bytesDecrypted.sum();
+    }
+
+    /** @return number of direct buffers allocated, bounded by the peak number of directions waiting on a write */
+    public long getAllocatedBuffers() {
+        return allocatedBuffers.get();
+    }
+
+    /*
+    ------------------------------------------
+                 Selector Threads
+    ------------------------------------------
+     */
+
+    /*
+     * A selector thread, owns the connections registered with its selector and a pool of direct buffers
+     */
+    private final class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+        private Thread thread;
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            ((Connection) key.attachment()).handle(key);
+                        }
+                    }
+                }
+            } catch (IOException iox) {
+                System.out.println("Error occurred while selecting, " + thread.getName() + " is stopping.");
+                iox.printStackTrace();
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection) {
+                        ((Connection) key.attachment()).close();
+                    }
+                }
+                closeQuietly(selector);
+            }
+        }
+
+        /*
+         * Runs the task on this thread, used to hand accepted connections to the thread which owns them
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        private void accept() {
+            while (true) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (IOException iox) { // eg. out of file descriptors, the listening socket stays open
+                    failedConnections.incrementAndGet();
+                    return;
+                }
+                if (client == null) {
+                    return;
+                }
+                acceptedConnections.incrementAndGet();
+                EventLoop owner = loops[nextLoop++ % loops.length];
+                owner.execute(() -> owner.open(client));
+            }
+        }
+
+        /*
+         * Starts a non-blocking connect to the target, the client is not read until the target is connected
+         */
+        private void open(SocketChannel client) {
+            SocketChannel target = null;
+            Connection connection = null;
+            try {
+                target = SocketChannel.open();
+                connection = new Connection(this, client, target);
+                activeConnections.incrementAndGet();
+                client.configureBlocking(false);
+                client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                target.configureBlocking(false);
+                target.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connection.clientKey = client.register(selector, 0, connection);
+                connection.targetKey = target.register(selector, SelectionKey.OP_CONNECT, connection);
+                if (target.connect(targetAddress)) {
+                    connection.connected();
+                }
+            } catch (IOException | RuntimeException ex) {
+                failedConnections.incrementAndGet();
+                if (connection != null) {
+                    connection.close();
+                } else {
+                    closeQuietly(client);
+                    closeQuietly(target);
+                }
+            }
+        }
+
+        ByteBuffer acquire() {
+            ByteBuffer buffer = pool.pollFirst();
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                allocatedBuffers.incrementAndGet();
+            }
+            return buffer.clear();
+        }
+
+        void release(ByteBuffer buffer) {
+            if (pool.size() < MAX_POOLED_BUFFERS) {
+                pool.addFirst(buffer);
+            }
+        }
+    }
+
+    /*
+    ------------------------------------------
+                    Connections
+    ------------------------------------------
+     */
+
+    /*
+     * A relayed connection, only accessed by the thread owning its selector
+     */
+    private final class Connection {
+
+        private final EventLoop loop;
+        private final SocketChannel client;
+        private final SocketChannel target;
+        private final Direction outbound; // client to target
+        private final Direction inbound; // target to client
+        private SelectionKey clientKey;
+        private SelectionKey targetKey;
+        private boolean isConnected;
+        private boolean isClosed;
+
+        Connection(EventLoop loop, SocketChannel client, SocketChannel target) {
+            this.loop = loop;
+            this.client = client;
+            this.target = target;
+            this.outbound = new Direction(client, target, mode == Mode.ENCRYPT);
+            this.inbound = new Direction(target, client, mode == Mode.DECRYPT);
+        }
+
+        void handle(SelectionKey key) {
+            try {
+                if (key.isConnectable()) {
+                    if (target.finishConnect()) {
+                        connected();
+                    }
+                    return;
+                }
+                boolean isClient = key.channel() == client;
+                if (key.isWritable()) {
+                    (isClient ? inbound : outbound).flush();
+                }
+                if (key.isReadable()) {
+                    (isClient ? outbound : inbound).transfer();
+                }
+                if (outbound.isFinished && inbound.isFinished) {
+                    close();
+                    return;
+                }
+                updateInterest();
+            } catch (IOException | RuntimeException ex) { // eg. the connection was reset by either peer
+                failedConnections.incrementAndGet();
+                close();
+            }
+        }
+
+        void connected() {
+            isConnected = true;
+            updateInterest();
+        }
+
+        private void updateInterest() {
+            clientKey.interestOps((outbound.wantsRead() ? SelectionKey.OP_READ : 0)
+                                  | (inbound.pending != null ? SelectionKey.OP_WRITE : 0));
+            targetKey.interestOps((inbound.wantsRead() ? SelectionKey.OP_READ : 0)
+                                  | (outbound.pending != null ? SelectionKey.OP_WRITE : 0));
+        }
+
+        void close() {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            activeConnections.decrementAndGet();
+            outbound.releaseBuffer();
+            inbound.releaseBuffer();
+            closeQuietly(client);
+            closeQuietly(target);
+        }
+
+        /*
+         * One direction of a connection, ciphers the data read from source and writes it to sink
+         */
+        private final class Direction {
+
+            private final SocketChannel source;
+            private final SocketChannel sink;
+            private final boolean isEncrypting;
+            private final ByteBuffer counterBlock = ByteBuffer.allocate(16); // sent (encrypting) or received ahead of the data
+            private AESCTR counterCrypt; // null until the counter block is received (decrypting)
+            private ByteBuffer pending; // pooled buffer holding ciphered data not yet written to sink
+            private long ciphered;
+            private boolean isSourceClosed;
+            private boolean isFinished;
+
+            Direction(SocketChannel source, SocketChannel sink, boolean isEncrypting) {
+                this.source = source;
+                this.sink = sink;
+                this.isEncrypting = isEncrypting;
+                if (isEncrypting) {
+                    AESCTRDRBG.current().nextBytes(counterBlock.array());
+                    counterCrypt = new AESCTR(key, toBlock(counterBlock.array()));
+                }
+            }
+
+            boolean wantsRead() {
+                return isConnected && !isSourceClosed && pending == null;
+            }
+
+            /*
+             * Reads, ciphers and writes until the source has no data available or the sink is full
+             */
+            void transfer() throws IOException {
+                while (pending == null && !isSourceClosed) {
+                    ByteBuffer buffer = loop.acquire();
+                    if (isEncrypting && counterBlock.hasRemaining()) {
+                        buffer.put(counterBlock); // the counter block is sent in the clear ahead of the ciphertext
+                    }
+                    int start = buffer.position();
+                    int read = source.read(buffer);
+                    isSourceClosed = read < 0;
+                    buffer.flip();
+                    if (read > 0) {
+                        cipher(buffer, start);
+                    }
+                    pending = buffer;
+                    flush();
+                    if (read == 0) {
+                        break;
+                    }
+                }
+                finishIfDrained();
+            }
+
+            /*
+             * Ciphers the bytes read in place, buffer is left positioned at the first byte to be written
+             */
+            private void cipher(ByteBuffer buffer, int start) throws IOException {
+                if (counterCrypt == null) {
+                    while (counterBlock.hasRemaining() && buffer.hasRemaining()) {
+                        counterBlock.put(buffer.get());
+                    }
+                    if (counterBlock.hasRemaining()) {
+                        return; // the rest of the counter block has not arrived
+                    }
+                    counterCrypt = new AESCTR(key, toBlock(counterBlock.array()));
+                }
+                ByteBuffer data = buffer.duplicate().position(isEncrypting ? start : buffer.position());
+                ciphered += data.remaining();
+                if (ciphered > MAX_DIRECTION_BYTES) {
+                    throw new IOException("Counter space of the connection is exhausted.");
+                }
+                (isEncrypting ? bytesEncrypted : bytesDecrypted).add(data.remaining());
+                try {
+                    counterCrypt.update(data, data.duplicate());
+                } catch (ShortBufferException sbx) {
+                    throw new IllegalStateException("In place cipher buffer was too short.", sbx); // unreachable, same length
+                }
+            }
+
+            void flush() throws IOException {
+                if (pending == null) {
+                    return;
+                }
+                sink.write(pending);
+                if (!pending.hasRemaining()) {
+                    loop.release(pending);
+                    pending = null;
+                    finishIfDrained();
+                }
+            }
+
+            /*
+             * Forwards the end of the stream once everything read has been written
+             */
+            private void finishIfDrained() throws IOException {
+                if (isSourceClosed && pending == null && !isFinished) {
+                    isFinished = true;
+                    sink.shutdownOutput();
+                }
+            }
+
+            void releaseBuffer() {
+                if (pending != null) {
+                    loop.release(pending);
+                    pending = null;
+                }
+            }
+        }
+    }
+
+    /*
+    ------------------------------------------
+                   Helper Methods
+    ------------------------------------------
+     */
+
+    /*
+     * Converts a block to state layout
+     */
+    private static int[][] toBlock(byte[] bytes) {
+        int[][] block = new int[4][4];
+        for (int i = 0; i < 16; i++) {
+            block[i % 4][i / 4] = bytes[i] & 0xff;
+        }
+        return block;
+    }
+
+    private static int[][] readKeyFile(String keyFilePath) throws IOException {
+        byte[] key;
+        try (FileInputStream keyFileInput = new FileInputStream(keyFilePath)) {
+            key = keyFileInput.readAllBytes();
+        }
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("Invalid key length. Acceptable lengths are: 128, 192, or 256 bits.");
+        }
+        int[][] keyBytes = new int[key.length / 4][4];
+        for (int i = 0; i < key.length; i++) {
+            keyBytes[i / 4][i % 4] = key[i] & 0xff;
+        }
+        return keyBytes;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // nothing further can be done with a channel which fails to close
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Progress record of a CliCipher run, stored next to the output so an interrupted run can be resumed.
+ */
+package main;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/**
+ * Offsets and mode state of a CliCipher run at a block boundary, stored as a properties file named
+ * {@code <output>.checkpoint}. The file is replaced atomically (written to a temporary file, synced and renamed) so
+ * a crash leaves either the previous or the new checkpoint. The mode state is the last ciphertext block (CBC, CFB),
+ * the initial counter block (CTR) or the last output block (OFB). CTR also records the key stream offset, which is not
+ * block aligned when unaligned ciphertext was appended to. The partial output is identified by a SHA-256 digest
+ * of its last 4 KiB, and the key by the first bytes of the encryption of a zero block.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+final class Checkpoint {
+
+    private static final String SUFFIX = ".checkpoint";
+    private static final int DIGEST_LENGTH = 4096; // trailing bytes of the output covered by the digest
+
+    final String mode;
+    final boolean decrypt;
+    final long inputLength;
+    final long inputOffset;
+    final long outputOffset;
+    final byte[] state;
+    final long keyStreamOffset; // CTR: key stream bytes used, 0 for the other modes
+    final String keyCheck;
+    final String outputDigest;
+
+    Checkpoint(String mode, boolean decrypt, long inputLength, long inputOffset, long outputOffset, byte[] state,
+               long keyStreamOffset, String keyCheck, String outputDigest) {
+        this.mode = mode;
+        this.decrypt = decrypt;
+        this.inputLength = inputLength;
+        this.inputOffset = inputOffset;
+        this.outputOffset = outputOffset;
+        this.state = state;
+        this.keyStreamOffset = keyStreamOffset;
+        this.keyCheck = keyCheck;
+        this.outputDigest = outputDigest;
+    }
+
+    /**
+     * @param output path of the output file
+     * @return path of the checkpoint for the output file
+     */
+    static Path pathFor(String output) {
+        return Paths.get(output + SUFFIX);
+    }
+
+    /**
+     * Reads a checkpoint
+     * @throws IllegalArgumentException if the checkpoint does not exist or is malformed
+     */
+    static Checkpoint read(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(path)) {
+            properties.load(input);
+        } catch (NoSuchFileException nsx) {
+            throw new IllegalArgumentException("No checkpoint to resume from (" + path + ").");
+        }
+        Checkpoint checkpoint;
+        try {
+            checkpoint = new Checkpoint(properties.getProperty("mode"),
+                                  Boolean.parseBoolean(properties.getProperty("decrypt")),
+                                  Long.parseLong(properties.getProperty("inputLength")),
+                                  Long.parseLong(properties.getProperty("inputOffset")),
+                                  Long.parseLong(properties.getProperty("outputOffset")),
+                                  HexFormat.of().parseHex(properties.getProperty("state")),
+                                  Long.parseLong(properties.getProperty("keyStreamOffset")),
+                                  properties.getProperty("keyCheck"),
+                                  properties.getProperty("outputDigest"));
+        } catch (RuntimeException ex) { // missing properties or malformed numbers
+            throw new IllegalArgumentException("Malformed checkpoint (" + path + ").", ex);
+        }
+        if (checkpoint.mode == null || checkpoint.keyCheck == null || checkpoint.outputDigest == null
+                || checkpoint.state.length != 16 || checkpoint.keyStreamOffset < 0) {
+            throw new IllegalArgumentException("Malformed checkpoint (" + path + ").");
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Atomically replaces the checkpoint at path, the output must be synced before the checkpoint is written
+     */
+    void write(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("mode", mode);
+        properties.setProperty("decrypt", Boolean.toString(decrypt));
+        properties.setProperty("inputLength", Long.toString(inputLength));
+        properties.setProperty("inputOffset", Long.toString(inputOffset));
+        properties.setProperty("outputOffset", Long.toString(outputOffset));
+        properties.setProperty("state", HexFormat.of().formatHex(state));
+        properties.setProperty("keyStreamOffset", Long.toString(keyStreamOffset));
+        properties.setProperty("keyCheck", keyCheck);
+        properties.setProperty("outputDigest", outputDigest);
+
+        Path temporary = Paths.get(path + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temporary.toFile())) {
+            properties.store(output, "CliCipher checkpoint, resume with --resume");
+            output.getFD().sync();
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Digest of the last 4 KiB (or fewer) before length in file
+     * @return hex encoded SHA-256 digest
+     */
+    static String outputDigest(Path file, long length) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsx) {
+            throw new IllegalStateException("SHA-256 is not available.", nsx); // required of every Java platform
+        }
+        long start = Math.max(0, length - DIGEST_LENGTH);
+        ByteBuffer tail = ByteBuffer.allocate((int) (length - start));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (tail.hasRemaining()) {
+                if (channel.read(tail, start + tail.position()) < 0) {
+                    throw new IllegalArgumentException("Output is shorter than the checkpoint.");
+                }
+            }
+        }
+        digest.update(tail.flip());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+}
@@ -1,45 +1,102 @@
 /*
  * Author: Spencer Little
  * Date: 09/14/2019
- * An implementation of CBC and CTR mode AES encryption/decryption via cli program, operates on files.
+ * An implementation of CBC, CTR, CFB and OFB mode AES encryption/decryption via cli program, operates on files or
+ * standard input/output.
  */
 package main;
 
 import cipher.AES;
+import cipher.AESCFB;
 import cipher.AESCTR;
+import cipher.AESCTRDRBG;
+import cipher.AESEngine;
+import cipher.AESKey;
+import cipher.AESOFB;
+import cipher.AESReencryptor;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
 
+import javax.crypto.ShortBufferException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterOutputStream;
 
 /**
  * Performs encryption/decryption (via CLI arguments) operations using the AES class
+ * Runs are started by {@link #main(String[])}, by {@link CliDaemon} or directly with parsed {@link Args}.
  * @author Spencer Little
  * @version 1.0.0
  */
-final class CliCipher extends AES {
+public final class CliCipher extends AES {
 
-    private int toPad;
-    private FileInputStream fileInput;
-    private FileOutputStream fileOutput;
-    private int bytesToCipher;
-    private int fileSize;
-    private static Args cliArgs;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int REKEY_CHUNK_SIZE = 16 * BUFFER_SIZE; // split into segments across the common pool
+    /** Written in the clear ahead of the ciphertext when the plaintext was compressed before encryption */
+    private static final byte[] COMPRESSION_HEADER = {'A', 'E', 'S', 'Z', 'D', 'E', 'F', 0x01};
+    /** Input or output path which selects standard input or standard output */
+    static final String STANDARD_STREAM = "-";
+
+    private CountingInputStream countingInput; // counts the bytes read from standard input
+    private InputStream fileInput;
+    private OutputStream fileOutput;
+    private FileOutputStream rawFileOutput; // synced before each checkpoint
+    private InputStream dataInput; // plaintext/ciphertext source, fileInput or a decompression stage wrapping it
+    private OutputStream dataOutput; // sink for cipher output, fileOutput or a decompression stage wrapping it
+    private Deflater deflater;
+    private Inflater inflater;
+    private final byte[] inputBlock = new byte[16];
+    private final byte[] outputBlock = new byte[16];
+    private int inputBlockLength; // number of bytes read into inputBlock by the last call to readBlockOfDataFile()
+    private long fileSize; // length of the input file, or bytes read from standard input once the run completes
+    private long inputOffset; // bytes of the input file processed, excluding bytes read ahead
+    private long outputOffset; // bytes written to the output file
+    private long appendOffset = -1; // --append: length of the existing output
+    private long keyStreamOffset; // CTR: key stream bytes used before this run (--append or --resume)
+    private long nextCheckpoint; // output offset at which the next checkpoint is due
+    private long checkpointInterval;
+    private Checkpoint resumeFrom;
+    private String keyCheck;
+    private final Args cliArgs;
+    private Map<ByteBuffer, AESKey> keyCache; // expanded keys shared by the runs of a CliDaemon, or null
+    private AESKey expandedKey;
+
+    public CliCipher(Args cliArgs) {
+        this.cliArgs = cliArgs;
+    }
 
     /**
      * Orchestrates the cipher operations
      * @params command line arguments specifying cipher parameters
      */
     public static void main(String[] argv) {
-        CliCipher crypt = new CliCipher();
-        cliArgs = new Args();
+        Args cliArgs = new Args();
         try {
             JCommander.newBuilder().addObject(cliArgs).build().parse(argv);
         } catch (ParameterException prx) {
-            System.out.println("Path to the plaintext, path to the initialization vector, output filename, and key file path must be specified.");
+            System.out.println("Path to the plaintext, output filename, and key file path must be specified.");
             Args.showHelp();
             System.exit(1);
         }
@@ -48,30 +105,91 @@ final class CliCipher extends AES {
             System.exit(1);
         }
 
-        crypt.initializeFileOperators();
-        crypt.readKeyFile();
-        crypt.keyExpansion();
-        crypt.readInitVectorFile();
-
-
-        if (!cliArgs.counterMode && cliArgs.decrypt) {
-            crypt.cipherBlockChainDecrypt();
-        } else if (!cliArgs.counterMode){
-            crypt.cipherBlockChainEncrypt();
-        } else if (cliArgs.decrypt) {
-            crypt.counterModeDecrypt();
-        } else {
-            crypt.counterModeEncrypt();
+        // messages must not be mixed into the output when it is written to standard output
+        PrintStream messages = STANDARD_STREAM.equals(cliArgs.output) ? System.err : System.out;
+        try {
+            long processed = new CliCipher(cliArgs).run(null);
+            messages.println("Cipher operations successful. Processed " + processed + " bytes.");
+        } catch (IOException | IllegalArgumentException ex) {
+            messages.println(ex.getMessage());
+            ex.printStackTrace();
+            System.exit(1);
         }
+    }
 
+    /**
+     * Performs the cipher operations specified by the arguments
+     * @param keyCache cache of expanded keys indexed by initial key bytes (may be null), shared by {@link CliDaemon}
+     * @return number of bytes read from the input file (or standard input)
+     * @throws IOException if the files cannot be read or written
+     * @throws IllegalArgumentException if the key, IV or output file are invalid
+     */
+    public long run(Map<ByteBuffer, AESKey> keyCache) throws IOException {
+        this.keyCache = keyCache;
+        int modes = (cliArgs.counterMode ? 1 : 0) + (cliArgs.cipherFeedbackMode ? 1 : 0) + (cliArgs.outputFeedbackMode ? 1 : 0);
+        if (modes > 1) {
+            throw new IllegalArgumentException("At most one of -CTR, -CFB or -OFB may be specified.");
+        }
+        if (isRekeying() && (cliArgs.cipherFeedbackMode || cliArgs.outputFeedbackMode)) {
+            throw new IllegalArgumentException("Only CBC and CTR ciphertext can be re-encrypted.");
+        }
+        if (cliArgs.noPadding && (cliArgs.cipherFeedbackMode || cliArgs.outputFeedbackMode || isRekeying())) {
+            throw new IllegalArgumentException("--no-padding applies to CBC and CTR (CFB and OFB are never padded), it cannot be combined with --rekey.");
+        }
+        if (isRekeying() && (cliArgs.decrypt || cliArgs.compress || cliArgs.resume)) {
+            throw new IllegalArgumentException("--rekey cannot be combined with -d, -z or --resume.");
+        }
+        if (cliArgs.append && (!cliArgs.counterMode || !cliArgs.noPadding || cliArgs.decrypt || cliArgs.compress
+                               || isRekeying() || cliArgs.incremental)) {
+            throw new IllegalArgumentException("--append continues unpadded CTR ciphertext, it requires -CTR --no-padding and cannot be combined with -d, -z, --rekey or --incremental.");
+        }
+        if (cliArgs.append && isOutputStandard()) {
+            throw new IllegalArgumentException("--append requires an output file.");
+        }
+        if (cliArgs.incremental) {
+            if ((modes > 0 && !cliArgs.counterMode) || cliArgs.compress || cliArgs.resume || isRekeying()
+                    || cliArgs.generateInitVector || cliArgs.initVectorFilePath != null) {
+                throw new IllegalArgumentException("--incremental derives the counter of each chunk, it cannot be combined with -v, -g, -CFB, -OFB, -z, --resume or --rekey.");
+            }
+            if (isInputStandard() || isOutputStandard()) {
+                throw new IllegalArgumentException("--incremental requires an input and output file.");
+            }
+            byte[] keyBytes = readKeyBytes(cliArgs.keyFilePath);
+            // without a cache the fastest engine is used, a CliDaemon shares its cached AESKey
+            return new IncrementalCipher(cliArgs, keyCache == null ? AESEngine.create(keyBytes) : expandKey(keyBytes)).run();
+        }
+        initializeFileOperators();
         try {
-            crypt.closeFileOperators();
-        } catch (IOException iox) {
-            System.out.println("Error closing file operators.");
-            iox.printStackTrace();
-            System.exit(1);
+            readKeyFile();
+            initializeCompression();
+            initializeInitVector();
+            initializeCheckpoints();
+
+            if (isRekeying()) {
+                reencrypt();
+            } else if (cliArgs.cipherFeedbackMode) {
+                cipherFeedbackMode();
+            } else if (cliArgs.outputFeedbackMode) {
+                outputFeedbackMode();
+            } else if (!cliArgs.counterMode && cliArgs.noPadding) {
+                cipherBlockChainStealing();
+            } else if (!cliArgs.counterMode && cliArgs.decrypt) {
+                cipherBlockChainDecrypt();
+            } else if (!cliArgs.counterMode){
+                cipherBlockChainEncrypt();
+            } else {
+                counterMode();
+            }
+        } finally {
+            closeFileOperators();
         }
-        System.out.println("Cipher operations successful. Processed " + crypt.fileSize + " bytes.");
+        if (countingInput != null) {
+            fileSize = countingInput.count;
+        }
+        if (!isOutputStandard()) {
+            Files.deleteIfExists(Checkpoint.pathFor(cliArgs.output)); // the run is complete, there is nothing to resume
+        }
+        return fileSize;
     }
 
     /*
@@ -82,61 +200,252 @@ final class CliCipher extends AES {
 
     /*
      * Counter mode ref. NIST SP 800 38a (https://nvlpubs.nist.gov/nistpubs/Legacy/SP/nistspecialpublication800-38a.pdf)
+     * Streams the input in chunks, the counter is carried by AESCTR.update(). Reads one chunk ahead so the final chunk
+     * can be padded (PKCS#7, in place) on encryption, or unpadded on decryption. With --no-padding the ciphertext has
+     * the same length as the plaintext, and with --append the key stream continues where the existing ciphertext ends.
      */
-    private void counterModeEncrypt() {
-        byte[] fileBytes = readDataFile();
-        fileBytes = AESCTR.padByteArray(fileBytes);
-        AESCTR counterCrypt = new AESCTR(fileBytes, getInitKeyBytes(), initializationVector);
-        fileBytes = counterCrypt.counterModeCipher();
-        writeByteArrayToFile(fileBytes);
+    private void counterMode() throws IOException {
+        AESCTR counterCrypt = new AESCTR(expandedKey, initializationVector);
+        counterCrypt.skip(keyStreamOffset); // re-enciphers only a trailing partial block
+        byte[] chunk = new byte[BUFFER_SIZE + 16]; // room for the padding of the final chunk
+        byte[] nextChunk = new byte[BUFFER_SIZE + 16];
+        int length = readChunkOfDataFile(chunk, BUFFER_SIZE);
+        while (true) {
+            int nextLength = length == BUFFER_SIZE ? readChunkOfDataFile(nextChunk, BUFFER_SIZE) : 0;
+            boolean isFinal = nextLength == 0;
+            int cipherLength = length;
+            if (isFinal && !cliArgs.noPadding && !cliArgs.decrypt) {
+                cipherLength = AESCTR.pad(chunk, 0, length);
+            } else if (isFinal && !cliArgs.noPadding && (length == 0 || length % 16 != 0)) {
+                throw new IllegalArgumentException("Ciphertext must conform to 16 byte block length.");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, cipherLength);
+            try {
+                counterCrypt.update(buffer, buffer.duplicate());
+            } catch (ShortBufferException sbx) {
+                throw new IllegalStateException("In place cipher buffer was too short.", sbx); // unreachable, same length
+            }
+            boolean isPadded = isFinal && !cliArgs.noPadding && cliArgs.decrypt;
+            writeChunkToFile(chunk, isPadded ? AESCTR.unpaddedLength(chunk, 0, cipherLength) : cipherLength);
+            inputOffset += length;
+            keyStreamOffset += cipherLength;
+            if (isFinal) {
+                return;
+            }
+            if (isCheckpointDue()) {
+                checkpoint(toBytes(initializationVector), keyStreamOffset); // the offset need not be block aligned
+            }
+            byte[] temp = chunk;
+            chunk = nextChunk;
+            nextChunk = temp;
+            length = nextLength;
+        }
     }
 
-    private void counterModeDecrypt() {
-        byte[] fileBytes = readDataFile();
-        AESCTR counterCrypt = new AESCTR(fileBytes, getInitKeyBytes(), initializationVector);
-        fileBytes = counterCrypt.counterModeCipher();
-        fileBytes = AESCTR.removePadding(fileBytes);
-        writeByteArrayToFile(fileBytes);
+    /*
+     * Cipher feedback mode (CFB-128) ref. NIST SP 800 38a, the ciphertext has the same length as the plaintext
+     * Decryption of each chunk is split across the common pool.
+     */
+    private void cipherFeedbackMode() throws IOException {
+        AESCFB feedbackCrypt = new AESCFB(expandedKey, initializationVector);
+        byte[] chunk = new byte[BUFFER_SIZE];
+        byte[] lastInputBlock = new byte[16];
+        int length;
+        while ((length = readChunkOfDataFile(chunk, BUFFER_SIZE)) > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, length);
+            System.arraycopy(chunk, Math.max(0, length - 16), lastInputBlock, 0, Math.min(16, length));
+            try {
+                if (cliArgs.decrypt) {
+                    feedbackCrypt.decrypt(buffer, buffer.duplicate(), ForkJoinPool.commonPool());
+                } else {
+                    feedbackCrypt.encrypt(buffer, buffer.duplicate());
+                }
+            } catch (ShortBufferException sbx) {
+                throw new IllegalStateException("In place cipher buffer was too short.", sbx); // unreachable, same length
+            }
+            writeChunkToFile(chunk, length);
+            inputOffset += length;
+            if (length == BUFFER_SIZE && isCheckpointDue()) { // full chunks end on a block boundary
+                // the last ciphertext block is the tail of the input (decryption) or of the output (encryption)
+                checkpoint(cliArgs.decrypt ? lastInputBlock : Arrays.copyOfRange(chunk, length - 16, length));
+            }
+        }
+    }
+
+    /*
+     * Output feedback mode ref. NIST SP 800 38a, the ciphertext has the same length as the plaintext
+     * The key stream for each chunk is generated in bulk ahead of the data.
+     */
+    private void outputFeedbackMode() throws IOException {
+        AESOFB feedbackCrypt = new AESOFB(expandedKey, initializationVector);
+        byte[] chunk = new byte[BUFFER_SIZE];
+        byte[] lastOutputBlock = new byte[16];
+        int length;
+        while ((length = readChunkOfDataFile(chunk, BUFFER_SIZE)) > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, length);
+            System.arraycopy(chunk, Math.max(0, length - 16), lastOutputBlock, 0, Math.min(16, length)); // input tail
+            feedbackCrypt.precompute(length);
+            try {
+                feedbackCrypt.update(buffer, buffer.duplicate());
+            } catch (ShortBufferException sbx) {
+                throw new IllegalStateException("In place cipher buffer was too short.", sbx); // unreachable, same length
+            }
+            writeChunkToFile(chunk, length);
+            inputOffset += length;
+            if (length == BUFFER_SIZE && isCheckpointDue()) { // full chunks end on a block boundary
+                for (int i = 0; i < 16; i++) {
+                    lastOutputBlock[i] ^= chunk[length - 16 + i]; // O_j = P_j xor C_j
+                }
+                checkpoint(lastOutputBlock);
+            }
+        }
+    }
+
+    /*
+     * Re-encrypts CBC or CTR ciphertext under the key of --rekey in one pass, the plaintext is never written
+     * The ciphertext keeps its length (both modes are padded the same way), a compression header is copied as is.
+     * Each chunk is split into segments across the common pool, except for CBC encryption which is sequential.
+     */
+    private void reencrypt() throws IOException {
+        AESReencryptor.Mode fromMode = cliArgs.counterMode ? AESReencryptor.Mode.CTR : AESReencryptor.Mode.CBC;
+        AESReencryptor.Mode toMode = fromMode;
+        if (cliArgs.rekeyMode != null) {
+            try {
+                toMode = AESReencryptor.Mode.valueOf(cliArgs.rekeyMode.toUpperCase());
+            } catch (IllegalArgumentException iax) {
+                throw new IllegalArgumentException("--rekey-mode must be CBC or CTR.");
+            }
+        }
+        byte[] initVector = toBytes(initializationVector);
+        byte[] newInitVector;
+        if (cliArgs.rekeyInitVectorFilePath != null) {
+            newInitVector = readInitVectorBytes(cliArgs.rekeyInitVectorFilePath);
+        } else if (cliArgs.generateInitVector) {
+            newInitVector = new byte[16];
+            AESCTRDRBG.current().nextBytes(newInitVector);
+            fileOutput.write(newInitVector);
+            outputOffset += 16;
+        } else {
+            newInitVector = initVector; // the IV may be kept since the key changes
+        }
+        byte[] newKey = readKeyBytes(cliArgs.rekeyFilePath);
+        // a daemon reuses its cached keys, otherwise AESEngine.create() may select the native engine
+        AESReencryptor reencryptor = keyCache == null
+                ? new AESReencryptor(fromMode, readKeyBytes(cliArgs.keyFilePath), initVector, toMode, newKey, newInitVector)
+                : new AESReencryptor(fromMode, expandedKey, initVector, toMode, expandKey(newKey), newInitVector);
+        byte[] chunk = new byte[REKEY_CHUNK_SIZE];
+        int length;
+        while ((length = readChunkOfDataFile(chunk, REKEY_CHUNK_SIZE)) > 0) {
+            if (length % 16 != 0) {
+                throw new IllegalArgumentException("Ciphertext must conform to 16 byte block length.");
+            }
+            reencryptor.update(chunk, 0, length, ForkJoinPool.commonPool());
+            writeChunkToFile(chunk, length);
+            inputOffset += length;
+        }
     }
 
     /*
      * Cipher block chain mode ref. NIST SP 800 38a (https://nvlpubs.nist.gov/nistpubs/Legacy/SP/nistspecialpublication800-38a.pdf)
      */
-    private void cipherBlockChainEncrypt() {
+    private void cipherBlockChainEncrypt() throws IOException {
         while(readBlockOfDataFile()) {
+            loadState(inputBlock, 0);
             xorVectorWithState(); // xor the IV, or the previous ciphertext block with the state
             cipher();
             writeStateToFile();
             initializationVector = deepCopy(stateArray);
+            inputOffset += 16;
+            if (isCheckpointDue()) {
+                checkpoint(toBytes(initializationVector));
+            }
         }
         try {
             applyPadding();
             xorVectorWithState();
             cipher();
             writeStateToFile();
-            closeFileOperators();
         } catch (IOException iox) {
-            System.out.println("Error writing final block to file.");
-            iox.printStackTrace();
+            throw new IOException("Error writing final block to file.", iox);
         }
     }
 
-    private void cipherBlockChainDecrypt() {
-        while(readBlockOfDataFile()) {
+    /*
+     * CBC with ciphertext stealing (CS3), the ciphertext has the same length as the plaintext (at least 16 bytes)
+     * Whole chunks are ciphered as plain CBC, the final chunk with AESEngine.encryptCS3()/decryptCS3(). A final piece
+     * of at most one block is appended to the chunk before it, since the last two blocks are ciphered together.
+     */
+    private void cipherBlockChainStealing() throws IOException {
+        AESEngine engine = expandedKey;
+        byte[] chainingBlock = toBytes(initializationVector);
+        byte[] chunk = new byte[BUFFER_SIZE + 16]; // room for a final piece of at most one block
+        byte[] nextChunk = new byte[BUFFER_SIZE + 16];
+        int length = readChunkOfDataFile(chunk, BUFFER_SIZE);
+        while (true) {
+            int nextLength = length == BUFFER_SIZE ? readChunkOfDataFile(nextChunk, BUFFER_SIZE) : 0;
+            if (nextLength > 0 && nextLength <= 16) {
+                System.arraycopy(nextChunk, 0, chunk, length, nextLength);
+                length += nextLength;
+                nextLength = 0;
+            }
+            boolean isFinal = nextLength == 0;
+            if (isFinal && length < 16) {
+                throw new IllegalArgumentException("Ciphertext stealing requires at least 16 bytes of input, use -CTR --no-padding for shorter input.");
+            }
+            if (isFinal && cliArgs.decrypt) {
+                engine.decryptCS3(chainingBlock, chunk, 0, chunk, 0, length);
+            } else if (isFinal) {
+                engine.encryptCS3(chainingBlock, chunk, 0, chunk, 0, length);
+            } else if (cliArgs.decrypt) {
+                engine.decryptCBC(chainingBlock, chunk, 0, chunk, 0, length);
+            } else {
+                engine.encryptCBC(chainingBlock, chunk, 0, chunk, 0, length);
+            }
+            writeChunkToFile(chunk, length);
+            inputOffset += length;
+            if (isFinal) {
+                return;
+            }
+            if (isCheckpointDue()) {
+                checkpoint(chainingBlock.clone());
+            }
+            byte[] temp = chunk;
+            chunk = nextChunk;
+            nextChunk = temp;
+            length = nextLength;
+        }
+    }
+
+    /*
+     * Reads one block ahead so the final (padded) block can be identified without knowing the input length
+     */
+    private void cipherBlockChainDecrypt() throws IOException {
+        boolean isBlockAvailable = readBlockOfDataFile();
+        if (!isBlockAvailable) {
+            throw new IllegalArgumentException("Ciphertext must contain at least one 16 byte block.");
+        }
+        while (isBlockAvailable) {
+            loadState(inputBlock, 0);
             int[][] temp = deepCopy(stateArray);
             invCipher();
             xorVectorWithState();
-            writeStateToFile();
-            initializationVector = deepCopy(temp);
+            initializationVector = temp;
+            isBlockAvailable = readBlockOfDataFile();
+            if (isBlockAvailable) {
+                writeStateToFile();
+                inputOffset += 16; // the block read ahead is not counted until it is processed
+                if (isCheckpointDue()) {
+                    checkpoint(toBytes(initializationVector));
+                }
+            }
+        }
+        if (inputBlockLength != 0) {
+            throw new IllegalArgumentException("Ciphertext must conform to 16 byte block length.");
         }
         try {
-            invCipher();
-            xorVectorWithState();
             writeFinalBlock();
-            closeFileOperators();
         } catch (IOException iox) {
-            System.out.println("Error writing final block to file.");
-            iox.printStackTrace();
+            throw new IOException("Error writing final block to file.", iox);
         }
     }
 
@@ -146,173 +455,409 @@ final class CliCipher extends AES {
     ------------------------------------------
      */
 
-    private void initializeFileOperators() {
+    /*
+     * Opens the input and output, "-" selects standard input or standard output
+     * All modes stream their input (CBC and CTR read ahead one block or chunk to find the padded final block), so the
+     * input length is never needed up front and pipes can be used.
+     */
+    private void initializeFileOperators() throws IOException {
+        File output = new File(cliArgs.output);
+        fileSize = isInputStandard() ? 0 : new File(cliArgs.filePath).length();
+        if (cliArgs.resume) {
+            if (isInputStandard() || isOutputStandard()) {
+                throw new IllegalArgumentException("Runs using standard input or output cannot be resumed.");
+            }
+            resumePartialOutput();
+        } else if (cliArgs.append && output.exists()) {
+            appendOffset = output.length(); // the ciphertext is continued, not read
+        } else if (!isOutputStandard() && output.exists()) {
+            throw new IllegalArgumentException("Please specify a unique filename with an appropriate extension");
+        }
         try {
-            fileInput = new FileInputStream(cliArgs.filePath);
-            bytesToCipher = fileInput.available();
-            fileSize = bytesToCipher;
-            File output = new File(cliArgs.output);
-            if (output.exists()) {
-                System.out.println("Please specify a unique filename with an appropriate extension");
-                System.exit(1);
-            }
-            fileOutput = new FileOutputStream(cliArgs.output, true);
+            if (isInputStandard()) {
+                countingInput = new CountingInputStream(new FileInputStream(FileDescriptor.in));
+                fileInput = new BufferedInputStream(countingInput, BUFFER_SIZE);
+            } else {
+                fileInput = new BufferedInputStream(new FileInputStream(cliArgs.filePath), BUFFER_SIZE);
+            }
+            rawFileOutput = isOutputStandard() ? new FileOutputStream(FileDescriptor.out)
+                                               : new FileOutputStream(cliArgs.output, true);
+            fileOutput = new BufferedOutputStream(rawFileOutput, BUFFER_SIZE);
+            if (resumeFrom != null) {
+                fileInput.skipNBytes(resumeFrom.inputOffset);
+            }
         } catch (IOException iox) {
-            System.out.println("Error occurred while creating file stream.");
-            iox.printStackTrace();
-            System.exit(1);
+            if (fileInput != null) {
+                fileInput.close();
+            }
+            if (rawFileOutput != null) {
+                rawFileOutput.close();
+            }
+            throw new IOException("Error occurred while creating file stream.", iox);
         }
+        dataInput = fileInput;
+        dataOutput = fileOutput;
     }
 
     /*
-     * Reads 128 bits from the specified filepath into the state array per NIST specification (ref. pg.9 sec 3.4)
+     * Validates the checkpoint against the arguments and the partial output, then truncates the output to the
+     * checkpoint (bytes written after the last checkpoint are recomputed)
      */
-    private boolean readBlockOfDataFile() {
-        boolean isBlockAvailable = true;
-        try {
-            if (bytesToCipher >= 16) {
-                int i = 0, j = 0;
-                while (i < 4) {
-                    stateArray[j][i] = fileInput.read();
-                    j++;
-                    if (j == 4) {i++; j = 0;}
+    private void resumePartialOutput() throws IOException {
+        Path outputPath = Paths.get(cliArgs.output);
+        resumeFrom = Checkpoint.read(Checkpoint.pathFor(cliArgs.output));
+        if (cliArgs.compress) {
+            throw new IllegalArgumentException("Compressed runs cannot be resumed.");
+        }
+        if (!resumeFrom.mode.equals(modeName()) || resumeFrom.decrypt != cliArgs.decrypt) {
+            throw new IllegalArgumentException("The checkpoint was written by a " + resumeFrom.mode
+                                               + (resumeFrom.decrypt ? " decryption." : " encryption."));
+        }
+        if (resumeFrom.inputLength != fileSize || resumeFrom.inputOffset > fileSize) {
+            throw new IllegalArgumentException("The input file has changed since the checkpoint was written.");
+        }
+        if (!Files.exists(outputPath) || Files.size(outputPath) < resumeFrom.outputOffset
+                || !Checkpoint.outputDigest(outputPath, resumeFrom.outputOffset).equals(resumeFrom.outputDigest)) {
+            throw new IllegalArgumentException("The partial output does not match the checkpoint.");
+        }
+        try (FileChannel channel = FileChannel.open(outputPath, StandardOpenOption.WRITE)) {
+            channel.truncate(resumeFrom.outputOffset);
+        }
+    }
+
+    /*
+     * Inserts the compression stage ahead of encryption, or the decompression stage after decryption
+     * Compressed ciphertext is identified by the header, so decryption does not need to be told about compression
+     */
+    private void initializeCompression() throws IOException {
+        if (resumeFrom != null) {
+            return; // checkpoints are only written for uncompressed runs
+        }
+        if (cliArgs.decrypt || isRekeying()) {
+            byte[] header = new byte[COMPRESSION_HEADER.length];
+            fileInput.mark(header.length);
+            if (fileInput.readNBytes(header, 0, header.length) == header.length && Arrays.equals(header, COMPRESSION_HEADER)) {
+                if (isRekeying()) {
+                    fileOutput.write(header); // the compressed plaintext is re-encrypted as is
+                    outputOffset += header.length;
+                    return;
                 }
-                bytesToCipher -= 16;
+                inflater = new Inflater();
+                dataOutput = new InflaterOutputStream(fileOutput, inflater, BUFFER_SIZE);
             } else {
-                isBlockAvailable = false;
-                toPad = (bytesToCipher == 0) ? 16 : 16 - bytesToCipher;
+                fileInput.reset();
             }
+        } else if (cliArgs.compress) {
+            fileOutput.write(COMPRESSION_HEADER);
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            dataInput = new DeflaterInputStream(fileInput, deflater, BUFFER_SIZE);
+        }
+    }
+
+    /*
+     * Checkpoints are written every checkpointInterval bytes of output unless the data passes through a compression
+     * stage (the Deflater state cannot be recorded) or a standard stream (which cannot be reopened to resume)
+     */
+    private void initializeCheckpoints() {
+        byte[] zeroBlock = new byte[16];
+        encryptBlock(zeroBlock, 0, zeroBlock, 0);
+        keyCheck = HexFormat.of().formatHex(zeroBlock, 0, 4);
+        if (resumeFrom != null && !resumeFrom.keyCheck.equals(keyCheck)) {
+            throw new IllegalArgumentException("The key does not match the checkpoint.");
+        }
+        boolean isResumable = deflater == null && inflater == null && !isInputStandard() && !isOutputStandard()
+                              && !isRekeying();
+        checkpointInterval = isResumable ? cliArgs.checkpointInterval : 0;
+        nextCheckpoint = outputOffset + checkpointInterval;
+    }
+
+    private boolean isCheckpointDue() {
+        return checkpointInterval > 0 && outputOffset >= nextCheckpoint;
+    }
+
+    private void checkpoint(byte[] state) throws IOException {
+        checkpoint(state, 0);
+    }
+
+    /*
+     * Flushes and syncs the output, then atomically replaces the checkpoint
+     * @param state mode state at the current block boundary (the initial counter block for CTR)
+     * @param keyStreamOffset CTR key stream bytes used so far
+     */
+    private void checkpoint(byte[] state, long keyStreamOffset) throws IOException {
+        fileOutput.flush();
+        rawFileOutput.getFD().sync();
+        String outputDigest = Checkpoint.outputDigest(Paths.get(cliArgs.output), outputOffset);
+        new Checkpoint(modeName(), cliArgs.decrypt, fileSize, inputOffset, outputOffset, state, keyStreamOffset,
+                       keyCheck, outputDigest)
+                .write(Checkpoint.pathFor(cliArgs.output));
+        nextCheckpoint = outputOffset + checkpointInterval;
+    }
+
+    private boolean isRekeying() {
+        return cliArgs.rekeyFilePath != null;
+    }
+
+    private boolean isInputStandard() {
+        return STANDARD_STREAM.equals(cliArgs.filePath);
+    }
+
+    private boolean isOutputStandard() {
+        return STANDARD_STREAM.equals(cliArgs.output);
+    }
+
+    private String modeName() {
+        if (cliArgs.counterMode) {
+            return cliArgs.noPadding ? "CTR-NOPAD" : "CTR";
+        } else if (cliArgs.cipherFeedbackMode) {
+            return "CFB";
+        } else if (cliArgs.outputFeedbackMode) {
+            return "OFB";
+        }
+        return cliArgs.noPadding ? "CBC-CS3" : "CBC";
+    }
+
+    /*
+     * Converts a block in state layout to bytes
+     */
+    private static byte[] toBytes(int[][] block) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            bytes[i] = (byte) block[i % 4][i / 4];
+        }
+        return bytes;
+    }
+
+    /*
+     * Reads 128 bits from the input into inputBlock, the state is loaded per NIST specification (ref. pg.9 sec 3.4)
+     * @return true if a full block was read, otherwise inputBlockLength holds the number of trailing bytes
+     */
+    private boolean readBlockOfDataFile() throws IOException {
+        try {
+            inputBlockLength = dataInput.readNBytes(inputBlock, 0, 16);
         } catch (IOException iox) {
-            System.out.println("Error occurred while reading file.");
-            iox.printStackTrace();
-            System.exit(1);
+            throw new IOException("Error occurred while reading file.", iox);
         }
-        return isBlockAvailable;
+        return inputBlockLength == 16;
     }
 
     /*
-     * Reads entire file and returns as byte array
+     * Reads up to length bytes into chunk, fewer only at the end of the input
+     * @return number of bytes read (0 at the end of the input)
      */
-    private byte[] readDataFile() {
-        byte[] fileBytes;
+    private int readChunkOfDataFile(byte[] chunk, int length) throws IOException {
         try {
-            fileBytes = new byte[fileInput.available()];
-            fileInput.read(fileBytes);
+            return dataInput.readNBytes(chunk, 0, length);
         } catch (IOException iox) {
-            fileBytes = null;
-            System.out.println("Error occurred while reading file.");
-            iox.printStackTrace();
-            System.exit(1);
+            throw new IOException("Error occurred while reading file.", iox);
         }
-        return fileBytes;
     }
 
-    private void writeByteArrayToFile(byte[] byteArray) {
+    private void writeChunkToFile(byte[] chunk, int length) throws IOException {
         try {
-            fileOutput.write(byteArray);
+            dataOutput.write(chunk, 0, length);
+            outputOffset += length;
         } catch (IOException iox) {
-            System.out.println("Error writing data to file.");
-            iox.printStackTrace();
+            throw new IOException("Error writing data to file.", iox);
         }
     }
 
     /*
-     * Apply PKCS#7 padding
+     * Apply PKCS#7 padding to the trailing bytes left by readBlockOfDataFile() and load them into the state
      * Even if no padding is required an extra block is added
      */
-    private void applyPadding() throws java.io.IOException {
-        int toRead = 16 - toPad;
-        int i = 0, j = 0, padded = 0;
-        while (toRead > 0 || padded < toPad) {
-            if (toRead > 0) {
-                stateArray[j][i] = fileInput.read();
-                toRead--;
-            }
-            if (padded < toPad) {
-                stateArray[3 - j][3 - i] = toPad;
-                padded++;
-            }
-            j++;
-            if (j == 4) {i++; j = 0;}
-        }
+    private void applyPadding() {
+        AESCTR.pad(inputBlock, 0, inputBlockLength);
+        loadState(inputBlock, 0);
     }
 
     /*
      * Removes padding, assumes final block will always be padded
      */
     private void writeFinalBlock() throws IOException {
-        int toWrite = 16 - stateArray[3][3];
-        int i = 0, j = 0;
-        while (toWrite > 0) {
-            fileOutput.write(stateArray[j][i]);
-            toWrite--;
-            j++;
-            if (j == 4) {i++; j = 0;}
-        }
+        storeState(outputBlock, 0);
+        int length = AESCTR.unpaddedLength(outputBlock, 0, 16);
+        dataOutput.write(outputBlock, 0, length);
+        outputOffset += length;
     }
 
     private void closeFileOperators() throws java.io.IOException {
-        fileOutput.close();
-        fileInput.close();
+        try {
+            dataOutput.close();
+            dataInput.close();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
     }
 
-    private void writeStateToFile() {
+    private void writeStateToFile() throws IOException {
         try {
-            int i = 0, j = 0, toWrite = 0;
-            while (toWrite < 16) {
-                fileOutput.write(stateArray[j][i]);
-                j++; toWrite++;
-                if (j == 4) {i++; j = 0;}
-            }
+            storeState(outputBlock, 0);
+            dataOutput.write(outputBlock);
+            outputOffset += 16;
         } catch (IOException iox) {
-            System.out.println("Error writing data to file.");
-            iox.printStackTrace();
+            throw new IOException("Error writing data to file.", iox);
         }
     }
 
     /*
-     * Reads data from the specified key file into the roundKeys array
+     * Reads the key file and expands the key, the round keys of the block methods are taken from the expanded key
      */
-    private void readKeyFile() {
-        try {
-            FileInputStream keyFileInput = new FileInputStream(cliArgs.keyFilePath);
-            keySize = keyFileInput.available()/4; // determine the number of 32 bit words in the key
-            roundKeys = new int[4][4 * ((keySize)+7)]; // the number of 32 bit words in the expanded key
-            int i = 0;                                  // is equal (Nr + 1)*Nb where Nr = the number of rounds
-            do {                                       // (which is equal to (Nk + 6), Nb = columns in the state array
-                for (int j = 0; j < 4; j++) {         // and Nk = number of 32 bit words in the key
-                    roundKeys[j][i] = keyFileInput.read();
-                }
-                i++;
-            } while (i+1 <= keySize);
+    private void readKeyFile() throws IOException {
+        expandedKey = expandKey(readKeyBytes(cliArgs.keyFilePath));
+        setRoundKeys(expandedKey);
+    }
+
+    /*
+     * Expands a key, or takes it from the cache (expanded keys are only read, so runs on several threads share them)
+     */
+    private AESKey expandKey(byte[] keyBytes) {
+        if (keyCache == null) {
+            return new AESKey(keyBytes);
+        }
+        return keyCache.computeIfAbsent(ByteBuffer.wrap(keyBytes), key -> new AESKey(keyBytes));
+    }
+
+    /*
+     * Reads a key file, the key must be 16, 24 or 32 bytes
+     */
+    static byte[] readKeyBytes(String keyFilePath) throws IOException {
+        byte[] keyBytes;
+        try (FileInputStream keyFileInput = new FileInputStream(keyFilePath)) {
+            keyBytes = keyFileInput.readAllBytes();
         } catch (IOException iox) {
-            System.out.println("Error occurred while reading key file. Is key appropriate length? (Acceptable lengths are 16, 24, or 32 bytes)");
-            iox.printStackTrace();
-            System.exit(1);
+            throw new IOException("Error occurred while reading key file. Is key appropriate length? (Acceptable lengths are 16, 24, or 32 bytes)", iox);
         }
-        if (keySize > 8 || keySize <= 2 || keySize%2==1) {
-            System.out.println("Invalid key length. Acceptable lengths are: 128, 192, or 256 bits.");
-            System.exit(1);
+        if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
+            throw new IllegalArgumentException("Invalid key length. Acceptable lengths are: 128, 192, or 256 bits.");
         }
+        return keyBytes;
     }
 
-    private void readInitVectorFile() {
-        try {
-            FileInputStream initVectorInput = new FileInputStream(cliArgs.initVectorFilePath);
-            if (initVectorInput.available() != 16) {
-                System.out.println("Invalid byte length of IV file. Initialization vector file must contain exactly 16 bytes.");
-                System.exit(1);
+    /*
+     * Reads the IV from the IV file, or generates it and writes it ahead of the ciphertext (reads it back on decryption)
+     */
+    private void initializeInitVector() throws IOException {
+        if (cliArgs.generateInitVector == (cliArgs.initVectorFilePath != null)) {
+            throw new IllegalArgumentException("Either an initialization vector file (-v) or -g must be specified.");
+        }
+        if (resumeFrom != null) {
+            for (int i = 0; i < 16; i++) {
+                initializationVector[i % 4][i / 4] = resumeFrom.state[i] & 0xff; // chaining block or counter
+            }
+            keyStreamOffset = resumeFrom.keyStreamOffset;
+            inputOffset = resumeFrom.inputOffset;
+            outputOffset = resumeFrom.outputOffset;
+            return;
+        }
+        if (appendOffset >= 0) {
+            appendToCipherText();
+            return;
+        }
+        if (cliArgs.initVectorFilePath != null) {
+            readInitVectorFile();
+            return;
+        }
+        byte[] initVector = new byte[16];
+        if (cliArgs.decrypt || isRekeying()) {
+            if (fileInput.readNBytes(initVector, 0, 16) != 16) {
+                throw new IllegalArgumentException("Input is too short to contain the initialization vector.");
+            }
+            inputOffset = 16;
+        } else {
+            AESCTRDRBG.current().nextBytes(initVector);
+            fileOutput.write(initVector);
+            outputOffset = 16;
+        }
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                initializationVector[j][i] = initVector[j + (i*4)] & 0xff;
+            }
+        }
+    }
+
+    /*
+     * Continues existing unpadded CTR ciphertext: the IV comes from the IV file or the header of the ciphertext (-g),
+     * the key stream is then skipped by the ciphertext length so the counter is derived without reading the ciphertext
+     */
+    private void appendToCipherText() throws IOException {
+        byte[] initVector = new byte[16];
+        long headerLength = 0;
+        if (cliArgs.initVectorFilePath != null) {
+            initVector = readInitVectorBytes(cliArgs.initVectorFilePath);
+        } else {
+            try (FileInputStream header = new FileInputStream(cliArgs.output)) {
+                if (header.readNBytes(initVector, 0, 16) != 16) {
+                    throw new IllegalArgumentException("Output is too short to contain the initialization vector.");
+                }
             }
-            int i = 0, j = 0;
-            while ((i*4) < 16) {
-                initializationVector[j][i] = initVectorInput.read();
-                j++;
-                if (j == 4) {i++; j = 0;}
+            headerLength = 16;
+        }
+        for (int i = 0; i < 16; i++) {
+            initializationVector[i % 4][i / 4] = initVector[i] & 0xff;
+        }
+        outputOffset = appendOffset;
+        keyStreamOffset = appendOffset - headerLength;
+    }
+
+    private void readInitVectorFile() throws IOException {
+        byte[] initVector = readInitVectorBytes(cliArgs.initVectorFilePath);
+        for (int i = 0; i < 16; i++) {
+            initializationVector[i % 4][i / 4] = initVector[i] & 0xff;
+        }
+    }
+
+    private static byte[] readInitVectorBytes(String initVectorFilePath) throws IOException {
+        byte[] initVector = new byte[17];
+        try (FileInputStream initVectorInput = new FileInputStream(initVectorFilePath)) {
+            if (initVectorInput.readNBytes(initVector, 0, 17) != 16) { // available() is 0 for pipes, eg. -v <(...)
+                throw new IllegalArgumentException("Invalid byte length of IV file. Initialization vector file must contain exactly 16 bytes.");
             }
         } catch (IOException iox) {
-            System.out.println("Error occurred while reading initialization vector file");
-            iox.printStackTrace();
-            System.exit(1);
+            throw new IOException("Error occurred while reading initialization vector file", iox);
+        }
+        return Arrays.copyOf(initVector, 16);
+    }
+
+    /*
+     * Counts the bytes read from a stream whose length is not known up front
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
         }
     }
 
@@ -0,0 +1,203 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A resident server which performs CliCipher operations for requests received over a Unix domain socket.
+ */
+package main;
+
+import cipher.AES;
+import cipher.AESKey;
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a warmed JVM and a cache of expanded keys resident so shell scripts do not pay JVM startup per invocation
+ * Protocol: each request is the usual CliCipher arguments, one per line, terminated by an empty line. Each request
+ * is answered with a single line starting with OK or ERROR. A connection may send any number of requests, e.g.
+ * {@code printf '%s\n' -f in -o out -k key -v iv '' | nc -U /tmp/aes.sock}
+ * Note: file paths are resolved by the daemon, relative paths are relative to the working directory of the daemon
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class CliDaemon {
+
+    private static final int MAX_CACHED_KEYS = 256;
+    private static final int WARM_UP_CALLS = 5000; // enough invocations for the JIT to compile the cipher methods
+
+    private final Path socketPath;
+    private final Map<ByteBuffer, AESKey> keyCache = Collections.synchronizedMap(
+            new LinkedHashMap<ByteBuffer, AESKey>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, AESKey> eldest) {
+                    return size() > MAX_CACHED_KEYS;
+                }
+            });
+
+    public CliDaemon(Path socketPath) {
+        this.socketPath = socketPath;
+    }
+
+    /**
+     * Starts the daemon
+     * @params path of the socket to listen on
+     */
+    public static void main(String[] argv) {
+        if (argv.length != 1) {
+            System.out.println("Usage: java CliDaemon <socket path>");
+            System.exit(1);
+        }
+        try {
+            new CliDaemon(Paths.get(argv[0])).serve();
+        } catch (IOException iox) {
+            System.out.println("Error occurred while listening on socket.");
+            iox.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Binds the socket and serves requests until the JVM exits
+     * @throws IOException if the socket cannot be created
+     */
+    void serve() throws IOException {
+        warmUp();
+        ServerSocketChannel server = bind();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(socketPath);
+            } catch (IOException ignored) {
+                // the socket file is replaced on the next start
+            }
+        }));
+        ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        System.out.println("Listening on " + socketPath);
+        while (server.isOpen()) {
+            SocketChannel client = server.accept();
+            workers.submit(() -> handleConnection(client));
+        }
+    }
+
+    /**
+     * Binds the socket, readable and writable by the owner only. There is no umask in Java, so the socket is bound in
+     * a new directory only the owner can enter, restricted and then renamed to the socket path: it never appears at
+     * the socket path with the permissions of the default umask.
+     * @return channel bound to the socket path
+     * @throws IOException if the socket cannot be created
+     */
+    public ServerSocketChannel bind() throws IOException {
+        Files.deleteIfExists(socketPath); // remove socket left by a previous daemon
+        Path directory = Files.createTempDirectory(socketPath.toAbsolutePath().getParent(), ".aesd",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        Path boundPath = directory.resolve("socket");
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(boundPath));
+            Files.setPosixFilePermissions(boundPath, PosixFilePermissions.fromString("rw-------"));
+            Files.move(boundPath, socketPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException iox) {
+            server.close();
+            throw iox;
+        } finally {
+            Files.deleteIfExists(boundPath); // only left behind if the socket could not be restricted or moved
+            Files.delete(directory);
+        }
+        return server;
+    }
+
+    /*
+     * Answers requests from a client until it closes the connection
+     */
+    private void handleConnection(SocketChannel client) {
+        try (SocketChannel channel = client;
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+             Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8)) {
+            List<String> request = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    request.add(line);
+                    continue;
+                }
+                if (!request.isEmpty()) {
+                    writer.write(handleRequest(request.toArray(new String[0])) + "\n");
+                    writer.flush();
+                    request.clear();
+                }
+            }
+            if (!request.isEmpty()) { // final request was not terminated by an empty line
+                writer.write(handleRequest(request.toArray(new String[0])) + "\n");
+            }
+        } catch (IOException iox) {
+            System.out.println("Error occurred while communicating with client.");
+            iox.printStackTrace();
+        }
+    }
+
+    /*
+     * Performs a single cipher operation
+     * @return single line response describing the result
+     */
+    public String handleRequest(String[] argv) {
+        Args cliArgs = new Args();
+        try {
+            JCommander.newBuilder().addObject(cliArgs).build().parse(argv);
+        } catch (ParameterException prx) {
+            return "ERROR " + prx.getMessage();
+        }
+        if (CliCipher.STANDARD_STREAM.equals(cliArgs.filePath) || CliCipher.STANDARD_STREAM.equals(cliArgs.output)) {
+            return "ERROR Standard input and output are not available to daemon requests.";
+        }
+        try {
+            long processed = new CliCipher(cliArgs).run(keyCache);
+            return "OK Cipher operations successful. Processed " + processed + " bytes.";
+        } catch (IOException | RuntimeException ex) {
+            return "ERROR " + (ex.getCause() == null ? ex.getMessage() : ex.getMessage() + " " + ex.getCause().getMessage());
+        }
+    }
+
+    /*
+     * Runs the cipher kernels so the first requests do not run in the interpreter: the AESKey kernels (CTR, CBC and
+     * CS3 runs, single blocks) and the reference engine (padded CBC, CFB and OFB)
+     */
+    private void warmUp() {
+        AESKey key = new AESKey(new byte[32]);
+        AES engine = new AES();
+        engine.initializeRoundKeys(new int[8][4]);
+        engine.keyExpansion();
+        byte[] chainingBlock = new byte[16];
+        byte[] chunk = new byte[1024];
+        for (int i = 0; i < WARM_UP_CALLS; i++) {
+            key.counterMode(chainingBlock, chunk, 0, chunk, 0, chunk.length);
+            key.encryptCBC(chainingBlock, chunk, 0, chunk, 0, chunk.length);
+            key.decryptCBC(chainingBlock, chunk, 0, chunk, 0, chunk.length);
+            key.encryptBlock(chunk, 0, chunk, 0);
+            key.decryptBlock(chunk, 0, chunk, 0);
+            engine.encryptBlock(chunk, 0, chunk, 0);
+            engine.decryptBlock(chunk, 0, chunk, 0);
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Incremental CTR encryption of large files, only chunks whose plaintext changed are re-encrypted.
+ */
+package main;
+
+import cipher.AESEngine;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Performs the --incremental cipher operations of CliCipher
+ * Encryption writes the ciphertext (the same length as the plaintext, without padding or IV) and its
+ * {@link Manifest}. When both exist the plaintext is compared chunk by chunk with the fingerprints of the manifest and
+ * only the chunks which changed (or were appended) are re-encrypted, under their next generation, and written in
+ * place. Decryption checks each chunk against its fingerprint, so corrupt or modified ciphertext is detected.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+final class IncrementalCipher {
+
+    private static final byte[] FINGERPRINT_LABEL = {'A', 'E', 'S', ' ', 'f', 'i', 'n', 'g', 'e', 'r', 'p', 'r', 'i',
+                                                     'n', 't', 0};
+
+    private final Args cliArgs;
+    private final AESEngine key;
+    private final String keyCheck;
+    private final Mac fingerprinter;
+
+    /**
+     * @param cliArgs arguments of the run, --incremental is set
+     * @param key expanded key (only read, so it may be shared with other runs)
+     */
+    IncrementalCipher(Args cliArgs, AESEngine key) {
+        this.cliArgs = cliArgs;
+        this.key = key;
+        byte[] zeroBlock = new byte[16];
+        key.encryptBlock(zeroBlock, 0, zeroBlock, 0);
+        this.keyCheck = HexFormat.of().formatHex(zeroBlock, 0, 4);
+        this.fingerprinter = newFingerprinter(key);
+    }
+
+    /**
+     * @return number of bytes read from the input file
+     * @throws IllegalArgumentException if the output, manifest or key are invalid
+     */
+    long run() throws IOException {
+        return cliArgs.decrypt ? decrypt() : encrypt();
+    }
+
+    /*
+    ------------------------------------------
+              Encryption/Decryption
+    ------------------------------------------
+     */
+
+    /*
+     * Encrypts the chunks of the plaintext which do not match the manifest, in place, then replaces the manifest
+     */
+    private long encrypt() throws IOException {
+        Path output = Paths.get(cliArgs.output);
+        Path manifestPath = Manifest.pathFor(cliArgs.output);
+        Path journalPath = Manifest.journalFor(manifestPath);
+        Manifest manifest;
+        if (Files.exists(manifestPath)) {
+            manifest = Manifest.read(manifestPath);
+            if (!manifest.keyCheck.equals(keyCheck)) {
+                throw new IllegalArgumentException("The key does not match the manifest.");
+            }
+            if (!Files.exists(output)) {
+                throw new IllegalArgumentException("The manifest " + manifestPath + " exists but the ciphertext does not, delete the manifest to encrypt again.");
+            }
+            if (Files.exists(journalPath)) {
+                manifest.applyJournal(journalPath); // interrupted run, its chunks are rewritten
+            }
+        } else if (Files.exists(output)) {
+            throw new IllegalArgumentException("Output file already exists, please specify a unique filename.");
+        } else {
+            manifest = Manifest.create(keyCheck);
+        }
+
+        byte[] chunk = new byte[manifest.chunkSize];
+        long length = 0;
+        FileChannel journal = null;
+        try (InputStream input = Files.newInputStream(Paths.get(cliArgs.filePath));
+             FileChannel cipherText = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            for (int index = 0; ; index++) {
+                int chunkLength = input.readNBytes(chunk, 0, chunk.length);
+                if (chunkLength == 0) {
+                    break;
+                }
+                byte[] fingerprint = fingerprint(chunk, chunkLength);
+                if (!manifest.isUnchanged(index, fingerprint)) {
+                    int generation = manifest.nextGeneration(index);
+                    if (journal == null) {
+                        journal = Manifest.openJournal(journalPath);
+                    }
+                    Manifest.journal(journal, index, generation);
+                    key.counterMode(manifest.counterBlock(index, generation), chunk, 0, chunk, 0, chunkLength);
+                    writeFully(cipherText, ByteBuffer.wrap(chunk, 0, chunkLength), (long) index * manifest.chunkSize);
+                    manifest.update(index, generation, fingerprint);
+                }
+                length += chunkLength;
+                if (chunkLength < chunk.length) {
+                    break;
+                }
+            }
+            if (cipherText.size() > length) {
+                cipherText.truncate(length);
+            }
+            cipherText.force(true);
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+        manifest.setLength(length);
+        manifest.write(manifestPath);
+        Files.deleteIfExists(journalPath);
+        return length;
+    }
+
+    /*
+     * Decrypts the ciphertext with the generations of its manifest, each chunk must match its fingerprint
+     */
+    private long decrypt() throws IOException {
+        Path input = Paths.get(cliArgs.filePath);
+        Path manifestPath = Manifest.pathFor(cliArgs.filePath);
+        if (!Files.exists(manifestPath)) {
+            throw new IllegalArgumentException("No manifest for the ciphertext (" + manifestPath + ").");
+        }
+        if (Files.exists(Manifest.journalFor(manifestPath))) {
+            throw new IllegalArgumentException("The last incremental encryption of the ciphertext was interrupted, run it again before decrypting.");
+        }
+        Manifest manifest = Manifest.read(manifestPath);
+        if (!manifest.keyCheck.equals(keyCheck)) {
+            throw new IllegalArgumentException("The key does not match the manifest.");
+        }
+        if (Files.size(input) != manifest.getLength()) {
+            throw new IllegalArgumentException("The ciphertext does not have the length recorded in its manifest.");
+        }
+        Path output = Paths.get(cliArgs.output);
+        if (Files.exists(output)) {
+            throw new IllegalArgumentException("Output file already exists, please specify a unique filename.");
+        }
+
+        byte[] chunk = new byte[manifest.chunkSize];
+        long remaining = manifest.getLength();
+        try (InputStream cipherText = Files.newInputStream(input);
+             OutputStream plainText = new BufferedOutputStream(Files.newOutputStream(output, StandardOpenOption.CREATE_NEW))) {
+            for (int index = 0; remaining > 0; index++) {
+                int chunkLength = (int) Math.min(chunk.length, remaining);
+                if (cipherText.readNBytes(chunk, 0, chunkLength) != chunkLength) {
+                    throw new IOException("Ciphertext ended before the length recorded in its manifest.");
+                }
+                key.counterMode(manifest.counterBlock(index, manifest.generation(index)), chunk, 0, chunk, 0, chunkLength);
+                if (!MessageDigest.isEqual(fingerprint(chunk, chunkLength), manifest.fingerprint(index))) {
+                    throw new IllegalArgumentException("Chunk " + index + " does not match the manifest, the ciphertext is corrupt or was modified.");
+                }
+                plainText.write(chunk, 0, chunkLength);
+                remaining -= chunkLength;
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            if (!(ex instanceof FileAlreadyExistsException)) {
+                Files.deleteIfExists(output); // unverified plaintext is not left behind
+            }
+            throw ex;
+        }
+        return manifest.getLength();
+    }
+
+    /*
+    ------------------------------------------
+                   Helper Methods
+    ------------------------------------------
+     */
+
+    /*
+     * HMAC-SHA256 of the plaintext of a chunk truncated to 16 bytes, keyed with the encryptions of two label blocks
+     * so the manifest reveals nothing about the plaintext without the key
+     */
+    private byte[] fingerprint(byte[] chunk, int length) {
+        fingerprinter.update(chunk, 0, length);
+        return Arrays.copyOf(fingerprinter.doFinal(), Manifest.FINGERPRINT_LENGTH);
+    }
+
+    private static Mac newFingerprinter(AESEngine key) {
+        byte[] macKey = new byte[32];
+        byte[] label = FINGERPRINT_LABEL.clone();
+        key.encryptBlock(label, 0, macKey, 0);
+        label[15] = 1;
+        key.encryptBlock(label, 0, macKey, 16);
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(macKey, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException gsx) {
+            throw new IllegalStateException("HmacSHA256 is not available.", gsx); // required of every Java platform
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+}
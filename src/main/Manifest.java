@@ -0,0 +1,272 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Chunk manifest of an incrementally encrypted file, stored next to the ciphertext.
+ */
+package main;
+
+import cipher.AESCTRDRBG;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Per chunk state of a file encrypted with --incremental, stored in binary as {@code <ciphertext>.manifest}
+ * The ciphertext is the plaintext ciphered in CTR mode chunk by chunk (1 MiB), chunk i with its own counter block
+ * derived from the nonce of the file, i and the generation of the chunk. A chunk is re-encrypted under the next
+ * generation whenever its fingerprint (a keyed digest of its plaintext) changes, so no counter block is used for
+ * two different plaintexts. Generations are kept for chunks removed by truncation, since they may reappear.
+ * The manifest is replaced atomically like a checkpoint. Generations are recorded in a journal
+ * ({@code <ciphertext>.manifest.journal}, synced) before a chunk is overwritten, so a crash cannot lead to the reuse
+ * of a generation: journaled chunks are treated as changed on the next run.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+final class Manifest {
+
+    static final int CHUNK_SIZE = 1024 * 1024;
+    static final int FINGERPRINT_LENGTH = 16;
+    static final int NONCE_LENGTH = 6;
+    static final int MAX_GENERATION = 0xffff;
+    private static final String SUFFIX = ".manifest";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final byte[] MAGIC = {'A', 'E', 'S', 'M', 'A', 'N', 'I', 0x01};
+    private static final byte[] UNKNOWN = new byte[FINGERPRINT_LENGTH]; // fingerprint of chunks which must be rewritten
+
+    final int chunkSize;
+    final byte[] nonce;
+    final String keyCheck;
+    private long length; // plaintext length
+    private int[] generations;
+    private byte[][] fingerprints;
+    private int recordCount; // chunks which were ever written (including chunks removed by truncation)
+
+    private Manifest(int chunkSize, byte[] nonce, String keyCheck, long length, int recordCount) {
+        this.chunkSize = chunkSize;
+        this.nonce = nonce;
+        this.keyCheck = keyCheck;
+        this.length = length;
+        this.recordCount = recordCount;
+        this.generations = new int[Math.max(16, recordCount)];
+        this.fingerprints = new byte[generations.length][];
+    }
+
+    /**
+     * @return manifest of a new ciphertext with a random nonce
+     */
+    static Manifest create(String keyCheck) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        AESCTRDRBG.current().nextBytes(nonce);
+        return new Manifest(CHUNK_SIZE, nonce, keyCheck, 0, 0);
+    }
+
+    /**
+     * @param cipherText path of the ciphertext
+     * @return path of the manifest for the ciphertext
+     */
+    static Path pathFor(String cipherText) {
+        return Paths.get(cipherText + SUFFIX);
+    }
+
+    static Path journalFor(Path manifest) {
+        return Paths.get(manifest + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Reads a manifest
+     * @throws IllegalArgumentException if the manifest is malformed
+     */
+    static Manifest read(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            byte[] magic = new byte[MAGIC.length];
+            input.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("Not an incremental encryption manifest (" + path + ").");
+            }
+            int chunkSize = input.readInt();
+            long length = input.readLong();
+            byte[] nonce = new byte[NONCE_LENGTH];
+            input.readFully(nonce);
+            byte[] keyCheck = new byte[4];
+            input.readFully(keyCheck);
+            int recordCount = input.readInt();
+            if (chunkSize <= 0 || chunkSize % 16 != 0 || length < 0 || recordCount < 0
+                    || (length + chunkSize - 1) / chunkSize > recordCount) {
+                throw new IllegalArgumentException("Malformed manifest (" + path + ").");
+            }
+            Manifest manifest = new Manifest(chunkSize, nonce, HexFormat.of().formatHex(keyCheck), length, recordCount);
+            for (int i = 0; i < recordCount; i++) {
+                manifest.generations[i] = input.readUnsignedShort();
+                manifest.fingerprints[i] = new byte[FINGERPRINT_LENGTH];
+                input.readFully(manifest.fingerprints[i]);
+            }
+            return manifest;
+        } catch (EOFException eox) {
+            throw new IllegalArgumentException("Truncated manifest (" + path + ").", eox);
+        }
+    }
+
+    /**
+     * Atomically replaces the manifest at path, the ciphertext must be synced before the manifest is written
+     */
+    void write(Path path) throws IOException {
+        Path temporary = Paths.get(path + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file));
+            output.write(MAGIC);
+            output.writeInt(chunkSize);
+            output.writeLong(length);
+            output.write(nonce);
+            output.write(HexFormat.of().parseHex(keyCheck));
+            output.writeInt(recordCount);
+            for (int i = 0; i < recordCount; i++) {
+                output.writeShort(generations[i]);
+                output.write(fingerprints[i]);
+            }
+            output.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Marks the chunks of an interrupted run (recorded in the journal) as changed, their generations are kept
+     */
+    void applyJournal(Path journal) throws IOException {
+        try (InputStream input = Files.newInputStream(journal)) {
+            byte[] entry = new byte[6];
+            while (input.readNBytes(entry, 0, entry.length) == entry.length) { // a torn final entry was never acted on
+                ByteBuffer buffer = ByteBuffer.wrap(entry);
+                int index = buffer.getInt();
+                int generation = buffer.getShort() & 0xffff;
+                ensureRecord(index);
+                generations[index] = Math.max(generations[index], generation);
+                fingerprints[index] = UNKNOWN;
+            }
+        }
+    }
+
+    /**
+     * Records the generation a chunk is about to be written with, synced before the chunk is written
+     */
+    static void journal(FileChannel journal, int index, int generation) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(6).putInt(index).putShort((short) generation).flip();
+        while (entry.hasRemaining()) {
+            journal.write(entry);
+        }
+        journal.force(false);
+    }
+
+    static FileChannel openJournal(Path journal) throws IOException {
+        return FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /*
+    ------------------------------------------
+                    Chunk State
+    ------------------------------------------
+     */
+
+    /**
+     * @return true if the chunk was written with this fingerprint and has not changed since
+     */
+    boolean isUnchanged(int index, byte[] fingerprint) {
+        return index < recordCount && !Arrays.equals(fingerprints[index], UNKNOWN)
+               && Arrays.equals(fingerprints[index], fingerprint);
+    }
+
+    /**
+     * @return generation the chunk must be written with next
+     * @throws IllegalArgumentException if the generations of the chunk are exhausted
+     */
+    int nextGeneration(int index) {
+        if (index >= recordCount) {
+            return 0;
+        }
+        if (generations[index] == MAX_GENERATION) {
+            throw new IllegalArgumentException("Chunk " + index + " has been re-encrypted " + MAX_GENERATION
+                                               + " times. Encrypt the file again without its manifest (new nonce).");
+        }
+        return generations[index] + 1;
+    }
+
+    /**
+     * @return length of the plaintext
+     */
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * @return generation chunk index was written with
+     */
+    int generation(int index) {
+        return generations[index];
+    }
+
+    /**
+     * @return fingerprint of the plaintext of chunk index
+     */
+    byte[] fingerprint(int index) {
+        return fingerprints[index];
+    }
+
+    /**
+     * Sets the plaintext length, chunks past the end keep their generation but must be rewritten if they reappear
+     */
+    void setLength(long length) {
+        this.length = length;
+        for (long i = (length + chunkSize - 1) / chunkSize; i < recordCount; i++) {
+            fingerprints[(int) i] = UNKNOWN;
+        }
+    }
+
+    void update(int index, int generation, byte[] fingerprint) {
+        ensureRecord(index);
+        generations[index] = generation;
+        fingerprints[index] = fingerprint;
+    }
+
+    /**
+     * Counter block of the first block of a chunk: the nonce, chunk index and generation fill the bytes outside of
+     * the counter word (bytes 3, 7, 11 and 15, the incrementation of AESCTR), which starts at 0 for every chunk
+     */
+    byte[] counterBlock(int index, int generation) {
+        byte[] fields = ByteBuffer.allocate(12).put(nonce).putInt(index).putShort((short) generation).array();
+        byte[] counterBlock = new byte[16];
+        for (int i = 0, j = 0; i < 16; i++) {
+            if (i % 4 != 3) {
+                counterBlock[i] = fields[j++];
+            }
+        }
+        return counterBlock;
+    }
+
+    private void ensureRecord(int index) {
+        if (index >= generations.length) {
+            int capacity = Math.max(index + 1, generations.length * 2);
+            generations = Arrays.copyOf(generations, capacity);
+            fingerprints = Arrays.copyOf(fingerprints, capacity);
+        }
+        for (int i = recordCount; i <= index; i++) {
+            fingerprints[i] = UNKNOWN;
+        }
+        recordCount = Math.max(recordCount, index + 1);
+    }
+
+}
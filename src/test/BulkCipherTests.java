@@ -0,0 +1,127 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for bulk single block encryption under many keys
+ */
+package test;
+
+import cipher.AESBulkCipher;
+import cipher.AESKey;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+/**
+ * Unit tests for AESBulkCipher, every block must match AESKey under its own key
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class BulkCipherTests {
+
+    /*
+     * FIPS-197 appendix C vectors, all three key lengths in one call (mixed lanes) and each repeated four times
+     */
+    @Test
+    public void testFipsVectors() {
+        HexFormat hex = HexFormat.of();
+        byte[] block = hex.parseHex("00112233445566778899aabbccddeeff");
+        byte[][] keys = {hex.parseHex("000102030405060708090a0b0c0d0e0f"),
+                         hex.parseHex("000102030405060708090a0b0c0d0e0f1011121314151617"),
+                         hex.parseHex("000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f")};
+        String[] expected = {"69c4e0d86a7b0430d8cdb78070b4c55a", "dda97ca4864cdfe06eaf70a0ec0d7191",
+                             "8ea2b7ca516745bfeafc49904b496089"};
+        byte[][] pairKeys = new byte[15][];
+        byte[] input = new byte[16 * pairKeys.length];
+        for (int i = 0; i < pairKeys.length; i++) {
+            pairKeys[i] = i < 3 ? keys[i] : keys[(i - 3) / 4];
+            System.arraycopy(block, 0, input, 16 * i, 16);
+        }
+        byte[] output = new byte[input.length];
+        AESBulkCipher bulkCipher = new AESBulkCipher(16);
+        bulkCipher.encryptBlocks(pairKeys, input, 0, output, 0);
+        for (int i = 0; i < pairKeys.length; i++) {
+            int vector = i < 3 ? i : (i - 3) / 4;
+            Assert.assertEquals(expected[vector], hex.formatHex(output, 16 * i, 16 * i + 16));
+        }
+        Assert.assertEquals(3, bulkCipher.getCacheMisses());
+
+        byte[] decrypted = new byte[output.length];
+        bulkCipher.decryptBlocks(pairKeys, output, 0, decrypted, 0);
+        Assert.assertArrayEquals(input, decrypted);
+    }
+
+    /*
+     * Random pairs with mixed key lengths, repeated keys, offsets and in place operation against AESKey
+     */
+    @Test
+    public void testMatchesAESKey() {
+        Random random = new Random(46);
+        byte[][] pool = new byte[40][];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new byte[16 + 8 * random.nextInt(3)];
+            random.nextBytes(pool[i]);
+        }
+        AESBulkCipher bulkCipher = new AESBulkCipher(8); // smaller than the pool, so keys are evicted and expanded again
+        for (int trial = 0; trial < 200; trial++) {
+            byte[][] keys = new byte[random.nextInt(40)][];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextInt(4) == 0 && i > 0 ? keys[i - 1] : pool[random.nextInt(pool.length)].clone();
+            }
+            int inOffset = random.nextInt(20);
+            int outOffset = random.nextInt(20);
+            byte[] input = new byte[inOffset + 16 * keys.length];
+            random.nextBytes(input);
+            byte[] expected = new byte[16 * keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                new AESKey(keys[i]).encryptBlock(input, inOffset + 16 * i, expected, 16 * i);
+            }
+            byte[] output = new byte[outOffset + expected.length];
+            bulkCipher.encryptBlocks(keys, input, inOffset, output, outOffset);
+            Assert.assertArrayEquals(expected, Arrays.copyOfRange(output, outOffset, output.length));
+
+            bulkCipher.decryptBlocks(keys, output, outOffset, output, outOffset); // in place
+            Assert.assertArrayEquals(Arrays.copyOfRange(input, inOffset, input.length),
+                                     Arrays.copyOfRange(output, outOffset, output.length));
+        }
+    }
+
+    @Test
+    public void testSchedulesReused() {
+        Random random = new Random(47);
+        byte[][] keys = new byte[64][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new byte[32];
+            random.nextBytes(keys[i]);
+        }
+        byte[] blocks = new byte[16 * keys.length];
+        AESBulkCipher bulkCipher = new AESBulkCipher(keys.length);
+        bulkCipher.encryptBlocks(keys, blocks, 0, new byte[blocks.length], 0);
+        Assert.assertEquals(keys.length, bulkCipher.getCacheMisses());
+        Assert.assertEquals(0, bulkCipher.getCacheHits());
+
+        byte[][] copies = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            copies[i] = keys[keys.length - 1 - i].clone(); // looked up by value
+        }
+        bulkCipher.encryptBlocks(copies, blocks, 0, new byte[blocks.length], 0);
+        Assert.assertEquals(keys.length, bulkCipher.getCacheMisses());
+        Assert.assertEquals(keys.length, bulkCipher.getCacheHits());
+
+        try {
+            bulkCipher.encryptBlocks(new byte[][]{new byte[20]}, blocks, 0, blocks, 0);
+            Assert.fail("Invalid key length was accepted.");
+        } catch (IllegalArgumentException expected) {
+            // keys must be 16, 24, or 32 bytes
+        }
+        try {
+            bulkCipher.encryptBlocks(keys, blocks, 16, blocks, 0);
+            Assert.fail("Short input was accepted.");
+        } catch (IllegalArgumentException expected) {
+            // one block per key
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for interrupted and resumed runs of the command line cipher
+ */
+package test;
+
+import main.Args;
+import main.CliCipher;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import static test.Fixtures.args;
+import static test.Fixtures.randomBytes;
+import static test.Fixtures.setMode;
+import static test.Fixtures.write;
+
+/**
+ * Unit tests for the checkpoints of CliCipher, an interrupted run is simulated by restoring the first checkpoint of a
+ * completed run and garbling the output written after it, the resumed output must match the uninterrupted output
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class CheckpointTests {
+
+    private static final int CHUNK_LENGTH = 64 * 1024; // CliCipher buffer, checkpoints are written between chunks
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /*
+     * The key stream of an append continues inside the last block of the existing ciphertext, so its checkpoints are
+     * not block aligned (regression: resuming from the next counter block shifted the key stream)
+     */
+    @Test
+    public void testResumeUnalignedAppend() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(47);
+        byte[] base = randomBytes(random, 17);
+        byte[] tail = randomBytes(random, 5 * CHUNK_LENGTH + 3);
+        Args args = args(directory, write(directory, "base", base), "out", random);
+        args.counterMode = true;
+        args.noPadding = true;
+        new CliCipher(args).run(null);
+
+        args.filePath = write(directory, "tail", tail).toString();
+        args.append = true;
+        args.checkpointInterval = CHUNK_LENGTH;
+        byte[] appended = interruptAndResume(args);
+
+        byte[] whole = Arrays.copyOf(base, base.length + tail.length);
+        System.arraycopy(tail, 0, whole, base.length, tail.length);
+        args.filePath = write(directory, "whole", whole).toString();
+        args.output = directory.resolve("whole.enc").toString();
+        args.append = false;
+        new CliCipher(args).run(null);
+        Assert.assertArrayEquals(Files.readAllBytes(Paths.get(args.output)), appended);
+    }
+
+    /*
+     * Encryption and decryption in every mode, each interrupted after its first checkpoint and resumed (ciphertext
+     * stealing holds back its final blocks across chunks, so its checkpoints must not count them as written)
+     */
+    @Test
+    public void testResumeEveryMode() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(36);
+        byte[] plainText = randomBytes(random, 5 * CHUNK_LENGTH + 3);
+        Path input = write(directory, "in", plainText);
+        for (String mode : new String[] {"CBC", "CBC-CS3", "CTR", "CFB", "OFB"}) {
+            Args args = args(directory, input, mode, random);
+            setMode(args, mode);
+            args.checkpointInterval = CHUNK_LENGTH;
+            interruptAndResume(args);
+
+            args.filePath = args.output;
+            args.output = directory.resolve(mode + ".dec").toString();
+            args.decrypt = true;
+            Assert.assertArrayEquals(mode, plainText, interruptAndResume(args));
+        }
+    }
+
+    /*
+     * A checkpoint is only resumed with the mode and key it was written with, and only onto the output it describes
+     */
+    @Test
+    public void testResumeRejected() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(37);
+        Args args = args(directory, write(directory, "in", randomBytes(random, 3 * CHUNK_LENGTH)), "out", random);
+        setMode(args, "CTR");
+        args.checkpointInterval = CHUNK_LENGTH;
+        byte[] expected = interrupt(args);
+
+        setMode(args, "CFB");
+        assertResumeRejected(args, "The checkpoint was written by a CTR encryption.");
+        setMode(args, "CTR");
+        args.decrypt = true;
+        assertResumeRejected(args, "The checkpoint was written by a CTR encryption.");
+        args.decrypt = false;
+
+        String keyFilePath = args.keyFilePath;
+        args.keyFilePath = write(directory, "other.key", randomBytes(random, 32)).toString();
+        assertResumeRejected(args, "The key does not match the checkpoint.");
+        args.keyFilePath = keyFilePath;
+        Assert.assertArrayEquals(expected, resume(args)); // the rejected attempts did not spoil the checkpoint
+
+        Files.delete(Paths.get(args.output));
+        interrupt(args);
+        byte[] partial = Files.readAllBytes(Paths.get(args.output));
+        partial[checkpointOffset(args) - 1] ^= 1; // output before the checkpoint was modified
+        Files.write(Paths.get(args.output), partial);
+        assertResumeRejected(args, "The partial output does not match the checkpoint.");
+    }
+
+    private static void assertResumeRejected(Args args, String message) throws IOException {
+        try {
+            resume(args);
+            Assert.fail("Resumed from a checkpoint which does not match: " + message);
+        } catch (IllegalArgumentException expected) {
+            Assert.assertEquals(message, expected.getMessage());
+        }
+    }
+
+    /*
+     * Runs args to completion keeping its first checkpoint: the checkpoint is written to <output>.checkpoint.tmp and
+     * renamed, so a second link to that file keeps the first checkpoint after later checkpoints replace it. The output
+     * is then left as a crash after the first checkpoint would leave it (some of the following output written, and
+     * not necessarily intact).
+     * @return output of the uninterrupted run
+     */
+    private static byte[] interrupt(Args args) throws IOException {
+        Path output = Paths.get(args.output);
+        Path checkpoint = Paths.get(args.output + ".checkpoint");
+        Path firstCheckpoint = Paths.get(args.output + ".first");
+        Files.createLink(firstCheckpoint, Files.createFile(Paths.get(args.output + ".checkpoint.tmp")));
+        new CliCipher(args).run(null);
+        byte[] expected = Files.readAllBytes(output);
+        Assert.assertFalse(Files.exists(checkpoint));
+
+        Files.move(firstCheckpoint, checkpoint);
+        int outputOffset = checkpointOffset(args);
+        Assert.assertTrue(outputOffset > 0 && outputOffset < expected.length);
+        byte[] crashed = Arrays.copyOf(expected, Math.min(expected.length, outputOffset + 1000));
+        Arrays.fill(crashed, outputOffset, crashed.length, (byte) 0x5a);
+        Files.write(output, crashed);
+        return expected;
+    }
+
+    /*
+     * Interrupts args after its first checkpoint and resumes it
+     * @return output of the resumed run, asserted to match the output of the uninterrupted run
+     */
+    private static byte[] interruptAndResume(Args args) throws IOException {
+        byte[] expected = interrupt(args);
+        byte[] resumed = resume(args);
+        Assert.assertArrayEquals(expected, resumed);
+        return resumed;
+    }
+
+    private static byte[] resume(Args args) throws IOException {
+        args.resume = true;
+        try {
+            new CliCipher(args).run(null);
+        } finally {
+            args.resume = false;
+        }
+        Assert.assertFalse(Files.exists(Paths.get(args.output + ".checkpoint")));
+        return Files.readAllBytes(Paths.get(args.output));
+    }
+
+    /*
+     * Output offset of the checkpoint of args, read from the properties file
+     */
+    private static int checkpointOffset(Args args) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(Paths.get(args.output + ".checkpoint"))) {
+            properties.load(input);
+        }
+        return Integer.parseInt(properties.getProperty("outputOffset"));
+    }
+
+}
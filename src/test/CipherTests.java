@@ -6,9 +6,13 @@
 package test;
 
 import cipher.AES;
+import cipher.AESCBC;
 import org.junit.Test;
 import org.junit.Assert;
 
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+
 /**
  * Unit tests for the AES encryption/decryption and CBC mode
  * @author Spencer Little
@@ -123,6 +127,55 @@ public class CipherTests {
         Assert.assertArrayEquals(crypt.getStateArray(), rowsToColumns(outputTwo));
     }
 
+    /*
+     * Same NIST SP 800-38A vector as above, ciphered in place in a direct buffer
+     */
+    @Test
+    public void testCBCModeByteBufferCompliance() throws ShortBufferException {
+        int[][] initKey = {
+                {0x2b, 0x7e, 0x15, 0x16},
+                {0x28, 0xae, 0xd2, 0xa6},
+                {0xab, 0xf7, 0x15, 0x88},
+                {0x09, 0xcf, 0x4f, 0x3c}};
+        int[][] iv = {
+                {0x00, 0x01, 0x02, 0x03},
+                {0x04, 0x05, 0x06, 0x07},
+                {0x08, 0x09, 0x0a, 0x0b},
+                {0x0c, 0x0d, 0x0e, 0x0f}};
+        byte[] plainText = {
+                0x6b, (byte) 0xc1, (byte) 0xbe, (byte) 0xe2, 0x2e, 0x40, (byte) 0x9f, (byte) 0x96,
+                (byte) 0xe9, 0x3d, 0x7e, 0x11, 0x73, (byte) 0x93, 0x17, 0x2a,
+                (byte) 0xae, 0x2d, (byte) 0x8a, 0x57, 0x1e, 0x03, (byte) 0xac, (byte) 0x9c,
+                (byte) 0x9e, (byte) 0xb7, 0x6f, (byte) 0xac, 0x45, (byte) 0xaf, (byte) 0x8e, 0x51};
+        byte[] output = {
+                0x76, 0x49, (byte) 0xab, (byte) 0xac, (byte) 0x81, 0x19, (byte) 0xb2, 0x46,
+                (byte) 0xce, (byte) 0xe9, (byte) 0x8e, (byte) 0x9b, 0x12, (byte) 0xe9, 0x19, 0x7d,
+                0x50, (byte) 0x86, (byte) 0xcb, (byte) 0x9b, 0x50, 0x72, 0x19, (byte) 0xee,
+                (byte) 0x95, (byte) 0xdb, 0x11, 0x3a, (byte) 0x91, 0x76, 0x78, (byte) 0xb2};
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(plainText.length);
+        buffer.put(plainText).flip();
+        new AESCBC(initKey, rowsToColumns(iv)).encrypt(buffer, buffer.duplicate());
+        byte[] encrypted = new byte[output.length];
+        buffer.flip();
+        buffer.get(encrypted).flip();
+
+        Assert.assertArrayEquals(output, encrypted);
+
+        ByteBuffer decrypted = ByteBuffer.allocateDirect(plainText.length);
+        AESCBC crypt = new AESCBC(initKey, rowsToColumns(iv));
+        buffer.limit(16);
+        crypt.decrypt(buffer, decrypted); // decrypt in two calls to check the chaining block is carried
+        buffer.limit(32);
+        crypt.decrypt(buffer, decrypted);
+        byte[] result = new byte[plainText.length];
+        decrypted.flip();
+        decrypted.get(result);
+
+        Assert.assertArrayEquals(plainText, result);
+        Assert.assertEquals(32, buffer.position());
+    }
+
     /*
      * Turns the rows of the matrix into the columns
      */
@@ -0,0 +1,117 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for CBC ciphertext stealing and in place padding
+ */
+package test;
+
+import cipher.AESCTR;
+import cipher.AESEngine;
+import cipher.AESKey;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+/**
+ * Unit tests for AESEngine.encryptCS3/decryptCS3 and the PKCS#7 helpers of AESCTR
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class CiphertextStealingTests {
+
+    /*
+     * RFC 3962 appendix B (AES-128 CTS with a zero IV, the same as CBC-CS3)
+     */
+    @Test
+    public void testRFC3962Vectors() {
+        HexFormat hex = HexFormat.of();
+        AESEngine key = new AESKey(hex.parseHex("636869636b656e207465726979616b69"));
+        byte[] message = "I would like the General Gau's Chicken, please, and wonton soup.".getBytes(StandardCharsets.US_ASCII);
+        int[] lengths = {17, 31, 32, 47, 48, 64};
+        String[] expected = {"c6353568f2bf8cb4d8a580362da7ff7f97",
+                             "fc00783e0efdb2c1d445d4c8eff7ed2297687268d6ecccc0c07b25e25ecfe5",
+                             "39312523a78662d5be7fcbcc98ebf5a897687268d6ecccc0c07b25e25ecfe584",
+                             "97687268d6ecccc0c07b25e25ecfe584b3fffd940c16a18c1b5549d2f838029e39312523a78662d5be7fcbcc98ebf5",
+                             "97687268d6ecccc0c07b25e25ecfe5849dad8bbb96c4cdc03bc103e1a194bbd839312523a78662d5be7fcbcc98ebf5a8",
+                             "97687268d6ecccc0c07b25e25ecfe58439312523a78662d5be7fcbcc98ebf5a84807efe836ee89a526730dbc2f7bc8409dad8bbb96c4cdc03bc103e1a194bbd8"};
+        for (int i = 0; i < lengths.length; i++) {
+            byte[] cipherText = new byte[lengths[i]];
+            key.encryptCS3(new byte[16], message, 0, cipherText, 0, lengths[i]);
+            Assert.assertEquals(expected[i], hex.formatHex(cipherText));
+            byte[] plainText = new byte[lengths[i]];
+            key.decryptCS3(new byte[16], cipherText, 0, plainText, 0, lengths[i]);
+            Assert.assertArrayEquals(Arrays.copyOf(message, lengths[i]), plainText);
+        }
+    }
+
+    /*
+     * The ciphertext keeps the length of the plaintext, every block but the last two is plain CBC, and in place
+     * operation at offsets round trips
+     */
+    @Test
+    public void testLengthPreservingRoundTrip() {
+        Random random = new Random(48);
+        for (int trial = 0; trial < 300; trial++) {
+            byte[] keyBytes = new byte[16 + 8 * random.nextInt(3)];
+            random.nextBytes(keyBytes);
+            AESEngine key = AESEngine.create(keyBytes);
+            byte[] initVector = new byte[16];
+            random.nextBytes(initVector);
+            int length = 16 + random.nextInt(200);
+            int offset = random.nextInt(10);
+            byte[] plainText = new byte[length];
+            random.nextBytes(plainText);
+
+            byte[] buffer = new byte[offset + length + random.nextInt(10)];
+            System.arraycopy(plainText, 0, buffer, offset, length);
+            key.encryptCS3(initVector.clone(), buffer, offset, buffer, offset, length);
+            int plainCBCLength = length <= 32 ? 0 : 16 * ((length - 1) / 16 - 1);
+            byte[] expected = new byte[plainCBCLength];
+            key.encryptCBC(initVector.clone(), plainText, 0, expected, 0, plainCBCLength);
+            Assert.assertArrayEquals(expected, Arrays.copyOfRange(buffer, offset, offset + plainCBCLength));
+
+            key.decryptCS3(initVector.clone(), buffer, offset, buffer, offset, length);
+            Assert.assertArrayEquals(plainText, Arrays.copyOfRange(buffer, offset, offset + length));
+        }
+        try {
+            new AESKey(new byte[16]).encryptCS3(new byte[16], new byte[15], 0, new byte[15], 0, 15);
+            Assert.fail("Input shorter than a block was accepted.");
+        } catch (IllegalArgumentException expected) {
+            // the last two blocks are ciphered together
+        }
+    }
+
+    @Test
+    public void testPaddingInPlace() {
+        for (int length = 0; length < 40; length++) {
+            byte[] buffer = new byte[3 + length + 16];
+            Arrays.fill(buffer, 3, 3 + length, (byte) 0x55);
+            int padded = AESCTR.pad(buffer, 3, length);
+            Assert.assertEquals(16 * (length / 16 + 1), padded);
+            Assert.assertEquals(padded - length, buffer[3 + padded - 1]);
+            Assert.assertEquals(length, AESCTR.unpaddedLength(buffer, 3, padded));
+            Assert.assertArrayEquals(Arrays.copyOfRange(buffer, 3, 3 + padded),
+                                     AESCTR.padByteArray(Arrays.copyOfRange(buffer, 3, 3 + length)));
+        }
+        byte[] invalid = new byte[32];
+        invalid[31] = 2;
+        invalid[30] = 3;
+        try {
+            AESCTR.unpaddedLength(invalid, 0, 32);
+            Assert.fail("Invalid padding was accepted.");
+        } catch (IllegalArgumentException expected) {
+            // every padding byte must hold the padding length
+        }
+        try {
+            AESCTR.pad(new byte[12], 0, 8);
+            Assert.fail("Padding was written past the buffer.");
+        } catch (IllegalArgumentException expected) {
+            // the caller must leave room for the padding
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for the compression stage of the command line cipher
+ */
+package test;
+
+import main.Args;
+import main.CliCipher;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import static test.Fixtures.args;
+import static test.Fixtures.decrypt;
+import static test.Fixtures.randomBytes;
+import static test.Fixtures.setMode;
+import static test.Fixtures.write;
+
+/**
+ * Unit tests for -z, compressed runs are decrypted without -z (the stage is detected from the header written in the
+ * clear ahead of the ciphertext), each test uses a temporary directory
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class CompressionTests {
+
+    private static final String[] MODES = {"CBC", "CTR", "CTR-NOPAD", "CFB", "OFB"};
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCompressibleRoundTrip() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(29);
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; log.length() < 1000000; i++) {
+            log.append("{\"sequence\":").append(i).append(",\"level\":\"INFO\",\"latency\":")
+               .append(random.nextInt(1000)).append("}\n");
+        }
+        byte[] plainText = log.toString().getBytes(StandardCharsets.US_ASCII);
+        byte[] header = compressionHeader(directory, random);
+        for (String mode : MODES) {
+            Args args = compressed(directory, plainText, mode, random);
+            byte[] cipherText = Files.readAllBytes(Paths.get(args.output));
+            Assert.assertArrayEquals(header, Arrays.copyOf(cipherText, header.length));
+            Assert.assertTrue(mode, cipherText.length < plainText.length / 4);
+            Assert.assertArrayEquals(mode, plainText, decrypt(args));
+        }
+    }
+
+    /*
+     * Random data grows slightly when deflated, empty input is only the stream trailer
+     */
+    @Test
+    public void testIncompressibleRoundTrip() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(30);
+        for (byte[] plainText : new byte[][] {randomBytes(random, 300007), randomBytes(random, 1), new byte[0]}) {
+            for (String mode : MODES) {
+                Args args = compressed(directory, plainText, mode, random);
+                Assert.assertArrayEquals(mode + " " + plainText.length, plainText, decrypt(args));
+            }
+        }
+    }
+
+    /*
+     * The header is only read from the ciphertext, a plaintext starting with the header bytes is not a compressed run
+     */
+    @Test
+    public void testHeaderInPlainText() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(31);
+        byte[] header = compressionHeader(directory, random);
+        byte[] plainText = Arrays.copyOf(header, 5000);
+        System.arraycopy(randomBytes(random, 5000 - header.length), 0, plainText, header.length, 5000 - header.length);
+        for (String mode : MODES) {
+            Args args = args(directory, write(directory, mode + ".in", plainText), mode + ".enc", random);
+            setMode(args, mode);
+            new CliCipher(args).run(null);
+            Assert.assertArrayEquals(mode, plainText, decrypt(args));
+
+            args.compress = true;
+            args.output = directory.resolve(mode + ".z").toString();
+            new CliCipher(args).run(null);
+            Assert.assertArrayEquals(mode, plainText, decrypt(args));
+        }
+    }
+
+    /*
+     * Encrypts plainText (written to directory) with -z in mode under a new key and IV, the output name is unique
+     */
+    private static Args compressed(Path directory, byte[] plainText, String mode, Random random) throws IOException {
+        String name = mode + "-" + random.nextInt(Integer.MAX_VALUE);
+        Args args = args(directory, write(directory, name + ".in", plainText), name + ".z", random);
+        setMode(args, mode);
+        args.compress = true;
+        new CliCipher(args).run(null);
+        return args;
+    }
+
+    /*
+     * The header -z writes in the clear, read from the output as the common prefix of two compressed runs under
+     * different keys and IVs
+     */
+    private static byte[] compressionHeader(Path directory, Random random) throws IOException {
+        byte[] first = Files.readAllBytes(Paths.get(compressed(directory, new byte[0], "CBC", random).output));
+        byte[] second = Files.readAllBytes(Paths.get(compressed(directory, new byte[0], "CBC", random).output));
+        byte[] header = Arrays.copyOf(first, Arrays.mismatch(first, second));
+        Assert.assertTrue(header.length > 0 && header.length < 16);
+        return header;
+    }
+
+}
@@ -9,6 +9,24 @@ import cipher.AES;
 import org.junit.Assert;
 import org.junit.Test;
 import cipher.AESCTR;
+import cipher.AESCTRProcessor;
+import cipher.AESKey;
+
+import javax.crypto.ShortBufferException;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static test.Fixtures.randomBytes;
 
 /**
  * Unit tests for CTR mode
@@ -165,6 +183,279 @@ public class CounterModeTests {
         Assert.assertArrayEquals(crypt.counterModeCipher(), outputTwo);
     }
 
+    @Test
+    public void testCounterModeByteBufferUpdate() throws ShortBufferException {
+        int[][] initKey = {
+                {0x2b, 0x7e, 0x15, 0x16},
+                {0x28, 0xae, 0xd2, 0xa6},
+                {0xab, 0xf7, 0x15, 0x88},
+                {0x09, 0xcf, 0x4f, 0x3c}};
+        int[][] initCount = {
+                {0x2b, 0x7e, 0x15, 0x16},
+                {0x28, 0xae, 0xd2, 0xa6},
+                {0xab, 0xf7, 0x15, 0x88},
+                {0x09, 0xcf, 0x4f, 0x3c}};
+        byte[] plainText = new byte[16 * 20];
+        new Random(38).nextBytes(plainText);
+        byte[] expected = new AESCTR(plainText, initKey, deepCopy(initCount)).counterModeCipher();
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(plainText.length);
+        buffer.put(plainText).flip();
+        AESCTR crypt = new AESCTR(initKey, deepCopy(initCount));
+        int[] chunkSizes = {1, 15, 17, 3, 64, 0, 100}; // chunks which do not conform to the block size
+        for (int chunk : chunkSizes) {
+            buffer.limit(buffer.position() + chunk);
+            Assert.assertEquals(chunk, crypt.update(buffer, buffer.duplicate()));
+        }
+        buffer.limit(buffer.capacity());
+        crypt.update(buffer, buffer.duplicate());
+        byte[] result = new byte[plainText.length];
+        buffer.flip();
+        buffer.get(result);
+
+        Assert.assertArrayEquals(expected, result);
+    }
+
+    /*
+     * The interleaved kernel is checked against one block cipher call per counter block, with the 32 bit counter
+     * wrapping inside a run of four blocks
+     */
+    @Test
+    public void testInterleavedKernel() throws ShortBufferException {
+        Random random = new Random(37);
+        for (int keyLength = 16; keyLength <= 32; keyLength += 8) {
+            byte[] key = new byte[keyLength];
+            random.nextBytes(key);
+            AESKey expandedKey = new AESKey(key);
+            byte[] initialCounter = new byte[16];
+            random.nextBytes(initialCounter);
+            initialCounter[3] = initialCounter[7] = initialCounter[11] = (byte) 0xff;
+            initialCounter[15] = (byte) 0xfe;
+            byte[] plainText = new byte[16 * 37 + 5];
+            random.nextBytes(plainText);
+
+            byte[] expected = new byte[plainText.length];
+            byte[] counter = initialCounter.clone();
+            byte[] keyStream = new byte[16];
+            for (int i = 0; i < plainText.length; i += 16) {
+                expandedKey.encryptBlock(counter, 0, keyStream, 0);
+                for (int j = 0; j < 16 && i + j < plainText.length; j++) {
+                    expected[i + j] = (byte) (plainText[i + j] ^ keyStream[j]);
+                }
+                for (int j = 15; j >= 3; j -= 4) { // bytes 3, 7, 11, 15 form the counter
+                    counter[j]++;
+                    if (counter[j] != 0) {
+                        break;
+                    }
+                }
+            }
+
+            byte[] kernelCounter = initialCounter.clone();
+            byte[] result = new byte[plainText.length];
+            expandedKey.counterMode(kernelCounter, plainText, 0, result, 0, plainText.length);
+            Assert.assertArrayEquals(expected, result);
+            Assert.assertArrayEquals(counter, kernelCounter);
+
+            int[][] keyWords = new int[keyLength / 4][4];
+            for (int i = 0; i < keyLength; i++) {
+                keyWords[i / 4][i % 4] = key[i] & 0xff;
+            }
+            int[][] counterBlock = new int[4][4];
+            for (int i = 0; i < 16; i++) {
+                counterBlock[i % 4][i / 4] = initialCounter[i] & 0xff;
+            }
+            int blockLength = plainText.length - plainText.length % 16;
+            byte[] blocks = new byte[blockLength];
+            System.arraycopy(plainText, 0, blocks, 0, blockLength);
+            byte[] cipherBlocks = new AESCTR(blocks, keyWords, counterBlock).counterModeCipher();
+            for (int i = 0; i < blockLength; i++) {
+                Assert.assertEquals(expected[i], cipherBlocks[i]);
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(plainText.clone());
+            AESCTR crypt = new AESCTR(keyWords, counterBlock);
+            buffer.limit(3);
+            crypt.update(buffer, buffer.duplicate());
+            buffer.limit(buffer.capacity());
+            crypt.update(buffer, buffer.duplicate());
+            Assert.assertArrayEquals(expected, buffer.array());
+        }
+    }
+
+    /*
+     * The buffer kernel must match the array kernel for direct, read only and offset (sliced) heap buffers, in place
+     * and with the 32 bit counter wrapping
+     */
+    @Test
+    public void testInterleavedKernelBuffers() {
+        Random random = new Random(37);
+        AESKey expandedKey = new AESKey(randomBytes(random, 32));
+        byte[] initialCounter = randomBytes(random, 16);
+        initialCounter[3] = initialCounter[7] = initialCounter[11] = (byte) 0xff;
+        initialCounter[15] = (byte) 0xf9;
+        byte[] plainText = randomBytes(random, 16 * 37 + 5);
+        byte[] expected = new byte[plainText.length];
+        byte[] expectedCounter = initialCounter.clone();
+        expandedKey.counterMode(expectedCounter, plainText, 0, expected, 0, plainText.length);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(plainText.length + 7).put(7, plainText); // not word aligned
+        byte[] counter = initialCounter.clone();
+        expandedKey.counterMode(counter, direct, 7, direct, 7, plainText.length);
+        Assert.assertArrayEquals(expected, bytesAt(direct, 7, plainText.length));
+        Assert.assertArrayEquals(expectedCounter, counter);
+
+        ByteBuffer readOnly = ByteBuffer.wrap(plainText).asReadOnlyBuffer();
+        ByteBuffer output = ByteBuffer.allocateDirect(plainText.length);
+        counter = initialCounter.clone();
+        expandedKey.counterMode(counter, readOnly, 0, output, 0, plainText.length);
+        Assert.assertArrayEquals(expected, bytesAt(output, 0, plainText.length));
+        Assert.assertArrayEquals(expectedCounter, counter);
+
+        ByteBuffer sliced = ByteBuffer.allocate(plainText.length + 9).position(9).slice().put(0, plainText);
+        counter = initialCounter.clone();
+        expandedKey.counterMode(counter, sliced, 0, sliced, 0, plainText.length); // array offset of 9
+        Assert.assertArrayEquals(expected, bytesAt(sliced, 0, plainText.length));
+        Assert.assertArrayEquals(expectedCounter, counter);
+    }
+
+    private static byte[] bytesAt(ByteBuffer buffer, int index, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(index, bytes);
+        return bytes;
+    }
+
+    /*
+     * Skipping the length of a prefix (partial blocks, a counter wrapping past 2^32, or from inside a partial block)
+     * must continue the key stream exactly where ciphering the prefix would have left it
+     */
+    @Test
+    public void testCounterModeSkip() throws ShortBufferException {
+        Random random = new Random(49);
+        int[][] initKey = new int[8][4];
+        for (int[] row : initKey) {
+            for (int i = 0; i < 4; i++) {
+                row[i] = random.nextInt(256);
+            }
+        }
+        int[][] initCount = new int[4][4];
+        initCount[3] = new int[]{0xff, 0xff, 0xff, 0xfd}; // wraps after three blocks
+        byte[] plainText = new byte[16 * 12];
+        random.nextBytes(plainText);
+        byte[] expected = new AESCTR(plainText, initKey, deepCopy(initCount)).counterModeCipher();
+
+        for (int trial = 0; trial < 50; trial++) {
+            int first = random.nextInt(20);
+            int prefix = first + random.nextInt(plainText.length - first);
+            AESCTR crypt = new AESCTR(initKey, deepCopy(initCount));
+            crypt.update(ByteBuffer.wrap(new byte[first]), ByteBuffer.allocate(first));
+            crypt.skip(prefix - first);
+            ByteBuffer rest = ByteBuffer.wrap(plainText.clone(), prefix, plainText.length - prefix);
+            crypt.update(rest, rest.duplicate());
+            for (int i = prefix; i < plainText.length; i++) {
+                Assert.assertEquals(expected[i], rest.array()[i]);
+            }
+        }
+        try {
+            new AESCTR(initKey, new int[4][4]).skip(-1);
+            Assert.fail("Negative skip was accepted.");
+        } catch (IllegalArgumentException iax) {
+            // the key stream only moves forwards
+        }
+    }
+
+    @Test(expected = ShortBufferException.class)
+    public void testCounterModeShortBuffer() throws ShortBufferException {
+        int[][] initKey = {
+                {0x2b, 0x7e, 0x15, 0x16},
+                {0x28, 0xae, 0xd2, 0xa6},
+                {0xab, 0xf7, 0x15, 0x88},
+                {0x09, 0xcf, 0x4f, 0x3c}};
+        new AESCTR(initKey, new int[4][4]).update(ByteBuffer.allocate(32), ByteBuffer.allocateDirect(16));
+    }
+
+    @Test
+    public void testCounterModeProcessor() throws Exception {
+        int[][] initKey = {
+                {0x2b, 0x7e, 0x15, 0x16},
+                {0x28, 0xae, 0xd2, 0xa6},
+                {0xab, 0xf7, 0x15, 0x88},
+                {0x09, 0xcf, 0x4f, 0x3c}};
+        byte[] plainText = new byte[16 * 20];
+        new Random(35).nextBytes(plainText);
+        byte[] expected = new AESCTR(plainText, initKey, new int[4][4]).counterModeCipher();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CompletableFuture<byte[]> completed = new CompletableFuture<>();
+        try {
+            try (SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>(executor, 4)) {
+                AESCTRProcessor processor = new AESCTRProcessor(initKey, new int[4][4], executor);
+                publisher.subscribe(processor);
+                ByteArrayOutputStream result = new ByteArrayOutputStream();
+                processor.subscribe(new Flow.Subscriber<ByteBuffer>() {
+                    private Flow.Subscription subscription;
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        this.subscription = subscription;
+                        subscription.request(1);
+                    }
+                    public void onNext(ByteBuffer item) {
+                        byte[] chunk = new byte[item.remaining()];
+                        item.get(chunk);
+                        result.write(chunk, 0, chunk.length);
+                        subscription.request(1);
+                    }
+                    public void onError(Throwable throwable) {
+                        completed.completeExceptionally(throwable);
+                    }
+                    public void onComplete() {
+                        completed.complete(result.toByteArray());
+                    }
+                });
+                int[] chunkSizes = {1, 15, 17, 3, 64, 0, 100, 120}; // chunks which do not conform to the block size
+                int position = 0;
+                for (int chunk : chunkSizes) {
+                    publisher.submit(ByteBuffer.wrap(plainText, position, chunk));
+                    position += chunk;
+                }
+            } // closing the publisher completes the stream
+
+            Assert.assertArrayEquals(expected, completed.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCounterModeProcessorBackpressure() {
+        AtomicLong upstreamRequests = new AtomicLong();
+        List<ByteBuffer> received = new ArrayList<>();
+        AESCTRProcessor processor = new AESCTRProcessor(new int[4][4], new int[4][4], Runnable::run);
+        processor.onSubscribe(new Flow.Subscription() {
+            public void request(long n) {
+                upstreamRequests.addAndGet(n);
+            }
+            public void cancel() { }
+        });
+        Flow.Subscription[] downstream = new Flow.Subscription[1];
+        processor.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            public void onSubscribe(Flow.Subscription subscription) {
+                downstream[0] = subscription;
+            }
+            public void onNext(ByteBuffer item) {
+                received.add(item);
+            }
+            public void onError(Throwable throwable) { }
+            public void onComplete() { }
+        });
+
+        Assert.assertEquals(0, upstreamRequests.get());
+        downstream[0].request(2);
+        Assert.assertEquals(2, upstreamRequests.get()); // demand is forwarded one to one
+        processor.onNext(ByteBuffer.allocate(10));
+        processor.onNext(ByteBuffer.allocate(20));
+        Assert.assertEquals(2, received.size());
+        Assert.assertEquals(20, received.get(1).remaining());
+    }
+
     /*
      * Turns the rows of the matrix into the columns
      */
@@ -0,0 +1,91 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for the AES CTR_DRBG
+ */
+package test;
+
+import cipher.AESCTRDRBG;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static test.Fixtures.hexToBytes;
+
+/**
+ * Unit tests for the CTR_DRBG
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class DRBGTests {
+
+    /*
+     * Test vector lifted from NIST CAVP CTR_DRBG test vectors, AES-128 no df, no prediction resistance, COUNT = 0
+     * (https://csrc.nist.gov/projects/cryptographic-algorithm-validation-program/random-number-generators)
+     */
+    @Test
+    public void testDRBGCompliance() {
+        byte[] entropyInput = hexToBytes("ed1e7f21ef66ea5d8e2a85b9337245445b71d6393a4eecb0e63c193d0f72f9a9");
+        byte[] entropyInputReseed = hexToBytes("303fb519f0a4e17d6df0b6426aa0ecb2a36079bd48be47ad2a8dbfe48da3efad");
+        byte[] returnedBits = hexToBytes("f80111d08e874672f32f42997133a5210f7a9375e22cea70587f9cfafebe0f6a" +
+                                         "6aa2eb68e7dd9164536d53fa020fcab20f54caddfab7d6d91e5ffec1dfd8deaa");
+
+        AESCTRDRBG drbg = new AESCTRDRBG(4, entropyInput, new byte[0]);
+        drbg.reseed(entropyInputReseed, new byte[0]);
+        byte[] output = new byte[64];
+        drbg.generate(output, 0, 64, null);
+        drbg.generate(output, 0, 64, null);
+
+        Assert.assertArrayEquals(returnedBits, output);
+    }
+
+    @Test
+    public void testBulkNextBytes() {
+        byte[] output = new byte[(1 << 16) * 3 + 5]; // spans several generate requests and a partial block
+        new AESCTRDRBG().nextBytes(output);
+        byte[] tail = new byte[64];
+        System.arraycopy(output, output.length - 64, tail, 0, 64);
+
+        Assert.assertFalse(Arrays.equals(new byte[64], tail));
+    }
+
+    /*
+     * Short outputs are consecutive slices of one generate request, a reseed discards the rest of it
+     */
+    @Test
+    public void testShortOutputsBuffered() {
+        byte[] entropyInput = hexToBytes("ed1e7f21ef66ea5d8e2a85b9337245445b71d6393a4eecb0e63c193d0f72f9a9");
+        AESCTRDRBG reference = new AESCTRDRBG(4, entropyInput, new byte[0]);
+        byte[] expected = new byte[2 * 4096];
+        reference.generate(expected, 0, 4096, null);
+        reference.generate(expected, 4096, 4096, null); // refills the buffer
+
+        AESCTRDRBG drbg = new AESCTRDRBG(4, entropyInput, new byte[0]);
+        byte[] output = new byte[4096 + 48];
+        for (int i = 0; i < 4096; i += 16) {
+            drbg.nextBytes(output, i, 16);
+        }
+        drbg.nextBytes(output, 4096, 48);
+        Assert.assertArrayEquals(Arrays.copyOf(expected, 4096 + 48), output);
+
+        reference.reseed(entropyInput, new byte[0]);
+        drbg.reseed(entropyInput, new byte[0]);
+        reference.generate(expected, 0, 16, null);
+        drbg.nextBytes(output, 0, 16);
+        Assert.assertArrayEquals(Arrays.copyOf(expected, 16), Arrays.copyOf(output, 16));
+    }
+
+    @Test
+    public void testThreadLocalInstances() throws InterruptedException {
+        AtomicReference<AESCTRDRBG> other = new AtomicReference<>();
+        Thread thread = new Thread(() -> other.set(AESCTRDRBG.current()));
+        thread.start();
+        thread.join();
+
+        Assert.assertSame(AESCTRDRBG.current(), AESCTRDRBG.current());
+        Assert.assertNotSame(AESCTRDRBG.current(), other.get());
+    }
+
+}
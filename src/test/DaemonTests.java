@@ -0,0 +1,143 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for the resident cipher daemon
+ */
+package test;
+
+import com.beust.jcommander.JCommander;
+import main.Args;
+import main.CliCipher;
+import main.CliDaemon;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static test.Fixtures.concat;
+import static test.Fixtures.randomBytes;
+
+/**
+ * Unit tests for CliDaemon, each test uses a temporary directory for its socket and files
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class DaemonTests {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /*
+     * The socket is only ever visible at its path with owner only permissions, the directory it was bound in is removed
+     */
+    @Test
+    public void testSocketPermissions() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Path socketPath = directory.resolve("aes.sock");
+        Files.createFile(socketPath); // left by a previous daemon
+        try (ServerSocketChannel server = new CliDaemon(socketPath).bind();
+             SocketChannel client = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            Assert.assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(socketPath));
+            List<Path> entries;
+            try (Stream<Path> list = Files.list(directory)) {
+                entries = list.collect(Collectors.toList());
+            }
+            Assert.assertEquals(List.of(socketPath), entries);
+
+            Assert.assertTrue(client.connect(UnixDomainSocketAddress.of(socketPath)));
+            server.accept().close();
+        }
+    }
+
+    /*
+     * Requests share the expanded keys cached by the daemon, their output must match standalone runs in every mode
+     * (the second request of each key is served from the cache)
+     */
+    @Test
+    public void testRequestsMatchStandaloneRuns() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(28);
+        byte[] plainText = randomBytes(random, 100003);
+        Path input = Files.write(directory.resolve("in"), plainText);
+        Path key = Files.write(directory.resolve("key"), randomBytes(random, 32));
+        Path newKey = Files.write(directory.resolve("newkey"), randomBytes(random, 24));
+        Path iv = Files.write(directory.resolve("iv"), randomBytes(random, 16));
+        CliDaemon daemon = new CliDaemon(directory.resolve("aes.sock"));
+        String[][] modes = {{}, {"--no-padding"}, {"-CTR"}, {"-CTR", "--no-padding"}, {"-CFB"}, {"-OFB"}};
+        for (int i = 0; i < modes.length; i++) {
+            Path encrypted = directory.resolve("enc" + i);
+            Path standalone = directory.resolve("standalone" + i);
+            Path decrypted = directory.resolve("dec" + i);
+            String[] options = concat(new String[] {"-k", key.toString(), "-v", iv.toString()}, modes[i]);
+            assertOK(daemon.handleRequest(concat(new String[] {"-f", input.toString(), "-o", encrypted.toString()}, options)));
+            run(concat(new String[] {"-f", input.toString(), "-o", standalone.toString()}, options));
+            Assert.assertArrayEquals(Files.readAllBytes(standalone), Files.readAllBytes(encrypted));
+
+            assertOK(daemon.handleRequest(concat(new String[] {"-f", encrypted.toString(), "-o", decrypted.toString(), "-d"}, options)));
+            Assert.assertArrayEquals(plainText, Files.readAllBytes(decrypted));
+        }
+
+        for (String[] mode : new String[][] {{}, {"-CTR"}}) { // re-encryption keeps the IV, so the output is fixed
+            String[] options = concat(new String[] {"-f", directory.resolve(mode.length == 0 ? "enc0" : "enc2").toString(),
+                                                    "-k", key.toString(), "-v", iv.toString(), "-R", newKey.toString()}, mode);
+            Path rekeyed = directory.resolve("rekeyed" + mode.length);
+            Path standalone = directory.resolve("standalone-rekeyed" + mode.length);
+            assertOK(daemon.handleRequest(concat(new String[] {"-o", rekeyed.toString()}, options)));
+            run(concat(new String[] {"-o", standalone.toString()}, options));
+            Assert.assertArrayEquals(Files.readAllBytes(standalone), Files.readAllBytes(rekeyed));
+        }
+
+        // incremental runs draw a new nonce, so their requests are checked by decrypting each other's output
+        Path incremental = directory.resolve("incremental");
+        Path decrypted = directory.resolve("incremental.dec");
+        assertOK(daemon.handleRequest(new String[] {"-f", input.toString(), "-o", incremental.toString(),
+                                                    "-k", key.toString(), "--incremental"}));
+        run(new String[] {"-f", incremental.toString(), "-o", decrypted.toString(), "-k", key.toString(),
+                          "--incremental", "-d"});
+        Assert.assertArrayEquals(plainText, Files.readAllBytes(decrypted));
+        Files.write(input, randomBytes(random, 100003));
+        assertOK(daemon.handleRequest(new String[] {"-f", input.toString(), "-o", incremental.toString(),
+                                                    "-k", key.toString(), "--incremental"}));
+        Files.delete(decrypted);
+        assertOK(daemon.handleRequest(new String[] {"-f", incremental.toString(), "-o", decrypted.toString(),
+                                                    "-k", key.toString(), "--incremental", "-d"}));
+        Assert.assertArrayEquals(Files.readAllBytes(input), Files.readAllBytes(decrypted));
+    }
+
+    @Test
+    public void testRequestErrors() {
+        CliDaemon daemon = new CliDaemon(Path.of("unused.sock"));
+        Assert.assertTrue(daemon.handleRequest(new String[] {"-f", "in"}).startsWith("ERROR "));
+        Assert.assertEquals("ERROR Standard input and output are not available to daemon requests.",
+                            daemon.handleRequest(new String[] {"-f", "-", "-o", "out", "-k", "key", "-g"}));
+        Assert.assertTrue(daemon.handleRequest(new String[] {"-f", "missing", "-o", "out", "-k", "missing", "-g"})
+                                .startsWith("ERROR "));
+    }
+
+    private static void assertOK(String response) {
+        Assert.assertTrue(response, response.startsWith("OK "));
+    }
+
+    /*
+     * Runs the arguments in this JVM as a command line invocation would, without a key cache
+     */
+    private static void run(String[] argv) throws IOException {
+        Args cliArgs = new Args();
+        JCommander.newBuilder().addObject(cliArgs).build().parse(argv);
+        new CliCipher(cliArgs).run(null);
+    }
+
+}
@@ -0,0 +1,376 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Randomized differential tests of the cipher implementations against the reference AES methods and javax.crypto
+ */
+package test;
+
+import cipher.AES;
+import cipher.AESCBC;
+import cipher.AESCFB;
+import cipher.AESCTR;
+import cipher.AESKey;
+import cipher.AESOCB;
+import cipher.AESOFB;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static test.Fixtures.randomBytes;
+
+/**
+ * Differential tests which gate optimized engines and modes: every path must produce the same bytes as the
+ * reference {@code AES.cipher()}/{@code invCipher()} methods and the JDK AES implementation for random keys of every
+ * size, random data, lengths which do not conform to the block size and random split points.
+ * Seeds are fixed so failures are reproducible.
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class DifferentialTests {
+
+    private static final int[] KEY_SIZES = {16, 24, 32};
+
+    @Test
+    public void testBlockCipherAgainstReferenceAndJdk() throws Exception {
+        Random random = new Random(197);
+        for (int keyLength : KEY_SIZES) {
+            for (int i = 0; i < 100; i++) {
+                byte[] key = randomBytes(random, keyLength);
+                byte[] block = randomBytes(random, 16);
+                byte[] expected = jdkCipher("AES/ECB/NoPadding", key, null, block);
+
+                AES reference = new AES();
+                reference.initializeRoundKeys(toKeyWords(key));
+                reference.keyExpansion();
+                reference.setState(toState(block));
+                reference.cipher();
+                Assert.assertArrayEquals(expected, fromState(reference.getStateArray()));
+                reference.invCipher();
+                Assert.assertArrayEquals(block, fromState(reference.getStateArray()));
+
+                byte[] output = new byte[16];
+                reference.encryptBlock(block, 0, output, 0);
+                Assert.assertArrayEquals(expected, output);
+                reference.decryptBlock(output, 0, output, 0);
+                Assert.assertArrayEquals(block, output);
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+                buffer.put(block).flip();
+                reference.encryptBlock(buffer, buffer.duplicate());
+                Assert.assertArrayEquals(expected, contents(buffer));
+
+                AESKey expandedKey = new AESKey(key);
+                expandedKey.encryptBlock(block, 0, output, 0);
+                Assert.assertArrayEquals(expected, output);
+                expandedKey.decryptBlock(output, 0, output, 0);
+                Assert.assertArrayEquals(block, output);
+            }
+        }
+    }
+
+    /*
+     * PKCS#7 padded CBC, split into random block aligned pieces
+     */
+    @Test
+    public void testCBCAgainstJdk() throws Exception {
+        Random random = new Random(38);
+        for (int keyLength : KEY_SIZES) {
+            for (int i = 0; i < 25; i++) {
+                byte[] key = randomBytes(random, keyLength);
+                byte[] iv = randomBytes(random, 16);
+                byte[] plainText = randomBytes(random, random.nextInt(600));
+                byte[] expected = jdkCipher("AES/CBC/PKCS5Padding", key, iv, plainText);
+
+                byte[] padded = AESCTR.padByteArray(plainText);
+                ByteBuffer buffer = ByteBuffer.allocateDirect(padded.length);
+                buffer.put(padded).flip();
+                AESCBC crypt = new AESCBC(toKeyWords(key), toState(iv));
+                for (int limit : randomSplitPoints(random, padded.length, 16)) {
+                    buffer.limit(limit);
+                    crypt.encrypt(buffer, buffer.duplicate());
+                }
+                Assert.assertArrayEquals(expected, contents(buffer));
+
+                buffer.rewind();
+                crypt = new AESCBC(toKeyWords(key), toState(iv));
+                for (int limit : randomSplitPoints(random, padded.length, 16)) {
+                    buffer.limit(limit);
+                    crypt.decrypt(buffer, buffer.duplicate());
+                }
+                Assert.assertArrayEquals(plainText, AESCTR.removePadding(contents(buffer)));
+
+                byte[] chainingBlock = iv.clone();
+                byte[] output = padded.clone();
+                new AESKey(key).encryptCBC(chainingBlock, output, 0, output, 0, output.length);
+                Assert.assertArrayEquals(expected, output);
+                chainingBlock = iv.clone();
+                new AESKey(key).decryptCBC(chainingBlock, output, 0, output, 0, output.length);
+                Assert.assertArrayEquals(padded, output);
+            }
+        }
+    }
+
+    /*
+     * Streaming CTR split into random (unaligned) pieces and padded counterModeCipher() against a model of the counter
+     * incrementation (last row of the state as a 32 bit word, mod 2^32) built on the JDK block cipher
+     */
+    @Test
+    public void testCTRAgainstJdk() throws Exception {
+        Random random = new Random(3838);
+        for (int keyLength : KEY_SIZES) {
+            for (int i = 0; i < 25; i++) {
+                byte[] key = randomBytes(random, keyLength);
+                byte[] counter = randomBytes(random, 16);
+                byte[] plainText = randomBytes(random, random.nextInt(700));
+                byte[] expected = modelCounterMode(key, counter, plainText);
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(plainText.length);
+                buffer.put(plainText).flip();
+                AESCTR crypt = new AESCTR(toKeyWords(key), toState(counter));
+                for (int limit : randomSplitPoints(random, plainText.length, 1)) {
+                    buffer.limit(limit);
+                    crypt.update(buffer, buffer.duplicate());
+                }
+                Assert.assertArrayEquals(expected, contents(buffer));
+
+                byte[] padded = AESCTR.padByteArray(plainText);
+                crypt.setInternalState(padded, toKeyWords(key), toState(counter));
+                Assert.assertArrayEquals(modelCounterMode(key, counter, padded), crypt.counterModeCipher());
+
+                byte[] output = new byte[plainText.length];
+                byte[] counterBlock = counter.clone();
+                new AESKey(key).counterMode(counterBlock, plainText, 0, output, 0, plainText.length);
+                Assert.assertArrayEquals(expected, output);
+            }
+        }
+    }
+
+    /*
+     * CFB (parallel decryption with random segment counts) and OFB (with key stream precomputed at random points)
+     * split into random (unaligned) pieces against the JDK
+     */
+    @Test
+    public void testFeedbackModesAgainstJdk() throws Exception {
+        Random random = new Random(8003);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int keyLength : KEY_SIZES) {
+                for (int i = 0; i < 25; i++) {
+                    byte[] key = randomBytes(random, keyLength);
+                    byte[] iv = randomBytes(random, 16);
+                    byte[] plainText = randomBytes(random, random.nextInt(3000));
+                    byte[] expected = jdkCipher("AES/CFB/NoPadding", key, iv, plainText);
+
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(plainText.length);
+                    buffer.put(plainText).flip();
+                    AESCFB feedbackCrypt = new AESCFB(toKeyWords(key), toState(iv));
+                    for (int limit : randomSplitPoints(random, plainText.length, 1)) {
+                        buffer.limit(limit);
+                        feedbackCrypt.encrypt(buffer, buffer.duplicate());
+                    }
+                    Assert.assertArrayEquals(expected, contents(buffer));
+
+                    buffer.rewind();
+                    feedbackCrypt = new AESCFB(toKeyWords(key), toState(iv));
+                    for (int limit : randomSplitPoints(random, plainText.length, 1)) {
+                        buffer.limit(limit);
+                        feedbackCrypt.decrypt(buffer, buffer.duplicate(), executor, 1 + random.nextInt(9));
+                    }
+                    Assert.assertArrayEquals(plainText, contents(buffer));
+
+                    expected = jdkCipher("AES/OFB/NoPadding", key, iv, plainText);
+                    buffer.rewind();
+                    AESOFB outputCrypt = new AESOFB(toKeyWords(key), toState(iv));
+                    for (int limit : randomSplitPoints(random, plainText.length, 1)) {
+                        outputCrypt.precompute(random.nextInt(100));
+                        buffer.limit(limit);
+                        outputCrypt.update(buffer, buffer.duplicate());
+                    }
+                    Assert.assertArrayEquals(expected, contents(buffer));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCounterWraparound() throws Exception {
+        Random random = new Random(232);
+        for (int keyLength : KEY_SIZES) {
+            byte[] key = randomBytes(random, keyLength);
+            byte[] counter = randomBytes(random, 16);
+            counter[3] = (byte) 0xff; // the incremented word is the last row of the state (bytes 3, 7, 11, 15)
+            counter[7] = (byte) 0xff;
+            counter[11] = (byte) 0xff;
+            counter[15] = (byte) 0xfe;
+            byte[] plainText = new byte[16 * 4];
+
+            byte[] keyStream = new AESCTR(plainText, toKeyWords(key), toState(counter)).counterModeCipher();
+            byte[] wrapped = counter.clone();
+            wrapped[3] = wrapped[7] = wrapped[11] = wrapped[15] = 0;
+
+            Assert.assertArrayEquals(modelCounterMode(key, counter, plainText), keyStream);
+            byte[] counterBlock = counter.clone();
+            new AESKey(key).counterMode(counterBlock, plainText, 0, plainText, 0, plainText.length);
+            Assert.assertArrayEquals(keyStream, plainText);
+            Assert.assertArrayEquals(jdkCipher("AES/ECB/NoPadding", key, null, wrapped),
+                                     Arrays.copyOfRange(keyStream, 32, 48));
+        }
+    }
+
+    /*
+     * Parallel OCB with random segment counts (and so random split points) against the sequential implementation
+     */
+    @Test
+    public void testParallelSplitPoints() throws Exception {
+        Random random = new Random(7253);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int keyLength : KEY_SIZES) {
+                AESOCB crypt = new AESOCB(toKeyWords(randomBytes(random, keyLength)));
+                for (int i = 0; i < 10; i++) {
+                    byte[] nonce = randomBytes(random, 1 + random.nextInt(15));
+                    byte[] associatedData = randomBytes(random, random.nextInt(64));
+                    byte[] plainText = randomBytes(random, random.nextInt(2000));
+                    int segments = 1 + random.nextInt(9);
+                    byte[] expected = crypt.encrypt(nonce, associatedData, plainText);
+
+                    byte[] cipherText = crypt.encrypt(nonce, associatedData, plainText, executor, segments);
+                    Assert.assertArrayEquals(expected, cipherText);
+                    Assert.assertArrayEquals(plainText, crypt.decrypt(nonce, associatedData, cipherText, executor, segments));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /*
+     * One AESKey shared by several threads, each with its own counter, must match the single threaded result
+     */
+    @Test
+    public void testSharedKeyAcrossThreads() throws Exception {
+        Random random = new Random(32);
+        byte[] key = randomBytes(random, 32);
+        AESKey sharedKey = new AESKey(key);
+        byte[][] plainTexts = new byte[8][];
+        byte[][] counters = new byte[8][];
+        for (int i = 0; i < plainTexts.length; i++) {
+            plainTexts[i] = randomBytes(random, 4096 + random.nextInt(100));
+            counters[i] = randomBytes(random, 16);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] results = new Future<?>[plainTexts.length];
+            for (int i = 0; i < plainTexts.length; i++) {
+                byte[] plainText = plainTexts[i];
+                byte[] counter = counters[i].clone();
+                results[i] = executor.submit(() -> {
+                    byte[] output = new byte[plainText.length];
+                    sharedKey.counterMode(counter, plainText, 0, output, 0, plainText.length);
+                    return output;
+                });
+            }
+            for (int i = 0; i < plainTexts.length; i++) {
+                Assert.assertArrayEquals(modelCounterMode(key, counters[i], plainTexts[i]), (byte[]) results[i].get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /*
+    ------------------------------------------
+                  Model/Helper Methods
+    ------------------------------------------
+     */
+
+    private byte[] modelCounterMode(byte[] key, byte[] initialCounter, byte[] input) throws Exception {
+        byte[] output = new byte[input.length];
+        byte[] counter = initialCounter.clone();
+        for (int i = 0; i < input.length; i += 16) {
+            byte[] keyStream = jdkCipher("AES/ECB/NoPadding", key, null, counter);
+            for (int j = i; j < Math.min(i + 16, input.length); j++) {
+                output[j] = (byte) (input[j] ^ keyStream[j - i]);
+            }
+            long word = ((counter[3] & 0xffL) << 24) | ((counter[7] & 0xff) << 16) | ((counter[11] & 0xff) << 8) | (counter[15] & 0xff);
+            word = (word + 1) & 0xffffffffL;
+            counter[3] = (byte) (word >>> 24);
+            counter[7] = (byte) (word >>> 16);
+            counter[11] = (byte) (word >>> 8);
+            counter[15] = (byte) word;
+        }
+        return output;
+    }
+
+    private byte[] jdkCipher(String transformation, byte[] key, byte[] iv, byte[] input) throws Exception {
+        Cipher cipher = Cipher.getInstance(transformation);
+        if (iv == null) {
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+        } else {
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+        }
+        return cipher.doFinal(input);
+    }
+
+    /*
+     * Random increasing limits ending at length, every limit is a multiple of alignment
+     */
+    private int[] randomSplitPoints(Random random, int length, int alignment) {
+        int[] limits = new int[1 + random.nextInt(5)];
+        for (int i = 0; i < limits.length - 1; i++) {
+            limits[i] = (random.nextInt(length + 1) / alignment) * alignment;
+        }
+        limits[limits.length - 1] = length;
+        Arrays.sort(limits);
+        return limits;
+    }
+
+    private byte[] contents(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.capacity()];
+        ByteBuffer view = buffer.duplicate();
+        view.clear();
+        view.get(bytes);
+        return bytes;
+    }
+
+    private int[][] toKeyWords(byte[] key) {
+        int[][] words = new int[key.length / 4][4];
+        for (int i = 0; i < words.length; i++) {
+            for (int j = 0; j < 4; j++) {
+                words[i][j] = key[(i*4) + j] & 0xff;
+            }
+        }
+        return words;
+    }
+
+    private int[][] toState(byte[] block) {
+        int[][] state = new int[4][4];
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                state[j][i] = block[j + (i*4)] & 0xff;
+            }
+        }
+        return state;
+    }
+
+    private byte[] fromState(int[][] state) {
+        byte[] block = new byte[16];
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                block[j + (i*4)] = (byte) state[j][i];
+            }
+        }
+        return block;
+    }
+}
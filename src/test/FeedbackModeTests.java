@@ -0,0 +1,95 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for the CFB and OFB mode functions of AES
+ */
+package test;
+
+import cipher.AESCFB;
+import cipher.AESOFB;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static test.Fixtures.hexToBytes;
+
+/**
+ * Unit tests for CFB and OFB mode
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class FeedbackModeTests {
+
+    private static final int[][] KEY = {
+            {0x2b, 0x7e, 0x15, 0x16},
+            {0x28, 0xae, 0xd2, 0xa6},
+            {0xab, 0xf7, 0x15, 0x88},
+            {0x09, 0xcf, 0x4f, 0x3c}};
+    private static final int[][] INIT_VECTOR = { // state layout, bytes 00 01 02 ... 0f
+            {0x00, 0x04, 0x08, 0x0c},
+            {0x01, 0x05, 0x09, 0x0d},
+            {0x02, 0x06, 0x0a, 0x0e},
+            {0x03, 0x07, 0x0b, 0x0f}};
+    private static final byte[] PLAIN_TEXT = hexToBytes("6bc1bee22e409f96e93d7e117393172aae2d8a571e03ac9c9eb76fac45af8e51" +
+                                                        "30c81c46a35ce411e5fbc1191a0a52eff69f2445df4f9b17ad2b417be66c3710");
+
+    /*
+     * Test vector lifted from NIST SP 800-38A F.3.13 (https://nvlpubs.nist.gov/nistpubs/Legacy/SP/nistspecialpublication800-38a.pdf)
+     */
+    @Test
+    public void testCipherFeedbackModeCompliance() throws ShortBufferException {
+        byte[] cipherText = hexToBytes("3b3fd92eb72dad20333449f8e83cfb4ac8a64537a0b3a93fcde3cdad9f1ce58b" +
+                                       "26751f67a3cbb140b1808cf187a4f4dfc04b05357c5d1c0eeac4c66f9ff7f2e6");
+        ByteBuffer output = ByteBuffer.allocate(PLAIN_TEXT.length);
+        new AESCFB(KEY, INIT_VECTOR).encrypt(ByteBuffer.wrap(PLAIN_TEXT), output);
+        Assert.assertArrayEquals(cipherText, output.array());
+
+        output.clear();
+        new AESCFB(KEY, INIT_VECTOR).decrypt(ByteBuffer.wrap(cipherText), output);
+        Assert.assertArrayEquals(PLAIN_TEXT, output.array());
+    }
+
+    @Test
+    public void testParallelCipherFeedbackDecryption() throws ShortBufferException {
+        byte[] plainText = new byte[(1 << 16) + 7];
+        for (int i = 0; i < plainText.length; i++) {
+            plainText[i] = (byte) (i * 31);
+        }
+        ByteBuffer cipherText = ByteBuffer.allocate(plainText.length);
+        new AESCFB(KEY, INIT_VECTOR).encrypt(ByteBuffer.wrap(plainText), cipherText);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            cipherText.flip();
+            new AESCFB(KEY, INIT_VECTOR).decrypt(cipherText, cipherText.duplicate(), executor, 4); // in place
+            Assert.assertArrayEquals(plainText, cipherText.array());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /*
+     * Test vector lifted from NIST SP 800-38A F.4.1 (https://nvlpubs.nist.gov/nistpubs/Legacy/SP/nistspecialpublication800-38a.pdf)
+     */
+    @Test
+    public void testOutputFeedbackModeCompliance() throws ShortBufferException {
+        byte[] cipherText = hexToBytes("3b3fd92eb72dad20333449f8e83cfb4a7789508d16918f03f53c52dac54ed825" +
+                                       "9740051e9c5fecf64344f7a82260edcc304c6528f659c77866a510d9c1d6ae5e");
+        AESOFB crypt = new AESOFB(KEY, INIT_VECTOR);
+        crypt.precompute(40);
+        Assert.assertEquals(48, crypt.available());
+
+        ByteBuffer output = ByteBuffer.allocate(PLAIN_TEXT.length);
+        crypt.update(ByteBuffer.wrap(PLAIN_TEXT), output);
+        Assert.assertArrayEquals(cipherText, output.array());
+
+        output.clear();
+        new AESOFB(KEY, INIT_VECTOR).update(ByteBuffer.wrap(cipherText), output);
+        Assert.assertArrayEquals(PLAIN_TEXT, output.array());
+    }
+
+}
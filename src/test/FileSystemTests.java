@@ -0,0 +1,241 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for the encrypted file system provider
+ */
+package test;
+
+import cipher.AESKey;
+import fs.AESFileSystem;
+import fs.AESFileSystemProvider;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Unit tests for AESFileSystemProvider, each test opens a temporary directory as an encrypted file system
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class FileSystemTests {
+
+    private static final byte[] KEY = {0x2b, 0x7e, 0x15, 0x16, 0x28, (byte) 0xae, (byte) 0xd2, (byte) 0xa6,
+                                       (byte) 0xab, (byte) 0xf7, 0x15, (byte) 0x88, 0x09, (byte) 0xcf, 0x4f, 0x3c};
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /*
+     * The file on disk is the initial counter block followed by the plaintext ciphered with AESKey.counterMode
+     */
+    @Test
+    public void testFilesRoundTrip() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (AESFileSystem fileSystem = openFileSystem(directory)) {
+            byte[] data = new byte[100_003];
+            new Random(43).nextBytes(data);
+            Path path = fileSystem.getPath("/notes.bin");
+            Files.write(path, data);
+            Assert.assertArrayEquals(data, Files.readAllBytes(path));
+            Assert.assertEquals(data.length, Files.size(path));
+
+            byte[] raw = Files.readAllBytes(directory.resolve("notes.bin"));
+            Assert.assertEquals(16 + data.length, raw.length);
+            byte[] expected = new byte[data.length];
+            new AESKey(KEY).counterMode(Arrays.copyOf(raw, 16), data, 0, expected, 0, data.length);
+            Assert.assertArrayEquals(expected, Arrays.copyOfRange(raw, 16, raw.length));
+
+            Files.write(path, data); // truncated on open, a new counter block is chosen
+            byte[] rewritten = Files.readAllBytes(directory.resolve("notes.bin"));
+            Assert.assertFalse(Arrays.equals(Arrays.copyOf(raw, 16), Arrays.copyOf(rewritten, 16)));
+            Assert.assertArrayEquals(data, Files.readAllBytes(path));
+        }
+    }
+
+    /*
+     * Random positional reads, writes (including past the end) and truncations must match a plain byte array model
+     * The cache holds 8 pages, so pages are evicted and re-read throughout
+     */
+    @Test
+    public void testRandomAccess() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (AESFileSystem fileSystem = openFileSystem(directory)) {
+            Random random = new Random(44);
+            byte[] model = new byte[0];
+            Path path = fileSystem.getPath("data.bin");
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                        StandardOpenOption.WRITE)) {
+                for (int step = 0; step < 2000; step++) {
+                    int operation = random.nextInt(10);
+                    if (operation < 4) { // write
+                        int position = random.nextInt(model.length + 5000);
+                        byte[] data = new byte[random.nextInt(10000)];
+                        random.nextBytes(data);
+                        Assert.assertEquals(data.length, channel.write(ByteBuffer.wrap(data), position));
+                        model = Arrays.copyOf(model, Math.max(model.length, position + data.length));
+                        System.arraycopy(data, 0, model, position, data.length);
+                    } else if (operation < 9) { // read
+                        int position = random.nextInt(model.length + 100);
+                        ByteBuffer buffer = ByteBuffer.allocate(1 + random.nextInt(20000));
+                        int count = channel.read(buffer, position);
+                        if (position >= model.length) {
+                            Assert.assertEquals(-1, count);
+                        } else {
+                            int expected = Math.min(buffer.capacity(), model.length - position);
+                            Assert.assertEquals(expected, count);
+                            Assert.assertArrayEquals(Arrays.copyOfRange(model, position, position + expected),
+                                                     Arrays.copyOf(buffer.array(), expected));
+                        }
+                    } else if (model.length > 0) { // truncate
+                        int size = random.nextInt(model.length);
+                        channel.truncate(size);
+                        model = Arrays.copyOf(model, size);
+                    }
+                    Assert.assertEquals(model.length, channel.size());
+                }
+            }
+            Assert.assertArrayEquals(model, Files.readAllBytes(path));
+        }
+    }
+
+    @Test
+    public void testHotPagesServedFromCache() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (AESFileSystem fileSystem = openFileSystem(directory)) {
+            byte[] data = new byte[4 * 4096];
+            new Random(45).nextBytes(data);
+            Path path = fileSystem.getPath("hot.bin");
+            Files.write(path, data);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(4096);
+                channel.read(buffer, 4096);
+                long misses = fileSystem.getCacheMisses();
+                long hits = fileSystem.getCacheHits();
+                for (int i = 0; i < 10; i++) {
+                    buffer.clear();
+                    channel.read(buffer, 4096);
+                    Assert.assertArrayEquals(Arrays.copyOfRange(data, 4096, 8192), buffer.array());
+                }
+                Assert.assertEquals(misses, fileSystem.getCacheMisses());
+                Assert.assertEquals(hits + 10, fileSystem.getCacheHits());
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 5000); // patches the cached page
+            }
+            data[5000] = 1;
+            data[5001] = 2;
+            data[5002] = 3;
+            Assert.assertArrayEquals(data, Files.readAllBytes(path));
+        }
+    }
+
+    @Test
+    public void testDirectoryOperations() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (AESFileSystem fileSystem = openFileSystem(directory)) {
+            Path folder = fileSystem.getPath("/folder");
+            Files.createDirectory(folder);
+            Path file = folder.resolve("a.txt");
+            Files.writeString(file, "alpha");
+            Files.copy(file, folder.resolve("b.txt"));
+            Files.move(folder.resolve("b.txt"), fileSystem.getPath("/c.txt"));
+            try {
+                Files.copy(file, fileSystem.getPath("/c.txt"));
+                Assert.fail("Existing target was replaced.");
+            } catch (FileAlreadyExistsException expected) {
+                // REPLACE_EXISTING was not given
+            }
+            Files.copy(file, fileSystem.getPath("/c.txt"), StandardCopyOption.REPLACE_EXISTING);
+
+            try (Stream<Path> entries = Files.list(fileSystem.getPath("/"))) {
+                List<String> names = entries.map(path -> path.getFileName().toString()).sorted()
+                                            .collect(Collectors.toList());
+                Assert.assertEquals(List.of("c.txt", "folder"), names);
+            }
+            Assert.assertEquals("alpha", Files.readString(fileSystem.getPath("/folder/../c.txt")));
+            Assert.assertEquals("alpha", Files.readString(fileSystem.getPath("/../../folder/a.txt"))); // stays in the root
+            Assert.assertEquals(fileSystem.getPath("/c.txt"),
+                                fileSystem.provider().getPath(fileSystem.getPath("c.txt").toUri()));
+            Assert.assertTrue(Files.isDirectory(folder));
+            Assert.assertEquals(5, Files.size(fileSystem.getPath("/c.txt")));
+
+            Files.delete(file);
+            Files.delete(folder);
+            Assert.assertFalse(Files.exists(folder));
+        }
+    }
+
+    /*
+     * Two file systems of one provider have different keys, a file moved between them is re-encrypted under the key
+     * of the target (the raw ciphertext would decrypt to garbage there)
+     */
+    @Test
+    public void testMoveBetweenFileSystems() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        AESFileSystemProvider provider = new AESFileSystemProvider();
+        byte[] otherKey = Arrays.copyOf(KEY, 32);
+        try (AESFileSystem fileSystem = provider.newFileSystem(Files.createDirectory(directory.resolve("a")),
+                                                               Map.of(AESFileSystemProvider.KEY, KEY));
+             AESFileSystem other = provider.newFileSystem(Files.createDirectory(directory.resolve("b")),
+                                                          Map.of(AESFileSystemProvider.KEY, otherKey))) {
+            byte[] data = new byte[50_001];
+            new Random(45).nextBytes(data);
+            Path source = fileSystem.getPath("/moved.bin");
+            Files.write(source, data);
+            try {
+                Files.move(source, other.getPath("/moved.bin"), StandardCopyOption.ATOMIC_MOVE);
+                Assert.fail("File was moved atomically between file systems.");
+            } catch (AtomicMoveNotSupportedException expected) {
+                // the file must be re-encrypted
+            }
+
+            Path target = other.getPath("/moved.bin");
+            Files.move(source, target);
+            Assert.assertFalse(Files.exists(source));
+            Assert.assertArrayEquals(data, Files.readAllBytes(target));
+            byte[] raw = Files.readAllBytes(directory.resolve("b").resolve("moved.bin"));
+            byte[] cipherText = new byte[data.length];
+            new AESKey(otherKey).counterMode(Arrays.copyOf(raw, 16), data, 0, cipherText, 0, data.length);
+            Assert.assertArrayEquals(cipherText, Arrays.copyOfRange(raw, 16, raw.length));
+
+            Files.createDirectory(fileSystem.getPath("/folder"));
+            Files.writeString(fileSystem.getPath("/folder/a.txt"), "alpha");
+            try {
+                Files.move(fileSystem.getPath("/folder"), other.getPath("/folder"));
+                Assert.fail("Directory which is not empty was moved between file systems.");
+            } catch (DirectoryNotEmptyException expected) {
+                // its entries would have to be moved one by one
+            }
+            Assert.assertFalse(Files.exists(other.getPath("/folder")));
+            Assert.assertEquals("alpha", Files.readString(fileSystem.getPath("/folder/a.txt")));
+        }
+    }
+
+    /*
+     * Opens a directory as an encrypted file system with 8 cached pages
+     */
+    private AESFileSystem openFileSystem(Path directory) throws IOException {
+        return new AESFileSystemProvider().newFileSystem(directory, Map.of(AESFileSystemProvider.KEY, KEY,
+                                                                           AESFileSystemProvider.CACHE_PAGES, 8));
+    }
+
+}
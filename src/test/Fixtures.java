@@ -0,0 +1,111 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * Test data and command line helpers shared by the unit tests
+ */
+package test;
+
+import main.Args;
+import main.CliCipher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Builds the byte arrays used as keys, vectors and messages by the unit tests, and the arguments of the command line
+ * cipher runs they compare
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public final class Fixtures {
+
+    private Fixtures() { }
+
+    /**
+     * @param hex even number of hexadecimal digits
+     * @return bytes the digits represent
+     */
+    public static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    public static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the bytes 0, 1, ..., modulus - 1 repeated up to length
+     */
+    public static byte[] sequence(int length, int modulus) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i % modulus);
+        }
+        return bytes;
+    }
+
+    public static String[] concat(String[] first, String... more) {
+        String[] all = Arrays.copyOf(first, first.length + more.length);
+        System.arraycopy(more, 0, all, first.length, more.length);
+        return all;
+    }
+
+    public static Path write(Path directory, String name, byte[] data) throws IOException {
+        return Files.write(directory.resolve(name), data);
+    }
+
+    /**
+     * Arguments encrypting input to directory/output in CBC mode under a new key and IV (written to directory as
+     * output.key and output.iv)
+     */
+    public static Args args(Path directory, Path input, String output, Random random) throws IOException {
+        Args args = new Args();
+        args.filePath = input.toString();
+        args.output = directory.resolve(output).toString();
+        args.keyFilePath = write(directory, output + ".key", randomBytes(random, 32)).toString();
+        args.initVectorFilePath = write(directory, output + ".iv", randomBytes(random, 16)).toString();
+        return args;
+    }
+
+    /**
+     * Sets the mode flags of args for a mode name as recorded in checkpoints (CBC, CBC-CS3, CTR, CTR-NOPAD, CFB or OFB)
+     */
+    public static void setMode(Args args, String mode) {
+        args.counterMode = mode.startsWith("CTR");
+        args.noPadding = mode.equals("CTR-NOPAD") || mode.equals("CBC-CS3");
+        args.cipherFeedbackMode = mode.equals("CFB");
+        args.outputFeedbackMode = mode.equals("OFB");
+    }
+
+    /**
+     * Decrypts the output of the encryption args (with its key, IV and mode) to output.dec, which is removed again
+     */
+    public static byte[] decrypt(Args encryption) throws IOException {
+        Args args = new Args();
+        args.filePath = encryption.output;
+        args.output = encryption.output + ".dec";
+        args.keyFilePath = encryption.keyFilePath;
+        args.initVectorFilePath = encryption.initVectorFilePath;
+        args.counterMode = encryption.counterMode;
+        args.noPadding = encryption.noPadding;
+        args.cipherFeedbackMode = encryption.cipherFeedbackMode;
+        args.outputFeedbackMode = encryption.outputFeedbackMode;
+        args.incremental = encryption.incremental;
+        args.decrypt = true;
+        new CliCipher(args).run(null);
+        byte[] plainText = Files.readAllBytes(Paths.get(args.output));
+        Files.delete(Paths.get(args.output));
+        return plainText;
+    }
+
+}
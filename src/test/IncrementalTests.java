@@ -0,0 +1,172 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for incremental encryption of the command line cipher
+ */
+package test;
+
+import main.Args;
+import main.CliCipher;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import static test.Fixtures.args;
+import static test.Fixtures.decrypt;
+import static test.Fixtures.randomBytes;
+import static test.Fixtures.write;
+
+/**
+ * Unit tests for --incremental, the ciphertext is compared chunk by chunk and the generations are read from the
+ * manifest, each test uses a temporary directory
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class IncrementalTests {
+
+    private static final int CHUNK_LENGTH = 1024 * 1024;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testOnlyChangedChunkRewritten() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(44);
+        byte[] plainText = randomBytes(random, 3 * CHUNK_LENGTH + 1000);
+        Args args = incrementalArgs(directory, plainText, random);
+        new CliCipher(args).run(null);
+        byte[] original = Files.readAllBytes(Paths.get(args.output));
+        Assert.assertArrayEquals(new int[] {0, 0, 0, 0}, generations(args.output));
+
+        plainText[2 * CHUNK_LENGTH + 7] ^= 1;
+        Files.write(Paths.get(args.filePath), plainText);
+        new CliCipher(args).run(null);
+        byte[] updated = Files.readAllBytes(Paths.get(args.output));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("chunk " + i, i == 2, !Arrays.equals(chunk(original, i), chunk(updated, i)));
+        }
+        Assert.assertArrayEquals(new int[] {0, 0, 1, 0}, generations(args.output));
+        Assert.assertArrayEquals(plainText, decrypt(args));
+    }
+
+    /*
+     * A chunk removed by truncation keeps its generation, so when the same plaintext reappears it is encrypted under
+     * a new generation (a new key stream), not the one it was first written with
+     */
+    @Test
+    public void testShrinkRegrowNewGeneration() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(45);
+        byte[] plainText = randomBytes(random, 3 * CHUNK_LENGTH);
+        Args args = incrementalArgs(directory, plainText, random);
+        new CliCipher(args).run(null);
+        byte[] original = Files.readAllBytes(Paths.get(args.output));
+
+        Files.write(Paths.get(args.filePath), Arrays.copyOf(plainText, CHUNK_LENGTH + CHUNK_LENGTH / 2));
+        new CliCipher(args).run(null);
+        Assert.assertEquals(CHUNK_LENGTH + CHUNK_LENGTH / 2, Files.size(Paths.get(args.output)));
+        Assert.assertArrayEquals(new int[] {0, 1, 0}, generations(args.output)); // chunk 2 is kept, unused
+
+        Files.write(Paths.get(args.filePath), plainText);
+        new CliCipher(args).run(null);
+        byte[] regrown = Files.readAllBytes(Paths.get(args.output));
+        Assert.assertArrayEquals(new int[] {0, 2, 1}, generations(args.output));
+        Assert.assertArrayEquals(chunk(original, 0), chunk(regrown, 0));
+        Assert.assertFalse(Arrays.equals(chunk(original, 1), chunk(regrown, 1)));
+        Assert.assertFalse(Arrays.equals(chunk(original, 2), chunk(regrown, 2)));
+        Assert.assertArrayEquals(plainText, decrypt(args));
+    }
+
+    /*
+     * A crash after a chunk was journaled but before the manifest was replaced leaves the chunk partly overwritten
+     * under a generation the manifest does not record: the next run must rewrite the chunk (even if its plaintext is
+     * unchanged) under a generation after the journaled one
+     */
+    @Test
+    public void testJournalReplay() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(46);
+        byte[] plainText = randomBytes(random, 2 * CHUNK_LENGTH + 16);
+        Args args = incrementalArgs(directory, plainText, random);
+        new CliCipher(args).run(null);
+
+        Path journal = Paths.get(args.output + ".manifest.journal");
+        Files.write(journal, ByteBuffer.allocate(6).putInt(1).putShort((short) 1).array());
+        byte[] crashed = Files.readAllBytes(Paths.get(args.output));
+        Arrays.fill(crashed, CHUNK_LENGTH, CHUNK_LENGTH + 4096, (byte) 0x5a);
+        Files.write(Paths.get(args.output), crashed);
+        try {
+            decrypt(args);
+            Assert.fail("Ciphertext of an interrupted run was decrypted.");
+        } catch (IllegalArgumentException expected) {
+            // the interrupted encryption must be completed first
+        }
+
+        new CliCipher(args).run(null);
+        Assert.assertFalse(Files.exists(journal));
+        Assert.assertArrayEquals(new int[] {0, 2, 0}, generations(args.output));
+        Assert.assertArrayEquals(plainText, decrypt(args));
+    }
+
+    @Test
+    public void testTamperDetected() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(47);
+        Args args = incrementalArgs(directory, randomBytes(random, CHUNK_LENGTH + 100), random);
+        new CliCipher(args).run(null);
+
+        byte[] cipherText = Files.readAllBytes(Paths.get(args.output));
+        cipherText[CHUNK_LENGTH + 50] ^= 0x40;
+        Files.write(Paths.get(args.output), cipherText);
+        try {
+            decrypt(args);
+            Assert.fail("Modified ciphertext was decrypted.");
+        } catch (IllegalArgumentException expected) {
+            Assert.assertEquals("Chunk 1 does not match the manifest, the ciphertext is corrupt or was modified.",
+                                expected.getMessage());
+        }
+        Assert.assertFalse(Files.exists(directory.resolve("enc.dec")));
+    }
+
+    /*
+     * Arguments encrypting plainText (written to directory) to directory/enc under a new key
+     */
+    private static Args incrementalArgs(Path directory, byte[] plainText, Random random) throws IOException {
+        Args args = args(directory, write(directory, "plain", plainText), "enc", random);
+        args.initVectorFilePath = null; // the counter of each chunk is derived
+        args.incremental = true;
+        return args;
+    }
+
+    private static byte[] chunk(byte[] data, int index) {
+        return Arrays.copyOfRange(data, index * CHUNK_LENGTH, Math.min(data.length, (index + 1) * CHUNK_LENGTH));
+    }
+
+    /*
+     * Generations of the chunk records of the manifest of cipherText (magic, chunk size, length, nonce, key check and
+     * record count, then a generation and a fingerprint per record)
+     */
+    private static int[] generations(String cipherText) throws IOException {
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(Paths.get(cipherText + ".manifest")))) {
+            input.skipNBytes(8 + 4 + 8 + 6 + 4);
+            int[] generations = new int[input.readInt()];
+            for (int i = 0; i < generations.length; i++) {
+                generations[i] = input.readUnsignedShort();
+                input.skipNBytes(16);
+            }
+            return generations;
+        }
+    }
+
+}
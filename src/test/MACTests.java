@@ -0,0 +1,190 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for PMAC1 and the CTR-PMAC encrypt-then-MAC combinator
+ */
+package test;
+
+import cipher.AESCTRPMAC;
+import cipher.AESKey;
+import cipher.AESPMAC;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.crypto.AEADBadTagException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static test.Fixtures.hexToBytes;
+import static test.Fixtures.randomBytes;
+import static test.Fixtures.sequence;
+
+/**
+ * Unit tests for AESPMAC (test vectors from the PMAC1 reference) and AESCTRPMAC
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class MACTests {
+
+    /* PMAC1-AES-128 test vectors, key 000102...0f and message bytes 00 01 02 ... */
+    private static final int[] VECTOR_LENGTHS = {0, 3, 16, 20, 32, 34};
+    private static final String[] VECTOR_TAGS = {
+            "4399572cd6ea5341b8d35876a7098af7",
+            "256ba5193c1b991b4df0c51f388a9e27",
+            "ebbd822fa458daf6dfdad7c27da76338",
+            "0412ca150bbf79058d8c75a58c993f55",
+            "e97ac04e9e5e3399ce5355cd7407bc75",
+            "5cba7d5eb24f7c86ccc54604e53d5512"};
+
+    @Test
+    public void testPMACVectors() {
+        AESPMAC mac = new AESPMAC(sequence(16, 256));
+        for (int i = 0; i < VECTOR_LENGTHS.length; i++) {
+            mac.update(sequence(VECTOR_LENGTHS[i], 256), 0, VECTOR_LENGTHS[i]);
+            Assert.assertArrayEquals(hexToBytes(VECTOR_TAGS[i]), mac.doFinal());
+        }
+        mac.update(new byte[1000], 0, 1000);
+        Assert.assertArrayEquals(hexToBytes("c2c9fa1d9985f6f0d2aff915a0e8d910"), mac.doFinal());
+    }
+
+    /*
+     * Tags of messages long enough to be split into segments, with 128 and 256 bit keys
+     */
+    @Test
+    public void testPMACParallelSegments() {
+        byte[] message = sequence(100000, 251);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AESPMAC mac = new AESPMAC(sequence(16, 256));
+            mac.update(message, 0, message.length, executor);
+            Assert.assertArrayEquals(hexToBytes("a6996020a3e530469375b7051ef85f7b"), mac.doFinal());
+            mac = new AESPMAC(sequence(32, 256));
+            mac.update(message, 0, message.length, executor);
+            Assert.assertArrayEquals(hexToBytes("5792712d7c01c04b01813ce99d3f0f9b"), mac.doFinal());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPMACIncrementalUpdates() {
+        Random random = new Random(41);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int trial = 0; trial < 20; trial++) {
+                AESPMAC mac = new AESPMAC(randomBytes(random, 16 + 8 * random.nextInt(3)));
+                byte[] message = randomBytes(random, random.nextInt(70000));
+                mac.update(message, 0, message.length);
+                byte[] expected = mac.doFinal();
+
+                int position = 0;
+                while (position < message.length) { // pieces of random length, some split into segments
+                    int length = Math.min(message.length - position, random.nextInt(trial % 2 == 0 ? 40 : 40000));
+                    mac.update(message, position, length, random.nextBoolean() ? executor : null);
+                    position += length;
+                }
+                Assert.assertArrayEquals(expected, mac.doFinal());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /*
+     * The combinator must equal CTR encryption followed by PMAC over the counter block and ciphertext
+     */
+    @Test
+    public void testCTRPMACRoundTrip() throws AEADBadTagException {
+        Random random = new Random(42);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int trial = 0; trial < 12; trial++) {
+                byte[] encryptionKey = randomBytes(random, 16 + 8 * random.nextInt(3));
+                byte[] macKey = randomBytes(random, 16);
+                byte[] counterBlock = randomBytes(random, 16);
+                byte[] plainText = randomBytes(random, random.nextInt(100000));
+
+                byte[] expectedCipherText = new byte[plainText.length];
+                new AESKey(encryptionKey).counterMode(counterBlock.clone(), plainText, 0, expectedCipherText, 0,
+                                                      plainText.length);
+                AESPMAC mac = new AESPMAC(macKey);
+                mac.update(counterBlock, 0, 16);
+                mac.update(expectedCipherText, 0, expectedCipherText.length);
+                byte[] expectedTag = mac.doFinal();
+
+                byte[] cipherText = new byte[plainText.length];
+                AESCTRPMAC encryptor = new AESCTRPMAC(encryptionKey, macKey, counterBlock, false);
+                int position = process(encryptor, plainText, cipherText, random, executor);
+                byte[] tag = encryptor.doFinal(plainText, position, cipherText, position, plainText.length - position);
+                Assert.assertArrayEquals(expectedCipherText, cipherText);
+                Assert.assertArrayEquals(expectedTag, tag);
+
+                AESCTRPMAC decryptor = new AESCTRPMAC(encryptionKey, macKey, counterBlock, true);
+                byte[] data = cipherText.clone(); // decrypted in place
+                position = process(decryptor, data, data, random, executor);
+                decryptor.doFinal(data, position, data, position, data.length - position, tag);
+                Assert.assertArrayEquals(plainText, data);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCTRPMACTamperDetected() throws AEADBadTagException {
+        Random random = new Random(43);
+        byte[] encryptionKey = randomBytes(random, 16);
+        byte[] macKey = randomBytes(random, 16);
+        byte[] counterBlock = randomBytes(random, 16);
+        byte[] plainText = randomBytes(random, 5000);
+        byte[] cipherText = new byte[plainText.length];
+        byte[] tag = new AESCTRPMAC(encryptionKey, macKey, counterBlock, false).doFinal(plainText, 0, cipherText, 0,
+                                                                                        plainText.length);
+        new AESCTRPMAC(encryptionKey, macKey, counterBlock, true).doFinal(cipherText, 0, new byte[5000], 0, 5000, tag);
+
+        int[] positions = {0, 1234, 4999};
+        for (int position : positions) {
+            cipherText[position] ^= 1;
+            assertRejected(encryptionKey, macKey, counterBlock, cipherText, tag);
+            cipherText[position] ^= 1;
+        }
+        counterBlock[15] ^= 1;
+        assertRejected(encryptionKey, macKey, counterBlock, cipherText, tag);
+        counterBlock[15] ^= 1;
+        tag[0] ^= 1;
+        assertRejected(encryptionKey, macKey, counterBlock, cipherText, tag);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSharedKeyRejected() {
+        new AESCTRPMAC(new byte[16], new byte[16], new byte[16], false);
+    }
+
+    /*
+     * Ciphers random numbers of whole blocks
+     * @return position of the trailing bytes
+     */
+    private int process(AESCTRPMAC cipher, byte[] input, byte[] output, Random random, ExecutorService executor) {
+        int position = 0;
+        while (input.length - position >= 16 && random.nextInt(8) != 0) {
+            int length = 16 * random.nextInt(Math.min((input.length - position) / 16, 3000) + 1);
+            cipher.update(input, position, output, position, length, random.nextBoolean() ? executor : null);
+            position += length;
+        }
+        return position;
+    }
+
+    private void assertRejected(byte[] encryptionKey, byte[] macKey, byte[] counterBlock, byte[] cipherText,
+                                byte[] tag) {
+        try {
+            new AESCTRPMAC(encryptionKey, macKey, counterBlock, true).doFinal(cipherText, 0,
+                                                                              new byte[cipherText.length], 0,
+                                                                              cipherText.length, tag);
+            Assert.fail("Tampered message was accepted.");
+        } catch (AEADBadTagException expected) {
+            // the tag does not match
+        }
+    }
+
+}
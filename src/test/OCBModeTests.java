@@ -0,0 +1,94 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for the OCB mode functions of AES
+ */
+package test;
+
+import cipher.AESOCB;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.crypto.AEADBadTagException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static test.Fixtures.hexToBytes;
+
+/**
+ * Unit tests for OCB mode
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class OCBModeTests {
+
+    private final int[][] initKey = { // key used by the sample results in RFC 7253 Appendix A
+            {0x00, 0x01, 0x02, 0x03},
+            {0x04, 0x05, 0x06, 0x07},
+            {0x08, 0x09, 0x0a, 0x0b},
+            {0x0c, 0x0d, 0x0e, 0x0f}};
+
+    /*
+     * Test vectors lifted from RFC 7253 Appendix A (https://tools.ietf.org/html/rfc7253#appendix-A)
+     */
+    @Test
+    public void testOCBModeCompliance() throws AEADBadTagException {
+        String[][] vectors = {
+                {"BBAA99887766554433221100", "", "", "785407BFFFC8AD9EDCC5520AC9111EE6"},
+                {"BBAA99887766554433221101", "0001020304050607", "0001020304050607",
+                        "6820B3657B6F615A5725BDA0D3B4EB3A257C9AF1F8F03009"},
+                {"BBAA99887766554433221102", "0001020304050607", "", "81017F8203F081277152FADE694A0A00"},
+                {"BBAA99887766554433221103", "", "0001020304050607", "45DD69F8F5AAE72414054CD1F35D82760B2CD00D2F99BFA9"},
+                {"BBAA99887766554433221104", "000102030405060708090A0B0C0D0E0F", "000102030405060708090A0B0C0D0E0F",
+                        "571D535B60B277188BE5147170A9A22C3AD7A4FF3835B8C5701C1CCEC8FC3358"},
+                {"BBAA99887766554433221106", "", "000102030405060708090A0B0C0D0E0F",
+                        "5CE88EC2E0692706A915C00AEB8B2396F40E1C743F52436BDF06D8FA1ECA343D"},
+                {"BBAA99887766554433221107", "000102030405060708090A0B0C0D0E0F1011121314151617",
+                        "000102030405060708090A0B0C0D0E0F1011121314151617",
+                        "1CA2207308C87C010756104D8840CE1952F09673A448A122C92C62241051F57356D7F3C90BB0E07F"},
+                {"BBAA9988776655443322110F",
+                        "000102030405060708090A0B0C0D0E0F101112131415161718191A1B1C1D1E1F2021222324252627",
+                        "000102030405060708090A0B0C0D0E0F101112131415161718191A1B1C1D1E1F2021222324252627",
+                        "4412923493C57D5DE0D700F753CCE0D1D2D95060122E9F15A5DDBFC5787E50B5" +
+                        "CC55EE507BCB084E240A353649432AC6C1BDA9ACBA93F56D"}};
+        AESOCB crypt = new AESOCB(initKey);
+        for (String[] vector : vectors) {
+            byte[] nonce = hexToBytes(vector[0]);
+            byte[] associatedData = hexToBytes(vector[1]);
+            byte[] cipherText = crypt.encrypt(nonce, associatedData, hexToBytes(vector[2]));
+
+            Assert.assertArrayEquals(hexToBytes(vector[3]), cipherText);
+            Assert.assertArrayEquals(hexToBytes(vector[2]), crypt.decrypt(nonce, associatedData, cipherText));
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws AEADBadTagException {
+        byte[] nonce = hexToBytes("BBAA99887766554433221108");
+        byte[] associatedData = hexToBytes("0001020304050607");
+        byte[] plainText = new byte[16 * 5000 + 7];
+        new Random(7253).nextBytes(plainText);
+        AESOCB crypt = new AESOCB(initKey);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            byte[] cipherText = crypt.encrypt(nonce, associatedData, plainText);
+
+            Assert.assertArrayEquals(cipherText, crypt.encrypt(nonce, associatedData, plainText, executor));
+            Assert.assertArrayEquals(plainText, crypt.decrypt(nonce, associatedData, cipherText, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = AEADBadTagException.class)
+    public void testTamperedCipherTextRejected() throws AEADBadTagException {
+        byte[] nonce = hexToBytes("BBAA99887766554433221101");
+        byte[] associatedData = hexToBytes("0001020304050607");
+        AESOCB crypt = new AESOCB(initKey);
+        byte[] cipherText = crypt.encrypt(nonce, associatedData, hexToBytes("0001020304050607"));
+        cipherText[0] ^= 1;
+        crypt.decrypt(nonce, associatedData, cipherText);
+    }
+
+}
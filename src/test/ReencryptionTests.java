@@ -0,0 +1,78 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for single pass re-encryption (key rotation)
+ */
+package test;
+
+import cipher.AESKey;
+import cipher.AESReencryptor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static test.Fixtures.randomBytes;
+
+/**
+ * Unit tests for AESReencryptor, re-encrypted ciphertext must equal the plaintext encrypted under the new key and IV
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class ReencryptionTests {
+
+    @Test
+    public void testAllModeCombinations() {
+        Random random = new Random(40);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (AESReencryptor.Mode fromMode : AESReencryptor.Mode.values()) {
+                for (AESReencryptor.Mode toMode : AESReencryptor.Mode.values()) {
+                    for (int trial = 0; trial < 4; trial++) {
+                        byte[] oldKey = randomBytes(random, 16 + 8 * random.nextInt(3));
+                        byte[] newKey = randomBytes(random, 16 + 8 * random.nextInt(3));
+                        byte[] oldInitVector = randomBytes(random, 16);
+                        byte[] newInitVector = randomBytes(random, 16);
+                        if (trial == 0) {
+                            oldInitVector[3] = oldInitVector[7] = oldInitVector[11] = oldInitVector[15] = (byte) 0xff;
+                        }
+                        byte[] plainText = randomBytes(random, 16 * (1 + random.nextInt(6000)));
+                        byte[] data = encrypt(fromMode, oldKey, oldInitVector, plainText);
+
+                        AESReencryptor reencryptor = new AESReencryptor(fromMode, oldKey, oldInitVector, toMode,
+                                                                        newKey, newInitVector);
+                        int position = 0;
+                        while (position < data.length) { // pieces of random whole blocks, some split into segments
+                            int length = Math.min(data.length - position, 16 * random.nextInt(4000));
+                            reencryptor.update(data, position, length, random.nextBoolean() ? executor : null);
+                            position += length;
+                        }
+                        Assert.assertArrayEquals(fromMode + " to " + toMode,
+                                                 encrypt(toMode, newKey, newInitVector, plainText), data);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPartialBlockRejected() {
+        new AESReencryptor(AESReencryptor.Mode.CTR, new byte[16], new byte[16], AESReencryptor.Mode.CTR, new byte[16],
+                           new byte[16]).update(new byte[20], 0, 20);
+    }
+
+    private byte[] encrypt(AESReencryptor.Mode mode, byte[] key, byte[] initVector, byte[] plainText) {
+        byte[] cipherText = new byte[plainText.length];
+        if (mode == AESReencryptor.Mode.CBC) {
+            new AESKey(key).encryptCBC(initVector.clone(), plainText, 0, cipherText, 0, plainText.length);
+        } else {
+            new AESKey(key).counterMode(initVector.clone(), plainText, 0, cipherText, 0, plainText.length);
+        }
+        return cipherText;
+    }
+
+}
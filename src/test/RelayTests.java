@@ -0,0 +1,181 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for the CTR mode TCP relay, run on the loopback interface
+ */
+package test;
+
+import cipher.AESCTR;
+import main.CTRRelay;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for CTRRelay, a pair of relays (ENCRYPT in front of DECRYPT) is placed in front of an echo server
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class RelayTests {
+
+    private static final int[][] KEY = {
+            {0x2b, 0x7e, 0x15, 0x16},
+            {0x28, 0xae, 0xd2, 0xa6},
+            {0xab, 0xf7, 0x15, 0x88},
+            {0x09, 0xcf, 0x4f, 0x3c}};
+
+    @Test
+    public void testRelayPairRoundTrip() throws Exception {
+        int clients = 24;
+        int length = 200_000;
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try (ServerSocket echoServer = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             CTRRelay decryptRelay = new CTRRelay(CTRRelay.Mode.DECRYPT, loopback(0), loopback(echoServer.getLocalPort()), KEY, 2)) {
+            executor.submit(() -> echo(echoServer, executor));
+            decryptRelay.start();
+            try (CTRRelay encryptRelay = new CTRRelay(CTRRelay.Mode.ENCRYPT, loopback(0), decryptRelay.getLocalAddress(), KEY, 2)) {
+                encryptRelay.start();
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int i = 0; i < clients; i++) {
+                    int seed = i;
+                    results.add(executor.submit(() -> {
+                        byte[] data = new byte[length];
+                        new Random(seed).nextBytes(data);
+                        return Arrays.equals(data, exchange(encryptRelay.getLocalAddress(), data, executor));
+                    }));
+                }
+                for (Future<Boolean> result : results) {
+                    Assert.assertTrue(result.get(60, TimeUnit.SECONDS));
+                }
+
+                long deadline = System.currentTimeMillis() + 10000;
+                while ((encryptRelay.getActiveConnections() != 0 || decryptRelay.getActiveConnections() != 0)
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                Assert.assertEquals(0, encryptRelay.getActiveConnections());
+                Assert.assertEquals(0, decryptRelay.getActiveConnections());
+                Assert.assertEquals(clients, encryptRelay.getAcceptedConnections());
+                Assert.assertEquals(0, encryptRelay.getFailedConnections());
+                Assert.assertEquals((long) clients * length, encryptRelay.getBytesEncrypted());
+                Assert.assertEquals((long) clients * length, encryptRelay.getBytesDecrypted());
+                Assert.assertEquals((long) clients * length, decryptRelay.getBytesDecrypted());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /*
+     * The ciphertext on the wire is the counter block followed by the data ciphered with AESCTR
+     */
+    @Test
+    public void testWireFormat() throws Exception {
+        byte[] data = new byte[5000];
+        new Random(39).nextBytes(data);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try (ServerSocket captureServer = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             CTRRelay relay = new CTRRelay(CTRRelay.Mode.ENCRYPT, loopback(0), loopback(captureServer.getLocalPort()), KEY, 1)) {
+            relay.start();
+            Future<byte[]> captured = executor.submit(() -> {
+                try (Socket socket = captureServer.accept()) {
+                    return socket.getInputStream().readAllBytes();
+                }
+            });
+            Assert.assertEquals(0, exchange(relay.getLocalAddress(), data, executor).length);
+
+            byte[] wire = captured.get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(16 + data.length, wire.length);
+            int[][] counterBlock = new int[4][4];
+            for (int i = 0; i < 16; i++) {
+                counterBlock[i % 4][i / 4] = wire[i] & 0xff;
+            }
+            byte[] cipherText = Arrays.copyOfRange(wire, 16, wire.length);
+            Assert.assertFalse(Arrays.equals(data, cipherText));
+            byte[] plainText = new byte[data.length];
+            new AESCTR(KEY, counterBlock).update(ByteBuffer.wrap(cipherText), ByteBuffer.wrap(plainText));
+            Assert.assertArrayEquals(data, plainText);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRefusedTargetClosesConnection() throws Exception {
+        int freePort;
+        try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            freePort = socket.getLocalPort(); // nothing listens once the socket is closed
+        }
+        try (CTRRelay relay = new CTRRelay(CTRRelay.Mode.ENCRYPT, loopback(0), loopback(freePort), KEY, 1)) {
+            relay.start();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), relay.getLocalAddress().getPort())) {
+                socket.setSoTimeout(10000);
+                Assert.assertEquals(-1, socket.getInputStream().read());
+            }
+            Assert.assertEquals(1, relay.getFailedConnections());
+            Assert.assertEquals(0, relay.getActiveConnections());
+        }
+    }
+
+    /*
+     * Sends data through the relay (from another thread so the reply is read concurrently) and reads the whole reply
+     */
+    private byte[] exchange(InetSocketAddress address, byte[] data, ExecutorService executor) throws Exception {
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            socket.setSoTimeout(30000);
+            CompletableFuture<Void> sent = CompletableFuture.runAsync(() -> {
+                try {
+                    OutputStream output = socket.getOutputStream();
+                    for (int i = 0; i < data.length; i += 1000) { // many small writes, chunks do not align with blocks
+                        output.write(data, i, Math.min(1000, data.length - i));
+                    }
+                    socket.shutdownOutput();
+                } catch (IOException iox) {
+                    throw new RuntimeException(iox);
+                }
+            }, executor);
+            byte[] reply = socket.getInputStream().readAllBytes();
+            sent.get(30, TimeUnit.SECONDS);
+            return reply;
+        }
+    }
+
+    private void echo(ServerSocket server, ExecutorService executor) {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                executor.submit(() -> {
+                    try (Socket connection = socket) {
+                        InputStream input = connection.getInputStream();
+                        input.transferTo(connection.getOutputStream());
+                        connection.shutdownOutput();
+                    }
+                    return null;
+                });
+            } catch (IOException iox) {
+                return; // the server was closed
+            }
+        }
+    }
+
+    private InetSocketAddress loopback(int port) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+}
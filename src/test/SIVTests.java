@@ -0,0 +1,179 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for SIV mode (deterministic authenticated encryption)
+ */
+package test;
+
+import cipher.AESSIV;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.crypto.AEADBadTagException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static test.Fixtures.hexToBytes;
+import static test.Fixtures.randomBytes;
+import static test.Fixtures.sequence;
+
+/**
+ * Unit tests for AESSIV, the test vectors are from Appendix A of RFC 5297 and OpenSSL (AES-SIV-CMAC)
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class SIVTests {
+
+    @Test
+    public void testDeterministicVector() throws AEADBadTagException {
+        AESSIV siv = new AESSIV(hexToBytes("fffefdfcfbfaf9f8f7f6f5f4f3f2f1f0f0f1f2f3f4f5f6f7f8f9fafbfcfdfeff"));
+        byte[] associatedData = hexToBytes("101112131415161718191a1b1c1d1e1f2021222324252627");
+        byte[] plainText = hexToBytes("112233445566778899aabbccddee");
+        byte[] cipherText = hexToBytes("85632d07c6e8f37f950acd320a2ecc9340c02b9690c4dc04daef7f6afe5c");
+        Assert.assertArrayEquals(cipherText, siv.encrypt(plainText, associatedData));
+        Assert.assertArrayEquals(plainText, siv.decrypt(cipherText, associatedData));
+    }
+
+    @Test
+    public void testNonceBasedVector() throws AEADBadTagException {
+        AESSIV siv = new AESSIV(hexToBytes("7f7e7d7c7b7a79787776757473727170404142434445464748494a4b4c4d4e4f"));
+        byte[][] associatedData = {
+                hexToBytes("00112233445566778899aabbccddeeffdeaddadadeaddadaffeeddccbbaa99887766554433221100"),
+                hexToBytes("102030405060708090a0"),
+                hexToBytes("09f911029d74e35bd84156c5635688c0")}; // nonce
+        byte[] plainText = hexToBytes("7468697320697320736f6d6520706c61696e7465787420746f20656e6372797074207573696e67205349562d414553");
+        byte[] cipherText = hexToBytes("7bdb6e3b432667eb06f4d14bff2fbd0fcb900f2fddbe404326601965c889bf17dba77ceb094fa663b7a3f748ba8af829ea64ad544a272e9c485b62a3fd5c0d");
+        Assert.assertArrayEquals(cipherText, siv.encrypt(plainText, associatedData));
+        Assert.assertArrayEquals(plainText, siv.decrypt(cipherText, associatedData));
+    }
+
+    /*
+     * Lengths around the block size (S2V pads short plaintext, and XORs into the last 16 bytes of longer plaintext)
+     */
+    @Test
+    public void testLengthsAroundBlockSize() throws Exception {
+        String[][] vectors = {
+                {"15", "4049445facc75b7dd1bf06478da62db63a3b280272e11ad803b48ac47f1954"},
+                {"16", "6fd0c1db2bf345dcb7f29e7f80507d7a8112b22355b4ee3c8d2ffd1f74e53dd5"},
+                {"17", "b5d5b33e0489c64da6281114557ad2d8bd7e8fbaf125ff8f3bd474631229dae768"},
+                {"31", "2b1ac62df06e808e419d8110379be7683d6bafe19fd266ea72a2217c3b66bfbfaa536b66fb5ecb437ca9a85be6eb40"},
+                {"32", "51d49f63908f4859b2f6878b5f3d24b7ab18cfa7e0f89838554178c282efc39c57179bc82db69d5ba2a1557b338a47aa"},
+                {"33", "ee1da28062c4989472a8b2abb794a4c27e9bfbef7d8b63021ca3a6aeb750932029a785571cbfabb4a566b1e7595a47e895"}};
+        AESSIV siv = new AESSIV(sequence(48, 256));
+        byte[][] associatedData = {"object".getBytes("US-ASCII"), sequence(20, 256)};
+        for (String[] vector : vectors) {
+            byte[] plainText = sequence(Integer.parseInt(vector[0]), 251);
+            Assert.assertArrayEquals(hexToBytes(vector[1]), siv.encrypt(plainText, associatedData));
+            Assert.assertArrayEquals(hexToBytes(vector[1]), encryptStream(siv, plainText, new Random(0), associatedData));
+        }
+
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        byte[] plainText = sequence(100000, 251);
+        Assert.assertArrayEquals(hexToBytes("4caaa877382700a74b8df76efd207e0a5bfe6ed28ec2ff2820d99e4a8c8c0e70"),
+                                 sha256.digest(siv.encrypt(plainText, associatedData)));
+        Assert.assertArrayEquals(hexToBytes("166d96bf883fbe7574fa3f565c72075a78ce7febee5cee741bed34dae9c1123c"),
+                                 sha256.digest(new AESSIV(sequence(64, 256)).encrypt(sequence(70001, 251))));
+    }
+
+    /*
+     * Two pass stream processing with short reads of random length must match the methods on byte arrays
+     */
+    @Test
+    public void testStreamsMatchArrays() throws Exception {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 30; trial++) {
+            AESSIV siv = new AESSIV(randomBytes(random, 32 + 16 * random.nextInt(3)));
+            byte[][] associatedData = new byte[random.nextInt(3)][];
+            for (int i = 0; i < associatedData.length; i++) {
+                associatedData[i] = randomBytes(random, random.nextInt(40));
+            }
+            byte[] plainText = randomBytes(random, random.nextInt(trial % 2 == 0 ? 100 : 200000));
+            byte[] cipherText = siv.encrypt(plainText, associatedData);
+            Assert.assertArrayEquals(cipherText, encryptStream(siv, plainText, random, associatedData));
+
+            siv.verify(new ShortReadInputStream(cipherText, random), associatedData);
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            siv.decrypt(new ShortReadInputStream(cipherText, random), decrypted, associatedData);
+            Assert.assertArrayEquals(plainText, decrypted.toByteArray());
+        }
+    }
+
+    @Test
+    public void testTamperDetected() throws Exception {
+        Random random = new Random(43);
+        AESSIV siv = new AESSIV(randomBytes(random, 32));
+        byte[] associatedData = randomBytes(random, 24);
+        byte[] cipherText = siv.encrypt(randomBytes(random, 1000), associatedData);
+        int[] positions = {0, 15, 16, 500, 1015};
+        for (int position : positions) {
+            cipherText[position] ^= 1;
+            assertRejected(siv, cipherText, associatedData);
+            cipherText[position] ^= 1;
+        }
+        associatedData[0] ^= 1;
+        assertRejected(siv, cipherText, associatedData);
+        associatedData[0] ^= 1;
+        assertRejected(siv, cipherText); // associated data omitted
+        try {
+            siv.verify(new ByteArrayInputStream(cipherText, 0, 999), associatedData);
+            Assert.fail("Truncated ciphertext was accepted.");
+        } catch (AEADBadTagException expected) {
+            // the tag does not match
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSingleLengthKeyRejected() {
+        new AESSIV(new byte[16]);
+    }
+
+    private byte[] encryptStream(AESSIV siv, byte[] plainText, Random random, byte[]... associatedData) throws Exception {
+        byte[] syntheticIV = siv.syntheticIV(new ShortReadInputStream(plainText, random), associatedData);
+        ByteArrayOutputStream cipherText = new ByteArrayOutputStream();
+        siv.encrypt(syntheticIV, new ShortReadInputStream(plainText, random), cipherText);
+        return cipherText.toByteArray();
+    }
+
+    private void assertRejected(AESSIV siv, byte[] cipherText, byte[]... associatedData) throws Exception {
+        try {
+            siv.decrypt(cipherText, associatedData);
+            Assert.fail("Tampered message was accepted.");
+        } catch (AEADBadTagException expected) {
+            // the tag does not match
+        }
+        try {
+            siv.verify(new ByteArrayInputStream(cipherText), associatedData);
+            Assert.fail("Tampered stream was accepted.");
+        } catch (AEADBadTagException expected) {
+            // the tag does not match
+        }
+    }
+
+    /*
+     * Returns at most a random number of bytes per read, as sockets and pipes do
+     */
+    private static final class ShortReadInputStream extends InputStream {
+
+        private final ByteArrayInputStream source;
+        private final Random random;
+
+        ShortReadInputStream(byte[] data, Random random) {
+            this.source = new ByteArrayInputStream(data);
+            this.random = random;
+        }
+
+        @Override
+        public int read() {
+            return source.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            return source.read(buffer, offset, Math.min(length, 1 + random.nextInt(5000)));
+        }
+    }
+
+}
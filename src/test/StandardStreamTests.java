@@ -0,0 +1,120 @@
+/*
+ * Author: Spencer Little
+ * Date: 10/19/2026
+ * A set of unit tests for standard input and output of the command line cipher
+ */
+package test;
+
+import com.beust.jcommander.JCommander;
+import main.Args;
+import main.CliCipher;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static test.Fixtures.args;
+import static test.Fixtures.concat;
+import static test.Fixtures.randomBytes;
+import static test.Fixtures.write;
+
+/**
+ * Unit tests for - as input and output, CliCipher reads and writes the standard streams of the process (not System.in
+ * and System.out) so each run is a child JVM with the classpath of the tests, each test uses a temporary directory
+ * @author Spencer Little
+ * @version 1.0.0
+ */
+public class StandardStreamTests {
+
+    private static final String[][] MODES = {{}, {"-z"}, {"-CTR"}, {"-CTR", "--no-padding"}, {"-CFB"}, {"-OFB"}};
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /*
+     * Ciphertext written to standard output from standard input must match the ciphertext of a run on files
+     */
+    @Test
+    public void testStreamsMatchFiles() throws IOException, InterruptedException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(38);
+        Path input = write(directory, "in", randomBytes(random, 300007));
+        for (int i = 0; i < MODES.length; i++) {
+            Args args = args(directory, input, "file" + i, random);
+            Args fileArgs = new Args();
+            JCommander.newBuilder().addObject(fileArgs).build().parse(concat(MODES[i], "-f", args.filePath, "-o",
+                    args.output, "-k", args.keyFilePath, "-v", args.initVectorFilePath));
+            new CliCipher(fileArgs).run(null);
+
+            Path streamed = directory.resolve("stream" + i);
+            ProcessBuilder encrypt = cipher(directory, "encrypt" + i, args, MODES[i]).redirectInput(input.toFile())
+                                                                                      .redirectOutput(streamed.toFile());
+            waitFor(List.of(encrypt.start()), directory, "encrypt" + i);
+            Assert.assertArrayEquals(Arrays.toString(MODES[i]), Files.readAllBytes(Paths.get(args.output)),
+                                     Files.readAllBytes(streamed));
+        }
+    }
+
+    /*
+     * Encryption piped into decryption (in every mode, padded modes need lookahead at the end of the stream and
+     * decompression is detected from a stream) restores the input
+     */
+    @Test
+    public void testPipeRoundTrip() throws IOException, InterruptedException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        Random random = new Random(39);
+        for (byte[] plainText : new byte[][] {randomBytes(random, 200003), randomBytes(random, 4096), new byte[0]}) {
+            Path input = write(directory, "in" + plainText.length, plainText);
+            for (int i = 0; i < MODES.length; i++) {
+                String name = plainText.length + "-" + i;
+                Args args = args(directory, input, name, random);
+                Path output = directory.resolve(name + ".out");
+                ProcessBuilder encrypt = cipher(directory, name + ".encrypt", args, MODES[i])
+                        .redirectInput(input.toFile());
+                ProcessBuilder decrypt = cipher(directory, name + ".decrypt", args, concat(MODES[i], "-d"))
+                        .redirectOutput(output.toFile());
+                waitFor(ProcessBuilder.startPipeline(List.of(encrypt, decrypt)), directory, name + ".encrypt",
+                        name + ".decrypt");
+                Assert.assertArrayEquals(name, plainText, Files.readAllBytes(output));
+            }
+        }
+    }
+
+    /*
+     * CliCipher in a child JVM reading - and writing -, with the key and IV of args, standard error goes to
+     * directory/<name>.err
+     */
+    private static ProcessBuilder cipher(Path directory, String name, Args args, String... options) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (ManagementFactory.getRuntimeMXBean().getInputArguments().contains("--enable-preview")) {
+            command.add("--enable-preview"); // the classes may have been compiled with preview features
+        }
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), "main.CliCipher", "-f", "-", "-o", "-",
+                               "-k", args.keyFilePath, "-v", args.initVectorFilePath));
+        command.addAll(Arrays.asList(options));
+        return new ProcessBuilder(command).redirectError(directory.resolve(name + ".err").toFile());
+    }
+
+    /*
+     * Waits for every process of a pipeline, each must exit successfully
+     */
+    private static void waitFor(List<Process> pipeline, Path directory, String... names)
+            throws IOException, InterruptedException {
+        for (int i = 0; i < pipeline.size(); i++) {
+            int status = pipeline.get(i).waitFor();
+            Assert.assertEquals(Files.readString(directory.resolve(names[i] + ".err")), 0, status);
+        }
+    }
+
+}